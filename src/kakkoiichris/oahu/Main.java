@@ -9,22 +9,127 @@
  *        Copyright (C) 2019, KakkoiiChris         *
  ***************************************************/
 
-import kakkoiichris.oahu.runtime.Memory;
+import kakkoiichris.oahu.ir.Builder;
+import kakkoiichris.oahu.ir.Verifier;
+import kakkoiichris.oahu.jit.Jit;
+import kakkoiichris.oahu.lexer.Context;
+import kakkoiichris.oahu.lexer.Lexer;
+import kakkoiichris.oahu.optimizer.Optimizer;
+import kakkoiichris.oahu.parser.Frontend;
+import kakkoiichris.oahu.parser.IncrementalParser;
+import kakkoiichris.oahu.parser.Program;
+import kakkoiichris.oahu.parser.ProgramCache;
+import kakkoiichris.oahu.runtime.Engine;
+import kakkoiichris.oahu.runtime.Runtime;
+import kakkoiichris.oahu.runtime.Script;
 import kakkoiichris.oahu.util.OahuError;
 import kakkoiichris.oahu.util.Source;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 import static kakkoiichris.oahu.util.Aesthetics.ICON;
 
+private final Map<String, String> options = new HashMap<>();
+
 void main(String... args) throws InterruptedException {
-    switch (args.length) {
+    var paths = new ArrayList<String>();
+
+    for (var arg : args) {
+        if (arg.startsWith("-")) {
+            var split = arg.indexOf('=');
+
+            if (split < 0) {
+                options.put(arg, "");
+            }
+            else {
+                options.put(arg.substring(0, split), arg.substring(split + 1));
+            }
+        }
+        else {
+            paths.add(arg);
+        }
+    }
+
+    switch (paths.size()) {
         case 0 -> repl();
 
-        case 1 -> file(args[0]);
+        case 1 -> {
+            if (options.containsKey("--bench")) {
+                bench(paths.getFirst());
+            }
+            else if (options.containsKey("--bench-lex")) {
+                benchLex(paths.getFirst());
+            }
+            else if (options.containsKey("--dump-ir")) {
+                dumpIr(paths.getFirst());
+            }
+            else if (options.containsKey("--test")) {
+                test(paths.getFirst());
+            }
+            else {
+                file(paths.getFirst());
+            }
+        }
     }
 }
 
+private Program resolve(Source source) {
+    var frontend = Frontend.SEQUENTIAL;
+
+    var threads = 1;
+
+    if (options.containsKey("--parallel")) {
+        frontend = Frontend.PARALLEL;
+
+        threads = options.get("--parallel").isEmpty() ? java.lang.Runtime.getRuntime().availableProcessors() : Integer.parseInt(options.get("--parallel"));
+    }
+    else if (options.containsKey("--pipeline")) {
+        frontend = Frontend.PIPELINED;
+    }
+
+    ProgramCache cache = null;
+
+    if (options.containsKey("--cache")) {
+        cache = options.get("--cache").isEmpty() ? ProgramCache.ofDefault() : new ProgramCache(Path.of(options.get("--cache")));
+    }
+
+    var level = Optimizer.DEFAULT_LEVEL;
+
+    for (var option : options.keySet()) {
+        if (option.matches("-O\\d+")) {
+            level = Integer.parseInt(option.substring(2));
+        }
+    }
+
+    return source.resolve(frontend, threads, cache, new Optimizer(level));
+}
+
+private Script prepare(Source source) {
+    var script = source.prepare(Engine.get(options.getOrDefault("--engine", "ast")), resolve(source));
+
+    if (script instanceof Runtime runtime) {
+        if (options.containsKey("--jit")) {
+            var threshold = options.get("--jit").isEmpty() ? Jit.DEFAULT_THRESHOLD : Integer.parseInt(options.get("--jit"));
+
+            runtime.enableJit(threshold);
+        }
+
+        if (options.containsKey("--specialize")) {
+            runtime.enableSpecialization();
+        }
+    }
+
+    return script;
+}
+
 @SuppressWarnings({"preview", "BusyWait"})
 private void repl() throws InterruptedException {
     System.out.println("""
@@ -51,11 +156,11 @@ private void repl() throws InterruptedException {
             try {
                 var source = Source.ofREPL(code);
 
-                var script = source.prepare();
+                var script = prepare(source);
 
                 var result = script.run();
 
-                System.out.println(Memory.fromReference(result.value()));
+                System.out.println(result.value());
             }
             catch (OahuError error) {
                 System.err.println(error.getMessage());
@@ -70,13 +175,232 @@ private void file(String path) {
     try {
         var source = Source.ofFile(path);
 
-        var script = source.prepare();
+        var script = prepare(source);
 
         var result = script.run();
 
-        System.out.println(Memory.fromReference(result.value()));
+        System.out.println(result.value());
+    }
+    catch (OahuError error) {
+        System.err.println(error.getMessage());
+    }
+}
+
+@SuppressWarnings("preview")
+private void bench(String path) {
+    var runs = options.get("--bench").isEmpty() ? 10 : Integer.parseInt(options.get("--bench"));
+
+    try {
+        var source = Source.ofFile(path);
+
+        var script = prepare(source);
+
+        for (var i = 0; i < runs; i++) {
+            script.run();
+        }
+
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        var thread = Thread.currentThread().threadId();
+
+        var total = 0L;
+        var best = Long.MAX_VALUE;
+        var allocated = 0L;
+
+        for (var i = 0; i < runs; i++) {
+            var bytes = threads.getThreadAllocatedBytes(thread);
+            var start = System.nanoTime();
+
+            script.run();
+
+            var elapsed = System.nanoTime() - start;
+
+            allocated += threads.getThreadAllocatedBytes(thread) - bytes;
+
+            total += elapsed;
+            best = Math.min(best, elapsed);
+        }
+
+        System.out.printf(STR."O'ahu Bench \{ICON} %s: %.3f ms/run (best %.3f ms, %d runs)%n", source.name(), total / 1e6 / runs, best / 1e6, runs);
+        System.out.printf(STR."O'ahu Bench \{ICON} %s: %.2f MB/run allocated (%.1f MB/s)%n", source.name(), allocated / 1e6 / runs, allocated / 1e6 / (total / 1e9));
+    }
+    catch (OahuError error) {
+        System.err.println(error.getMessage());
+    }
+}
+
+@SuppressWarnings("preview")
+private void benchLex(String path) {
+    var runs = options.get("--bench-lex").isEmpty() ? 20 : Integer.parseInt(options.get("--bench-lex"));
+
+    try {
+        var source = Source.ofFile(path);
+
+        for (var i = 0; i < runs; i++) {
+            lex(source);
+        }
+
+        var tokens = 0L;
+        var total = 0L;
+        var best = Long.MAX_VALUE;
+
+        for (var i = 0; i < runs; i++) {
+            var start = System.nanoTime();
+
+            tokens += lex(source);
+
+            var elapsed = System.nanoTime() - start;
+
+            total += elapsed;
+            best = Math.min(best, elapsed);
+        }
+
+        System.out.printf(STR."O'ahu Bench \{ICON} %s: %.2f M tokens/s (%d tokens/run, best %.3f ms, %d runs)%n", source.name(), tokens / (total / 1e3), tokens / runs, best / 1e6, runs);
+    }
+    catch (OahuError error) {
+        System.err.println(error.getMessage());
+    }
+}
+
+private void dumpIr(String path) {
+    try {
+        var source = Source.ofFile(path);
+
+        var main = new Builder(resolve(source)).build();
+
+        Verifier.verify(main);
+
+        System.out.print(main.dump());
     }
     catch (OahuError error) {
         System.err.println(error.getMessage());
     }
-}
\ No newline at end of file
+}
+
+// Every script in the directory must run on every engine; a first line "// = value" pins the result, otherwise the engines need only agree
+@SuppressWarnings("preview")
+private void test(String path) {
+    List<Path> scripts;
+
+    try (var files = Files.list(Path.of(path))) {
+        scripts = files.filter(file -> file.toString().endsWith(".oahu")).sorted().toList();
+    }
+    catch (IOException e) {
+        System.err.println(STR."Could not list '\{path}': \{e.getMessage()}");
+
+        System.exit(1);
+
+        return;
+    }
+
+    var failures = 0;
+
+    for (var script : scripts) {
+        var name = script.getFileName().toString();
+
+        String expected = null;
+
+        try (var lines = Files.lines(script)) {
+            var first = lines.findFirst().orElse("");
+
+            if (first.startsWith("// = ")) {
+                expected = first.substring(5).strip();
+            }
+        }
+        catch (IOException e) {
+            System.err.println(STR."Could not read '\{name}': \{e.getMessage()}");
+
+            failures++;
+
+            continue;
+        }
+
+        var passed = true;
+
+        for (var engine : Engine.values()) {
+            String actual;
+
+            try {
+                var source = Source.ofFile(script.toString());
+
+                actual = String.valueOf(source.prepare(engine, resolve(source)).run().value());
+            }
+            catch (OahuError error) {
+                System.err.println(STR."O'ahu Test \{ICON} \{name} (\{engine.name().toLowerCase()}) failed:");
+                System.err.println(error.getMessage());
+
+                passed = false;
+
+                continue;
+            }
+
+            if (expected == null) {
+                expected = actual;
+            }
+            else if (!expected.equals(actual)) {
+                System.err.println(STR."O'ahu Test \{ICON} \{name} (\{engine.name().toLowerCase()}): expected \{expected}, got \{actual}");
+
+                passed = false;
+            }
+        }
+
+        if (!reparses(script)) {
+            System.err.println(STR."O'ahu Test \{ICON} \{name}: an edit re-parsed statements it did not touch");
+
+            passed = false;
+        }
+
+        if (!passed) {
+            failures++;
+        }
+    }
+
+    System.out.println(STR."O'ahu Test \{ICON} \{scripts.size() - failures} of \{scripts.size()} scripts passed");
+
+    if (failures > 0) {
+        System.exit(1);
+    }
+}
+
+// Pushing the middle statement down a line must re-parse only it and the one before, and keep every other node
+private static boolean reparses(Path script) {
+    var parser = new IncrementalParser(Source.ofFile(script.toString()));
+
+    var before = parser.parse().stmts();
+
+    if (before.size() < 2) {
+        return true;
+    }
+
+    var middle = before.size() / 2;
+
+    var context = before.get(middle).context();
+
+    var start = parser.source().origins().baseOf(Context.file(context)) + Context.offset(context);
+
+    var after = parser.edit(start, start, "\n").stmts();
+
+    if (after.size() != before.size()) {
+        return false;
+    }
+
+    for (var i = 0; i < before.size(); i++) {
+        if ((i < middle - 1 || i > middle) && after.get(i) != before.get(i)) {
+            return false;
+        }
+    }
+
+    return true;
+}
+
+private static int lex(Source source) {
+    var lexer = new Lexer(source);
+
+    var count = 1;
+
+    while (lexer.scan() != Lexer.END_OF_FILE) {
+        count++;
+    }
+
+    return count;
+}
@@ -0,0 +1,23 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.closure;
+
+public record Activation(Object[] slots, Activation parent) {
+    public Activation up(int depth) {
+        var frame = this;
+
+        for (var i = 0; i < depth; i++) {
+            frame = frame.parent;
+        }
+
+        return frame;
+    }
+}
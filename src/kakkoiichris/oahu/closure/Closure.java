@@ -0,0 +1,28 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.closure;
+
+import kakkoiichris.oahu.parser.Stmt;
+
+public record Closure(Function function, Activation frame, Stmt.Fun.Link link) {
+    public Closure(Function function, Activation frame) {
+        this(function, frame, null);
+    }
+
+    public boolean isLinked() {
+        return link != null;
+    }
+
+    @Override
+    public String toString() {
+        return function.toString();
+    }
+}
@@ -0,0 +1,1180 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.closure;
+
+import kakkoiichris.oahu.parser.Expr;
+import kakkoiichris.oahu.parser.Program;
+import kakkoiichris.oahu.parser.Stmt;
+import kakkoiichris.oahu.runtime.Operators;
+import kakkoiichris.oahu.runtime.Redirect;
+import kakkoiichris.oahu.runtime.data.Null;
+import kakkoiichris.oahu.runtime.data.Table;
+import kakkoiichris.oahu.runtime.data.Unit;
+import kakkoiichris.oahu.runtime.linker.Link;
+import kakkoiichris.oahu.runtime.linker.Linker;
+import kakkoiichris.oahu.util.OahuError;
+import kakkoiichris.oahu.util.Source;
+import kakkoiichris.oahu.vm.CallSite;
+
+import java.util.*;
+
+// Every node is built once, with its operator, slot and literals already bound, so running it is just calling it
+public class ClosureCompiler implements Expr.Visitor<Node>, Stmt.Visitor<Node> {
+    private static final Node NOTHING = _ -> null;
+
+    private final Source source;
+    private final Program program;
+    private final Linker linker;
+
+    private final Redirect.Return returned = new Redirect.Return();
+
+    private Scope scope;
+
+    public ClosureCompiler(Source source, Program program, Link... links) {
+        this.source = source;
+        this.program = program;
+
+        linker = new Linker(source, links);
+    }
+
+    // Classes and members live in the runtime's scope model, so a program using them is left to the AST engine
+    public Optional<Function> compile() {
+        var main = new Function(null, program.locals());
+
+        scope = new Scope(null, false);
+
+        var stmts = new ArrayList<Node>();
+
+        try {
+            for (var stmt : program) {
+                var node = visit(stmt);
+
+                var context = stmt.context();
+
+                stmts.add(frame -> {
+                    var completion = node.exec(frame);
+
+                    if (completion != null && !(completion instanceof Redirect.Return)) {
+                        throw OahuError.unhandledRedirect((Redirect) completion, source, context);
+                    }
+
+                    return completion;
+                });
+            }
+
+            main.define(new Node[0], sequence(stmts));
+
+            finish();
+        }
+        catch (Unsupported e) {
+            return Optional.empty();
+        }
+
+        return Optional.of(main);
+    }
+
+    private void compileFun(Function function, Scope enclosing) {
+        var fun = function.fun();
+
+        var outer = scope;
+
+        scope = new Scope(enclosing, false);
+
+        try {
+            var defaults = new Node[fun.params().size()];
+
+            for (var i = 0; i < defaults.length; i++) {
+                var param = fun.params().get(i);
+
+                scope.fixed.set(param.name().slot());
+
+                if (param.defaultValue() != Expr.Empty.get()) {
+                    defaults[i] = visit(param.defaultValue());
+                }
+            }
+
+            function.define(defaults, visit(fun.body()));
+
+            finish();
+        }
+        finally {
+            scope = outer;
+        }
+    }
+
+    // Nested bodies are compiled once their enclosing function is complete, mirroring the resolver
+    private void finish() {
+        var done = scope;
+
+        for (var pending : done.pending) {
+            compileFun(pending.function(), pending.enclosing());
+        }
+    }
+
+    private static Node sequence(List<Node> nodes) {
+        return switch (nodes.size()) {
+            case 0 -> NOTHING;
+
+            case 1 -> nodes.getFirst();
+
+            default -> {
+                var array = nodes.toArray(Node[]::new);
+
+                yield frame -> {
+                    for (var node : array) {
+                        var completion = node.exec(frame);
+
+                        if (completion != null) {
+                            return completion;
+                        }
+                    }
+
+                    return null;
+                };
+            }
+        };
+    }
+
+    private static boolean isTrue(Object value) {
+        return value instanceof Boolean b && b;
+    }
+
+    private boolean isConstant(Expr.Name name) {
+        var owner = scope;
+
+        for (var i = 0; i < name.depth() && owner != null; i++) {
+            owner = owner.enclosing;
+        }
+
+        return owner != null && owner.fixed.get(name.slot());
+    }
+
+    private int define(Expr.Name name, boolean constant) {
+        if (!name.isResolved()) {
+            throw OahuError.failure("Name '%s' has no slot in the closure engine!".formatted(name));
+        }
+
+        scope.fixed.set(name.slot(), constant);
+
+        return name.slot();
+    }
+
+    // Statements that appear as expressions still have to hand their redirects to the enclosing loop
+    private Node effect(Expr expr) {
+        return switch (expr) {
+            case Expr.Empty _ -> NOTHING;
+
+            case Expr.Statement statement -> visit(statement.stmt());
+
+            case Expr.Block block -> sequence(block.exprs().stream().map(this::effect).toList());
+
+            case Expr.If ifExpr -> {
+                var condition = visit(ifExpr.condition());
+                var body = effect(ifExpr.body());
+                var elze = effect(ifExpr.elze());
+
+                yield frame -> isTrue(condition.exec(frame)) ? body.exec(frame) : elze.exec(frame);
+            }
+
+            case Expr.When when -> {
+                var conditions = new Node[when.branches().size()];
+                var bodies = new Node[conditions.length];
+
+                for (var i = 0; i < conditions.length; i++) {
+                    conditions[i] = visit(when.branches().get(i).condition());
+                    bodies[i] = effect(when.branches().get(i).body());
+                }
+
+                var elze = effect(when.elze());
+
+                yield frame -> {
+                    for (var i = 0; i < conditions.length; i++) {
+                        if (isTrue(conditions[i].exec(frame))) {
+                            return bodies[i].exec(frame);
+                        }
+                    }
+
+                    return elze.exec(frame);
+                };
+            }
+
+            default -> {
+                var node = visit(expr);
+
+                yield frame -> {
+                    node.exec(frame);
+
+                    return null;
+                };
+            }
+        };
+    }
+
+    private Object unary(Expr.Unary expr, Object e, Object result) {
+        if (result instanceof Operators.Invalid) {
+            throw OahuError.invalidUnaryOperand(e, expr.operator(), source, expr.context());
+        }
+
+        return result;
+    }
+
+    private Object binary(Expr.Binary expr, Object l, Object r, Object result) {
+        if (result instanceof Operators.Invalid invalid) {
+            throw switch (invalid) {
+                case LEFT -> OahuError.invalidLeftOperand(l, expr.operator(), source, expr.left().context());
+
+                case RIGHT -> OahuError.invalidRightOperand(r, expr.operator(), source, expr.right().context());
+            };
+        }
+
+        return result;
+    }
+
+    @Override
+    public Node visitEmptyExpr(Expr.Empty expr) {
+        return _ -> Unit.get();
+    }
+
+    @Override
+    public Node visitValueExpr(Expr.Value expr) {
+        var value = expr.value();
+
+        return _ -> value;
+    }
+
+    @Override
+    public Node visitNameExpr(Expr.Name expr) {
+        if (!expr.isResolved()) {
+            return _ -> {
+                throw OahuError.undefinedName(expr, source, expr.context());
+            };
+        }
+
+        var depth = expr.depth();
+        var slot = expr.slot();
+
+        return switch (depth) {
+            case 0 -> frame -> {
+                var value = frame.slots()[slot];
+
+                if (value == null) {
+                    throw OahuError.undefinedName(expr, source, expr.context());
+                }
+
+                return value;
+            };
+
+            case 1 -> frame -> {
+                var value = frame.parent().slots()[slot];
+
+                if (value == null) {
+                    throw OahuError.undefinedName(expr, source, expr.context());
+                }
+
+                return value;
+            };
+
+            default -> frame -> {
+                var value = frame.up(depth).slots()[slot];
+
+                if (value == null) {
+                    throw OahuError.undefinedName(expr, source, expr.context());
+                }
+
+                return value;
+            };
+        };
+    }
+
+    @Override
+    public Node visitUnaryExpr(Expr.Unary expr) {
+        var operand = visit(expr.expr());
+
+        return switch (expr.operator()) {
+            case NEGATIVE -> frame -> {
+                var e = operand.exec(frame);
+
+                if (e instanceof Double d) {
+                    return -d;
+                }
+
+                return unary(expr, e, Operators.negate(e));
+            };
+
+            case NOT -> frame -> {
+                var e = operand.exec(frame);
+
+                if (e instanceof Boolean b) {
+                    return !b;
+                }
+
+                return unary(expr, e, Operators.not(e));
+            };
+
+            default -> frame -> {
+                operand.exec(frame);
+
+                return Unit.get();
+            };
+        };
+    }
+
+    @Override
+    public Node visitBinaryExpr(Expr.Binary expr) {
+        var left = visit(expr.left());
+        var right = visit(expr.right());
+
+        return switch (expr.operator()) {
+            case OR -> frame -> {
+                var l = left.exec(frame);
+
+                if (l instanceof Boolean b && b) {
+                    return true;
+                }
+
+                var r = right.exec(frame);
+
+                if (r instanceof Boolean) {
+                    return r;
+                }
+
+                throw OahuError.invalidLeftOperand(l, expr.operator(), source, expr.left().context());
+            };
+
+            case AND -> frame -> {
+                var l = left.exec(frame);
+
+                if (l instanceof Boolean b && !b) {
+                    return false;
+                }
+
+                var r = right.exec(frame);
+
+                if (r instanceof Boolean) {
+                    return r;
+                }
+
+                throw OahuError.invalidLeftOperand(l, expr.operator(), source, expr.left().context());
+            };
+
+            case EQUAL -> frame -> left.exec(frame).equals(right.exec(frame));
+
+            case NOT_EQUAL -> frame -> !left.exec(frame).equals(right.exec(frame));
+
+            case LESS -> frame -> {
+                var l = left.exec(frame);
+                var r = right.exec(frame);
+
+                return l instanceof Double a && r instanceof Double b ? (Object) (a < b) : binary(expr, l, r, Operators.less(l, r));
+            };
+
+            case LESS_EQUAL -> frame -> {
+                var l = left.exec(frame);
+                var r = right.exec(frame);
+
+                return l instanceof Double a && r instanceof Double b ? (Object) (a <= b) : binary(expr, l, r, Operators.lessEqual(l, r));
+            };
+
+            case GREATER -> frame -> {
+                var l = left.exec(frame);
+                var r = right.exec(frame);
+
+                return l instanceof Double a && r instanceof Double b ? (Object) (a > b) : binary(expr, l, r, Operators.greater(l, r));
+            };
+
+            case GREATER_EQUAL -> frame -> {
+                var l = left.exec(frame);
+                var r = right.exec(frame);
+
+                return l instanceof Double a && r instanceof Double b ? (Object) (a >= b) : binary(expr, l, r, Operators.greaterEqual(l, r));
+            };
+
+            case ADD -> frame -> {
+                var l = left.exec(frame);
+                var r = right.exec(frame);
+
+                return l instanceof Double a && r instanceof Double b ? (Object) (a + b) : binary(expr, l, r, Operators.add(l, r));
+            };
+
+            case SUBTRACT -> frame -> {
+                var l = left.exec(frame);
+                var r = right.exec(frame);
+
+                return l instanceof Double a && r instanceof Double b ? (Object) (a - b) : binary(expr, l, r, Operators.subtract(l, r));
+            };
+
+            case MULTIPLY -> frame -> {
+                var l = left.exec(frame);
+                var r = right.exec(frame);
+
+                return l instanceof Double a && r instanceof Double b ? (Object) (a * b) : binary(expr, l, r, Operators.multiply(l, r));
+            };
+
+            case DIVIDE -> frame -> {
+                var l = left.exec(frame);
+                var r = right.exec(frame);
+
+                return l instanceof Double a && r instanceof Double b ? (Object) (a / b) : binary(expr, l, r, Operators.divide(l, r));
+            };
+
+            case MODULUS -> frame -> {
+                var l = left.exec(frame);
+                var r = right.exec(frame);
+
+                return l instanceof Double a && r instanceof Double b ? (Object) Operators.arithmetic(Expr.Binary.Operator.MODULUS, a, b) : binary(expr, l, r, Operators.modulus(l, r));
+            };
+        };
+    }
+
+    @Override
+    public Node visitAssignExpr(Expr.Assign expr) {
+        var value = visit(expr.value());
+
+        var name = expr.name();
+
+        if (!name.isResolved()) {
+            return frame -> {
+                value.exec(frame);
+
+                throw OahuError.undefinedName(name, source, name.context());
+            };
+        }
+
+        var depth = name.depth();
+        var slot = name.slot();
+
+        if (isConstant(name)) {
+            return frame -> {
+                value.exec(frame);
+
+                if (frame.up(depth).slots()[slot] == null) {
+                    throw OahuError.undefinedName(name, source, name.context());
+                }
+
+                throw OahuError.reassignedConstant(source, name.context());
+            };
+        }
+
+        return frame -> {
+            var v = value.exec(frame);
+
+            var slots = frame.up(depth).slots();
+
+            if (slots[slot] == null) {
+                throw OahuError.undefinedName(name, source, name.context());
+            }
+
+            slots[slot] = v;
+
+            return v;
+        };
+    }
+
+    @Override
+    public Node visitIndexExpr(Expr.Index expr) {
+        return NOTHING;
+    }
+
+    @Override
+    public Node visitMemberExpr(Expr.Member expr) {
+        throw new Unsupported();
+    }
+
+    @Override
+    public Node visitInvokeExpr(Expr.Invoke expr) {
+        var target = visit(expr.target());
+
+        var args = new Node[expr.args().size()];
+
+        var named = false;
+
+        var names = new String[args.length];
+        var spreads = new boolean[args.length];
+
+        for (var i = 0; i < args.length; i++) {
+            var arg = expr.args().get(i);
+
+            args[i] = visit(arg.expr());
+
+            if (!arg.isPositional()) {
+                names[i] = arg.name().value();
+            }
+
+            spreads[i] = arg.spread();
+
+            named |= !arg.isPositional() || arg.spread();
+        }
+
+        var site = named ? new CallSite(names, spreads) : null;
+
+        var context = expr.context();
+
+        return frame -> {
+            var callee = target.exec(frame);
+
+            if (!(callee instanceof Closure closure)) {
+                throw OahuError.notCallableValueError(callee, source, context);
+            }
+
+            var function = closure.function();
+
+            // Plain positional calls write their arguments straight into the new frame
+            if (site == null && !closure.isLinked() && args.length == function.arity() && !function.isVararg()) {
+                var slots = new Object[function.locals()];
+
+                var params = function.slots();
+
+                for (var i = 0; i < args.length; i++) {
+                    slots[params[i]] = args[i].exec(frame);
+                }
+
+                return call(function, new Activation(slots, closure.frame()));
+            }
+
+            var values = new Object[args.length];
+
+            for (var i = 0; i < args.length; i++) {
+                values[i] = args[i].exec(frame);
+            }
+
+            return invoke(closure, values, site, context);
+        };
+    }
+
+    private Object invoke(Closure closure, Object[] args, CallSite site, long context) {
+        var function = closure.function();
+
+        var values = bind(function, args, site, context);
+
+        if (closure.isLinked()) {
+            return invokeLink(closure, values, context);
+        }
+
+        var frame = new Activation(new Object[function.locals()], closure.frame());
+
+        var slots = frame.slots();
+        var params = function.slots();
+        var defaults = function.defaults();
+
+        for (var i = 0; i < params.length; i++) {
+            slots[params[i]] = values[i] != null ? values[i] : defaults[i].exec(frame);
+        }
+
+        return call(function, frame);
+    }
+
+    private Object call(Function function, Activation frame) {
+        try {
+            var completion = function.body().exec(frame);
+
+            if (completion == null) {
+                return Unit.get();
+            }
+
+            if (completion instanceof Redirect.Return r) {
+                return r.getValue();
+            }
+
+            throw OahuError.unhandledRedirect((Redirect) completion, source, function.fun().context());
+        }
+        catch (Redirect.Return r) {
+            return r.getValue();
+        }
+        catch (Redirect.Exit | Redirect.Throw r) {
+            throw r;
+        }
+        catch (Redirect r) {
+            throw OahuError.unhandledRedirect(r, source, function.fun().context());
+        }
+    }
+
+    private Object invokeLink(Closure closure, Object[] values, long context) {
+        var fun = closure.function().fun();
+
+        var args = new ArrayList<>();
+
+        for (var value : values) {
+            args.add(value == null ? Unit.get() : value);
+        }
+
+        if (!closure.link().resolve(args)) {
+            throw OahuError.linkResolutionError(fun.path(), closure.link().arity(), args.size());
+        }
+
+        try {
+            return closure.link().invoke(null, Null.get(), args);
+        }
+        catch (Redirect.Exit | Redirect.Throw r) {
+            throw r;
+        }
+        catch (Redirect r) {
+            throw OahuError.unhandledRedirect(r, source, context);
+        }
+    }
+
+    private Object[] bind(Function function, Object[] args, CallSite site, long context) {
+        var names = function.names();
+        var vararg = function.isVararg();
+
+        if (args.length > names.length && !vararg) {
+            throw OahuError.unresolvedArguments(function, source, context);
+        }
+
+        var values = new Object[names.length];
+
+        var positional = new ArrayList<Integer>();
+
+        for (var i = 0; i < args.length; i++) {
+            if (site == null || !site.isNamed(i)) {
+                positional.add(i);
+
+                continue;
+            }
+
+            var index = Arrays.asList(names).indexOf(site.names()[i]);
+
+            if (index < 0) {
+                throw OahuError.unresolvedArguments(function, source, context);
+            }
+
+            values[index] = args[i];
+        }
+
+        var p = 0;
+
+        for (var i = 0; i < values.length && p < positional.size(); i++) {
+            if (values[i] == null && !(vararg && i == values.length - 1)) {
+                values[i] = args[positional.get(p++)];
+            }
+        }
+
+        if (vararg && (p < positional.size() || values[values.length - 1] == null && !isOptional(function, values.length - 1))) {
+            var list = new ArrayList<>();
+
+            while (p < positional.size()) {
+                var i = positional.get(p++);
+
+                var value = args[i];
+
+                if (site == null || !site.spreads()[i]) {
+                    list.add(value);
+
+                    continue;
+                }
+
+                switch (value) {
+                    case String string -> {
+                        for (var c : string.toCharArray()) {
+                            list.add(String.valueOf(c));
+                        }
+                    }
+
+                    case Table table -> list.addAll(table.list());
+
+                    default -> throw OahuError.notSpreadableValueError(value, source, context);
+                }
+            }
+
+            values[values.length - 1] = new Table(list, new HashMap<>());
+        }
+
+        for (var i = 0; i < values.length; i++) {
+            if (values[i] == null && !isOptional(function, i)) {
+                throw OahuError.unresolvedArguments(function, source, context);
+            }
+        }
+
+        return values;
+    }
+
+    // Linked functions have no compiled defaults, so only their declarations can say what is optional
+    private static boolean isOptional(Function function, int i) {
+        if (function.isDefined()) {
+            return function.isOptional(i);
+        }
+
+        return function.fun().params().get(i).defaultValue() != Expr.Empty.get();
+    }
+
+    @Override
+    public Node visitListLiteralExpr(Expr.ListLiteral expr) {
+        var elements = expr.elements().stream().map(this::visit).toArray(Node[]::new);
+
+        return frame -> {
+            var list = new ArrayList<>(elements.length);
+
+            for (var element : elements) {
+                list.add(element.exec(frame));
+            }
+
+            return new Table(list, new HashMap<>());
+        };
+    }
+
+    @Override
+    public Node visitListForExpr(Expr.ListFor expr) {
+        return NOTHING;
+    }
+
+    @Override
+    public Node visitLambdaExpr(Expr.Lambda expr) {
+        var function = function(expr.fun());
+
+        return frame -> new Closure(function, frame);
+    }
+
+    private Function function(Stmt.Fun fun) {
+        var function = new Function(fun, fun.locals());
+
+        scope.function.pending.add(new Pending(function, scope));
+
+        return function;
+    }
+
+    @Override
+    public Node visitBlockExpr(Expr.Block expr) {
+        var exprs = expr.exprs().stream().map(this::visit).toArray(Node[]::new);
+
+        return switch (exprs.length) {
+            case 0 -> _ -> Unit.get();
+
+            case 1 -> exprs[0];
+
+            default -> frame -> {
+                for (var i = 0; i < exprs.length - 1; i++) {
+                    exprs[i].exec(frame);
+                }
+
+                return exprs[exprs.length - 1].exec(frame);
+            };
+        };
+    }
+
+    @Override
+    public Node visitIfExpr(Expr.If expr) {
+        var condition = visit(expr.condition());
+        var body = visit(expr.body());
+        var elze = visit(expr.elze());
+
+        return frame -> isTrue(condition.exec(frame)) ? body.exec(frame) : elze.exec(frame);
+    }
+
+    @Override
+    public Node visitWhenExpr(Expr.When expr) {
+        var conditions = new Node[expr.branches().size()];
+        var bodies = new Node[conditions.length];
+
+        for (var i = 0; i < conditions.length; i++) {
+            conditions[i] = visit(expr.branches().get(i).condition());
+            bodies[i] = visit(expr.branches().get(i).body());
+        }
+
+        var elze = visit(expr.elze());
+
+        return frame -> {
+            for (var i = 0; i < conditions.length; i++) {
+                if (isTrue(conditions[i].exec(frame))) {
+                    return bodies[i].exec(frame);
+                }
+            }
+
+            return elze.exec(frame);
+        };
+    }
+
+    @Override
+    public Node visitTryExpr(Expr.Try expr) {
+        return NOTHING;
+    }
+
+    @Override
+    public Node visitStatementExpr(Expr.Statement expr) {
+        var stmt = visit(expr.stmt());
+
+        return frame -> {
+            if (stmt.exec(frame) instanceof Redirect redirect) {
+                throw redirect;
+            }
+
+            return Unit.get();
+        };
+    }
+
+    @Override
+    public Node visitEmptyStmt(Stmt.Empty stmt) {
+        return NOTHING;
+    }
+
+    @Override
+    public Node visitExpressionStmt(Stmt.Expression stmt) {
+        return effect(stmt.expr());
+    }
+
+    @Override
+    public Node visitDeclarationStmt(Stmt.Declaration stmt) {
+        var value = visit(stmt.expr());
+
+        if (stmt.destructured()) {
+            return frame -> {
+                value.exec(frame);
+
+                return null;
+            };
+        }
+
+        var slot = define(stmt.names().getFirst(), stmt.constant());
+
+        return frame -> {
+            frame.slots()[slot] = value.exec(frame);
+
+            return null;
+        };
+    }
+
+    @Override
+    public Node visitBlockStmt(Stmt.Block stmt) {
+        var locals = stmt.locals();
+
+        if (locals == 0) {
+            return sequence(stmt.stmts().stream().map(this::visit).toList());
+        }
+
+        scope = new Scope(scope, true);
+
+        try {
+            var body = sequence(stmt.stmts().stream().map(this::visit).toList());
+
+            return frame -> body.exec(new Activation(new Object[locals], frame));
+        }
+        finally {
+            scope = scope.enclosing;
+        }
+    }
+
+    @Override
+    public Node visitWhileStmt(Stmt.While stmt) {
+        var label = stmt.label();
+
+        var condition = visit(stmt.condition());
+        var body = visit(stmt.body());
+
+        Node loop = frame -> {
+            while (isTrue(condition.exec(frame))) {
+                var completion = body.exec(frame);
+
+                if (completion != null) {
+                    if (completion instanceof Redirect.Break b && b.matches(label)) {
+                        break;
+                    }
+
+                    if (!(completion instanceof Redirect.Continue c && c.matches(label))) {
+                        return completion;
+                    }
+                }
+            }
+
+            return null;
+        };
+
+        var counter = stmt.getCounter();
+
+        if (counter == null || !counter.name().isResolved() || isConstant(counter.name())) {
+            return loop;
+        }
+
+        return count(label, counter, loop);
+    }
+
+    // Runs a counting loop on a primitive counter, publishing it after each step, unless its operands turn out not to be numbers
+    private Node count(Expr.Name label, Stmt.While.Counter counter, Node loop) {
+        var depth = counter.name().depth();
+        var slot = counter.name().slot();
+
+        var operator = counter.operator();
+        var step = counter.step();
+
+        var limit = visit(counter.limit());
+        var body = visit(counter.body());
+
+        return frame -> {
+            var slots = frame.up(depth).slots();
+
+            if (!(slots[slot] instanceof Double start) || !(limit.exec(frame) instanceof Double end)) {
+                return loop.exec(frame);
+            }
+
+            for (double i = start; Operators.comparison(operator, i, end); ) {
+                var completion = body.exec(frame);
+
+                if (completion != null) {
+                    if (completion instanceof Redirect.Break b && b.matches(label)) {
+                        break;
+                    }
+
+                    return completion;
+                }
+
+                i += step;
+
+                slots[slot] = i;
+            }
+
+            return null;
+        };
+    }
+
+    @Override
+    public Node visitDoStmt(Stmt.Do stmt) {
+        var label = stmt.label();
+
+        var body = visit(stmt.body());
+        var condition = visit(stmt.condition());
+
+        return frame -> {
+            do {
+                var completion = body.exec(frame);
+
+                if (completion != null) {
+                    if (completion instanceof Redirect.Break b && b.matches(label)) {
+                        break;
+                    }
+
+                    if (!(completion instanceof Redirect.Continue c && c.matches(label))) {
+                        return completion;
+                    }
+                }
+            }
+            while (isTrue(condition.exec(frame)));
+
+            return null;
+        };
+    }
+
+    @Override
+    public Node visitLoopStmt(Stmt.Loop stmt) {
+        var label = stmt.label();
+
+        var count = stmt.count() == Expr.Empty.get() ? null : visit(stmt.count());
+        var body = visit(stmt.body());
+
+        var context = stmt.count().context();
+
+        return frame -> {
+            var limit = Double.POSITIVE_INFINITY;
+
+            if (count != null) {
+                var value = count.exec(frame);
+
+                if (!(value instanceof Double d)) {
+                    throw OahuError.invalidLoopCount(value, source, context);
+                }
+
+                limit = d;
+            }
+
+            for (var i = 0; i < limit; i++) {
+                var completion = body.exec(frame);
+
+                if (completion != null) {
+                    if (completion instanceof Redirect.Break b && b.matches(label)) {
+                        break;
+                    }
+
+                    if (!(completion instanceof Redirect.Continue c && c.matches(label))) {
+                        return completion;
+                    }
+                }
+            }
+
+            return null;
+        };
+    }
+
+    @Override
+    public Node visitForStmt(Stmt.For stmt) {
+        var label = stmt.label();
+
+        var iterable = visit(stmt.iterable());
+
+        var locals = stmt.locals();
+
+        if (locals > 0) {
+            scope = new Scope(scope, true);
+        }
+
+        var slots = new int[stmt.names().size()];
+
+        for (var i = 0; i < slots.length; i++) {
+            slots[i] = define(stmt.names().get(i), true);
+        }
+
+        var destructured = stmt.destructured();
+
+        var body = visit(stmt.body());
+
+        if (locals > 0) {
+            scope = scope.enclosing;
+        }
+
+        var context = stmt.iterable().context();
+
+        return frame -> {
+            var value = iterable.exec(frame);
+
+            Iterable<?> elements = switch (value) {
+                case Table table -> table;
+
+                case String string -> string
+                    .chars()
+                    .mapToObj(c -> String.valueOf((char) c))
+                    .toList();
+
+                default -> throw OahuError.notIterableValueError(value, source, context);
+            };
+
+            for (var element : elements) {
+                var inner = locals > 0 ? new Activation(new Object[locals], frame) : frame;
+
+                var names = inner.slots();
+
+                if (destructured) {
+                    if (!(element instanceof Table table)) {
+                        throw OahuError.notIterableValueError(element, source, stmt.context());
+                    }
+
+                    for (var i = 0; i < slots.length; i++) {
+                        names[slots[i]] = table.get(i);
+                    }
+                }
+                else {
+                    names[slots[0]] = element;
+                }
+
+                var completion = body.exec(inner);
+
+                if (completion != null) {
+                    if (completion instanceof Redirect.Break b && b.matches(label)) {
+                        break;
+                    }
+
+                    if (!(completion instanceof Redirect.Continue c && c.matches(label))) {
+                        return completion;
+                    }
+                }
+            }
+
+            return null;
+        };
+    }
+
+    @Override
+    public Node visitBreakStmt(Stmt.Break stmt) {
+        var redirect = stmt.redirect();
+
+        return _ -> redirect;
+    }
+
+    @Override
+    public Node visitContinueStmt(Stmt.Continue stmt) {
+        var redirect = stmt.redirect();
+
+        return _ -> redirect;
+    }
+
+    @Override
+    public Node visitReturnStmt(Stmt.Return stmt) {
+        var value = visit(stmt.expr());
+
+        return frame -> returned.withValue(value.exec(frame));
+    }
+
+    @Override
+    public Node visitThrowStmt(Stmt.Throw stmt) {
+        var value = visit(stmt.expr());
+
+        return frame -> {
+            throw new Redirect.Throw(value.exec(frame));
+        };
+    }
+
+    @Override
+    public Node visitExitStmt(Stmt.Exit stmt) {
+        var value = visit(stmt.expr());
+
+        return frame -> {
+            throw new Redirect.Exit(value.exec(frame));
+        };
+    }
+
+    @Override
+    public Node visitFunStmt(Stmt.Fun stmt) {
+        var slot = define(stmt.name(), true);
+
+        if (stmt.isLinked()) {
+            var function = new Function(stmt, 0);
+
+            var path = stmt.path();
+
+            return frame -> {
+                var link = linker.getFunction(path).orElseThrow(() -> OahuError.missingFunctionLink(path));
+
+                frame.slots()[slot] = new Closure(function, frame, link);
+
+                return null;
+            };
+        }
+
+        var function = function(stmt);
+
+        return frame -> {
+            frame.slots()[slot] = new Closure(function, frame);
+
+            return null;
+        };
+    }
+
+    @Override
+    public Node visitClassStmt(Stmt.Class stmt) {
+        throw new Unsupported();
+    }
+
+    @Override
+    public Node visitEnumStmt(Stmt.Enum stmt) {
+        return NOTHING;
+    }
+
+    // One per frame; a framed block shares its function's pending list
+    private static final class Scope {
+        private final Scope enclosing;
+        private final Scope function;
+
+        private final BitSet fixed = new BitSet();
+
+        private final List<Pending> pending = new ArrayList<>();
+
+        private Scope(Scope enclosing, boolean block) {
+            this.enclosing = enclosing;
+
+            function = block ? enclosing.function : this;
+        }
+    }
+
+    private record Pending(Function function, Scope enclosing) {
+    }
+
+    private static final class Unsupported extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private Unsupported() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.closure;
+
+import kakkoiichris.oahu.runtime.Redirect;
+import kakkoiichris.oahu.runtime.Runtime;
+import kakkoiichris.oahu.runtime.Script;
+import kakkoiichris.oahu.runtime.data.Unit;
+
+public class Evaluator implements Script {
+    private final Function main;
+
+    public Evaluator(Function main) {
+        this.main = main;
+    }
+
+    @Override
+    public Runtime.Result run() {
+        try {
+            if (main.body().exec(new Activation(new Object[main.locals()], null)) instanceof Redirect.Return redirect) {
+                var value = redirect.getValue();
+
+                return new Runtime.Result(value, value.toString());
+            }
+        }
+        catch (Redirect.Return redirect) {
+            var value = redirect.getValue();
+
+            return new Runtime.Result(value, value.toString());
+        }
+
+        return new Runtime.Result(Unit.get(), "");
+    }
+}
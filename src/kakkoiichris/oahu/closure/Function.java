@@ -0,0 +1,96 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.closure;
+
+import kakkoiichris.oahu.parser.Stmt;
+
+import java.util.List;
+
+public final class Function {
+    private final Stmt.Fun fun;
+    private final int locals;
+    private final int[] slots;
+    private final String[] names;
+    private final boolean vararg;
+
+    private Node[] defaults;
+    private Node body;
+
+    public Function(Stmt.Fun fun, int locals) {
+        this.fun = fun;
+        this.locals = locals;
+
+        var params = fun == null ? List.<Stmt.Fun.Param>of() : fun.params();
+
+        slots = new int[params.size()];
+        names = new String[params.size()];
+
+        for (var i = 0; i < params.size(); i++) {
+            var param = params.get(i);
+
+            slots[i] = param.name().slot();
+            names[i] = param.name().value();
+        }
+
+        vararg = !params.isEmpty() && params.getLast().isVarargs();
+    }
+
+    public Stmt.Fun fun() {
+        return fun;
+    }
+
+    public int locals() {
+        return locals;
+    }
+
+    public int arity() {
+        return slots.length;
+    }
+
+    public int[] slots() {
+        return slots;
+    }
+
+    public String[] names() {
+        return names;
+    }
+
+    public boolean isVararg() {
+        return vararg;
+    }
+
+    // A null entry marks a parameter that must be given
+    public Node[] defaults() {
+        return defaults;
+    }
+
+    public boolean isOptional(int i) {
+        return defaults[i] != null;
+    }
+
+    public Node body() {
+        return body;
+    }
+
+    public void define(Node[] defaults, Node body) {
+        this.defaults = defaults;
+        this.body = body;
+    }
+
+    public boolean isDefined() {
+        return body != null;
+    }
+
+    @Override
+    public String toString() {
+        return fun == null ? "main" : fun.toString();
+    }
+}
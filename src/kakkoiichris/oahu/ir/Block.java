@@ -0,0 +1,81 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.ir;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class Block {
+    private final List<Instruction> instructions = new ArrayList<>();
+    private final List<Block> predecessors = new ArrayList<>();
+
+    private int id;
+
+    Block(int id) {
+        this.id = id;
+    }
+
+    public int id() {
+        return id;
+    }
+
+    void setId(int id) {
+        this.id = id;
+    }
+
+    public List<Instruction> instructions() {
+        return instructions;
+    }
+
+    // A block reached twice from the same branch is listed twice, with a phi operand for each
+    public List<Block> predecessors() {
+        return predecessors;
+    }
+
+    public List<Block> successors() {
+        return isTerminated() ? terminator().targets() : List.of();
+    }
+
+    public boolean isTerminated() {
+        return !instructions.isEmpty() && instructions.getLast().op().isTerminator();
+    }
+
+    public Instruction terminator() {
+        return instructions.getLast();
+    }
+
+    public List<Instruction> phis() {
+        var count = 0;
+
+        while (count < instructions.size() && instructions.get(count).op() == Op.PHI) {
+            count++;
+        }
+
+        return instructions.subList(0, count);
+    }
+
+    void append(Instruction instruction) {
+        instruction.setBlock(this);
+
+        instructions.add(instruction);
+    }
+
+    void prepend(Instruction phi) {
+        phi.setBlock(this);
+
+        instructions.add(phis().size(), phi);
+    }
+
+    @Override
+    public String toString() {
+        return "b%d".formatted(id);
+    }
+}
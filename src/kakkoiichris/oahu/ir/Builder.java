@@ -0,0 +1,1315 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.ir;
+
+import kakkoiichris.oahu.lexer.Context;
+import kakkoiichris.oahu.optimizer.Transformer;
+import kakkoiichris.oahu.parser.Expr;
+import kakkoiichris.oahu.parser.Program;
+import kakkoiichris.oahu.parser.Stmt;
+import kakkoiichris.oahu.runtime.data.Unit;
+import kakkoiichris.oahu.vm.CallSite;
+
+import java.util.*;
+
+// Lowers a resolved program to blocks of SSA values, keeping locals no closure can see out of the frame
+public class Builder implements Expr.Visitor<Value>, Stmt.Visitor<Unit> {
+    private final Program program;
+
+    private State state;
+
+    public Builder(Program program) {
+        this.program = program;
+    }
+
+    public Function build() {
+        var main = new Function("main", null, program.locals());
+
+        state = new State(null, main, Captures.of(program.stmts()));
+
+        state.current = main.newBlock();
+
+        state.seal(state.current);
+
+        for (var stmt : program) {
+            visit(stmt);
+        }
+
+        terminate(Context.none(), Op.RETURN, List.of(Value.unit()), List.of());
+
+        finish();
+
+        return main;
+    }
+
+    private void buildFun(Function function, Level enclosing) {
+        var fun = function.fun();
+
+        var outer = state;
+
+        state = new State(enclosing, function, Captures.of(fun));
+
+        try {
+            state.current = function.newBlock();
+
+            state.seal(state.current);
+
+            for (var i = 0; i < fun.params().size(); i++) {
+                var param = fun.params().get(i);
+
+                Value value = emit(param.context(), Op.PARAM, param.name(), List.of());
+
+                if (param.defaultValue() != Expr.Empty.get()) {
+                    var set = emit(param.context(), Op.IS_SET, null, List.of(value));
+
+                    var missing = state.function.newBlock();
+                    var join = state.function.newBlock();
+
+                    var given = state.current;
+
+                    branch(param.context(), set, join, missing);
+
+                    state.seal(missing);
+
+                    state.current = missing;
+
+                    var defaultValue = visit(param.defaultValue());
+
+                    var computed = state.current;
+
+                    jump(join);
+
+                    state.seal(join);
+
+                    state.current = join;
+
+                    value = merge(join, List.of(given, computed), List.of(value, defaultValue));
+                }
+
+                bind(param.name(), value, !param.isMutable());
+            }
+
+            visit(fun.body());
+
+            terminate(fun.context(), Op.RETURN, List.of(Value.unit()), List.of());
+
+            finish();
+        }
+        finally {
+            state = outer;
+        }
+    }
+
+    private void finish() {
+        var function = state.function;
+
+        prune(function);
+
+        // Pruning drops phi operands, which can leave phis that only forward one value
+        var changed = true;
+
+        while (changed) {
+            changed = false;
+
+            for (var block : function.blocks()) {
+                for (var phi : List.copyOf(block.phis())) {
+                    if (phi.block() != null && state.tryRemoveTrivialPhi(phi) != phi) {
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        removeDeadPhis(function);
+
+        function.renumber();
+
+        // Nested bodies are built once their enclosing function is complete, mirroring the resolver
+        var done = state;
+
+        for (var pending : done.pending) {
+            buildFun(pending.function(), pending.enclosing());
+        }
+    }
+
+    // Drops blocks nothing jumps to and lays the rest out in reverse postorder, taken branches first, so the dump reads like the source
+    private static void prune(Function function) {
+        var postorder = new ArrayList<Block>();
+
+        var visited = new HashSet<Block>();
+
+        var path = new ArrayDeque<Block>();
+        var stack = new ArrayDeque<Iterator<Block>>();
+
+        visited.add(function.entry());
+
+        path.push(function.entry());
+        stack.push(function.entry().successors().reversed().iterator());
+
+        while (!stack.isEmpty()) {
+            var successors = stack.peek();
+
+            if (successors.hasNext()) {
+                var next = successors.next();
+
+                if (visited.add(next)) {
+                    path.push(next);
+
+                    stack.push(next.successors().reversed().iterator());
+                }
+            }
+            else {
+                stack.pop();
+
+                postorder.add(path.pop());
+            }
+        }
+
+        function.blocks().clear();
+
+        function.blocks().addAll(postorder.reversed());
+
+        for (var block : function.blocks()) {
+            var predecessors = block.predecessors();
+
+            for (var i = predecessors.size() - 1; i >= 0; i--) {
+                if (!visited.contains(predecessors.get(i))) {
+                    predecessors.remove(i);
+
+                    for (var phi : block.phis()) {
+                        phi.operands().remove(i);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void removeDeadPhis(Function function) {
+        var changed = true;
+
+        while (changed) {
+            changed = false;
+
+            var used = new HashSet<Instruction>();
+
+            for (var block : function.blocks()) {
+                for (var instruction : block.instructions()) {
+                    for (var operand : instruction.operands()) {
+                        if (operand instanceof Instruction value && value != instruction) {
+                            used.add(value);
+                        }
+                    }
+                }
+            }
+
+            for (var block : function.blocks()) {
+                changed |= block.instructions().removeIf(instruction -> instruction.op() == Op.PHI && !used.contains(instruction));
+            }
+        }
+    }
+
+    private Instruction emit(long context, Op op, Object detail, List<Value> operands) {
+        var instruction = new Instruction(context, op, detail, operands, List.of());
+
+        state.current.append(instruction);
+
+        return instruction;
+    }
+
+    private void terminate(long context, Op op, List<Value> operands, List<Block> targets) {
+        var block = state.current;
+
+        block.append(new Instruction(context, op, null, operands, targets));
+
+        for (var target : targets) {
+            target.predecessors().add(block);
+        }
+
+        // Whatever follows a jump is unreachable, and is pruned once the function is complete
+        if (targets.isEmpty() || op == Op.JUMP) {
+            state.current = state.function.newBlock();
+
+            state.seal(state.current);
+        }
+    }
+
+    private void jump(Block target) {
+        terminate(Context.none(), Op.JUMP, List.of(), List.of(target));
+    }
+
+    private void branch(long context, Value condition, Block whenTrue, Block whenFalse) {
+        terminate(context, Op.BRANCH, List.of(condition), List.of(whenTrue, whenFalse));
+    }
+
+    // Joins the values flowing in from each predecessor, in the order their edges were added
+    private Value merge(Block join, List<Block> predecessors, List<Value> values) {
+        var operands = new ArrayList<Value>();
+
+        for (var predecessor : join.predecessors()) {
+            var i = predecessors.indexOf(predecessor);
+
+            if (i >= 0) {
+                operands.add(values.get(i));
+            }
+        }
+
+        if (operands.isEmpty()) {
+            return Value.unit();
+        }
+
+        if (operands.stream().allMatch(operands.getFirst()::equals)) {
+            return operands.getFirst();
+        }
+
+        var phi = new Instruction(Context.none(), Op.PHI, null, operands, List.of());
+
+        join.prepend(phi);
+
+        return phi;
+    }
+
+    private void bind(Expr.Name name, Value value, boolean constant) {
+        if (!name.isResolved()) {
+            emit(name.context(), Op.STORE_NAME, name, List.of(value));
+
+            return;
+        }
+
+        state.level.fixed.set(name.slot(), constant);
+
+        if (state.level instanceof Framed framed) {
+            emit(name.context(), Op.DEFINE_LOCAL, new Instruction.Local(name, constant), List.of(framed.frame, value));
+        }
+        else if (state.isPromoted(name.slot())) {
+            state.write(name.slot(), state.current, value);
+
+            state.names.put(name.slot(), name.value());
+
+            if (value instanceof Instruction instruction) {
+                instruction.setHint(name.value());
+            }
+        }
+        else {
+            emit(name.context(), Op.DEFINE, new Instruction.Local(name, constant), List.of(value));
+        }
+    }
+
+    private boolean isConstant(Expr.Name name) {
+        var owner = state.level;
+
+        for (var i = 0; i < name.depth() && owner != null; i++) {
+            owner = owner.enclosing;
+        }
+
+        return owner != null && owner.fixed.get(name.slot());
+    }
+
+    // The framed block a resolved name lives in, or null when it lives in a function's frame
+    private Framed framed(Expr.Name name) {
+        var owner = state.level;
+
+        for (var i = 0; i < name.depth() && owner instanceof Framed; i++) {
+            owner = owner.enclosing;
+        }
+
+        return owner instanceof Framed framed ? framed : null;
+    }
+
+    // Frames between this function's own and the one a name outside every framed block lives in
+    private int up(Expr.Name name) {
+        return name.depth() - state.blocks;
+    }
+
+    // A framed block makes its frame an explicit value, so every load, store and closure in it names the frame it uses
+    private void enter(long context, int locals) {
+        var outer = state.level instanceof Framed framed ? List.<Value>of(framed.frame) : List.<Value>of();
+
+        state.level = new Framed(state.level, emit(context, Op.FRAME, locals, outer));
+
+        state.blocks++;
+    }
+
+    private void leave() {
+        state.level = state.level.enclosing;
+
+        state.blocks--;
+    }
+
+    private Value opaque(Object node, long context) {
+        return emit(context, Op.EVAL, node, List.of());
+    }
+
+    private Value closure(Stmt.Fun fun, long context) {
+        if (fun.isLinked()) {
+            return emit(context, Op.LINK, fun, List.of());
+        }
+
+        var name = fun.name().isEmpty() ? "lambda%d".formatted(++state.lambdas) : fun.name().value();
+
+        var function = new Function(name, fun, fun.locals());
+
+        state.function.functions().add(function);
+
+        state.pending.add(new Pending(function, state.level));
+
+        var frame = state.level instanceof Framed framed ? List.<Value>of(framed.frame) : List.<Value>of();
+
+        return emit(context, Op.CLOSURE, function, frame);
+    }
+
+    @Override
+    public Value visitEmptyExpr(Expr.Empty expr) {
+        return Value.unit();
+    }
+
+    @Override
+    public Value visitValueExpr(Expr.Value expr) {
+        return Value.of(expr.value());
+    }
+
+    @Override
+    public Value visitNameExpr(Expr.Name expr) {
+        if (!expr.isResolved()) {
+            return emit(expr.context(), Op.LOAD_NAME, expr, List.of());
+        }
+
+        if (framed(expr) instanceof Framed framed) {
+            return emit(expr.context(), Op.LOAD_LOCAL, expr, List.of(framed.frame));
+        }
+
+        if (up(expr) > 0) {
+            return emit(expr.context(), Op.LOAD_UP, expr, List.of());
+        }
+
+        if (state.isPromoted(expr.slot())) {
+            return state.read(expr.slot(), state.current);
+        }
+
+        return emit(expr.context(), Op.LOAD, expr, List.of());
+    }
+
+    @Override
+    public Value visitUnaryExpr(Expr.Unary expr) {
+        var operand = visit(expr.expr());
+
+        return emit(expr.context(), Op.UNARY, expr.operator(), List.of(operand));
+    }
+
+    @Override
+    public Value visitBinaryExpr(Expr.Binary expr) {
+        var operator = expr.operator();
+
+        var left = visit(expr.left());
+
+        if (operator != Expr.Binary.Operator.OR && operator != Expr.Binary.Operator.AND) {
+            var right = visit(expr.right());
+
+            return emit(expr.context(), Op.BINARY, operator, List.of(left, right));
+        }
+
+        // Only the left operand decides whether the right is evaluated; the right must still be a boolean
+        var shortCircuit = operator == Expr.Binary.Operator.OR;
+
+        var test = shortCircuit ? left : emit(expr.context(), Op.BINARY, Expr.Binary.Operator.EQUAL, List.of(left, Value.of(false)));
+
+        var rest = state.function.newBlock();
+        var join = state.function.newBlock();
+
+        var decided = state.current;
+
+        branch(expr.context(), test, join, rest);
+
+        state.seal(rest);
+
+        state.current = rest;
+
+        var right = visit(expr.right());
+
+        var logic = emit(expr.context(), Op.LOGIC, null, List.of(right, left));
+
+        var evaluated = state.current;
+
+        jump(join);
+
+        state.seal(join);
+
+        state.current = join;
+
+        return merge(join, List.of(decided, evaluated), List.of(Value.of(shortCircuit), logic));
+    }
+
+    @Override
+    public Value visitAssignExpr(Expr.Assign expr) {
+        var name = expr.name();
+
+        var value = visit(expr.value());
+
+        if (!name.isResolved()) {
+            emit(name.context(), Op.STORE_NAME, name, List.of(value));
+        }
+        else if (isConstant(name)) {
+            emit(name.context(), Op.REASSIGN, name, List.of());
+        }
+        else if (framed(name) instanceof Framed framed) {
+            emit(name.context(), Op.STORE_LOCAL, name, List.of(framed.frame, value));
+        }
+        else if (up(name) > 0) {
+            emit(name.context(), Op.STORE_UP, name, List.of(value));
+        }
+        else if (state.isPromoted(name.slot())) {
+            state.write(name.slot(), state.current, value);
+
+            if (value instanceof Instruction instruction) {
+                instruction.setHint(name.value());
+            }
+        }
+        else {
+            emit(name.context(), Op.STORE, name, List.of(value));
+        }
+
+        return value;
+    }
+
+    @Override
+    public Value visitIndexExpr(Expr.Index expr) {
+        return opaque(expr, expr.context());
+    }
+
+    @Override
+    public Value visitMemberExpr(Expr.Member expr) {
+        return opaque(expr, expr.context());
+    }
+
+    @Override
+    public Value visitInvokeExpr(Expr.Invoke expr) {
+        var operands = new ArrayList<Value>();
+
+        operands.add(visit(expr.target()));
+
+        var args = expr.args();
+
+        var named = false;
+
+        var names = new String[args.size()];
+        var spreads = new boolean[args.size()];
+
+        for (var i = 0; i < args.size(); i++) {
+            var arg = args.get(i);
+
+            operands.add(visit(arg.expr()));
+
+            if (!arg.isPositional()) {
+                names[i] = arg.name().value();
+            }
+
+            spreads[i] = arg.spread();
+
+            named |= !arg.isPositional() || arg.spread();
+        }
+
+        return emit(expr.context(), Op.CALL, named ? new CallSite(names, spreads) : null, operands);
+    }
+
+    @Override
+    public Value visitListLiteralExpr(Expr.ListLiteral expr) {
+        var elements = new ArrayList<Value>();
+
+        for (var element : expr.elements()) {
+            elements.add(visit(element));
+        }
+
+        return emit(expr.context(), Op.LIST, null, elements);
+    }
+
+    @Override
+    public Value visitListForExpr(Expr.ListFor expr) {
+        return opaque(expr, expr.context());
+    }
+
+    @Override
+    public Value visitLambdaExpr(Expr.Lambda expr) {
+        return closure(expr.fun(), expr.context());
+    }
+
+    @Override
+    public Value visitBlockExpr(Expr.Block expr) {
+        Value value = Value.unit();
+
+        for (var subExpr : expr.exprs()) {
+            value = visit(subExpr);
+        }
+
+        return value;
+    }
+
+    @Override
+    public Value visitIfExpr(Expr.If expr) {
+        var condition = visit(expr.condition());
+
+        var body = state.function.newBlock();
+        var elze = state.function.newBlock();
+        var join = state.function.newBlock();
+
+        branch(expr.context(), condition, body, elze);
+
+        state.seal(body);
+        state.seal(elze);
+
+        var ends = new ArrayList<Block>();
+        var values = new ArrayList<Value>();
+
+        arm(body, expr.body(), join, ends, values);
+        arm(elze, expr.elze(), join, ends, values);
+
+        state.seal(join);
+
+        state.current = join;
+
+        return merge(join, ends, values);
+    }
+
+    @Override
+    public Value visitWhenExpr(Expr.When expr) {
+        var join = state.function.newBlock();
+
+        var ends = new ArrayList<Block>();
+        var values = new ArrayList<Value>();
+
+        for (var branch : expr.branches()) {
+            var condition = visit(branch.condition());
+
+            var body = state.function.newBlock();
+            var next = state.function.newBlock();
+
+            branch(branch.context(), condition, body, next);
+
+            state.seal(body);
+            state.seal(next);
+
+            arm(body, branch.body(), join, ends, values);
+
+            state.current = next;
+        }
+
+        arm(state.current, expr.elze(), join, ends, values);
+
+        state.seal(join);
+
+        state.current = join;
+
+        return merge(join, ends, values);
+    }
+
+    private void arm(Block block, Expr body, Block join, List<Block> ends, List<Value> values) {
+        state.current = block;
+
+        var value = visit(body);
+
+        ends.add(state.current);
+        values.add(value);
+
+        jump(join);
+    }
+
+    @Override
+    public Value visitTryExpr(Expr.Try expr) {
+        return opaque(expr, expr.context());
+    }
+
+    @Override
+    public Value visitStatementExpr(Expr.Statement expr) {
+        visit(expr.stmt());
+
+        return Value.unit();
+    }
+
+    @Override
+    public Unit visitEmptyStmt(Stmt.Empty stmt) {
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitExpressionStmt(Stmt.Expression stmt) {
+        visit(stmt.expr());
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitDeclarationStmt(Stmt.Declaration stmt) {
+        var value = visit(stmt.expr());
+
+        if (!stmt.destructured()) {
+            bind(stmt.names().getFirst(), value, stmt.constant());
+
+            return Unit.get();
+        }
+
+        unpack(stmt.context(), stmt.names(), value, stmt.constant());
+
+        return Unit.get();
+    }
+
+    private void unpack(long context, List<Expr.Name> names, Value value, boolean constant) {
+        for (var i = 0; i < names.size(); i++) {
+            bind(names.get(i), emit(context, Op.UNPACK, i, List.of(value)), constant);
+        }
+    }
+
+    @Override
+    public Unit visitBlockStmt(Stmt.Block stmt) {
+        if (stmt.locals() > 0) {
+            enter(stmt.context(), stmt.locals());
+        }
+
+        for (var subStmt : stmt.stmts()) {
+            visit(subStmt);
+        }
+
+        if (stmt.locals() > 0) {
+            leave();
+        }
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitWhileStmt(Stmt.While stmt) {
+        var header = state.function.newBlock();
+
+        jump(header);
+
+        state.current = header;
+
+        var condition = visit(stmt.condition());
+
+        var body = state.function.newBlock();
+        var exit = state.function.newBlock();
+
+        branch(stmt.context(), condition, body, exit);
+
+        state.seal(body);
+
+        loop(stmt.label(), body, stmt.body(), header, exit);
+
+        jump(header);
+
+        state.seal(header);
+        state.seal(exit);
+
+        state.current = exit;
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitDoStmt(Stmt.Do stmt) {
+        var body = state.function.newBlock();
+        var test = state.function.newBlock();
+        var exit = state.function.newBlock();
+
+        jump(body);
+
+        loop(stmt.label(), body, stmt.body(), test, exit);
+
+        jump(test);
+
+        state.seal(test);
+
+        state.current = test;
+
+        var condition = visit(stmt.condition());
+
+        branch(stmt.context(), condition, body, exit);
+
+        state.seal(body);
+        state.seal(exit);
+
+        state.current = exit;
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitLoopStmt(Stmt.Loop stmt) {
+        var header = state.function.newBlock();
+        var exit = state.function.newBlock();
+
+        if (stmt.count() == Expr.Empty.get()) {
+            jump(header);
+
+            loop(stmt.label(), header, stmt.body(), header, exit);
+
+            jump(header);
+
+            state.seal(header);
+            state.seal(exit);
+
+            state.current = exit;
+
+            return Unit.get();
+        }
+
+        // The hidden counter is an SSA variable like any other, under a key no slot can take
+        var counter = state.counter();
+
+        var count = emit(stmt.count().context(), Op.COUNT, null, List.of(visit(stmt.count())));
+
+        state.write(counter, state.current, Value.of(0.0));
+
+        jump(header);
+
+        state.current = header;
+
+        var less = emit(stmt.context(), Op.BINARY, Expr.Binary.Operator.LESS, List.of(state.read(counter, header), count));
+
+        var body = state.function.newBlock();
+        var step = state.function.newBlock();
+
+        branch(stmt.context(), less, body, exit);
+
+        state.seal(body);
+
+        loop(stmt.label(), body, stmt.body(), step, exit);
+
+        jump(step);
+
+        state.seal(step);
+
+        state.current = step;
+
+        var next = emit(stmt.context(), Op.BINARY, Expr.Binary.Operator.ADD, List.of(state.read(counter, step), Value.of(1.0)));
+
+        state.write(counter, step, next);
+
+        jump(header);
+
+        state.seal(header);
+        state.seal(exit);
+
+        state.current = exit;
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitForStmt(Stmt.For stmt) {
+        var iterator = emit(stmt.iterable().context(), Op.ITERATE, null, List.of(visit(stmt.iterable())));
+
+        var header = state.function.newBlock();
+
+        jump(header);
+
+        state.current = header;
+
+        var hasNext = emit(stmt.context(), Op.HAS_NEXT, null, List.of(iterator));
+
+        var body = state.function.newBlock();
+        var exit = state.function.newBlock();
+
+        branch(stmt.context(), hasNext, body, exit);
+
+        state.seal(body);
+
+        state.current = body;
+
+        var element = emit(stmt.context(), Op.NEXT, null, List.of(iterator));
+
+        if (stmt.locals() > 0) {
+            enter(stmt.context(), stmt.locals());
+        }
+
+        if (stmt.destructured()) {
+            unpack(stmt.context(), stmt.names(), element, true);
+        }
+        else {
+            bind(stmt.names().getFirst(), element, true);
+        }
+
+        loop(stmt.label(), state.current, stmt.body(), header, exit);
+
+        if (stmt.locals() > 0) {
+            leave();
+        }
+
+        jump(header);
+
+        state.seal(header);
+        state.seal(exit);
+
+        state.current = exit;
+
+        return Unit.get();
+    }
+
+    private void loop(Expr.Name label, Block start, Stmt body, Block next, Block exit) {
+        state.current = start;
+
+        state.loops.push(new Loop(label, next, exit));
+
+        try {
+            visit(body);
+        }
+        finally {
+            state.loops.pop();
+        }
+    }
+
+    private Loop find(Expr.Name label) {
+        for (var loop : state.loops) {
+            if (label.isEmpty() || label.equals(loop.label)) {
+                return loop;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public Unit visitBreakStmt(Stmt.Break stmt) {
+        var loop = find(stmt.label());
+
+        if (loop == null) {
+            terminate(stmt.context(), Op.UNHANDLED, List.of(Value.of(stmt.redirect())), List.of());
+        }
+        else {
+            jump(loop.exit);
+        }
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitContinueStmt(Stmt.Continue stmt) {
+        var loop = find(stmt.label());
+
+        if (loop == null) {
+            terminate(stmt.context(), Op.UNHANDLED, List.of(Value.of(stmt.redirect())), List.of());
+        }
+        else {
+            jump(loop.next);
+        }
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitReturnStmt(Stmt.Return stmt) {
+        terminate(stmt.context(), Op.RETURN, List.of(visit(stmt.expr())), List.of());
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitThrowStmt(Stmt.Throw stmt) {
+        terminate(stmt.context(), Op.THROW, List.of(visit(stmt.expr())), List.of());
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitExitStmt(Stmt.Exit stmt) {
+        terminate(stmt.context(), Op.EXIT, List.of(visit(stmt.expr())), List.of());
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitFunStmt(Stmt.Fun stmt) {
+        bind(stmt.name(), closure(stmt, stmt.context()), true);
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitClassStmt(Stmt.Class stmt) {
+        opaque(stmt, stmt.context());
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitEnumStmt(Stmt.Enum stmt) {
+        opaque(stmt, stmt.context());
+
+        return Unit.get();
+    }
+
+    private record Loop(Expr.Name label, Block next, Block exit) {
+    }
+
+    private record Pending(Function function, Level enclosing) {
+    }
+
+    // The compile-time image of a frame, which knows which of its slots hold constants
+    private static class Level {
+        protected final Level enclosing;
+
+        protected final BitSet fixed = new BitSet();
+
+        private Level(Level enclosing) {
+            this.enclosing = enclosing;
+        }
+    }
+
+    private static final class Framed extends Level {
+        private final Value frame;
+
+        private Framed(Level enclosing, Value frame) {
+            super(enclosing);
+
+            this.frame = frame;
+        }
+    }
+
+    // Per-function construction state, after Braun et al., "Simple and Efficient Construction of SSA Form"
+    private static final class State extends Level {
+        private final Function function;
+        private final Captures captures;
+
+        private final Map<Block, Map<Integer, Value>> definitions = new HashMap<>();
+        private final Map<Block, Map<Integer, Instruction>> incomplete = new HashMap<>();
+        private final Set<Block> sealed = new HashSet<>();
+
+        private final Map<Integer, String> names = new HashMap<>();
+
+        private final Deque<Loop> loops = new ArrayDeque<>();
+
+        private final List<Pending> pending = new ArrayList<>();
+
+        private Level level = this;
+
+        private int blocks;
+
+        private Block current;
+
+        private int counters;
+        private int lambdas;
+
+        private State(Level enclosing, Function function, Captures captures) {
+            super(enclosing);
+
+            this.function = function;
+            this.captures = captures;
+        }
+
+        private boolean isPromoted(int slot) {
+            return !captures.opaque && !captures.captured.get(slot);
+        }
+
+        private int counter() {
+            var key = -++counters;
+
+            names.put(key, "count");
+
+            return key;
+        }
+
+        private void write(int key, Block block, Value value) {
+            definitions.computeIfAbsent(block, _ -> new HashMap<>()).put(key, value);
+        }
+
+        private Value read(int key, Block block) {
+            var local = definitions.get(block);
+
+            if (local != null && local.containsKey(key)) {
+                return local.get(key);
+            }
+
+            Value value;
+
+            if (!sealed.contains(block)) {
+                var phi = phi(key, block);
+
+                incomplete.computeIfAbsent(block, _ -> new HashMap<>()).put(key, phi);
+
+                value = phi;
+            }
+            else if (block.predecessors().size() == 1) {
+                value = read(key, block.predecessors().getFirst());
+            }
+            else if (block.predecessors().isEmpty()) {
+                value = Value.Undefined.get();
+            }
+            else {
+                var phi = phi(key, block);
+
+                // Written first so a loop back to this block finds the phi rather than recursing forever
+                write(key, block, phi);
+
+                value = complete(key, phi);
+            }
+
+            write(key, block, value);
+
+            return value;
+        }
+
+        private Instruction phi(int key, Block block) {
+            var phi = new Instruction(Context.none(), Op.PHI, null, List.of(), List.of());
+
+            phi.setHint(names.get(key));
+
+            block.prepend(phi);
+
+            return phi;
+        }
+
+        private Value complete(int key, Instruction phi) {
+            for (var predecessor : phi.block().predecessors()) {
+                phi.operands().add(read(key, predecessor));
+            }
+
+            return tryRemoveTrivialPhi(phi);
+        }
+
+        private void seal(Block block) {
+            var phis = incomplete.remove(block);
+
+            if (phis != null) {
+                for (var entry : phis.entrySet()) {
+                    complete(entry.getKey(), entry.getValue());
+                }
+            }
+
+            sealed.add(block);
+        }
+
+        private Value tryRemoveTrivialPhi(Instruction phi) {
+            Value same = null;
+
+            for (var operand : phi.operands()) {
+                if (operand == same || operand == phi || operand.equals(same)) {
+                    continue;
+                }
+
+                if (same != null) {
+                    return phi;
+                }
+
+                same = operand;
+            }
+
+            if (same == null) {
+                same = Value.Undefined.get();
+            }
+
+            phi.block().instructions().remove(phi);
+
+            phi.setBlock(null);
+
+            var users = new ArrayList<Instruction>();
+
+            for (var block : function.blocks()) {
+                for (var instruction : block.instructions()) {
+                    var operands = instruction.operands();
+
+                    for (var i = 0; i < operands.size(); i++) {
+                        if (operands.get(i) == phi) {
+                            operands.set(i, same);
+
+                            users.add(instruction);
+                        }
+                    }
+                }
+            }
+
+            var replacement = same;
+
+            for (var local : definitions.values()) {
+                local.replaceAll((_, value) -> value == phi ? replacement : value);
+            }
+
+            for (var user : users) {
+                if (user.op() == Op.PHI && user.block() != null) {
+                    tryRemoveTrivialPhi(user);
+                }
+            }
+
+            return same;
+        }
+    }
+
+    // Slots a nested function or lambda reaches into must stay in the frame, as must every slot if an opaque node is present
+    private static final class Captures extends Transformer {
+        private final BitSet captured = new BitSet();
+
+        private boolean opaque;
+
+        private int nesting;
+        private int functions;
+
+        private static Captures of(List<Stmt> stmts) {
+            var captures = new Captures();
+
+            captures.stmts(stmts);
+
+            return captures;
+        }
+
+        private static Captures of(Stmt.Fun fun) {
+            var captures = new Captures();
+
+            for (var param : fun.params()) {
+                captures.visit(param.defaultValue());
+            }
+
+            captures.visit(fun.body());
+
+            return captures;
+        }
+
+        private void reach(Expr.Name name) {
+            if (functions > 0 && name.isResolved() && name.depth() == nesting) {
+                captured.set(name.slot());
+            }
+        }
+
+        private void local() {
+            if (functions == 0) {
+                opaque = true;
+            }
+        }
+
+        @Override
+        protected Stmt.Fun fun(Stmt.Fun fun) {
+            nesting++;
+            functions++;
+
+            try {
+                return super.fun(fun);
+            }
+            finally {
+                nesting--;
+                functions--;
+            }
+        }
+
+        // A framed block is a frame of its own but still this function's code, so what it reaches stays promotable
+        @Override
+        public Stmt visitBlockStmt(Stmt.Block stmt) {
+            if (stmt.locals() == 0) {
+                return super.visitBlockStmt(stmt);
+            }
+
+            nesting++;
+
+            try {
+                return super.visitBlockStmt(stmt);
+            }
+            finally {
+                nesting--;
+            }
+        }
+
+        @Override
+        public Stmt visitForStmt(Stmt.For stmt) {
+            if (stmt.locals() == 0) {
+                return super.visitForStmt(stmt);
+            }
+
+            visit(stmt.iterable());
+
+            nesting++;
+
+            try {
+                visit(stmt.body());
+            }
+            finally {
+                nesting--;
+            }
+
+            return stmt;
+        }
+
+        @Override
+        public Expr visitNameExpr(Expr.Name expr) {
+            reach(expr);
+
+            return expr;
+        }
+
+        @Override
+        public Expr visitAssignExpr(Expr.Assign expr) {
+            reach(expr.name());
+
+            return super.visitAssignExpr(expr);
+        }
+
+        @Override
+        public Expr visitIndexExpr(Expr.Index expr) {
+            local();
+
+            return super.visitIndexExpr(expr);
+        }
+
+        @Override
+        public Expr visitMemberExpr(Expr.Member expr) {
+            local();
+
+            return super.visitMemberExpr(expr);
+        }
+
+        @Override
+        public Expr visitListForExpr(Expr.ListFor expr) {
+            local();
+
+            return super.visitListForExpr(expr);
+        }
+
+        @Override
+        public Expr visitTryExpr(Expr.Try expr) {
+            local();
+
+            return super.visitTryExpr(expr);
+        }
+
+        // Class parameters sit one frame below the declaring scope and the initializer one below that
+        @Override
+        public Stmt visitClassStmt(Stmt.Class stmt) {
+            local();
+
+            visit(stmt.base());
+
+            nesting++;
+            functions++;
+
+            try {
+                for (var param : stmt.params()) {
+                    visit(param.defaultValue());
+                }
+
+                nesting++;
+
+                try {
+                    stmts(stmt.init());
+                }
+                finally {
+                    nesting--;
+                }
+            }
+            finally {
+                nesting--;
+                functions--;
+            }
+
+            return stmt;
+        }
+
+        // Enum entries are evaluated where the enum is declared, which the slot depths do not describe
+        @Override
+        public Stmt visitEnumStmt(Stmt.Enum stmt) {
+            opaque = true;
+
+            return stmt;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.ir;
+
+import kakkoiichris.oahu.parser.Expr;
+import kakkoiichris.oahu.parser.Stmt;
+import kakkoiichris.oahu.vm.CallSite;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+public final class Function {
+    private final String name;
+    private final Stmt.Fun fun;
+    private final int locals;
+
+    private final List<Block> blocks = new ArrayList<>();
+    private final List<Function> functions = new ArrayList<>();
+
+    private int nextBlock;
+
+    public Function(String name, Stmt.Fun fun, int locals) {
+        this.name = name;
+        this.fun = fun;
+        this.locals = locals;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    // The declaration this function was lowered from, or null for the top level
+    public Stmt.Fun fun() {
+        return fun;
+    }
+
+    public int locals() {
+        return locals;
+    }
+
+    public Block entry() {
+        return blocks.getFirst();
+    }
+
+    public List<Block> blocks() {
+        return blocks;
+    }
+
+    // Functions and lambdas declared directly inside this one
+    public List<Function> functions() {
+        return functions;
+    }
+
+    Block newBlock() {
+        var block = new Block(nextBlock++);
+
+        blocks.add(block);
+
+        return block;
+    }
+
+    // Numbers blocks and values in layout order, so printed names are dense and stable
+    void renumber() {
+        var id = 0;
+
+        for (var i = 0; i < blocks.size(); i++) {
+            var block = blocks.get(i);
+
+            block.setId(i);
+
+            for (var instruction : block.instructions()) {
+                if (instruction.op().hasValue()) {
+                    instruction.setId(id++);
+                }
+            }
+        }
+
+        nextBlock = blocks.size();
+    }
+
+    public String dump() {
+        var builder = new StringBuilder();
+
+        dump(builder);
+
+        return builder.toString();
+    }
+
+    private void dump(StringBuilder builder) {
+        builder.append("%s (%d locals)%n".formatted(this, locals));
+
+        for (var block : blocks) {
+            builder.append("  %s:".formatted(block));
+
+            if (!block.predecessors().isEmpty()) {
+                var joiner = new StringJoiner(", ", " ; preds ", "");
+
+                for (var predecessor : block.predecessors()) {
+                    joiner.add(predecessor.toString());
+                }
+
+                builder.append(joiner);
+            }
+
+            builder.append(System.lineSeparator());
+
+            for (var instruction : block.instructions()) {
+                builder.append("    ").append(format(instruction)).append(System.lineSeparator());
+            }
+        }
+
+        for (var function : functions) {
+            builder.append(System.lineSeparator());
+
+            function.dump(builder);
+        }
+    }
+
+    private static String format(Instruction instruction) {
+        var builder = new StringBuilder();
+
+        if (instruction.op().hasValue()) {
+            builder.append(instruction).append(" = ");
+        }
+
+        var operands = instruction.operands();
+
+        var joiner = new StringJoiner(", ", " ", "").setEmptyValue("");
+
+        switch (instruction.op()) {
+            case UNARY -> {
+                builder.append(((Expr.Unary.Operator) instruction.detail()).name().toLowerCase());
+
+                operands.forEach(operand -> joiner.add(operand.toString()));
+            }
+
+            case BINARY -> {
+                builder.append(((Expr.Binary.Operator) instruction.detail()).name().toLowerCase());
+
+                operands.forEach(operand -> joiner.add(operand.toString()));
+            }
+
+            case PHI -> {
+                builder.append("phi");
+
+                var predecessors = instruction.block().predecessors();
+
+                for (var i = 0; i < operands.size(); i++) {
+                    joiner.add("[%s, %s]".formatted(operands.get(i), i < predecessors.size() ? predecessors.get(i) : "?"));
+                }
+            }
+
+            case CALL -> {
+                builder.append("call");
+
+                joiner.add(operands.getFirst().toString());
+
+                var site = (CallSite) instruction.detail();
+
+                for (var i = 1; i < operands.size(); i++) {
+                    var spread = site != null && site.spreads()[i - 1] ? "*" : "";
+
+                    var name = site != null && site.isNamed(i - 1) ? "%s = ".formatted(site.names()[i - 1]) : "";
+
+                    joiner.add(name + spread + operands.get(i));
+                }
+            }
+
+            case LOAD_UP, STORE_UP -> {
+                builder.append(instruction.op().name().toLowerCase());
+
+                var name = (Expr.Name) instruction.detail();
+
+                joiner.add("%s^%d".formatted(name, name.depth()));
+
+                operands.forEach(operand -> joiner.add(operand.toString()));
+            }
+
+            case CLOSURE -> {
+                builder.append("closure");
+
+                joiner.add(((Function) instruction.detail()).toString());
+
+                operands.forEach(operand -> joiner.add(operand.toString()));
+            }
+
+            default -> {
+                builder.append(instruction.op().name().toLowerCase());
+
+                if (instruction.detail() != null) {
+                    joiner.add(instruction.detail().toString());
+                }
+
+                operands.forEach(operand -> joiner.add(operand.toString()));
+            }
+        }
+
+        instruction.targets().forEach(target -> joiner.add(target.toString()));
+
+        builder.append(joiner);
+
+        if (instruction.hint() != null) {
+            builder.append("  ; ").append(instruction.hint());
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
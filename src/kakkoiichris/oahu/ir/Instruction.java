@@ -0,0 +1,96 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.ir;
+
+import kakkoiichris.oahu.parser.Expr;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Operands stay mutable so phis can be filled in once a block's predecessors are all known
+public final class Instruction implements Value {
+    private final long context;
+    private final Op op;
+    private final Object detail;
+    private final List<Value> operands;
+    private final List<Block> targets;
+
+    private Block block;
+    private int id = -1;
+    private String hint;
+
+    public Instruction(long context, Op op, Object detail, List<Value> operands, List<Block> targets) {
+        this.context = context;
+        this.op = op;
+        this.detail = detail;
+        this.operands = new ArrayList<>(operands);
+        this.targets = targets;
+    }
+
+    public long context() {
+        return context;
+    }
+
+    public Op op() {
+        return op;
+    }
+
+    public Object detail() {
+        return detail;
+    }
+
+    public List<Value> operands() {
+        return operands;
+    }
+
+    public List<Block> targets() {
+        return targets;
+    }
+
+    public Block block() {
+        return block;
+    }
+
+    void setBlock(Block block) {
+        this.block = block;
+    }
+
+    public int id() {
+        return id;
+    }
+
+    void setId(int id) {
+        this.id = id;
+    }
+
+    // The source name this value was last stored under, for printing only
+    public String hint() {
+        return hint;
+    }
+
+    void setHint(String hint) {
+        if (this.hint == null) {
+            this.hint = hint;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "%%%d".formatted(id);
+    }
+
+    public record Local(Expr.Name name, boolean constant) {
+        @Override
+        public String toString() {
+            return "%s %s".formatted(constant ? "let" : "var", name);
+        }
+    }
+}
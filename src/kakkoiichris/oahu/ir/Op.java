@@ -0,0 +1,71 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.ir;
+
+public enum Op {
+    PHI,
+    PARAM,
+    IS_SET,
+    LOAD,
+    STORE,
+    DEFINE,
+    LOAD_UP,
+    STORE_UP,
+    LOAD_NAME,
+    STORE_NAME,
+    FRAME,
+    LOAD_LOCAL,
+    STORE_LOCAL,
+    DEFINE_LOCAL,
+    REASSIGN,
+    UNARY,
+    BINARY,
+    LOGIC,
+    CALL,
+    LIST,
+    CLOSURE,
+    LINK,
+    UNPACK,
+    COUNT,
+    ITERATE,
+    HAS_NEXT,
+    NEXT,
+    EVAL,
+    JUMP(true),
+    BRANCH(true),
+    RETURN(true),
+    THROW(true),
+    EXIT(true),
+    UNHANDLED(true);
+
+    private final boolean terminator;
+
+    Op() {
+        this(false);
+    }
+
+    Op(boolean terminator) {
+        this.terminator = terminator;
+    }
+
+    public boolean isTerminator() {
+        return terminator;
+    }
+
+    // Only instructions that compute something may be used as operands
+    public boolean hasValue() {
+        return switch (this) {
+            case STORE, DEFINE, STORE_UP, STORE_NAME, STORE_LOCAL, DEFINE_LOCAL, REASSIGN -> false;
+
+            default -> !terminator;
+        };
+    }
+}
@@ -0,0 +1,57 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.ir;
+
+import kakkoiichris.oahu.runtime.data.Unit;
+
+public sealed interface Value permits Value.Constant, Value.Undefined, Instruction {
+    static Constant of(Object value) {
+        return new Constant(value);
+    }
+
+    static Constant unit() {
+        return new Constant(Unit.get());
+    }
+
+    record Constant(Object value) implements Value {
+        @Override
+        public String toString() {
+            return switch (value) {
+                case null -> "null";
+
+                case String string -> "\"%s\"".formatted(string.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"));
+
+                default -> value.toString();
+            };
+        }
+    }
+
+    // What a variable holds on a path that never defined it; using it is an undefined name error
+    final class Undefined implements Value {
+        private static Undefined instance;
+
+        private Undefined() {
+        }
+
+        public static Undefined get() {
+            if (instance == null) {
+                instance = new Undefined();
+            }
+
+            return instance;
+        }
+
+        @Override
+        public String toString() {
+            return "undef";
+        }
+    }
+}
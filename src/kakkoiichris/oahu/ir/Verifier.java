@@ -0,0 +1,311 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.ir;
+
+import kakkoiichris.oahu.util.OahuError;
+
+import java.util.*;
+
+// Checks the structural invariants every consumer of the IR relies on; a violation is a bug in the builder
+public final class Verifier {
+    private final Function function;
+
+    private final Map<Block, Integer> order = new HashMap<>();
+    private final Map<Block, Block> dominators = new HashMap<>();
+
+    private Verifier(Function function) {
+        this.function = function;
+    }
+
+    public static void verify(Function function) {
+        new Verifier(function).verify();
+
+        for (var nested : function.functions()) {
+            verify(nested);
+        }
+    }
+
+    private void verify() {
+        var blocks = function.blocks();
+
+        if (blocks.isEmpty()) {
+            throw fail("has no blocks");
+        }
+
+        if (!function.entry().predecessors().isEmpty()) {
+            throw fail("entry block %s has predecessors".formatted(function.entry()));
+        }
+
+        var members = Collections.newSetFromMap(new IdentityHashMap<Block, Boolean>());
+
+        members.addAll(blocks);
+
+        var ids = new HashSet<Integer>();
+        var values = new HashSet<Integer>();
+
+        for (var block : blocks) {
+            if (!ids.add(block.id())) {
+                throw fail("block id %s is not unique".formatted(block));
+            }
+
+            checkTerminator(block, members);
+            checkEdges(block, members);
+
+            for (var instruction : block.instructions()) {
+                if (instruction.block() != block) {
+                    throw fail("instruction in %s does not belong to it".formatted(block));
+                }
+
+                if (instruction.op().hasValue() && (instruction.id() < 0 || !values.add(instruction.id()))) {
+                    throw fail("value %s in %s has no unique id".formatted(instruction, block));
+                }
+            }
+        }
+
+        computeDominators();
+
+        for (var block : blocks) {
+            if (!order.containsKey(block)) {
+                throw fail("block %s is unreachable".formatted(block));
+            }
+        }
+
+        for (var block : blocks) {
+            checkPhis(block);
+            checkUses(block);
+        }
+    }
+
+    private void checkTerminator(Block block, Set<Block> members) {
+        var instructions = block.instructions();
+
+        if (!block.isTerminated()) {
+            throw fail("block %s has no terminator".formatted(block));
+        }
+
+        for (var i = 0; i < instructions.size() - 1; i++) {
+            if (instructions.get(i).op().isTerminator()) {
+                throw fail("block %s has a terminator before its end".formatted(block));
+            }
+        }
+
+        var terminator = block.terminator();
+
+        var expected = switch (terminator.op()) {
+            case JUMP -> 1;
+
+            case BRANCH -> 2;
+
+            default -> 0;
+        };
+
+        if (terminator.targets().size() != expected) {
+            throw fail("%s in %s has %d targets".formatted(terminator.op(), block, terminator.targets().size()));
+        }
+
+        for (var target : terminator.targets()) {
+            if (!members.contains(target)) {
+                throw fail("block %s jumps to %s outside the function".formatted(block, target));
+            }
+        }
+    }
+
+    private void checkEdges(Block block, Set<Block> members) {
+        for (var predecessor : block.predecessors()) {
+            if (!members.contains(predecessor)) {
+                throw fail("block %s has predecessor %s outside the function".formatted(block, predecessor));
+            }
+
+            if (count(predecessor.successors(), block) != count(block.predecessors(), predecessor)) {
+                throw fail("edge %s -> %s is not recorded on both ends".formatted(predecessor, block));
+            }
+        }
+
+        for (var successor : block.successors()) {
+            if (count(block.successors(), successor) != count(successor.predecessors(), block)) {
+                throw fail("edge %s -> %s is not recorded on both ends".formatted(block, successor));
+            }
+        }
+    }
+
+    private static int count(List<Block> blocks, Block block) {
+        var count = 0;
+
+        for (var other : blocks) {
+            if (other == block) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    private void checkPhis(Block block) {
+        var phis = block.phis().size();
+
+        var instructions = block.instructions();
+
+        for (var i = phis; i < instructions.size(); i++) {
+            if (instructions.get(i).op() == Op.PHI) {
+                throw fail("phi %s in %s follows a non-phi".formatted(instructions.get(i), block));
+            }
+        }
+
+        for (var phi : block.phis()) {
+            if (phi.operands().size() != block.predecessors().size()) {
+                throw fail("phi %s in %s has %d operands for %d predecessors".formatted(phi, block, phi.operands().size(), block.predecessors().size()));
+            }
+        }
+    }
+
+    private void checkUses(Block block) {
+        var instructions = block.instructions();
+
+        for (var i = 0; i < instructions.size(); i++) {
+            var instruction = instructions.get(i);
+
+            var operands = instruction.operands();
+
+            for (var j = 0; j < operands.size(); j++) {
+                if (!(operands.get(j) instanceof Instruction definition)) {
+                    continue;
+                }
+
+                var owner = definition.block();
+
+                if (owner == null || !order.containsKey(owner) || !owner.instructions().contains(definition)) {
+                    throw fail("%s in %s uses %s, which is not in the function".formatted(instruction.op(), block, definition));
+                }
+
+                if (!definition.op().hasValue()) {
+                    throw fail("%s in %s uses %s, which has no value".formatted(instruction.op(), block, definition.op()));
+                }
+
+                // A phi operand is used at the end of its predecessor rather than in the phi's own block
+                var dominated = instruction.op() == Op.PHI
+                    ? dominates(owner, block.predecessors().get(j))
+                    : owner == block ? owner.instructions().indexOf(definition) < i : dominates(owner, block);
+
+                if (!dominated) {
+                    throw fail("%s in %s uses %s before it is defined".formatted(instruction.op(), block, definition));
+                }
+            }
+        }
+    }
+
+    // Cooper, Harvey and Kennedy, "A Simple, Fast Dominance Algorithm"
+    private void computeDominators() {
+        var postorder = new ArrayList<Block>();
+
+        var visited = new HashSet<Block>();
+
+        var path = new ArrayDeque<Block>();
+        var stack = new ArrayDeque<Iterator<Block>>();
+
+        visited.add(function.entry());
+
+        path.push(function.entry());
+        stack.push(function.entry().successors().iterator());
+
+        while (!stack.isEmpty()) {
+            var successors = stack.peek();
+
+            if (successors.hasNext()) {
+                var next = successors.next();
+
+                if (visited.add(next)) {
+                    path.push(next);
+
+                    stack.push(next.successors().iterator());
+                }
+            }
+            else {
+                stack.pop();
+
+                postorder.add(path.pop());
+            }
+        }
+
+        for (var i = 0; i < postorder.size(); i++) {
+            order.put(postorder.get(i), i);
+        }
+
+        var entry = function.entry();
+
+        dominators.put(entry, entry);
+
+        var changed = true;
+
+        while (changed) {
+            changed = false;
+
+            for (var i = postorder.size() - 1; i >= 0; i--) {
+                var block = postorder.get(i);
+
+                if (block == entry) {
+                    continue;
+                }
+
+                Block dominator = null;
+
+                for (var predecessor : block.predecessors()) {
+                    if (!dominators.containsKey(predecessor)) {
+                        continue;
+                    }
+
+                    dominator = dominator == null ? predecessor : intersect(predecessor, dominator);
+                }
+
+                if (dominator != null && dominators.get(block) != dominator) {
+                    dominators.put(block, dominator);
+
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    private Block intersect(Block a, Block b) {
+        while (a != b) {
+            while (order.get(a) < order.get(b)) {
+                a = dominators.get(a);
+            }
+
+            while (order.get(b) < order.get(a)) {
+                b = dominators.get(b);
+            }
+        }
+
+        return a;
+    }
+
+    private boolean dominates(Block a, Block b) {
+        var block = b;
+
+        while (true) {
+            if (block == a) {
+                return true;
+            }
+
+            var dominator = dominators.get(block);
+
+            if (dominator == null || dominator == block) {
+                return false;
+            }
+
+            block = dominator;
+        }
+    }
+
+    private Error fail(String message) {
+        return OahuError.failure("IR for %s is malformed: %s!".formatted(function, message));
+    }
+}
@@ -0,0 +1,197 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.jit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+final class ClassFile {
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int VERSION = 49;
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    private final Output pool = new Output();
+    private final Map<String, Integer> indices = new HashMap<>();
+    private final List<Method> methods = new ArrayList<>();
+
+    private final int thisClass;
+    private final int superClass;
+
+    private int count = 1;
+
+    ClassFile(String name, String superName) {
+        thisClass = classRef(name);
+        superClass = classRef(superName);
+    }
+
+    int utf8(String value) {
+        return entry("U" + value, 1, () -> pool.utf(value));
+    }
+
+    int classRef(String name) {
+        var index = utf8(name);
+
+        return entry("C" + name, 7, () -> pool.u2(index));
+    }
+
+    int integer(int value) {
+        return entry("I" + value, 3, () -> pool.u4(value));
+    }
+
+    int nameAndType(String name, String descriptor) {
+        var nameIndex = utf8(name);
+        var descriptorIndex = utf8(descriptor);
+
+        return entry("N" + name + ':' + descriptor, 12, () -> {
+            pool.u2(nameIndex);
+            pool.u2(descriptorIndex);
+        });
+    }
+
+    int fieldRef(String owner, String name, String descriptor) {
+        return memberRef(9, owner, name, descriptor);
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        return memberRef(10, owner, name, descriptor);
+    }
+
+    int interfaceMethodRef(String owner, String name, String descriptor) {
+        return memberRef(11, owner, name, descriptor);
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor) {
+        var ownerIndex = classRef(owner);
+        var typeIndex = nameAndType(name, descriptor);
+
+        return entry("R" + tag + owner + '.' + name + ':' + descriptor, tag, () -> {
+            pool.u2(ownerIndex);
+            pool.u2(typeIndex);
+        });
+    }
+
+    private int entry(String key, int tag, Runnable body) {
+        var index = indices.get(key);
+
+        if (index != null) {
+            return index;
+        }
+
+        pool.u1(tag);
+
+        body.run();
+
+        indices.put(key, count);
+
+        return count++;
+    }
+
+    Code method(int access, String name, String descriptor, int locals) {
+        var code = new Code(this, locals);
+
+        methods.add(new Method(access, utf8(name), utf8(descriptor), code));
+
+        return code;
+    }
+
+    byte[] toBytes() {
+        var codeName = utf8("Code");
+
+        var out = new Output();
+
+        out.u4(MAGIC);
+        out.u2(0);
+        out.u2(VERSION);
+        out.u2(count);
+        out.bytes(pool.toBytes());
+        out.u2(ACC_FINAL | ACC_SUPER);
+        out.u2(thisClass);
+        out.u2(superClass);
+        out.u2(0);
+        out.u2(0);
+        out.u2(methods.size());
+
+        for (var method : methods) {
+            var code = method.code();
+
+            var bytes = code.toBytes();
+
+            out.u2(method.access());
+            out.u2(method.name());
+            out.u2(method.descriptor());
+            out.u2(1);
+            out.u2(codeName);
+            out.u4(12 + bytes.length);
+            out.u2(code.maxStack());
+            out.u2(code.maxLocals());
+            out.u4(bytes.length);
+            out.bytes(bytes);
+            out.u2(0);
+            out.u2(0);
+        }
+
+        out.u2(0);
+
+        return out.toBytes();
+    }
+
+    private record Method(int access, int name, int descriptor, Code code) {
+    }
+
+    static final class Output {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        void u1(int value) {
+            bytes.write(value);
+        }
+
+        void u2(int value) {
+            bytes.write(value >>> 8);
+            bytes.write(value);
+        }
+
+        void u4(int value) {
+            u2(value >>> 16);
+            u2(value);
+        }
+
+        void utf(String value) {
+            try {
+                out.writeUTF(value);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void bytes(byte[] value) {
+            bytes.writeBytes(value);
+        }
+
+        int size() {
+            return bytes.size();
+        }
+
+        byte[] toBytes() {
+            return bytes.toByteArray();
+        }
+    }
+}
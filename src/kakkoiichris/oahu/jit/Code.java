@@ -0,0 +1,295 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.jit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+final class Code {
+    static final int ACONST_NULL = 0x01;
+    static final int ICONST_0 = 0x03;
+    static final int DCONST_0 = 0x0E;
+    static final int DCONST_1 = 0x0F;
+    static final int BIPUSH = 0x10;
+    static final int SIPUSH = 0x11;
+    static final int LDC_W = 0x13;
+    static final int DLOAD = 0x18;
+    static final int ALOAD = 0x19;
+    static final int AALOAD = 0x32;
+    static final int DSTORE = 0x39;
+    static final int ASTORE = 0x3A;
+    static final int AASTORE = 0x53;
+    static final int POP = 0x57;
+    static final int DUP = 0x59;
+    static final int DADD = 0x63;
+    static final int DCMPG = 0x98;
+    static final int IFEQ = 0x99;
+    static final int IFNE = 0x9A;
+    static final int IFGE = 0x9C;
+    static final int GOTO = 0xA7;
+    static final int ARETURN = 0xB0;
+    static final int RETURN = 0xB1;
+    static final int GETFIELD = 0xB4;
+    static final int INVOKEVIRTUAL = 0xB6;
+    static final int INVOKESPECIAL = 0xB7;
+    static final int INVOKESTATIC = 0xB8;
+    static final int INVOKEINTERFACE = 0xB9;
+    static final int ANEWARRAY = 0xBD;
+    static final int IFNONNULL = 0xC7;
+
+    private static final int LIMIT = Short.MAX_VALUE;
+
+    private final ClassFile owner;
+
+    private byte[] code = new byte[256];
+    private int size;
+
+    private int stack;
+    private int maxStack;
+    private int maxLocals;
+
+    private boolean reachable = true;
+
+    Code(ClassFile owner, int locals) {
+        this.owner = owner;
+
+        maxLocals = locals;
+    }
+
+    int maxStack() {
+        return maxStack;
+    }
+
+    int maxLocals() {
+        return maxLocals;
+    }
+
+    byte[] toBytes() {
+        if (size > LIMIT) {
+            throw new IllegalStateException("Method body is too large!");
+        }
+
+        return Arrays.copyOf(code, size);
+    }
+
+    int local(int width) {
+        var local = maxLocals;
+
+        maxLocals += width;
+
+        if (maxLocals > 0xFF) {
+            throw new IllegalStateException("Too many locals!");
+        }
+
+        return local;
+    }
+
+    private void u1(int value) {
+        if (size == code.length) {
+            code = Arrays.copyOf(code, size * 2);
+        }
+
+        code[size++] = (byte) value;
+    }
+
+    private void u2(int value) {
+        u1(value >>> 8);
+        u1(value);
+    }
+
+    private void adjust(int delta) {
+        stack += delta;
+
+        maxStack = Math.max(maxStack, stack);
+    }
+
+    void op(int opcode, int delta) {
+        reachable = true;
+
+        u1(opcode);
+
+        adjust(delta);
+    }
+
+    void push(int value) {
+        if (value >= -1 && value <= 5) {
+            op(ICONST_0 + value, 1);
+        }
+        else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            op(BIPUSH, 1);
+
+            u1(value);
+        }
+        else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            op(SIPUSH, 1);
+
+            u2(value);
+        }
+        else {
+            op(LDC_W, 1);
+
+            u2(owner.integer(value));
+        }
+    }
+
+    void load(int local) {
+        local(ALOAD, local, 1);
+    }
+
+    void store(int local) {
+        local(ASTORE, local, -1);
+    }
+
+    void loadDouble(int local) {
+        local(DLOAD, local, 2);
+    }
+
+    void storeDouble(int local) {
+        local(DSTORE, local, -2);
+    }
+
+    private void local(int opcode, int local, int delta) {
+        op(opcode, delta);
+
+        u1(local);
+    }
+
+    void field(int opcode, String owner, String name, String descriptor) {
+        var width = width(descriptor.charAt(0));
+
+        op(opcode, opcode == GETFIELD ? width - 1 : width);
+
+        u2(this.owner.fieldRef(owner, name, descriptor));
+    }
+
+    void invoke(int opcode, String owner, String name, String descriptor) {
+        var delta = opcode == INVOKESTATIC ? 0 : -1;
+
+        var i = 1;
+
+        var slots = 0;
+
+        while (descriptor.charAt(i) != ')') {
+            var c = descriptor.charAt(i);
+
+            slots += width(c);
+
+            while (descriptor.charAt(i) == '[') {
+                i++;
+            }
+
+            if (descriptor.charAt(i) == 'L') {
+                i = descriptor.indexOf(';', i);
+            }
+
+            i++;
+        }
+
+        delta += width(descriptor.charAt(i + 1)) - slots;
+
+        op(opcode, delta);
+
+        if (opcode == INVOKEINTERFACE) {
+            u2(this.owner.interfaceMethodRef(owner, name, descriptor));
+            u1(slots + 1);
+            u1(0);
+        }
+        else {
+            u2(this.owner.methodRef(owner, name, descriptor));
+        }
+    }
+
+    private static int width(char type) {
+        return switch (type) {
+            case 'V' -> 0;
+
+            case 'D', 'J' -> 2;
+
+            default -> 1;
+        };
+    }
+
+    void type(int opcode, String name) {
+        op(opcode, 0);
+
+        u2(owner.classRef(name));
+    }
+
+    Label label() {
+        return new Label();
+    }
+
+    void jump(int opcode, Label label) {
+        var delta = switch (opcode) {
+            case GOTO -> 0;
+
+            default -> -1;
+        };
+
+        var at = size;
+
+        op(opcode, delta);
+
+        label.reach(stack);
+
+        if (label.position >= 0) {
+            u2(label.position - at);
+        }
+        else {
+            label.fixups.add(at);
+
+            u2(0);
+        }
+
+        if (opcode == GOTO) {
+            terminate();
+        }
+    }
+
+    void place(Label label) {
+        if (!reachable) {
+            stack = Math.max(label.depth, 0);
+        }
+
+        label.reach(stack);
+
+        label.position = size;
+
+        for (var at : label.fixups) {
+            var offset = size - at;
+
+            code[at + 1] = (byte) (offset >>> 8);
+            code[at + 2] = (byte) offset;
+        }
+
+        reachable = true;
+    }
+
+    void terminate() {
+        reachable = false;
+
+        stack = 0;
+    }
+
+    static final class Label {
+        private final List<Integer> fixups = new ArrayList<>();
+
+        private int position = -1;
+        private int depth = -1;
+
+        private void reach(int depth) {
+            if (this.depth < 0) {
+                this.depth = depth;
+            }
+        }
+    }
+}
@@ -0,0 +1,284 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.jit;
+
+import kakkoiichris.oahu.lexer.Context;
+import kakkoiichris.oahu.parser.Expr;
+import kakkoiichris.oahu.parser.Stmt;
+import kakkoiichris.oahu.runtime.Memory;
+import kakkoiichris.oahu.runtime.Operators;
+import kakkoiichris.oahu.runtime.Redirect;
+import kakkoiichris.oahu.runtime.Runtime;
+import kakkoiichris.oahu.runtime.data.Table;
+import kakkoiichris.oahu.util.OahuError;
+import kakkoiichris.oahu.util.Source;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+
+public abstract class Compiled {
+    protected final Runtime runtime;
+    protected final Source source;
+    protected final Object[] constants;
+    protected final Object[] nodes;
+
+    protected Compiled(Runtime runtime, Source source, Object[] constants, Object[] nodes) {
+        this.runtime = runtime;
+        this.source = source;
+        this.constants = constants;
+        this.nodes = nodes;
+    }
+
+    public abstract Object invoke(Memory.Scope scope, Object[] args);
+
+    private long context(int node) {
+        return switch (nodes[node]) {
+            case Expr expr -> expr.context();
+
+            case Stmt stmt -> stmt.context();
+
+            default -> Context.none();
+        };
+    }
+
+    private static Memory.Scope up(Memory.Scope scope, int depth) {
+        for (var i = 1; i < depth; i++) {
+            scope = scope.getParent();
+        }
+
+        return scope;
+    }
+
+    public final Object load(Memory.Scope scope, int depth, int slot, int node) {
+        var value = up(scope, depth).get(slot);
+
+        if (value == null) {
+            return undefined(node);
+        }
+
+        return value;
+    }
+
+    public final Object lookup(Memory.Scope scope, int node) {
+        var name = (Expr.Name) nodes[node];
+
+        for (; scope != null; scope = scope.getParent()) {
+            var value = scope.get(name.value());
+
+            if (value != null) {
+                return value;
+            }
+        }
+
+        return undefined(node);
+    }
+
+    public final Object store(Memory.Scope scope, int depth, int slot, Object value, int node) {
+        var outer = up(scope, depth);
+
+        if (outer.get(slot) == null) {
+            return undefined(node);
+        }
+
+        if (outer.isConstant(slot)) {
+            return reassigned(value, node);
+        }
+
+        outer.set(slot, value);
+
+        return value;
+    }
+
+    public final Object undefined(int node) {
+        var name = (Expr.Name) nodes[node];
+
+        throw OahuError.undefinedName(name, source, name.context());
+    }
+
+    public final Object reassigned(Object value, int node) {
+        throw OahuError.reassignedConstant(source, context(node));
+    }
+
+    public static boolean isTrue(Object value) {
+        return value instanceof Boolean b && b;
+    }
+
+    public static boolean isFalse(Object value) {
+        return value instanceof Boolean b && !b;
+    }
+
+    private Object unary(Object e, Object result, int node) {
+        if (result instanceof Operators.Invalid) {
+            var expr = (Expr.Unary) nodes[node];
+
+            throw OahuError.invalidUnaryOperand(e, expr.operator(), source, expr.context());
+        }
+
+        return result;
+    }
+
+    private Object binary(Object l, Object r, Object result, int node) {
+        if (result instanceof Operators.Invalid invalid) {
+            var expr = (Expr.Binary) nodes[node];
+
+            throw switch (invalid) {
+                case LEFT -> OahuError.invalidLeftOperand(l, expr.operator(), source, expr.left().context());
+
+                case RIGHT -> OahuError.invalidRightOperand(r, expr.operator(), source, expr.right().context());
+            };
+        }
+
+        return result;
+    }
+
+    public final Object negate(Object e, int node) {
+        if (e instanceof Double d) {
+            return -d;
+        }
+
+        return unary(e, Operators.negate(e), node);
+    }
+
+    public final Object not(Object e, int node) {
+        return unary(e, Operators.not(e), node);
+    }
+
+    public final Object logic(Object r, Object l, int node) {
+        if (r instanceof Boolean) {
+            return r;
+        }
+
+        return binary(l, r, Operators.Invalid.LEFT, node);
+    }
+
+    public final Object equal(Object l, Object r) {
+        return l.equals(r);
+    }
+
+    public final Object notEqual(Object l, Object r) {
+        return !l.equals(r);
+    }
+
+    public final Object less(Object l, Object r, int node) {
+        if (l instanceof Double a && r instanceof Double b) {
+            return a < b;
+        }
+
+        return binary(l, r, Operators.less(l, r), node);
+    }
+
+    public final Object lessEqual(Object l, Object r, int node) {
+        if (l instanceof Double a && r instanceof Double b) {
+            return a <= b;
+        }
+
+        return binary(l, r, Operators.lessEqual(l, r), node);
+    }
+
+    public final Object greater(Object l, Object r, int node) {
+        if (l instanceof Double a && r instanceof Double b) {
+            return a > b;
+        }
+
+        return binary(l, r, Operators.greater(l, r), node);
+    }
+
+    public final Object greaterEqual(Object l, Object r, int node) {
+        if (l instanceof Double a && r instanceof Double b) {
+            return a >= b;
+        }
+
+        return binary(l, r, Operators.greaterEqual(l, r), node);
+    }
+
+    public final Object add(Object l, Object r, int node) {
+        if (l instanceof Double a && r instanceof Double b) {
+            return a + b;
+        }
+
+        return binary(l, r, Operators.add(l, r), node);
+    }
+
+    public final Object subtract(Object l, Object r, int node) {
+        if (l instanceof Double a && r instanceof Double b) {
+            return a - b;
+        }
+
+        return binary(l, r, Operators.subtract(l, r), node);
+    }
+
+    public final Object multiply(Object l, Object r, int node) {
+        if (l instanceof Double a && r instanceof Double b) {
+            return a * b;
+        }
+
+        return binary(l, r, Operators.multiply(l, r), node);
+    }
+
+    public final Object divide(Object l, Object r, int node) {
+        return binary(l, r, Operators.divide(l, r), node);
+    }
+
+    public final Object modulus(Object l, Object r, int node) {
+        return binary(l, r, Operators.modulus(l, r), node);
+    }
+
+    public final Object call(Object target, Object[] args, int node) {
+        return runtime.call(target, Arrays.asList(args), context(node));
+    }
+
+    public final Object table(Object[] elements) {
+        return new Table(new ArrayList<>(Arrays.asList(elements)), new HashMap<>());
+    }
+
+    public final double count(Object value, int node) {
+        if (!(value instanceof Double d)) {
+            throw OahuError.invalidLoopCount(value, source, context(node));
+        }
+
+        return d;
+    }
+
+    public final Iterator<?> iterate(Object value, int node) {
+        return switch (value) {
+            case Table table -> table.iterator();
+
+            case String string -> string
+                .chars()
+                .mapToObj(c -> String.valueOf((char) c))
+                .iterator();
+
+            case Object iterable -> throw OahuError.notIterableValueError(iterable, source, context(node));
+        };
+    }
+
+    public final Object unpack(Object element, int index, int node) {
+        if (!(element instanceof Table table)) {
+            throw OahuError.notIterableValueError(element, source, context(node));
+        }
+
+        return table.get(index);
+    }
+
+    public final Object raise(Object value) {
+        throw new Redirect.Throw(value);
+    }
+
+    public final Object exit(Object value) {
+        throw new Redirect.Exit(value);
+    }
+
+    public final Object unhandled(int constant, int node) {
+        throw OahuError.unhandledRedirect((Redirect) constants[constant], source, context(node));
+    }
+}
@@ -0,0 +1,841 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.jit;
+
+import kakkoiichris.oahu.parser.Expr;
+import kakkoiichris.oahu.parser.Stmt;
+import kakkoiichris.oahu.runtime.Redirect;
+import kakkoiichris.oahu.runtime.data.Unit;
+
+import java.util.*;
+
+import static kakkoiichris.oahu.jit.Code.*;
+
+final class Generator implements Expr.Visitor<Unit>, Stmt.Visitor<Unit> {
+    private static final String COMPILED = "kakkoiichris/oahu/jit/Compiled";
+    private static final String OBJECT = "java/lang/Object";
+    private static final String SCOPE = "kakkoiichris/oahu/runtime/Memory$Scope";
+    private static final String ITERATOR = "java/util/Iterator";
+
+    private static final String CONSTRUCTOR = "(Lkakkoiichris/oahu/runtime/Runtime;Lkakkoiichris/oahu/util/Source;[Ljava/lang/Object;[Ljava/lang/Object;)V";
+    private static final String INVOKE = "(L" + SCOPE + ";[Ljava/lang/Object;)Ljava/lang/Object;";
+
+    private static final String UNARY = "(Ljava/lang/Object;I)Ljava/lang/Object;";
+    private static final String BINARY = "(Ljava/lang/Object;Ljava/lang/Object;I)Ljava/lang/Object;";
+
+    private static final int THIS = 0;
+    private static final int SCOPE_ARG = 1;
+    private static final int ARGS = 2;
+    private static final int LOCALS = 3;
+
+    private final Stmt.Fun fun;
+    private final String name;
+
+    private final List<Object> constants = new ArrayList<>();
+    private final Map<Object, Integer> indices = new HashMap<>();
+    private final List<Object> nodes = new ArrayList<>();
+
+    private final BitSet fixed = new BitSet();
+
+    private final Deque<Loop> loops = new ArrayDeque<>();
+
+    private Code code;
+
+    Generator(Stmt.Fun fun, String name) {
+        this.fun = fun;
+        this.name = name;
+    }
+
+    Object[] constants() {
+        return constants.toArray();
+    }
+
+    Object[] nodes() {
+        return nodes.toArray();
+    }
+
+    byte[] generate() {
+        var file = new ClassFile(name, COMPILED);
+
+        var init = file.method(ClassFile.ACC_PUBLIC, "<init>", CONSTRUCTOR, 5);
+
+        init.load(0);
+        init.load(1);
+        init.load(2);
+        init.load(3);
+        init.load(4);
+        init.invoke(INVOKESPECIAL, COMPILED, "<init>", CONSTRUCTOR);
+        init.op(RETURN, 0);
+
+        code = file.method(ClassFile.ACC_PUBLIC, "invoke", INVOKE, LOCALS + fun.locals());
+
+        for (var slot = 0; slot < fun.locals(); slot++) {
+            code.op(ACONST_NULL, 1);
+            code.store(LOCALS + slot);
+        }
+
+        var params = fun.params();
+
+        for (var i = 0; i < params.size(); i++) {
+            var param = params.get(i);
+
+            var local = LOCALS + param.name().slot();
+
+            fixed.set(param.name().slot());
+
+            code.load(ARGS);
+            code.push(i);
+            code.op(AALOAD, -1);
+            code.store(local);
+
+            if (param.defaultValue() != Expr.Empty.get()) {
+                var bound = code.label();
+
+                code.load(local);
+                code.jump(IFNONNULL, bound);
+
+                value(param.defaultValue());
+
+                code.store(local);
+
+                code.place(bound);
+            }
+        }
+
+        visit(fun.body());
+
+        constant(Unit.get());
+
+        code.op(ARETURN, -1);
+        code.terminate();
+
+        return file.toBytes();
+    }
+
+    private int node(Object node) {
+        nodes.add(node);
+
+        return nodes.size() - 1;
+    }
+
+    private int index(Object value) {
+        return indices.computeIfAbsent(value, _ -> {
+            constants.add(value);
+
+            return constants.size() - 1;
+        });
+    }
+
+    private void constant(Object value) {
+        var index = index(value);
+
+        code.load(THIS);
+        code.field(GETFIELD, COMPILED, "constants", "[Ljava/lang/Object;");
+        code.push(index);
+        code.op(AALOAD, -1);
+    }
+
+    private int local(Expr.Name name) {
+        if (!name.isResolved()) {
+            throw new Unsupported();
+        }
+
+        return LOCALS + name.slot();
+    }
+
+    private void helper(String method, String descriptor) {
+        code.invoke(INVOKEVIRTUAL, COMPILED, method, descriptor);
+    }
+
+    private void value(Expr expr) {
+        visit(expr);
+    }
+
+    private void effect(Expr expr) {
+        switch (expr) {
+            case Expr.Statement statement -> visit(statement.stmt());
+
+            case Expr.Block block -> block.exprs().forEach(this::effect);
+
+            case Expr.If ifExpr -> {
+                var elze = code.label();
+                var end = code.label();
+
+                condition(ifExpr.condition(), elze);
+
+                effect(ifExpr.body());
+
+                code.jump(GOTO, end);
+                code.place(elze);
+
+                effect(ifExpr.elze());
+
+                code.place(end);
+            }
+
+            case Expr.When when -> {
+                var end = code.label();
+
+                for (var branch : when.branches()) {
+                    var next = code.label();
+
+                    condition(branch.condition(), next);
+
+                    effect(branch.body());
+
+                    code.jump(GOTO, end);
+                    code.place(next);
+                }
+
+                effect(when.elze());
+
+                code.place(end);
+            }
+
+            case Expr.Empty _ -> {
+            }
+
+            default -> {
+                value(expr);
+
+                code.op(POP, -1);
+            }
+        }
+    }
+
+    private void condition(Expr expr, Label otherwise) {
+        value(expr);
+
+        code.invoke(INVOKESTATIC, COMPILED, "isTrue", "(Ljava/lang/Object;)Z");
+        code.jump(IFEQ, otherwise);
+    }
+
+    private void array(List<Expr> exprs) {
+        code.push(exprs.size());
+        code.type(ANEWARRAY, OBJECT);
+
+        for (var i = 0; i < exprs.size(); i++) {
+            code.op(DUP, 1);
+            code.push(i);
+
+            value(exprs.get(i));
+
+            code.op(AASTORE, -3);
+        }
+    }
+
+    @Override
+    public Unit visitEmptyExpr(Expr.Empty expr) {
+        constant(Unit.get());
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitValueExpr(Expr.Value expr) {
+        constant(expr.value());
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitNameExpr(Expr.Name expr) {
+        if (!expr.isResolved()) {
+            code.load(THIS);
+            code.load(SCOPE_ARG);
+            code.push(node(expr));
+            helper("lookup", "(L" + SCOPE + ";I)Ljava/lang/Object;");
+        }
+        else if (expr.depth() == 0) {
+            code.load(local(expr));
+        }
+        else {
+            code.load(THIS);
+            code.load(SCOPE_ARG);
+            code.push(expr.depth());
+            code.push(expr.slot());
+            code.push(node(expr));
+            helper("load", "(L" + SCOPE + ";III)Ljava/lang/Object;");
+        }
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitUnaryExpr(Expr.Unary expr) {
+        switch (expr.operator()) {
+            case NEGATIVE, NOT -> {
+                code.load(THIS);
+
+                value(expr.expr());
+
+                code.push(node(expr));
+
+                helper(expr.operator() == Expr.Unary.Operator.NEGATIVE ? "negate" : "not", UNARY);
+            }
+
+            default -> {
+                effect(expr.expr());
+
+                constant(Unit.get());
+            }
+        }
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitBinaryExpr(Expr.Binary expr) {
+        var operator = expr.operator();
+
+        if (operator == Expr.Binary.Operator.OR || operator == Expr.Binary.Operator.AND) {
+            var left = code.local(1);
+
+            var right = code.label();
+            var end = code.label();
+
+            value(expr.left());
+
+            code.op(DUP, 1);
+            code.store(left);
+            code.invoke(INVOKESTATIC, COMPILED, operator == Expr.Binary.Operator.OR ? "isTrue" : "isFalse", "(Ljava/lang/Object;)Z");
+            code.jump(IFEQ, right);
+
+            code.load(left);
+            code.jump(GOTO, end);
+
+            code.place(right);
+            code.load(THIS);
+
+            value(expr.right());
+
+            code.load(left);
+            code.push(node(expr));
+            helper("logic", BINARY);
+
+            code.place(end);
+
+            return Unit.get();
+        }
+
+        code.load(THIS);
+
+        value(expr.left());
+        value(expr.right());
+
+        switch (operator) {
+            case EQUAL -> helper("equal", "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;");
+
+            case NOT_EQUAL -> helper("notEqual", "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;");
+
+            default -> {
+                code.push(node(expr));
+
+                var method = switch (operator) {
+                    case LESS -> "less";
+
+                    case LESS_EQUAL -> "lessEqual";
+
+                    case GREATER -> "greater";
+
+                    case GREATER_EQUAL -> "greaterEqual";
+
+                    case ADD -> "add";
+
+                    case SUBTRACT -> "subtract";
+
+                    case MULTIPLY -> "multiply";
+
+                    case DIVIDE -> "divide";
+
+                    default -> "modulus";
+                };
+
+                helper(method, BINARY);
+            }
+        }
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitAssignExpr(Expr.Assign expr) {
+        var name = expr.name();
+
+        if (!name.isResolved()) {
+            throw new Unsupported();
+        }
+        else if (name.depth() == 0 && fixed.get(name.slot())) {
+            code.load(THIS);
+
+            value(expr.value());
+
+            code.push(node(name));
+            helper("reassigned", UNARY);
+        }
+        else if (name.depth() == 0) {
+            value(expr.value());
+
+            code.op(DUP, 1);
+            code.store(local(name));
+        }
+        else {
+            code.load(THIS);
+            code.load(SCOPE_ARG);
+            code.push(name.depth());
+            code.push(name.slot());
+
+            value(expr.value());
+
+            code.push(node(name));
+            helper("store", "(L" + SCOPE + ";IILjava/lang/Object;I)Ljava/lang/Object;");
+        }
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitIndexExpr(Expr.Index expr) {
+        code.op(ACONST_NULL, 1);
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitMemberExpr(Expr.Member expr) {
+        throw new Unsupported();
+    }
+
+    @Override
+    public Unit visitInvokeExpr(Expr.Invoke expr) {
+        for (var arg : expr.args()) {
+            if (!arg.isPositional() || arg.spread()) {
+                throw new Unsupported();
+            }
+        }
+
+        code.load(THIS);
+
+        value(expr.target());
+
+        array(expr.args().stream().map(Expr.Invoke.Arg::expr).toList());
+
+        code.push(node(expr));
+        helper("call", "(Ljava/lang/Object;[Ljava/lang/Object;I)Ljava/lang/Object;");
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitListLiteralExpr(Expr.ListLiteral expr) {
+        code.load(THIS);
+
+        array(expr.elements());
+
+        helper("table", "([Ljava/lang/Object;)Ljava/lang/Object;");
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitListForExpr(Expr.ListFor expr) {
+        code.op(ACONST_NULL, 1);
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitLambdaExpr(Expr.Lambda expr) {
+        throw new Unsupported();
+    }
+
+    @Override
+    public Unit visitBlockExpr(Expr.Block expr) {
+        var exprs = expr.exprs();
+
+        if (exprs.isEmpty()) {
+            constant(Unit.get());
+
+            return Unit.get();
+        }
+
+        for (var i = 0; i < exprs.size() - 1; i++) {
+            effect(exprs.get(i));
+        }
+
+        value(exprs.getLast());
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitIfExpr(Expr.If expr) {
+        var elze = code.label();
+        var end = code.label();
+
+        condition(expr.condition(), elze);
+
+        value(expr.body());
+
+        code.jump(GOTO, end);
+        code.place(elze);
+
+        value(expr.elze());
+
+        code.place(end);
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitWhenExpr(Expr.When expr) {
+        var end = code.label();
+
+        for (var branch : expr.branches()) {
+            var next = code.label();
+
+            condition(branch.condition(), next);
+
+            value(branch.body());
+
+            code.jump(GOTO, end);
+            code.place(next);
+        }
+
+        value(expr.elze());
+
+        code.place(end);
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitTryExpr(Expr.Try expr) {
+        code.op(ACONST_NULL, 1);
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitStatementExpr(Expr.Statement expr) {
+        visit(expr.stmt());
+
+        constant(Unit.get());
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitEmptyStmt(Stmt.Empty stmt) {
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitExpressionStmt(Stmt.Expression stmt) {
+        effect(stmt.expr());
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitDeclarationStmt(Stmt.Declaration stmt) {
+        if (stmt.destructured()) {
+            effect(stmt.expr());
+
+            return Unit.get();
+        }
+
+        var name = stmt.names().getFirst();
+
+        value(stmt.expr());
+
+        code.store(local(name));
+
+        if (stmt.constant()) {
+            fixed.set(name.slot());
+        }
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitBlockStmt(Stmt.Block stmt) {
+        // Compiled code keeps one frame per call, so a body that needs a frame per iteration stays interpreted
+        if (stmt.locals() > 0) {
+            throw new Unsupported();
+        }
+
+        for (var subStmt : stmt.stmts()) {
+            visit(subStmt);
+        }
+
+        return Unit.get();
+    }
+
+    private void body(Expr.Name label, Stmt body, Label next, Label exit) {
+        loops.push(new Loop(label, next, exit));
+
+        visit(body);
+
+        loops.pop();
+    }
+
+    @Override
+    public Unit visitWhileStmt(Stmt.While stmt) {
+        var start = code.label();
+        var exit = code.label();
+
+        code.place(start);
+
+        condition(stmt.condition(), exit);
+
+        body(stmt.label(), stmt.body(), start, exit);
+
+        code.jump(GOTO, start);
+        code.place(exit);
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitDoStmt(Stmt.Do stmt) {
+        var start = code.label();
+        var next = code.label();
+        var exit = code.label();
+
+        code.place(start);
+
+        body(stmt.label(), stmt.body(), next, exit);
+
+        code.place(next);
+
+        value(stmt.condition());
+
+        code.invoke(INVOKESTATIC, COMPILED, "isTrue", "(Ljava/lang/Object;)Z");
+        code.jump(IFNE, start);
+        code.place(exit);
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitLoopStmt(Stmt.Loop stmt) {
+        var start = code.label();
+        var exit = code.label();
+
+        if (stmt.count() == Expr.Empty.get()) {
+            code.place(start);
+
+            body(stmt.label(), stmt.body(), start, exit);
+
+            code.jump(GOTO, start);
+            code.place(exit);
+
+            return Unit.get();
+        }
+
+        var limit = code.local(2);
+        var counter = code.local(2);
+
+        var next = code.label();
+
+        code.load(THIS);
+
+        value(stmt.count());
+
+        code.push(node(stmt.count()));
+        helper("count", "(Ljava/lang/Object;I)D");
+        code.storeDouble(limit);
+
+        code.op(DCONST_0, 2);
+        code.storeDouble(counter);
+
+        code.place(start);
+        code.loadDouble(counter);
+        code.loadDouble(limit);
+        code.op(DCMPG, -3);
+        code.jump(IFGE, exit);
+
+        body(stmt.label(), stmt.body(), next, exit);
+
+        code.place(next);
+        code.loadDouble(counter);
+        code.op(DCONST_1, 2);
+        code.op(DADD, -2);
+        code.storeDouble(counter);
+        code.jump(GOTO, start);
+        code.place(exit);
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitForStmt(Stmt.For stmt) {
+        if (stmt.locals() > 0) {
+            throw new Unsupported();
+        }
+
+        var iterator = code.local(1);
+
+        var start = code.label();
+        var exit = code.label();
+
+        code.load(THIS);
+
+        value(stmt.iterable());
+
+        code.push(node(stmt.iterable()));
+        helper("iterate", "(Ljava/lang/Object;I)Ljava/util/Iterator;");
+        code.store(iterator);
+
+        code.place(start);
+        code.load(iterator);
+        code.invoke(INVOKEINTERFACE, ITERATOR, "hasNext", "()Z");
+        code.jump(IFEQ, exit);
+        code.load(iterator);
+        code.invoke(INVOKEINTERFACE, ITERATOR, "next", "()Ljava/lang/Object;");
+
+        if (stmt.destructured()) {
+            var element = code.local(1);
+
+            code.store(element);
+
+            for (var i = 0; i < stmt.names().size(); i++) {
+                code.load(THIS);
+                code.load(element);
+                code.push(i);
+                code.push(node(stmt));
+                helper("unpack", "(Ljava/lang/Object;II)Ljava/lang/Object;");
+                code.store(local(stmt.names().get(i)));
+            }
+        }
+        else {
+            code.store(local(stmt.names().getFirst()));
+        }
+
+        for (var name : stmt.names()) {
+            fixed.set(name.slot());
+        }
+
+        body(stmt.label(), stmt.body(), start, exit);
+
+        code.jump(GOTO, start);
+        code.place(exit);
+
+        return Unit.get();
+    }
+
+    private Loop find(Expr.Name label) {
+        for (var loop : loops) {
+            if (label.isEmpty() || label.equals(loop.label())) {
+                return loop;
+            }
+        }
+
+        return null;
+    }
+
+    private void unhandled(Redirect redirect) {
+        code.load(THIS);
+        code.push(index(redirect));
+        code.push(node(fun));
+        helper("unhandled", "(II)Ljava/lang/Object;");
+        code.op(POP, -1);
+    }
+
+    @Override
+    public Unit visitBreakStmt(Stmt.Break stmt) {
+        var loop = find(stmt.label());
+
+        if (loop == null) {
+            unhandled(stmt.redirect());
+        }
+        else {
+            code.jump(GOTO, loop.exit());
+        }
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitContinueStmt(Stmt.Continue stmt) {
+        var loop = find(stmt.label());
+
+        if (loop == null) {
+            unhandled(stmt.redirect());
+        }
+        else {
+            code.jump(GOTO, loop.next());
+        }
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitReturnStmt(Stmt.Return stmt) {
+        value(stmt.expr());
+
+        code.op(ARETURN, -1);
+        code.terminate();
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitThrowStmt(Stmt.Throw stmt) {
+        code.load(THIS);
+
+        value(stmt.expr());
+
+        helper("raise", "(Ljava/lang/Object;)Ljava/lang/Object;");
+        code.op(POP, -1);
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitExitStmt(Stmt.Exit stmt) {
+        code.load(THIS);
+
+        value(stmt.expr());
+
+        helper("exit", "(Ljava/lang/Object;)Ljava/lang/Object;");
+        code.op(POP, -1);
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitFunStmt(Stmt.Fun stmt) {
+        throw new Unsupported();
+    }
+
+    @Override
+    public Unit visitClassStmt(Stmt.Class stmt) {
+        throw new Unsupported();
+    }
+
+    @Override
+    public Unit visitEnumStmt(Stmt.Enum stmt) {
+        return Unit.get();
+    }
+
+    private record Loop(Expr.Name label, Label next, Label exit) {
+    }
+
+    static final class Unsupported extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Unsupported() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.jit;
+
+import kakkoiichris.oahu.parser.Stmt;
+import kakkoiichris.oahu.runtime.Runtime;
+import kakkoiichris.oahu.util.Source;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+public final class Jit {
+    public static final int DEFAULT_THRESHOLD = 1000;
+
+    private static final MethodType CONSTRUCTOR = MethodType.methodType(void.class, Runtime.class, Source.class, Object[].class, Object[].class);
+
+    private final Runtime runtime;
+    private final Source source;
+    private final int threshold;
+
+    private final Map<Stmt, Entry> entries = new IdentityHashMap<>();
+
+    // Hidden classes are told apart by the JVM, so the count only has to keep names unique within one JIT
+    private int count;
+
+    public Jit(Runtime runtime, Source source, int threshold) {
+        this.runtime = runtime;
+        this.source = source;
+        this.threshold = threshold;
+    }
+
+    public Compiled lookup(Stmt.Fun fun) {
+        var entry = entries.computeIfAbsent(fun.body(), _ -> new Entry());
+
+        if (entry.compiled != null || entry.failed || ++entry.calls < threshold) {
+            return entry.compiled;
+        }
+
+        try {
+            entry.compiled = compile(fun);
+        }
+        // A function that cannot be generated, loaded or linked just stays interpreted
+        catch (Generator.Unsupported | IllegalStateException | LinkageError | ReflectiveOperationException e) {
+            entry.failed = true;
+        }
+
+        return entry.compiled;
+    }
+
+    private Compiled compile(Stmt.Fun fun) throws ReflectiveOperationException {
+        var generator = new Generator(fun, "kakkoiichris/oahu/jit/Fun$%d".formatted(count++));
+
+        var bytes = generator.generate();
+
+        var lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+
+        var constructor = lookup.lookupClass().asSubclass(Compiled.class).getConstructor(CONSTRUCTOR.parameterArray());
+
+        return constructor.newInstance(runtime, source, generator.constants(), generator.nodes());
+    }
+
+    private static final class Entry {
+        private int calls;
+        private boolean failed;
+        private Compiled compiled;
+    }
+}
@@ -10,21 +10,42 @@
  *#################################################*/
 package kakkoiichris.oahu.lexer;
 
-public record Context(String name, int row, int column, int length) {
-    public static Context none() {
-        return new Context("", 0, 0, 0);
+// A position is one long: a 20 bit origin id, a 32 bit character offset from the origin and a 12 bit length
+public final class Context {
+    private static final int OFFSET_SHIFT = 12;
+    private static final int FILE_SHIFT = 44;
+
+    private static final long LENGTH_MASK = 0xFFFL;
+    private static final long OFFSET_MASK = 0xFFFFFFFFL;
+
+    private Context() {
+    }
+
+    public static long of(int file, int offset, int length) {
+        return (long) file << FILE_SHIFT | (offset & OFFSET_MASK) << OFFSET_SHIFT | Math.clamp(length, 0, LENGTH_MASK);
+    }
+
+    public static long none() {
+        return 0L;
     }
 
-    public Context rangeTo(Context other) {
-        return new Context(name, row, column, other.column - column);
+    public static boolean isNone(long context) {
+        return file(context) == 0;
     }
 
-    @Override
-    public String toString() {
-        if (name.isEmpty()) {
-            return "";
-        }
+    public static int file(long context) {
+        return (int) (context >>> FILE_SHIFT);
+    }
+
+    public static int offset(long context) {
+        return (int) (context >>> OFFSET_SHIFT & OFFSET_MASK);
+    }
+
+    public static int length(long context) {
+        return (int) (context & LENGTH_MASK);
+    }
 
-        return " @ %s (%d, %d)".formatted(name, row, column);
+    public static long rangeTo(long context, long other) {
+        return of(file(context), offset(context), offset(other) - offset(context));
     }
 }
@@ -14,193 +14,207 @@ import kakkoiichris.oahu.runtime.data.Null;
 import kakkoiichris.oahu.runtime.data.Unit;
 import kakkoiichris.oahu.util.OahuError;
 import kakkoiichris.oahu.util.Source;
-import kakkoiichris.oahu.util.Util;
 
-import java.util.Iterator;
-import java.util.Map;
-import java.util.Objects;
-import java.util.function.Function;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.ArrayList;
+
+public final class Lexer {
+    public static final int END_OF_FILE = 0;
+    public static final int END_OF_LINE = 1;
+    public static final int NAME = 2;
+    public static final int NUMBER = 3;
+    public static final int STRING = 4;
+    public static final int LITERAL = 5;
+    public static final int KEYWORD = 6;
+    public static final int SYMBOL = KEYWORD + TokenType.Keyword.values().length;
+    public static final int KINDS = SYMBOL + TokenType.Symbol.values().length;
+
+    private static final TokenType.Keyword[] KEYWORDS = TokenType.Keyword.values();
+    private static final TokenType.Symbol[] SYMBOLS = TokenType.Symbol.values();
+
+    private static final Object[] LITERALS = { true, false, Null.get(), Unit.get() };
+
+    private static final Words WORDS = Words.build();
 
-public final class Lexer implements Iterator<Token<?>> {
     private final Source source;
+    private final char[] text;
+    private final int end;
 
-    private final Map<String, Object> literals =
-        Stream.of(true, false, Null.get(), Unit.get())
-            .collect(Collectors.toMap(Objects::toString, Function.identity()));
+    private int pos = 0, row = 1, limit;
 
-    private int pos = 0, row = 1, column = 1;
+    private int kind, start, length, startRow;
 
     public Lexer(Source source) {
         this.source = source;
+
+        text = source.chars();
+        end = Integer.MAX_VALUE;
+        limit = source.length();
     }
 
-    @Override
-    public boolean hasNext() {
-        return pos <= source.text().length();
+    public Lexer(Source source, int start, int end, int row) {
+        this.source = source;
+        this.end = end;
+
+        text = source.chars();
+        pos = start;
+        this.row = row;
+        limit = Math.min(source.length(), end);
     }
 
-    @Override
-    public Token<?> next() {
+    public int scan() {
         while (!atEndOfFile()) {
-            if (match(Lexer::isHorizontalWhitespace)) {
+            var c = peek();
+
+            if (isHorizontalWhitespace(c)) {
                 skipWhitespace();
                 continue;
             }
 
-            if (match("//")) {
+            if (c == '/' && peek(1) == '/') {
                 skipLineComment();
                 continue;
             }
 
-            if (match("/*")) {
+            if (c == '/' && peek(1) == '*') {
                 skipBlockComment();
                 continue;
             }
 
-            if (match(Character::isDigit)) {
-                return number();
-            }
+            mark();
 
-            if (match(Lexer::isIdentifierStart)) {
-                return word();
+            if (Character.isDigit(c)) {
+                number();
             }
-
-            if (match('"')) {
-                return string();
+            else if (isIdentifierStart(c)) {
+                word();
+            }
+            else if (c == '"') {
+                string();
+            }
+            else {
+                operator();
             }
 
-            return operator();
+            finish();
+
+            return kind;
         }
 
-        return new Token<>(here(), TokenType.EndOfFile.get());
+        mark();
+
+        kind = END_OF_FILE;
+        length = 0;
+
+        return kind;
     }
 
-    private Context here() {
-        return new Context(source.name(), row, column, 1);
+    public char[] text() {
+        return text;
     }
 
-    private void step(int offset) {
-        for (var i = 0; i < offset; i++) {
-            if (match('\n')) {
-                row++;
-                column = 1;
-            }
-            else {
-                column++;
-            }
+    public int kind() {
+        return kind;
+    }
 
-            pos++;
-        }
+    public int start() {
+        return start;
     }
 
-    private void step() {
-        step(1);
+    public int length() {
+        return length;
     }
 
-    private char peek(int offset) {
-        var index = pos + offset;
+    public int row() {
+        return startRow;
+    }
 
-        if (index >= source.text().length()) {
-            return '\0';
-        }
+    public static int kindOf(TokenType type) {
+        return switch (type) {
+            case TokenType.Keyword keyword -> KEYWORD + keyword.ordinal();
 
-        return source.text().charAt(index);
-    }
+            case TokenType.Symbol symbol -> SYMBOL + symbol.ordinal();
 
-    private char peek() {
-        return peek(0);
-    }
+            case TokenType.EndOfLine _ -> END_OF_LINE;
 
-    private String look(int length) {
-        var result = new StringBuilder();
+            case TokenType.EndOfFile _ -> END_OF_FILE;
 
-        for (var i = 0; i < length; i++) {
-            result.append(peek(i));
-        }
+            case TokenType.Name _ -> NAME;
 
-        return result.toString();
+            case TokenType.Value _ -> throw OahuError.failure("Value tokens have more than one kind!");
+        };
     }
 
-    private boolean match(char c) {
-        return peek() == c;
-    }
+    public static TokenType typeOf(int kind) {
+        if (kind >= SYMBOL) {
+            return SYMBOLS[kind - SYMBOL];
+        }
 
-    private boolean match(Predicate<Character> p) {
-        return p.test(peek());
+        return KEYWORDS[kind - KEYWORD];
     }
 
-    private boolean matchNext(Predicate<Character> p) {
-        return p.test(peek(1));
+    private void mark() {
+        start = pos;
+        startRow = row;
     }
 
-    private boolean match(String s) {
-        return look(s.length()).equals(s);
+    private void finish() {
+        length = pos - start;
     }
 
-    private boolean matchAny(char... chars) {
-        for (var c : chars) {
-            if (match(c)) {
-                return true;
-            }
-        }
+    private long here() {
+        return Context.of(source.id(), pos, 1);
+    }
 
-        return false;
+    private long from(int start) {
+        return Context.of(source.id(), start, pos - start);
     }
 
-    private boolean skip(char c) {
-        if (match(c)) {
-            step();
+    private void step() {
+        if (text[pos] == '\n') {
+            row++;
 
-            return true;
+            source.markLine(row, pos + 1);
         }
 
-        return false;
+        pos++;
     }
 
-    private boolean skip(Predicate<Character> p) {
-        if (match(p)) {
+    private void step(int offset) {
+        for (var i = 0; i < offset; i++) {
             step();
-
-            return true;
         }
-
-        return false;
     }
 
-    private boolean skip(String s) {
-        if (match(s)) {
-            step(s.length());
+    private char peek(int offset) {
+        var index = pos + offset;
 
-            return true;
+        if (index >= limit) {
+            if (index >= end || !source.fill(index)) {
+                return '\0';
+            }
+
+            limit = Math.min(source.length(), end);
         }
 
-        return false;
+        return text[index];
     }
 
-    private boolean skipAny(char... chars) {
-        for (var c : chars) {
-            if (skip(c)) {
-                return true;
-            }
-        }
-
-        return false;
+    private char peek() {
+        return peek(0);
     }
 
-    @SuppressWarnings("SameParameterValue")
-    private void mustSkip(char c) {
-        if (!skip(c)) {
-            throw OahuError.invalidCharacter(c, peek(), source, here());
-        }
+    private boolean match(char c) {
+        return peek() == c;
     }
 
-    private void mustSkip(String s) {
-        if (!skip(s)) {
-            throw OahuError.invalidCharacterSequence(look(s.length()), s, source, here());
+    private boolean skip(char c) {
+        if (match(c)) {
+            step();
+
+            return true;
         }
+
+        return false;
     }
 
     private boolean atEndOfFile() {
@@ -220,337 +234,411 @@ public final class Lexer implements Iterator<Token<?>> {
     }
 
     private static boolean isBinaryDigit(char c) {
-        return "01_".indexOf(c) != -1;
+        return c == '0' || c == '1' || c == '_';
     }
 
     private static boolean isHexadecimalDigit(char c) {
-        return "0123456789ABCDEFabcdef_".indexOf(c) != -1;
+        return (c >= '0' && c <= '9') || (c >= 'A' && c <= 'F') || (c >= 'a' && c <= 'f') || c == '_';
     }
 
     private static boolean isDecimalDigit(char c) {
-        return "0123456789_".indexOf(c) != -1;
+        return (c >= '0' && c <= '9') || c == '_';
     }
 
     private void skipWhitespace() {
-        while (match(Lexer::isHorizontalWhitespace)) {
+        while (isHorizontalWhitespace(peek())) {
             step();
         }
     }
 
     private void skipLineComment() {
-        mustSkip("//");
+        step(2);
 
-        do {
+        while (!(atEndOfFile() || skip('\n'))) {
             step();
         }
-        while (!(atEndOfFile() || skip('\n')));
     }
 
     private void skipBlockComment() {
-        mustSkip("/*");
+        step(2);
 
-        while (!skip("*/")) {
+        while (!(match('*') && peek(1) == '/')) {
             if (atEndOfFile()) {
                 throw OahuError.earlyEndOfFile(source, here());
             }
 
             step();
         }
+
+        step(2);
     }
 
-    private void take(StringBuilder result) {
-        result.append(peek());
+    private void number() {
+        kind = NUMBER;
 
-        step();
-    }
+        if (match('0') && (peek(1) == 'b' || peek(1) == 'x')) {
+            var binary = peek(1) == 'b';
 
-    private Token<TokenType.Value> number() {
-        if (match("0b")) {
-            return binary();
-        }
+            step(2);
+
+            do {
+                step();
+            }
+            while (binary ? isBinaryDigit(peek()) : isHexadecimalDigit(peek()));
 
-        if (match("0x")) {
-            return hexadecimal();
+            return;
         }
 
-        return decimal();
-    }
+        do {
+            step();
+        }
+        while (isDecimalDigit(peek()));
 
-    private Token<TokenType.Value> binary() {
-        var start = here();
+        if (match('.') && isDecimalDigit(peek(1))) {
+            do {
+                step();
+            }
+            while (isDecimalDigit(peek()));
+        }
 
-        mustSkip("0b");
+        if (match('E') || match('e')) {
+            step();
 
-        var result = new StringBuilder();
+            do {
+                step();
+            }
+            while (isDecimalDigit(peek()));
+        }
+    }
 
+    private void word() {
         do {
-            take(result);
+            step();
         }
-        while (match(Lexer::isBinaryDigit));
+        while (isIdentifier(peek()));
 
-        var context = start.rangeTo(here());
+        kind = WORDS.kindOf(text, start, pos - start);
+    }
 
-        var value = Util
-            .parseInt(result.toString(), 2)
-            .map(Integer::doubleValue)
-            .orElseThrow(() -> OahuError.invalidNumber(result.toString(), source, context));
+    private void string() {
+        kind = STRING;
 
-        return new Token<>(context, new TokenType.Value(value));
-    }
+        step();
+
+        while (!skip('"')) {
+            if (atEndOfFile()) {
+                throw OahuError.earlyEndOfFile(source, here());
+            }
+
+            if (!skip('\\')) {
+                step();
 
-    private Token<TokenType.Value> hexadecimal() {
-        var start = here();
+                continue;
+            }
 
-        mustSkip("0x");
+            switch (peek()) {
+                case '\\', '"', '0', 'b', 'n', 'r', 't' -> step();
 
-        var result = new StringBuilder();
+                case 'x' -> unicode(2);
 
-        do {
-            take(result);
-        }
-        while (match(Lexer::isHexadecimalDigit));
+                case 'u' -> unicode(4);
 
-        var context = start.rangeTo(here());
+                case 'U' -> unicode(8);
 
-        var value = Util
-            .parseInt(result.toString(), 16)
-            .map(Integer::doubleValue)
-            .orElseThrow(() -> OahuError.invalidNumber(result.toString(), source, context));
+                case '(' -> {
+                    while (!skip(')')) {
+                        if (atEndOfFile()) {
+                            throw OahuError.earlyEndOfFile(source, here());
+                        }
+
+                        step();
+                    }
+                }
 
-        return new Token<>(context, new TokenType.Value(value));
+                default -> throw OahuError.illegalCharacterEscape(peek(), source, here());
+            }
+        }
     }
 
-    private Token<TokenType.Value> decimal() {
-        var start = here();
+    private void unicode(int size) {
+        step();
 
-        var result = new StringBuilder();
+        var digits = pos;
 
-        do {
-            take(result);
+        for (var i = 0; i < size && !atEndOfFile(); i++) {
+            step();
         }
-        while (match(Lexer::isDecimalDigit));
 
-        if (match('.') && matchNext(Lexer::isDecimalDigit)) {
-            do {
-                take(result);
-            }
-            while (match(Lexer::isDecimalDigit));
+        if (parseInt(text, digits, pos - digits, 16) < 0) {
+            throw OahuError.invalidUnicode(new String(text, digits, pos - digits), source, from(digits));
         }
+    }
 
-        if (matchAny('E', 'e')) {
-            take(result);
+    private void operator() {
+        var c = peek();
 
-            do {
-                take(result);
-            }
-            while (match(Lexer::isDecimalDigit));
+        if (c == '\0') {
+            throw OahuError.illegalCharacter(c, source, here());
         }
 
-        var context = start.rangeTo(here());
+        step();
 
-        var value = Util
-            .parseNumber(result.toString())
-            .orElseThrow(() -> OahuError.invalidNumber(result.toString(), source, context));
+        kind = switch (c) {
+            case '+' -> symbol(skip('=') ? TokenType.Symbol.PLUS_EQUAL : TokenType.Symbol.PLUS);
 
-        return new Token<>(context, new TokenType.Value(value));
-    }
+            case '-' -> {
+                if (skip('=')) {
+                    yield symbol(TokenType.Symbol.DASH_EQUAL);
+                }
 
-    private Token<?> word() {
-        var start = here();
+                yield symbol(skip('>') ? TokenType.Symbol.ARROW : TokenType.Symbol.DASH);
+            }
 
-        var result = new StringBuilder();
+            case '*' -> symbol(skip('=') ? TokenType.Symbol.STAR_EQUAL : TokenType.Symbol.STAR);
 
-        do {
-            take(result);
+            case '/' -> symbol(skip('=') ? TokenType.Symbol.SLASH_EQUAL : TokenType.Symbol.SLASH);
+
+            case '%' -> symbol(skip('=') ? TokenType.Symbol.PERCENT_EQUAL : TokenType.Symbol.PERCENT);
+
+            case '<' -> symbol(skip('=') ? TokenType.Symbol.LESS_EQUAL : TokenType.Symbol.LESS);
+
+            case '>' -> symbol(skip('=') ? TokenType.Symbol.GREATER_EQUAL : TokenType.Symbol.GREATER);
+
+            case '=' -> symbol(skip('=') ? TokenType.Symbol.DOUBLE_EQUAL : TokenType.Symbol.EQUAL);
+
+            case '!' -> symbol(skip('=') ? TokenType.Symbol.EXCLAMATION_EQUAL : TokenType.Symbol.EXCLAMATION);
+
+            case '?' -> symbol(skip('?') ? TokenType.Symbol.DOUBLE_QUESTION : TokenType.Symbol.QUESTION);
+
+            case '@' -> symbol(TokenType.Symbol.AT);
+
+            case '(' -> symbol(TokenType.Symbol.LEFT_PAREN);
+
+            case ')' -> symbol(TokenType.Symbol.RIGHT_PAREN);
+
+            case '[' -> symbol(TokenType.Symbol.LEFT_SQUARE);
+
+            case ']' -> symbol(TokenType.Symbol.RIGHT_SQUARE);
+
+            case '{' -> symbol(TokenType.Symbol.LEFT_BRACE);
+
+            case '}' -> symbol(TokenType.Symbol.RIGHT_BRACE);
+
+            case '.' -> symbol(TokenType.Symbol.DOT);
+
+            case ',' -> symbol(TokenType.Symbol.COMMA);
+
+            case ':' -> symbol(TokenType.Symbol.COLON);
+
+            case '#' -> symbol(TokenType.Symbol.POUND);
+
+            case ';', '\r', '\n' -> END_OF_LINE;
+
+            default -> throw OahuError.illegalCharacter(c, source, Context.of(source.id(), start, 1));
+        };
+    }
+
+    private static int symbol(TokenType.Symbol symbol) {
+        return SYMBOL + symbol.ordinal();
+    }
+
+    private static boolean matches(char[] text, int start, int length, String s) {
+        if (length != s.length()) {
+            return false;
         }
-        while (match(Lexer::isIdentifier));
 
-        var context = start.rangeTo(here());
+        for (var i = 0; i < length; i++) {
+            if (text[start + i] != s.charAt(i)) {
+                return false;
+            }
+        }
 
-        var keyword = Util.getEntry(TokenType.Keyword.class, result.toString().toUpperCase());
+        return true;
+    }
 
-        if (keyword.isPresent()) {
-            return new Token<>(context, keyword.get());
+    private static long parseInt(char[] text, int start, int length, int radix) {
+        if (length == 0) {
+            return -1;
         }
 
-        var literal = literals.get(result.toString());
+        var value = 0L;
+
+        for (var i = start; i < start + length; i++) {
+            var digit = Character.digit(text[i], radix);
+
+            if (digit < 0) {
+                return -1;
+            }
+
+            value = value * radix + digit;
 
-        if (literal != null) {
-            return new Token<>(context, new TokenType.Value(literal));
+            if (value > Integer.MAX_VALUE) {
+                return -1;
+            }
         }
 
-        return new Token<>(context, new TokenType.Name(result.toString()));
+        return value;
     }
 
-    private char unicode(int size) {
-        var start = here();
+    public static double number(Source source, char[] text, int start, int length, long context) {
+        if (length > 2 && text[start] == '0' && (text[start + 1] == 'b' || text[start + 1] == 'x')) {
+            var value = parseInt(text, start + 2, length - 2, text[start + 1] == 'b' ? 2 : 16);
 
-        var result = new StringBuilder();
+            if (value < 0) {
+                throw OahuError.invalidNumber(new String(text, start + 2, length - 2), source, context);
+            }
 
-        for (var i = 0; i < size; i++) {
-            take(result);
+            return value;
         }
 
-        var context = start.rangeTo(here());
+        // Plain integers are the common case and are exact as doubles, so they skip the String round trip
+        var integral = 0L;
+
+        var i = start;
+
+        while (i < start + length && i - start < 15 && text[i] >= '0' && text[i] <= '9') {
+            integral = integral * 10 + (text[i++] - '0');
+        }
+
+        if (i == start + length) {
+            return integral;
+        }
 
-        var value = Util
-            .parseInt(result.toString(), 16)
-            .orElseThrow(() -> OahuError.invalidUnicode(result.toString(), source, context));
+        var string = new String(text, start, length);
 
-        return (char) value.intValue();
+        try {
+            return Double.parseDouble(string);
+        }
+        catch (NumberFormatException e) {
+            throw OahuError.invalidNumber(string, source, context);
+        }
     }
 
-    private Token<TokenType.Value> string() {
-        var start = here();
+    public static String string(char[] text, int start, int length) {
+        var end = start + length - 1;
 
-        var result = new StringBuilder();
+        var result = new StringBuilder(length);
 
-        mustSkip('"');
+        for (var i = start + 1; i < end; i++) {
+            var c = text[i];
 
-        while (!skip('"')) {
-            if (atEndOfFile()) {
-                throw OahuError.earlyEndOfFile(source, here());
+            if (c != '\\') {
+                result.append(c);
+
+                continue;
             }
 
-            if (skip('\\')) {
-                if (skip('\\')) {
-                    result.append('\\');
-                }
-                else if (skip('"')) {
-                    result.append('"');
-                }
-                else if (skip('0')) {
-                    result.append('\0');
-                }
-                else if (skip('b')) {
-                    result.append('\b');
-                }
-                else if (skip('n')) {
-                    result.append('\n');
-                }
-                else if (skip('r')) {
-                    result.append('\r');
-                }
-                else if (skip('t')) {
-                    result.append('\t');
-                }
-                else if (skip('x')) {
-                    result.append(unicode(2));
-                }
-                else if (skip('u')) {
-                    result.append(unicode(4));
-                }
-                else if (skip('U')) {
-                    result.append(unicode(8));
+            c = text[++i];
+
+            switch (c) {
+                case '0' -> result.append('\0');
+
+                case 'b' -> result.append('\b');
+
+                case 'n' -> result.append('\n');
+
+                case 'r' -> result.append('\r');
+
+                case 't' -> result.append('\t');
+
+                case 'x', 'u', 'U' -> {
+                    var size = c == 'x' ? 2 : c == 'u' ? 4 : 8;
+
+                    result.append((char) parseInt(text, i + 1, size, 16));
+
+                    i += size;
                 }
-                else if (skip('(')) {
-                    var name = new StringBuilder();
 
-                    while (!skip(')')) {
-                        take(name);
+                case '(' -> {
+                    var close = i + 1;
+
+                    while (text[close] != ')') {
+                        close++;
                     }
 
-                    result.append((char) Character.codePointOf(name.toString()));
-                }
-                else {
-                    throw OahuError.illegalCharacterEscape(peek(), source, here());
+                    result.append((char) Character.codePointOf(new String(text, i + 1, close - i - 1)));
+
+                    i = close;
                 }
-            }
-            else {
-                take(result);
+
+                default -> result.append(c);
             }
         }
 
-        var context = start.rangeTo(here());
-
-        return new Token<>(context, new TokenType.Value(result.toString()));
+        return result.toString();
     }
 
-    private Token<?> operator() {
-        var start = here();
+    public static Object literal(char[] text, int start, int length) {
+        for (var literal : LITERALS) {
+            if (matches(text, start, length, literal.toString())) {
+                return literal;
+            }
+        }
+
+        throw OahuError.failure("Literal '%s' is unknown!".formatted(new String(text, start, length)));
+    }
 
-        TokenType type;
+    // Keywords and literals share one perfect hash over a word's first, second and last characters and its length
+    private record Words(String[] words, int[] kinds, int first, int second, int mask) {
+        private static Words build() {
+            var words = new ArrayList<String>();
+            var kinds = new ArrayList<Integer>();
 
-        if (skip('+')) {
-            type = skip('=') ? TokenType.Symbol.PLUS_EQUAL : TokenType.Symbol.PLUS;
-        }
-        else if (skip('-')) {
-            if (skip('=')) {
-                type = TokenType.Symbol.DASH_EQUAL;
+            for (var keyword : KEYWORDS) {
+                words.add(keyword.getSymbol());
+                kinds.add(KEYWORD + keyword.ordinal());
             }
-            else if (skip('>')) {
-                type = TokenType.Symbol.ARROW;
+
+            for (var literal : LITERALS) {
+                words.add(literal.toString());
+                kinds.add(LITERAL);
             }
-            else {
-                type = TokenType.Symbol.DASH;
+
+            for (var size = Integer.highestOneBit(words.size()) * 2; ; size *= 2) {
+                for (var first = 1; first < size; first++) {
+                    for (var second = 1; second < size; second++) {
+                        var table = new String[size];
+                        var kindTable = new int[size];
+
+                        var perfect = true;
+
+                        for (var i = 0; i < words.size() && perfect; i++) {
+                            var word = words.get(i);
+
+                            var slot = hash(word.charAt(0), word.charAt(1), word.charAt(word.length() - 1), word.length(), first, second, size - 1);
+
+                            perfect = table[slot] == null;
+
+                            table[slot] = word;
+                            kindTable[slot] = kinds.get(i);
+                        }
+
+                        if (perfect) {
+                            return new Words(table, kindTable, first, second, size - 1);
+                        }
+                    }
+                }
             }
         }
-        else if (skip('*')) {
-            type = skip('=') ? TokenType.Symbol.STAR_EQUAL : TokenType.Symbol.STAR;
-        }
-        else if (skip('/')) {
-            type = skip('=') ? TokenType.Symbol.SLASH_EQUAL : TokenType.Symbol.SLASH;
-        }
-        else if (skip('%')) {
-            type = skip('=') ? TokenType.Symbol.PERCENT_EQUAL : TokenType.Symbol.PERCENT;
-        }
-        else if (skip('<')) {
-            type = skip('=') ? TokenType.Symbol.LESS_EQUAL : TokenType.Symbol.LESS;
-        }
-        else if (skip('>')) {
-            type = skip('=') ? TokenType.Symbol.GREATER_EQUAL : TokenType.Symbol.GREATER;
-        }
-        else if (skip('=')) {
-            type = skip('=') ? TokenType.Symbol.DOUBLE_EQUAL : TokenType.Symbol.EQUAL;
-        }
-        else if (skip('!')) {
-            type = skip('=') ? TokenType.Symbol.EXCLAMATION_EQUAL : TokenType.Symbol.EXCLAMATION;
-        }
-        else if (skip('@')) {
-            type = TokenType.Symbol.AT;
-        }
-        else if (skip('(')) {
-            type = TokenType.Symbol.LEFT_PAREN;
-        }
-        else if (skip(')')) {
-            type = TokenType.Symbol.RIGHT_PAREN;
-        }
-        else if (skip('[')) {
-            type = TokenType.Symbol.LEFT_SQUARE;
-        }
-        else if (skip(']')) {
-            type = TokenType.Symbol.RIGHT_SQUARE;
-        }
-        else if (skip('{')) {
-            type = TokenType.Symbol.LEFT_BRACE;
-        }
-        else if (skip('}')) {
-            type = TokenType.Symbol.RIGHT_BRACE;
-        }
-        else if (skip('.')) {
-            type = TokenType.Symbol.DOT;
-        }
-        else if (skip('?')) {
-            type = skip('?') ? TokenType.Symbol.DOUBLE_QUESTION : TokenType.Symbol.QUESTION;
-        }
-        else if (skip(',')) {
-            type = TokenType.Symbol.COMMA;
-        }
-        else if (skip(':')) {
-            type = TokenType.Symbol.COLON;
-        }
-        else if (skip('#')) {
-            type = TokenType.Symbol.POUND;
-        }
-        else if (skipAny(';', '\r', '\n')) {
-            type = TokenType.EndOfLine.get();
-        }
-        else {
-            throw OahuError.illegalCharacter(peek(), source, here());
+
+        private static int hash(char c0, char c1, char cn, int length, int first, int second, int mask) {
+            return (c0 * first + c1 * second + cn + length) & mask;
         }
 
-        var context = start.rangeTo(here());
+        private int kindOf(char[] text, int start, int length) {
+            if (length < 2) {
+                return NAME;
+            }
+
+            var slot = hash(text[start], text[start + 1], text[start + length - 1], length, first, second, mask);
+
+            var word = words[slot];
 
-        return new Token<>(context, type);
+            if (word != null && matches(text, start, length, word)) {
+                return kinds[slot];
+            }
+
+            return NAME;
+        }
     }
 }
@@ -0,0 +1,185 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.lexer;
+
+import kakkoiichris.oahu.util.OahuError;
+import kakkoiichris.oahu.util.Source;
+
+
+// The parser only ever reads the token it is on and a few past it, so a small window of the latest tokens is kept
+// instead of every token in the file
+public final class TokenBuffer {
+    private static final int WINDOW = 64;
+    private static final int MASK = WINDOW - 1;
+
+    private final Source source;
+    private final Lexer lexer;
+    private final TokenRing ring;
+    private final char[] text;
+
+    private final int[] kinds = new int[WINDOW];
+    private final int[] starts = new int[WINDOW];
+    private final int[] lengths = new int[WINDOW];
+    private final int[] rows = new int[WINDOW];
+
+    private final Object[] values = new Object[WINDOW];
+
+    private int size;
+
+    private boolean complete;
+
+    private int origin;
+    private int base;
+
+    public TokenBuffer(Source source, Lexer lexer) {
+        this.source = source;
+        this.lexer = lexer;
+
+        origin = source.id();
+
+        ring = null;
+        text = lexer.text();
+    }
+
+    public TokenBuffer(Source source, TokenRing ring) {
+        this.source = source;
+        this.ring = ring;
+
+        lexer = null;
+        text = source.chars();
+
+        origin = source.id();
+    }
+
+    // Positions made from here on count from the given base under the given origin
+    public void setOrigin(int origin, int base) {
+        this.origin = origin;
+        this.base = base;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int kind(int index) {
+        var i = fill(index);
+
+        return kinds[i];
+    }
+
+    public int start(int index) {
+        var i = fill(index);
+
+        return starts[i];
+    }
+
+    public int row(int index) {
+        var i = fill(index);
+
+        return rows[i];
+    }
+
+    public long context(int index) {
+        return contextAt(fill(index));
+    }
+
+    public TokenType type(int index) {
+        var i = fill(index);
+
+        return switch (kinds[i]) {
+            case Lexer.END_OF_FILE -> TokenType.EndOfFile.get();
+
+            case Lexer.END_OF_LINE -> TokenType.EndOfLine.get();
+
+            case Lexer.NAME -> new TokenType.Name(name(index));
+
+            case Lexer.NUMBER, Lexer.STRING, Lexer.LITERAL -> new TokenType.Value(value(index));
+
+            default -> Lexer.typeOf(kinds[i]);
+        };
+    }
+
+    public String name(int index) {
+        var i = fill(index);
+
+        if (values[i] == null) {
+            values[i] = new String(text, starts[i], lengths[i]);
+        }
+
+        return (String) values[i];
+    }
+
+    public Object value(int index) {
+        var i = fill(index);
+
+        if (values[i] == null) {
+            values[i] = switch (kinds[i]) {
+                case Lexer.NUMBER -> Lexer.number(source, text, starts[i], lengths[i], contextAt(i));
+
+                case Lexer.STRING -> Lexer.string(text, starts[i], lengths[i]);
+
+                case Lexer.LITERAL -> Lexer.literal(text, starts[i], lengths[i]);
+
+                default -> new String(text, starts[i], lengths[i]);
+            };
+        }
+
+        return values[i];
+    }
+
+    private long contextAt(int slot) {
+        return Context.of(origin, starts[slot] - base, Math.max(lengths[slot], 1));
+    }
+
+    // Tokens are scanned on demand so lookahead never has to wait for the whole file; reads past the end see end of file
+    private int fill(int index) {
+        while (size <= index && !complete) {
+            var slot = size & MASK;
+
+            int kind;
+
+            if (ring != null) {
+                var next = ring.await();
+
+                kind = ring.kind(next);
+
+                kinds[slot] = kind;
+                starts[slot] = ring.start(next);
+                lengths[slot] = ring.length(next);
+                rows[slot] = ring.row(next);
+
+                ring.release();
+            }
+            else {
+                kind = lexer.scan();
+
+                kinds[slot] = kind;
+                starts[slot] = lexer.start();
+                lengths[slot] = lexer.length();
+                rows[slot] = lexer.row();
+            }
+
+            values[slot] = null;
+
+            size++;
+
+            complete = kind == Lexer.END_OF_FILE;
+        }
+
+        var found = Math.min(index, size - 1);
+
+        if (found < size - WINDOW) {
+            throw OahuError.failure("Token %d has already left the buffer!".formatted(index));
+        }
+
+        return found & MASK;
+    }
+}
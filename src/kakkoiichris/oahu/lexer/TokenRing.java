@@ -0,0 +1,168 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.lexer;
+
+import kakkoiichris.oahu.util.Source;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+public final class TokenRing implements AutoCloseable {
+    public static final int CAPACITY = 1 << 12;
+
+    private static final int MASK = CAPACITY - 1;
+
+    private static final VarHandle HEAD;
+    private static final VarHandle TAIL;
+
+    static {
+        try {
+            var lookup = MethodHandles.lookup();
+
+            HEAD = lookup.findVarHandle(TokenRing.class, "head", long.class);
+            TAIL = lookup.findVarHandle(TokenRing.class, "tail", long.class);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final int[] kinds = new int[CAPACITY];
+    private final int[] starts = new int[CAPACITY];
+    private final int[] lengths = new int[CAPACITY];
+    private final int[] rows = new int[CAPACITY];
+
+    // Only the consumer writes head and only the producer writes tail; each side keeps a stale copy of the other's
+    @SuppressWarnings("unused")
+    private long head;
+    @SuppressWarnings("unused")
+    private long tail;
+
+    private long cachedHead;
+    private long cachedTail;
+
+    private volatile Throwable failure;
+    private volatile boolean closed;
+
+    private TokenRing() {
+    }
+
+    public static TokenRing start(Source source) {
+        var ring = new TokenRing();
+
+        var producer = new Thread(() -> ring.produce(new Lexer(source)), "oahu-lexer");
+
+        producer.setDaemon(true);
+        producer.start();
+
+        return ring;
+    }
+
+    private void produce(Lexer lexer) {
+        try {
+            var next = 0L;
+
+            while (!closed) {
+                var kind = lexer.scan();
+
+                while (next - cachedHead == CAPACITY) {
+                    cachedHead = (long) HEAD.getAcquire(this);
+
+                    if (next - cachedHead == CAPACITY && !pause()) {
+                        return;
+                    }
+                }
+
+                var slot = (int) next & MASK;
+
+                kinds[slot] = kind;
+                starts[slot] = lexer.start();
+                lengths[slot] = lexer.length();
+                rows[slot] = lexer.row();
+
+                TAIL.setRelease(this, ++next);
+
+                if (kind == Lexer.END_OF_FILE) {
+                    return;
+                }
+            }
+        }
+        // Anything the lexer throws, errors included, must reach the consumer or it would wait forever
+        catch (Throwable e) {
+            failure = e;
+        }
+    }
+
+    public int await() {
+        var next = (long) HEAD.getOpaque(this);
+
+        while (next == cachedTail) {
+            cachedTail = (long) TAIL.getAcquire(this);
+
+            if (next != cachedTail) {
+                break;
+            }
+
+            var error = failure;
+
+            if (error != null) {
+                if (next != (long) TAIL.getAcquire(this)) {
+                    continue;
+                }
+
+                if (error instanceof RuntimeException e) {
+                    throw e;
+                }
+
+                if (error instanceof Error e) {
+                    throw e;
+                }
+
+                throw new Error(error);
+            }
+
+            pause();
+        }
+
+        return (int) next & MASK;
+    }
+
+    public void release() {
+        HEAD.setRelease(this, (long) HEAD.getOpaque(this) + 1);
+    }
+
+    public int kind(int slot) {
+        return kinds[slot];
+    }
+
+    public int start(int slot) {
+        return starts[slot];
+    }
+
+    public int length(int slot) {
+        return lengths[slot];
+    }
+
+    public int row(int slot) {
+        return rows[slot];
+    }
+
+    private boolean pause() {
+        Thread.yield();
+
+        return !closed;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
@@ -0,0 +1,87 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.optimizer;
+
+import kakkoiichris.oahu.parser.Expr;
+import kakkoiichris.oahu.runtime.Operators;
+
+// Evaluates operators whose operands are literals with the runtime's own rules; anything that would fail is left to fail at runtime
+public final class ConstantFolder extends Transformer {
+    private static final int MAX_STRING = 1 << 12;
+
+    @Override
+    public Expr visitUnaryExpr(Expr.Unary expr) {
+        var visited = super.visitUnaryExpr(expr);
+
+        if (!(visited instanceof Expr.Unary unary && unary.expr() instanceof Expr.Value operand)) {
+            return visited;
+        }
+
+        return switch (unary.operator()) {
+            case NEGATIVE, NOT -> fold(unary, Operators.unary(unary.operator(), operand.value()));
+
+            default -> unary;
+        };
+    }
+
+    @Override
+    public Expr visitBinaryExpr(Expr.Binary expr) {
+        var visited = super.visitBinaryExpr(expr);
+
+        if (!(visited instanceof Expr.Binary binary && binary.left() instanceof Expr.Value left)) {
+            return visited;
+        }
+
+        var l = left.value();
+
+        // The right operand is never evaluated once the left one decides the result
+        switch (binary.operator()) {
+            case OR -> {
+                if (l instanceof Boolean b && b) {
+                    return new Expr.Value(binary.context(), true);
+                }
+            }
+
+            case AND -> {
+                if (l instanceof Boolean b && !b) {
+                    return new Expr.Value(binary.context(), false);
+                }
+            }
+
+            default -> {
+            }
+        }
+
+        if (!(binary.right() instanceof Expr.Value right)) {
+            return binary;
+        }
+
+        var r = right.value();
+
+        if (binary.operator() == Expr.Binary.Operator.MULTIPLY && l instanceof String s && r instanceof Double d && (d.intValue() < 0 || (long) s.length() * d.intValue() > MAX_STRING)) {
+            return binary;
+        }
+
+        return fold(binary, Operators.binary(binary.operator(), l, r));
+    }
+
+    private static Expr fold(Expr expr, Object result) {
+        if (result instanceof Operators.Invalid) {
+            return expr;
+        }
+
+        if (result instanceof String s && s.length() > MAX_STRING) {
+            return expr;
+        }
+
+        return new Expr.Value(expr.context(), result);
+    }
+}
@@ -0,0 +1,36 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.optimizer;
+
+import kakkoiichris.oahu.parser.Expr;
+import kakkoiichris.oahu.parser.Stmt;
+
+// Replaces names bound by a literal let with the literal, following the resolver's scoping so only the same binding is replaced
+public final class ConstantPropagator extends ScopedTransformer {
+    @Override
+    public Expr visitNameExpr(Expr.Name expr) {
+        var value = lookup(expr.value());
+
+        return value == UNKNOWN ? expr : new Expr.Value(expr.context(), value);
+    }
+
+    @Override
+    public Stmt visitDeclarationStmt(Stmt.Declaration stmt) {
+        var visited = (Stmt.Declaration) super.visitDeclarationStmt(stmt);
+
+        // Members of a class body are looked up by name at runtime, so only ordinary scopes hold constants
+        if (visited.constant() && !visited.destructured() && !isDynamic() && visited.expr() instanceof Expr.Value value) {
+            bind(visited.names().getFirst().value(), value.value());
+        }
+
+        return visited;
+    }
+}
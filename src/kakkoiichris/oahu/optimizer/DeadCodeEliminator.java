@@ -0,0 +1,117 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.optimizer;
+
+import kakkoiichris.oahu.parser.Expr;
+import kakkoiichris.oahu.parser.Stmt;
+
+import java.util.ArrayList;
+
+// Drops branches whose literal conditions can never choose them and loops that can never run
+public final class DeadCodeEliminator extends Transformer {
+    @Override
+    public Expr visitIfExpr(Expr.If expr) {
+        var visited = super.visitIfExpr(expr);
+
+        if (!(visited instanceof Expr.If ifExpr && ifExpr.condition() instanceof Expr.Value condition)) {
+            return visited;
+        }
+
+        var taken = isTrue(condition) ? ifExpr.body() : ifExpr.elze();
+        var skipped = isTrue(condition) ? ifExpr.elze() : ifExpr.body();
+
+        return declares(skipped) ? ifExpr : taken;
+    }
+
+    @Override
+    public Expr visitWhenExpr(Expr.When expr) {
+        var visited = super.visitWhenExpr(expr);
+
+        if (!(visited instanceof Expr.When when)) {
+            return visited;
+        }
+
+        var branches = new ArrayList<Expr.When.Branch>(when.branches().size());
+
+        Expr elze = when.elze();
+
+        for (var i = 0; i < when.branches().size(); i++) {
+            var branch = when.branches().get(i);
+
+            if (!(branch.condition() instanceof Expr.Value condition) || declares(branch.body())) {
+                branches.add(branch);
+
+                continue;
+            }
+
+            if (isTrue(condition)) {
+                // Everything after a branch that is always taken is unreachable, unless it declares a name
+                var rest = when.branches().subList(i + 1, when.branches().size());
+
+                if (declares(elze) || rest.stream().anyMatch(b -> declares(b.body()))) {
+                    branches.add(branch);
+                    branches.addAll(rest);
+                }
+                else {
+                    elze = branch.body();
+                }
+
+                break;
+            }
+        }
+
+        if (branches.size() == when.branches().size() && elze == when.elze()) {
+            return when;
+        }
+
+        if (branches.isEmpty()) {
+            return elze;
+        }
+
+        return new Expr.When(when.context(), branches, elze);
+    }
+
+    @Override
+    public Stmt visitWhileStmt(Stmt.While stmt) {
+        var visited = super.visitWhileStmt(stmt);
+
+        if (visited instanceof Stmt.While loop && loop.condition() instanceof Expr.Value condition && !isTrue(condition)) {
+            return Stmt.Empty.get();
+        }
+
+        return visited;
+    }
+
+    private static boolean isTrue(Expr.Value condition) {
+        return condition.value() instanceof Boolean bool && bool;
+    }
+
+    // A body without braces declares into the enclosing scope, so removing it would change what the resolver sees
+    private static boolean declares(Expr expr) {
+        return switch (expr) {
+            case Expr.Statement statement -> switch (statement.stmt()) {
+                case Stmt.Declaration _, Stmt.Fun _, Stmt.Class _ -> true;
+
+                case Stmt.Expression expression -> declares(expression.expr());
+
+                default -> false;
+            };
+
+            case Expr.If ifExpr -> declares(ifExpr.body()) || declares(ifExpr.elze());
+
+            case Expr.When when -> when.branches().stream().anyMatch(b -> declares(b.body())) || declares(when.elze());
+
+            case Expr.Try tryExpr -> declares(tryExpr.body()) || declares(tryExpr.finallyBody());
+
+            default -> false;
+        };
+    }
+}
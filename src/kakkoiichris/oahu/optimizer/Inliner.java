@@ -0,0 +1,362 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.optimizer;
+
+import kakkoiichris.oahu.parser.Expr;
+import kakkoiichris.oahu.parser.Program;
+import kakkoiichris.oahu.parser.Stmt;
+import kakkoiichris.oahu.runtime.data.Unit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+// Replaces calls to small functions with their bodies, binding each argument to a fresh name so nothing can capture it
+public final class Inliner extends ScopedTransformer {
+    private static final int BUDGET = 32;
+
+    private final Set<String> escaping = new HashSet<>();
+
+    @Override
+    public Program run(Program program) {
+        var uses = new Uses();
+
+        uses.run(program);
+
+        escaping.addAll(uses.escaping);
+
+        return super.run(program);
+    }
+
+    @Override
+    public Stmt visitFunStmt(Stmt.Fun stmt) {
+        var visited = (Stmt.Fun) super.visitFunStmt(stmt);
+
+        if (!isDynamic()) {
+            candidate(visited).ifPresent(candidate -> bind(visited.name().value(), candidate));
+        }
+
+        return visited;
+    }
+
+    // A function is inlined only if its name is never assigned or used as a value, and its body is small and falls straight through
+    private Optional<Candidate> candidate(Stmt.Fun fun) {
+        var name = fun.name().value();
+
+        if (fun.isLinked() || escaping.contains(name)) {
+            return Optional.empty();
+        }
+
+        for (var param : fun.params()) {
+            if (param.isVarargs()) {
+                return Optional.empty();
+            }
+        }
+
+        var stmts = new ArrayList<Stmt>();
+
+        Expr result = new Expr.Value(fun.context(), Unit.get());
+
+        switch (fun.body()) {
+            case Stmt.Empty _ -> {
+            }
+
+            case Stmt.Return ret -> result = ret.expr();
+
+            case Stmt.Block block -> {
+                stmts.addAll(block.stmts());
+
+                if (!stmts.isEmpty() && stmts.getLast() instanceof Stmt.Return ret) {
+                    stmts.removeLast();
+
+                    result = ret.expr();
+                }
+            }
+
+            default -> {
+                return Optional.empty();
+            }
+        }
+
+        var scan = new Scan();
+
+        scan.stmts(stmts);
+        scan.visit(result);
+
+        if (scan.unsafe || scan.size > BUDGET || scan.names.contains(name)) {
+            return Optional.empty();
+        }
+
+        var params = new HashSet<String>();
+
+        for (var param : fun.params()) {
+            params.add(param.name().value());
+        }
+
+        // Every other name in the body must mean the same thing wherever the body is copied to
+        var bindings = new HashMap<String, Scope>();
+
+        for (var used : scan.names) {
+            if (!params.contains(used)) {
+                bindings.put(used, find(used));
+            }
+        }
+
+        return Optional.of(new Candidate(fun, stmts, result, bindings));
+    }
+
+    @Override
+    public Expr visitInvokeExpr(Expr.Invoke expr) {
+        var visited = super.visitInvokeExpr(expr);
+
+        // A block in a class body would declare its names as members, so calls there are left alone
+        if (isDynamic() || !(visited instanceof Expr.Invoke invoke && invoke.target() instanceof Expr.Name name && lookup(name.value()) instanceof Candidate candidate)) {
+            return visited;
+        }
+
+        if (invoke.args().size() != candidate.fun().params().size()) {
+            return invoke;
+        }
+
+        for (var arg : invoke.args()) {
+            if (arg.spread() || !arg.isPositional()) {
+                return invoke;
+            }
+        }
+
+        for (var binding : candidate.bindings().entrySet()) {
+            if (find(binding.getKey()) != binding.getValue()) {
+                return invoke;
+            }
+        }
+
+        return inline(invoke, candidate);
+    }
+
+    private Expr inline(Expr.Invoke invoke, Candidate candidate) {
+        var exprs = new ArrayList<Expr>();
+
+        var renames = new HashMap<String, String>();
+
+        var params = candidate.fun().params();
+
+        // Arguments are bound in order before the body runs, as a call would
+        for (var i = 0; i < params.size(); i++) {
+            var param = params.get(i);
+
+            var fresh = fresh(param.name().value());
+
+            renames.put(param.name().value(), fresh);
+
+            var declaration = new Stmt.Declaration(invoke.context(), true, param.isMutable(), false, List.of(new Expr.Name(param.name().context(), fresh)), invoke.args().get(i).expr());
+
+            exprs.add(new Expr.Statement(invoke.context(), declaration));
+        }
+
+        var copier = new Copier(renames);
+
+        for (var stmt : candidate.stmts()) {
+            exprs.add(new Expr.Statement(stmt.context(), copier.visit(stmt)));
+        }
+
+        exprs.add(copier.visit(candidate.result()));
+
+        return new Expr.Block(invoke.context(), exprs);
+    }
+
+    private record Candidate(Stmt.Fun fun, List<Stmt> stmts, Expr result, Map<String, Scope> bindings) {
+    }
+
+    // Names used as anything other than the target of a direct call, or assigned to, can not be inlined
+    private static final class Uses extends Transformer {
+        private final Set<String> escaping = new HashSet<>();
+
+        @Override
+        public Expr visitNameExpr(Expr.Name expr) {
+            escaping.add(expr.value());
+
+            return expr;
+        }
+
+        @Override
+        public Expr visitAssignExpr(Expr.Assign expr) {
+            escaping.add(expr.name().value());
+
+            return super.visitAssignExpr(expr);
+        }
+
+        @Override
+        public Expr visitInvokeExpr(Expr.Invoke expr) {
+            if (expr.target() instanceof Expr.Name) {
+                args(expr.args());
+
+                return expr;
+            }
+
+            return super.visitInvokeExpr(expr);
+        }
+
+        @Override
+        public Stmt visitEnumStmt(Stmt.Enum stmt) {
+            clazz(stmt.clazz());
+
+            for (var entry : stmt.entries()) {
+                args(entry.args());
+
+                visit(entry.ordinal());
+            }
+
+            return stmt;
+        }
+    }
+
+    // Measures a body and rejects anything that would leave it other than by falling off the end
+    private static final class Scan extends Transformer {
+        private final Set<String> names = new HashSet<>();
+
+        private int size;
+        private boolean unsafe;
+
+        @Override
+        public Expr visit(Expr expr) {
+            size++;
+
+            return expr.accept(this);
+        }
+
+        @Override
+        public Stmt visit(Stmt stmt) {
+            size++;
+
+            return stmt.accept(this);
+        }
+
+        @Override
+        public Expr visitNameExpr(Expr.Name expr) {
+            names.add(expr.value());
+
+            return expr;
+        }
+
+        @Override
+        public Expr visitAssignExpr(Expr.Assign expr) {
+            names.add(expr.name().value());
+
+            return super.visitAssignExpr(expr);
+        }
+
+        @Override
+        public Expr visitLambdaExpr(Expr.Lambda expr) {
+            unsafe = true;
+
+            return expr;
+        }
+
+        @Override
+        public Stmt visitBreakStmt(Stmt.Break stmt) {
+            unsafe = true;
+
+            return stmt;
+        }
+
+        @Override
+        public Stmt visitContinueStmt(Stmt.Continue stmt) {
+            unsafe = true;
+
+            return stmt;
+        }
+
+        @Override
+        public Stmt visitReturnStmt(Stmt.Return stmt) {
+            unsafe = true;
+
+            return stmt;
+        }
+
+        @Override
+        public Stmt visitFunStmt(Stmt.Fun stmt) {
+            unsafe = true;
+
+            return stmt;
+        }
+
+        @Override
+        public Stmt visitClassStmt(Stmt.Class stmt) {
+            unsafe = true;
+
+            return stmt;
+        }
+
+        @Override
+        public Stmt visitEnumStmt(Stmt.Enum stmt) {
+            unsafe = true;
+
+            return stmt;
+        }
+    }
+
+    // Copies a body with a new node for every name, since the resolver gives each copy its own slots
+    private static final class Copier extends Transformer {
+        private final Map<String, String> renames;
+
+        private Copier(Map<String, String> renames) {
+            this.renames = renames;
+        }
+
+        private Expr.Name name(Expr.Name name) {
+            return new Expr.Name(name.context(), renames.getOrDefault(name.value(), name.value()));
+        }
+
+        private List<Expr.Name> names(List<Expr.Name> names) {
+            var copied = new ArrayList<Expr.Name>(names.size());
+
+            for (var name : names) {
+                copied.add(name(name));
+            }
+
+            return copied;
+        }
+
+        @Override
+        public Expr visitNameExpr(Expr.Name expr) {
+            return name(expr);
+        }
+
+        @Override
+        public Expr visitAssignExpr(Expr.Assign expr) {
+            return new Expr.Assign(expr.context(), name(expr.name()), visit(expr.value()));
+        }
+
+        @Override
+        public Expr visitListForExpr(Expr.ListFor expr) {
+            return new Expr.ListFor(expr.context(), visit(expr.element()), names(expr.names()), expr.destructured(), visit(expr.iterable()), visit(expr.test()));
+        }
+
+        @Override
+        public Expr visitTryExpr(Expr.Try expr) {
+            return new Expr.Try(expr.context(), visit(expr.body()), name(expr.error()), visit(expr.catchBody()), visit(expr.finallyBody()));
+        }
+
+        @Override
+        public Stmt visitDeclarationStmt(Stmt.Declaration stmt) {
+            return new Stmt.Declaration(stmt.context(), stmt.constant(), stmt.mutable(), stmt.destructured(), names(stmt.names()), visit(stmt.expr()));
+        }
+
+        @Override
+        public Stmt visitForStmt(Stmt.For stmt) {
+            return new Stmt.For(stmt.context(), stmt.label(), stmt.destructured(), names(stmt.names()), visit(stmt.iterable()), visit(stmt.body()));
+        }
+    }
+}
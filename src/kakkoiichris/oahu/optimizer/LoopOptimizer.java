@@ -0,0 +1,600 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.optimizer;
+
+import kakkoiichris.oahu.parser.Callable;
+import kakkoiichris.oahu.parser.Expr;
+import kakkoiichris.oahu.parser.Program;
+import kakkoiichris.oahu.parser.Stmt;
+import kakkoiichris.oahu.runtime.Operators;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Moves arithmetic that gives the same number on every iteration in front of the loop, and marks while loops that count
+public final class LoopOptimizer extends ScopedTransformer {
+    private static final Object DEFINED = new Object();
+
+    private final Map<Expr.Name, Binding> bindings = new IdentityHashMap<>();
+
+    private final Set<Stmt> wrapped = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    @Override
+    public Program run(Program program) {
+        var analysis = new Analysis();
+
+        analysis.run(program);
+
+        analysis.settle();
+
+        bindings.putAll(analysis.bindings);
+
+        return super.run(program);
+    }
+
+    // A loop in a list of statements gets its hoisted values straight in front of it, rather than in a block of its own
+    @Override
+    protected List<Stmt> stmts(List<Stmt> stmts) {
+        var visited = super.stmts(stmts);
+
+        if (visited == stmts) {
+            return visited;
+        }
+
+        var spliced = new ArrayList<Stmt>(visited.size());
+
+        for (var stmt : visited) {
+            if (wrapped.contains(stmt)) {
+                spliced.addAll(((Stmt.Block) stmt).stmts());
+            }
+            else {
+                spliced.add(stmt);
+            }
+        }
+
+        return spliced;
+    }
+
+    @Override
+    public Stmt visitDeclarationStmt(Stmt.Declaration stmt) {
+        var visited = super.visitDeclarationStmt(stmt);
+
+        if (!stmt.destructured() && !isDynamic()) {
+            bind(stmt.names().getFirst().value(), DEFINED);
+        }
+
+        return visited;
+    }
+
+    @Override
+    public Stmt visitWhileStmt(Stmt.While stmt) {
+        var visited = (Stmt.While) super.visitWhileStmt(stmt);
+
+        if (isDynamic()) {
+            return visited;
+        }
+
+        var hoister = new Hoister(Effects.of(visited.condition(), visited.body()));
+
+        var condition = hoister.visit(visited.condition());
+        var body = hoister.visit(visited.body());
+
+        var loop = condition == visited.condition() && body == visited.body() ? visited : new Stmt.While(visited.context(), visited.label(), condition, body);
+
+        // Whether a loop counts depends on the whole program, so the mark is worked out again on every run
+        loop.setCounter(counter(loop, Effects.of(condition, body)));
+
+        return hoister.wrap(loop);
+    }
+
+    @Override
+    public Stmt visitDoStmt(Stmt.Do stmt) {
+        var visited = (Stmt.Do) super.visitDoStmt(stmt);
+
+        if (isDynamic()) {
+            return visited;
+        }
+
+        var hoister = new Hoister(Effects.of(visited.condition(), visited.body()));
+
+        var body = hoister.visit(visited.body());
+        var condition = hoister.visit(visited.condition());
+
+        return hoister.wrap(body == visited.body() && condition == visited.condition() ? visited : new Stmt.Do(visited.context(), visited.label(), body, condition));
+    }
+
+    @Override
+    public Stmt visitLoopStmt(Stmt.Loop stmt) {
+        var visited = (Stmt.Loop) super.visitLoopStmt(stmt);
+
+        if (isDynamic()) {
+            return visited;
+        }
+
+        var hoister = new Hoister(Effects.of(Expr.Empty.get(), visited.body()));
+
+        var body = hoister.visit(visited.body());
+
+        return hoister.wrap(body == visited.body() ? visited : new Stmt.Loop(visited.context(), visited.label(), visited.count(), body));
+    }
+
+    @Override
+    public Stmt visitForStmt(Stmt.For stmt) {
+        var visited = super.visitForStmt(stmt);
+
+        if (isDynamic() || !(visited instanceof Stmt.For loop)) {
+            return visited;
+        }
+
+        var effects = Effects.of(Expr.Empty.get(), loop.body());
+
+        for (var name : loop.names()) {
+            effects.declared.add(name.value());
+        }
+
+        var hoister = new Hoister(effects);
+
+        var body = hoister.visit(loop.body());
+
+        return hoister.wrap(body == loop.body() ? loop : new Stmt.For(loop.context(), loop.label(), loop.destructured(), loop.names(), loop.iterable(), body));
+    }
+
+    // A counting loop compares its counter to a fixed limit, steps it by a constant last thing in its body, and writes it nowhere else
+    private Stmt.While.Counter counter(Stmt.While loop, Effects effects) {
+        if (effects.continues || !(loop.condition() instanceof Expr.Binary condition) || !(condition.left() instanceof Expr.Name name)) {
+            return null;
+        }
+
+        switch (condition.operator()) {
+            case LESS, LESS_EQUAL, GREATER, GREATER_EQUAL -> {
+            }
+
+            default -> {
+                return null;
+            }
+        }
+
+        if (!(loop.body() instanceof Stmt.Block block) || block.stmts().isEmpty()) {
+            return null;
+        }
+
+        if (!(block.stmts().getLast() instanceof Stmt.Expression(_, Expr.Assign assign)) || !assign.name().equals(name)) {
+            return null;
+        }
+
+        var step = step(name, assign.value());
+
+        if (Double.isNaN(step) || effects.declared.contains(name.value()) || !invariant(condition.right(), effects)) {
+            return null;
+        }
+
+        var binding = bindings.get(declaration(name.value()));
+
+        if (binding == null || !binding.declared || binding.constant || binding.assigns.size() != 1 || binding.assigns.getFirst() != assign) {
+            return null;
+        }
+
+        var body = new Stmt.Block(block.context(), block.stmts().subList(0, block.stmts().size() - 1));
+
+        return new Stmt.While.Counter(name, condition.operator(), condition.right(), step, body);
+    }
+
+    private static double step(Expr.Name name, Expr value) {
+        if (!(value instanceof Expr.Binary binary)) {
+            return Double.NaN;
+        }
+
+        return switch (binary.operator()) {
+            case ADD -> {
+                if (binary.left().equals(name) && binary.right() instanceof Expr.Value(_, Double step)) {
+                    yield step;
+                }
+
+                if (binary.right().equals(name) && binary.left() instanceof Expr.Value(_, Double step)) {
+                    yield step;
+                }
+
+                yield Double.NaN;
+            }
+
+            case SUBTRACT -> binary.left().equals(name) && binary.right() instanceof Expr.Value(_, Double step) ? -step : Double.NaN;
+
+            default -> Double.NaN;
+        };
+    }
+
+    // A limit only has to read the same every time, whatever it holds
+    private boolean invariant(Expr limit, Effects effects) {
+        return switch (limit) {
+            case Expr.Value _ -> true;
+
+            case Expr.Name name -> {
+                var declared = declaration(name.value());
+
+                if (declared == null || effects.declared.contains(name.value()) || effects.assigned.contains(name.value())) {
+                    yield false;
+                }
+
+                var binding = bindings.get(declared);
+
+                yield binding == null || !binding.escapes || !effects.invokes;
+            }
+
+            default -> false;
+        };
+    }
+
+    // A hoisted name has to be defined already and only ever hold numbers, so reading it early can neither fail nor differ
+    private boolean isNumeric(Expr.Name name, Effects effects) {
+        var value = name.value();
+
+        if (effects.declared.contains(value) || effects.assigned.contains(value) || lookup(value) != DEFINED) {
+            return false;
+        }
+
+        var binding = bindings.get(declaration(value));
+
+        return binding != null && binding.numeric && (!binding.escapes || !effects.invokes);
+    }
+
+    // Arithmetic over numbers can not throw or touch anything, so evaluating it once up front is the same as every time
+    private final class Hoister extends Transformer {
+        private final Effects effects;
+
+        private final List<Stmt> hoisted = new ArrayList<>();
+
+        private Hoister(Effects effects) {
+            this.effects = effects;
+        }
+
+        @Override
+        public Expr visit(Expr expr) {
+            if ((expr instanceof Expr.Unary || expr instanceof Expr.Binary) && isInvariant(expr) && hasName(expr)) {
+                var name = new Expr.Name(expr.context(), fresh("inv"));
+
+                hoisted.add(new Stmt.Declaration(expr.context(), true, false, false, List.of(name), expr));
+
+                return new Expr.Name(expr.context(), name.value());
+            }
+
+            return expr.accept(this);
+        }
+
+        private boolean isInvariant(Expr expr) {
+            return switch (expr) {
+                case Expr.Value value -> value.value() instanceof Double;
+
+                case Expr.Name name -> isNumeric(name, effects);
+
+                case Expr.Unary unary -> unary.operator() == Expr.Unary.Operator.NEGATIVE && isInvariant(unary.expr());
+
+                case Expr.Binary binary -> Operators.isArithmetic(binary.operator()) && isInvariant(binary.left()) && isInvariant(binary.right());
+
+                default -> false;
+            };
+        }
+
+        private boolean hasName(Expr expr) {
+            return switch (expr) {
+                case Expr.Name _ -> true;
+
+                case Expr.Unary unary -> hasName(unary.expr());
+
+                case Expr.Binary binary -> hasName(binary.left()) || hasName(binary.right());
+
+                default -> false;
+            };
+        }
+
+        // Bodies that run later, if at all, are left where they are
+        @Override
+        public Expr visitLambdaExpr(Expr.Lambda expr) {
+            return expr;
+        }
+
+        @Override
+        public Stmt visitFunStmt(Stmt.Fun stmt) {
+            return stmt;
+        }
+
+        @Override
+        public Stmt visitClassStmt(Stmt.Class stmt) {
+            return stmt;
+        }
+
+        private Stmt wrap(Stmt loop) {
+            if (hoisted.isEmpty()) {
+                return loop;
+            }
+
+            var stmts = new ArrayList<>(hoisted);
+
+            stmts.add(loop);
+
+            var block = new Stmt.Block(loop.context(), stmts);
+
+            wrapped.add(block);
+
+            return block;
+        }
+    }
+
+    // What a loop's condition and body declare and assign by name, and whether anything in them could run other code
+    private static final class Effects extends Transformer {
+        private final Set<String> declared = new HashSet<>();
+        private final Set<String> assigned = new HashSet<>();
+
+        private boolean invokes;
+        private boolean continues;
+
+        private static Effects of(Expr condition, Stmt body) {
+            var effects = new Effects();
+
+            effects.visit(condition);
+            effects.visit(body);
+
+            return effects;
+        }
+
+        private void declare(List<? extends Callable.Param> params) {
+            for (var param : params) {
+                declared.add(param.name().value());
+            }
+        }
+
+        @Override
+        public Expr visitAssignExpr(Expr.Assign expr) {
+            assigned.add(expr.name().value());
+
+            return super.visitAssignExpr(expr);
+        }
+
+        @Override
+        public Expr visitInvokeExpr(Expr.Invoke expr) {
+            invokes = true;
+
+            return super.visitInvokeExpr(expr);
+        }
+
+        @Override
+        public Expr visitListForExpr(Expr.ListFor expr) {
+            for (var name : expr.names()) {
+                declared.add(name.value());
+            }
+
+            return super.visitListForExpr(expr);
+        }
+
+        @Override
+        public Expr visitTryExpr(Expr.Try expr) {
+            declared.add(expr.error().value());
+
+            return super.visitTryExpr(expr);
+        }
+
+        @Override
+        public Stmt visitDeclarationStmt(Stmt.Declaration stmt) {
+            for (var name : stmt.names()) {
+                declared.add(name.value());
+            }
+
+            return super.visitDeclarationStmt(stmt);
+        }
+
+        @Override
+        public Stmt visitForStmt(Stmt.For stmt) {
+            for (var name : stmt.names()) {
+                declared.add(name.value());
+            }
+
+            return super.visitForStmt(stmt);
+        }
+
+        @Override
+        public Stmt visitContinueStmt(Stmt.Continue stmt) {
+            continues = true;
+
+            return stmt;
+        }
+
+        @Override
+        public Stmt visitEnumStmt(Stmt.Enum stmt) {
+            declared.add(stmt.clazz().name().value());
+
+            invokes = true;
+
+            return stmt;
+        }
+
+        @Override
+        protected Stmt.Fun fun(Stmt.Fun fun) {
+            declared.add(fun.name().value());
+
+            declare(fun.params());
+
+            return super.fun(fun);
+        }
+
+        @Override
+        protected Stmt.Class clazz(Stmt.Class clazz) {
+            declared.add(clazz.name().value());
+
+            declare(clazz.params());
+
+            return super.clazz(clazz);
+        }
+    }
+
+    private static final class Binding {
+        private final List<Expr.Assign> assigns = new ArrayList<>();
+        private final List<Expr.Name> dependencies = new ArrayList<>();
+
+        private boolean declared;
+        private boolean constant;
+        private int depth;
+
+        private boolean numeric = true;
+        private boolean escapes;
+    }
+
+    // Finds every binding's declaration and assignments, and which bindings only ever hold numbers
+    private static final class Analysis extends ScopedTransformer {
+        private final Map<Expr.Name, Binding> bindings = new IdentityHashMap<>();
+
+        private final Map<Binding, Set<Integer>> depths = new IdentityHashMap<>();
+
+        private int depth;
+
+        @Override
+        public Stmt visitDeclarationStmt(Stmt.Declaration stmt) {
+            var visited = super.visitDeclarationStmt(stmt);
+
+            if (stmt.destructured() || isDynamic()) {
+                return visited;
+            }
+
+            var name = stmt.names().getFirst();
+
+            var binding = bindings.computeIfAbsent(name, _ -> new Binding());
+
+            binding.declared = true;
+            binding.constant = stmt.constant();
+            binding.depth = depth;
+            binding.numeric &= depends(stmt.expr(), binding, name);
+
+            return visited;
+        }
+
+        @Override
+        public Expr visitAssignExpr(Expr.Assign expr) {
+            var visited = super.visitAssignExpr(expr);
+
+            var declared = declaration(expr.name().value());
+
+            if (declared == null) {
+                return visited;
+            }
+
+            var binding = bindings.computeIfAbsent(declared, _ -> new Binding());
+
+            binding.assigns.add(expr);
+            binding.numeric &= depends(expr.value(), binding, null);
+
+            depths.computeIfAbsent(binding, _ -> new HashSet<>()).add(depth);
+
+            return visited;
+        }
+
+        // A declaration's own name in its value still means the outer binding, so it can not count as a dependency
+        private boolean depends(Expr expr, Binding binding, Expr.Name self) {
+            return switch (expr) {
+                case Expr.Value value -> value.value() instanceof Double;
+
+                case Expr.Name name -> {
+                    var declared = declaration(name.value());
+
+                    if (declared == null || declared == self) {
+                        yield false;
+                    }
+
+                    binding.dependencies.add(declared);
+
+                    yield true;
+                }
+
+                case Expr.Unary unary -> unary.operator() == Expr.Unary.Operator.NEGATIVE && depends(unary.expr(), binding, self);
+
+                case Expr.Binary binary -> Operators.isArithmetic(binary.operator()) && depends(binary.left(), binding, self) && depends(binary.right(), binding, self);
+
+                default -> false;
+            };
+        }
+
+        @Override
+        public Stmt visitEnumStmt(Stmt.Enum stmt) {
+            clazz(stmt.clazz());
+
+            for (var entry : stmt.entries()) {
+                args(entry.args());
+
+                visit(entry.ordinal());
+            }
+
+            return stmt;
+        }
+
+        @Override
+        protected Stmt.Fun fun(Stmt.Fun fun) {
+            depth++;
+
+            try {
+                return super.fun(fun);
+            }
+            finally {
+                depth--;
+            }
+        }
+
+        @Override
+        protected Stmt.Class clazz(Stmt.Class clazz) {
+            depth++;
+
+            try {
+                return super.clazz(clazz);
+            }
+            finally {
+                depth--;
+            }
+        }
+
+        // A binding holds only numbers if every value it is given does, which is settled by dropping bindings until none change
+        private void settle() {
+            for (var entry : depths.entrySet()) {
+                var binding = entry.getKey();
+
+                binding.escapes = !binding.declared || entry.getValue().size() > 1 || !entry.getValue().contains(binding.depth);
+            }
+
+            for (var binding : bindings.values()) {
+                binding.numeric &= binding.declared;
+            }
+
+            var changed = true;
+
+            while (changed) {
+                changed = false;
+
+                for (var binding : bindings.values()) {
+                    if (!binding.numeric) {
+                        continue;
+                    }
+
+                    for (var dependency : binding.dependencies) {
+                        var other = bindings.get(dependency);
+
+                        if (other == null || !other.numeric) {
+                            binding.numeric = false;
+
+                            changed = true;
+
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
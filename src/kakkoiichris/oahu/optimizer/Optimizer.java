@@ -0,0 +1,60 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.optimizer;
+
+import kakkoiichris.oahu.parser.Program;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+public final class Optimizer {
+    public static final int DEFAULT_LEVEL = 2;
+
+    private static final int MAX_ROUNDS = 8;
+
+    private final List<Supplier<Pass>> passes = new ArrayList<>();
+
+    public Optimizer(int level) {
+        // Inlining goes first so the other passes see the arguments next to the bodies they flow into
+        if (level >= 2) {
+            passes.add(Inliner::new);
+        }
+
+        if (level >= 1) {
+            passes.add(ConstantFolder::new);
+            passes.add(ConstantPropagator::new);
+            passes.add(DeadCodeEliminator::new);
+        }
+
+        // Loops are reworked last, once folding has left their conditions and bodies as plain as they will get
+        if (level >= 2) {
+            passes.add(LoopOptimizer::new);
+        }
+    }
+
+    // Each pass can expose work for the others, so the passes run in rounds until a round changes nothing
+    public Program optimize(Program program) {
+        for (var round = 0; round < MAX_ROUNDS; round++) {
+            var before = program;
+
+            for (var pass : passes) {
+                program = pass.get().run(program);
+            }
+
+            if (program == before) {
+                break;
+            }
+        }
+
+        return program;
+    }
+}
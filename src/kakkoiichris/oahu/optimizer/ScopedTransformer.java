@@ -0,0 +1,308 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.optimizer;
+
+import kakkoiichris.oahu.parser.Callable;
+import kakkoiichris.oahu.parser.Expr;
+import kakkoiichris.oahu.parser.Program;
+import kakkoiichris.oahu.parser.Stmt;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Follows the resolver's scopes so a pass can tell which binding a name refers to at any point in the tree
+public abstract class ScopedTransformer extends Transformer {
+    protected static final Object UNKNOWN = new Object();
+
+    private static int count;
+
+    private Scope scope;
+
+    @Override
+    public Program run(Program program) {
+        scope = null;
+
+        push(false);
+
+        try {
+            declare(program.stmts());
+
+            return super.run(program);
+        }
+        finally {
+            pop();
+        }
+    }
+
+    private void push(boolean dynamic) {
+        scope = new Scope(scope, dynamic);
+    }
+
+    private void pop() {
+        scope = scope.parent;
+    }
+
+    // Every name a scope declares is unknown until its declaration is reached, so earlier uses never see a later value
+    private void declare(List<Stmt> stmts) {
+        for (var stmt : stmts) {
+            declare(stmt);
+        }
+    }
+
+    private void declare(Stmt stmt) {
+        switch (stmt) {
+            case Stmt.Declaration declaration -> {
+                for (var name : declaration.names()) {
+                    declare(name);
+                }
+            }
+
+            case Stmt.Fun fun -> declare(fun.name());
+
+            case Stmt.Class clazz -> declare(clazz.name());
+
+            case Stmt.Expression expression -> declare(expression.expr());
+
+            default -> {
+            }
+        }
+    }
+
+    // Statements under an if, when or try without braces declare into the enclosing scope
+    private void declare(Expr expr) {
+        switch (expr) {
+            case Expr.Statement statement -> declare(statement.stmt());
+
+            case Expr.If ifExpr -> {
+                declare(ifExpr.body());
+                declare(ifExpr.elze());
+            }
+
+            case Expr.When when -> {
+                for (var branch : when.branches()) {
+                    declare(branch.body());
+                }
+
+                declare(when.elze());
+            }
+
+            case Expr.Try tryExpr -> {
+                declare(tryExpr.body());
+                declare(tryExpr.finallyBody());
+            }
+
+            default -> {
+            }
+        }
+    }
+
+    private void declare(Expr.Name name) {
+        if (!name.isEmpty()) {
+            scope.names.put(name.value(), UNKNOWN);
+            scope.declarations.put(name.value(), name);
+        }
+    }
+
+    private void declareParams(List<? extends Callable.Param> params) {
+        for (var param : params) {
+            declare(param.name());
+        }
+    }
+
+    @Override
+    public Expr visitListForExpr(Expr.ListFor expr) {
+        var iterable = visit(expr.iterable());
+
+        push(false);
+
+        try {
+            for (var name : expr.names()) {
+                declare(name);
+            }
+
+            var element = visit(expr.element());
+            var test = visit(expr.test());
+
+            if (element == expr.element() && iterable == expr.iterable() && test == expr.test()) {
+                return expr;
+            }
+
+            return new Expr.ListFor(expr.context(), element, expr.names(), expr.destructured(), iterable, test);
+        }
+        finally {
+            pop();
+        }
+    }
+
+    @Override
+    public Expr visitBlockExpr(Expr.Block expr) {
+        push(false);
+
+        try {
+            for (var subExpr : expr.exprs()) {
+                declare(subExpr);
+            }
+
+            return super.visitBlockExpr(expr);
+        }
+        finally {
+            pop();
+        }
+    }
+
+    @Override
+    public Expr visitTryExpr(Expr.Try expr) {
+        var body = visit(expr.body());
+
+        Expr catchBody;
+
+        push(false);
+
+        try {
+            declare(expr.error());
+
+            catchBody = visit(expr.catchBody());
+        }
+        finally {
+            pop();
+        }
+
+        var finallyBody = visit(expr.finallyBody());
+
+        if (body == expr.body() && catchBody == expr.catchBody() && finallyBody == expr.finallyBody()) {
+            return expr;
+        }
+
+        return new Expr.Try(expr.context(), body, expr.error(), catchBody, finallyBody);
+    }
+
+    @Override
+    public Stmt visitBlockStmt(Stmt.Block stmt) {
+        push(false);
+
+        try {
+            declare(stmt.stmts());
+
+            return super.visitBlockStmt(stmt);
+        }
+        finally {
+            pop();
+        }
+    }
+
+    @Override
+    public Stmt visitForStmt(Stmt.For stmt) {
+        var iterable = visit(stmt.iterable());
+
+        push(false);
+
+        try {
+            for (var name : stmt.names()) {
+                declare(name);
+            }
+
+            var body = visit(stmt.body());
+
+            if (iterable == stmt.iterable() && body == stmt.body()) {
+                return stmt;
+            }
+
+            return new Stmt.For(stmt.context(), stmt.label(), stmt.destructured(), stmt.names(), iterable, body);
+        }
+        finally {
+            pop();
+        }
+    }
+
+    @Override
+    protected Stmt.Fun fun(Stmt.Fun fun) {
+        push(false);
+
+        try {
+            declareParams(fun.params());
+
+            return super.fun(fun);
+        }
+        finally {
+            pop();
+        }
+    }
+
+    @Override
+    protected Stmt.Class clazz(Stmt.Class clazz) {
+        push(false);
+
+        declareParams(clazz.params());
+
+        push(true);
+
+        try {
+            declare(clazz.init());
+
+            return super.clazz(clazz);
+        }
+        finally {
+            pop();
+            pop();
+        }
+    }
+
+    // The scope whose declaration a name refers to here, or null when it is only found by name at runtime
+    protected Scope find(String name) {
+        for (var s = scope; s != null; s = s.parent) {
+            if (s.names.containsKey(name)) {
+                return s;
+            }
+        }
+
+        return null;
+    }
+
+    protected Object lookup(String name) {
+        var found = find(name);
+
+        return found == null ? UNKNOWN : found.names.get(name);
+    }
+
+    // The name node that declared the binding a name refers to here, which stays the same between passes
+    protected Expr.Name declaration(String name) {
+        var found = find(name);
+
+        return found == null ? null : found.declarations.get(name);
+    }
+
+    protected void bind(String name, Object value) {
+        scope.names.put(name, value);
+    }
+
+    protected boolean isDynamic() {
+        return scope.dynamic;
+    }
+
+    // Names made up by a pass carry a '$', which no name in source can, and a number no other pass has used
+    protected static String fresh(String name) {
+        return "%s$%d".formatted(name, ++count);
+    }
+
+    protected static final class Scope {
+        private final Scope parent;
+        private final boolean dynamic;
+
+        private final Map<String, Object> names = new HashMap<>();
+        private final Map<String, Expr.Name> declarations = new HashMap<>();
+
+        private Scope(Scope parent, boolean dynamic) {
+            this.parent = parent;
+            this.dynamic = dynamic;
+        }
+    }
+}
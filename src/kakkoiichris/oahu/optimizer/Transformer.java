@@ -0,0 +1,402 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.optimizer;
+
+import kakkoiichris.oahu.parser.Expr;
+import kakkoiichris.oahu.parser.Program;
+import kakkoiichris.oahu.parser.Stmt;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Rebuilds only the nodes whose children changed, so an untouched tree comes back as the same objects
+public abstract class Transformer implements Pass, Expr.Visitor<Expr>, Stmt.Visitor<Stmt> {
+    @Override
+    public Program run(Program program) {
+        var stmts = stmts(program.stmts());
+
+        return stmts == program.stmts() ? program : new Program(stmts, program.locals());
+    }
+
+    protected List<Stmt> stmts(List<Stmt> stmts) {
+        List<Stmt> changed = null;
+
+        for (var i = 0; i < stmts.size(); i++) {
+            var stmt = visit(stmts.get(i));
+
+            if (changed == null && stmt != stmts.get(i)) {
+                changed = new ArrayList<>(stmts.subList(0, i));
+            }
+
+            if (changed != null) {
+                changed.add(stmt);
+            }
+        }
+
+        return changed == null ? stmts : changed;
+    }
+
+    protected List<Expr> exprs(List<Expr> exprs) {
+        List<Expr> changed = null;
+
+        for (var i = 0; i < exprs.size(); i++) {
+            var expr = visit(exprs.get(i));
+
+            if (changed == null && expr != exprs.get(i)) {
+                changed = new ArrayList<>(exprs.subList(0, i));
+            }
+
+            if (changed != null) {
+                changed.add(expr);
+            }
+        }
+
+        return changed == null ? exprs : changed;
+    }
+
+    protected List<Expr.Invoke.Arg> args(List<Expr.Invoke.Arg> args) {
+        List<Expr.Invoke.Arg> changed = null;
+
+        for (var i = 0; i < args.size(); i++) {
+            var arg = args.get(i);
+
+            var expr = visit(arg.expr());
+
+            if (changed == null && expr != arg.expr()) {
+                changed = new ArrayList<>(args.subList(0, i));
+            }
+
+            if (changed != null) {
+                changed.add(expr == arg.expr() ? arg : new Expr.Invoke.Arg(arg.context(), arg.spread(), arg.name(), expr));
+            }
+        }
+
+        return changed == null ? args : changed;
+    }
+
+    protected Stmt.Fun fun(Stmt.Fun fun) {
+        List<Stmt.Fun.Param> params = null;
+
+        for (var i = 0; i < fun.params().size(); i++) {
+            var param = fun.params().get(i);
+
+            var defaultValue = visit(param.defaultValue());
+
+            if (params == null && defaultValue != param.defaultValue()) {
+                params = new ArrayList<>(fun.params().subList(0, i));
+            }
+
+            if (params != null) {
+                params.add(defaultValue == param.defaultValue() ? param : new Stmt.Fun.Param(param.context(), param.isMutable(), param.isVarargs(), param.name(), defaultValue));
+            }
+        }
+
+        var body = visit(fun.body());
+
+        if (params == null && body == fun.body()) {
+            return fun;
+        }
+
+        return new Stmt.Fun(fun.context(), fun.path(), fun.isLinked(), fun.name(), params == null ? fun.params() : params, body);
+    }
+
+    protected Stmt.Class clazz(Stmt.Class clazz) {
+        List<Stmt.Class.Param> params = null;
+
+        for (var i = 0; i < clazz.params().size(); i++) {
+            var param = clazz.params().get(i);
+
+            var defaultValue = visit(param.defaultValue());
+
+            if (params == null && defaultValue != param.defaultValue()) {
+                params = new ArrayList<>(clazz.params().subList(0, i));
+            }
+
+            if (params != null) {
+                params.add(defaultValue == param.defaultValue() ? param : new Stmt.Class.Param(param.context(), param.isConstant(), param.isMutable(), param.isVarargs(), param.name(), defaultValue));
+            }
+        }
+
+        var base = visit(clazz.base());
+        var init = stmts(clazz.init());
+
+        if (params == null && base == clazz.base() && init == clazz.init()) {
+            return clazz;
+        }
+
+        return new Stmt.Class(clazz.context(), clazz.path(), clazz.isLinked(), clazz.name(), params == null ? clazz.params() : params, base, init);
+    }
+
+    @Override
+    public Expr visitEmptyExpr(Expr.Empty expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitValueExpr(Expr.Value expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitNameExpr(Expr.Name expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitUnaryExpr(Expr.Unary expr) {
+        var operand = visit(expr.expr());
+
+        return operand == expr.expr() ? expr : new Expr.Unary(expr.context(), expr.operator(), operand);
+    }
+
+    @Override
+    public Expr visitBinaryExpr(Expr.Binary expr) {
+        var left = visit(expr.left());
+        var right = visit(expr.right());
+
+        return left == expr.left() && right == expr.right() ? expr : new Expr.Binary(expr.context(), expr.operator(), left, right);
+    }
+
+    @Override
+    public Expr visitAssignExpr(Expr.Assign expr) {
+        var value = visit(expr.value());
+
+        return value == expr.value() ? expr : new Expr.Assign(expr.context(), expr.name(), value);
+    }
+
+    @Override
+    public Expr visitIndexExpr(Expr.Index expr) {
+        var target = visit(expr.target());
+        var args = args(expr.args());
+
+        return target == expr.target() && args == expr.args() ? expr : new Expr.Index(expr.context(), target, args);
+    }
+
+    @Override
+    public Expr visitMemberExpr(Expr.Member expr) {
+        var target = visit(expr.target());
+
+        return target == expr.target() ? expr : new Expr.Member(expr.context(), target, expr.member());
+    }
+
+    @Override
+    public Expr visitInvokeExpr(Expr.Invoke expr) {
+        var target = visit(expr.target());
+        var args = args(expr.args());
+
+        return target == expr.target() && args == expr.args() ? expr : new Expr.Invoke(expr.context(), target, args);
+    }
+
+    @Override
+    public Expr visitListLiteralExpr(Expr.ListLiteral expr) {
+        var elements = exprs(expr.elements());
+
+        return elements == expr.elements() ? expr : new Expr.ListLiteral(expr.context(), elements);
+    }
+
+    @Override
+    public Expr visitListForExpr(Expr.ListFor expr) {
+        var iterable = visit(expr.iterable());
+        var element = visit(expr.element());
+        var test = visit(expr.test());
+
+        if (element == expr.element() && iterable == expr.iterable() && test == expr.test()) {
+            return expr;
+        }
+
+        return new Expr.ListFor(expr.context(), element, expr.names(), expr.destructured(), iterable, test);
+    }
+
+    @Override
+    public Expr visitLambdaExpr(Expr.Lambda expr) {
+        var fun = fun(expr.fun());
+
+        return fun == expr.fun() ? expr : new Expr.Lambda(expr.context(), fun);
+    }
+
+    @Override
+    public Expr visitBlockExpr(Expr.Block expr) {
+        var exprs = exprs(expr.exprs());
+
+        return exprs == expr.exprs() ? expr : new Expr.Block(expr.context(), exprs);
+    }
+
+    @Override
+    public Expr visitIfExpr(Expr.If expr) {
+        var condition = visit(expr.condition());
+        var body = visit(expr.body());
+        var elze = visit(expr.elze());
+
+        if (condition == expr.condition() && body == expr.body() && elze == expr.elze()) {
+            return expr;
+        }
+
+        return new Expr.If(expr.context(), condition, body, elze);
+    }
+
+    @Override
+    public Expr visitWhenExpr(Expr.When expr) {
+        List<Expr.When.Branch> branches = null;
+
+        for (var i = 0; i < expr.branches().size(); i++) {
+            var branch = expr.branches().get(i);
+
+            var condition = visit(branch.condition());
+            var body = visit(branch.body());
+
+            var same = condition == branch.condition() && body == branch.body();
+
+            if (branches == null && !same) {
+                branches = new ArrayList<>(expr.branches().subList(0, i));
+            }
+
+            if (branches != null) {
+                branches.add(same ? branch : new Expr.When.Branch(branch.context(), condition, body));
+            }
+        }
+
+        var elze = visit(expr.elze());
+
+        if (branches == null && elze == expr.elze()) {
+            return expr;
+        }
+
+        return new Expr.When(expr.context(), branches == null ? expr.branches() : branches, elze);
+    }
+
+    @Override
+    public Expr visitTryExpr(Expr.Try expr) {
+        var body = visit(expr.body());
+        var catchBody = visit(expr.catchBody());
+        var finallyBody = visit(expr.finallyBody());
+
+        if (body == expr.body() && catchBody == expr.catchBody() && finallyBody == expr.finallyBody()) {
+            return expr;
+        }
+
+        return new Expr.Try(expr.context(), body, expr.error(), catchBody, finallyBody);
+    }
+
+    @Override
+    public Expr visitStatementExpr(Expr.Statement expr) {
+        var stmt = visit(expr.stmt());
+
+        return stmt == expr.stmt() ? expr : new Expr.Statement(expr.context(), stmt);
+    }
+
+    @Override
+    public Stmt visitEmptyStmt(Stmt.Empty stmt) {
+        return stmt;
+    }
+
+    @Override
+    public Stmt visitExpressionStmt(Stmt.Expression stmt) {
+        var expr = visit(stmt.expr());
+
+        return expr == stmt.expr() ? stmt : new Stmt.Expression(stmt.context(), expr);
+    }
+
+    @Override
+    public Stmt visitDeclarationStmt(Stmt.Declaration stmt) {
+        var expr = visit(stmt.expr());
+
+        return expr == stmt.expr() ? stmt : new Stmt.Declaration(stmt.context(), stmt.constant(), stmt.mutable(), stmt.destructured(), stmt.names(), expr);
+    }
+
+    @Override
+    public Stmt visitBlockStmt(Stmt.Block stmt) {
+        var stmts = stmts(stmt.stmts());
+
+        return stmts == stmt.stmts() ? stmt : new Stmt.Block(stmt.context(), stmts);
+    }
+
+    @Override
+    public Stmt visitWhileStmt(Stmt.While stmt) {
+        var condition = visit(stmt.condition());
+        var body = visit(stmt.body());
+
+        return condition == stmt.condition() && body == stmt.body() ? stmt : new Stmt.While(stmt.context(), stmt.label(), condition, body);
+    }
+
+    @Override
+    public Stmt visitDoStmt(Stmt.Do stmt) {
+        var body = visit(stmt.body());
+        var condition = visit(stmt.condition());
+
+        return body == stmt.body() && condition == stmt.condition() ? stmt : new Stmt.Do(stmt.context(), stmt.label(), body, condition);
+    }
+
+    @Override
+    public Stmt visitLoopStmt(Stmt.Loop stmt) {
+        var count = visit(stmt.count());
+        var body = visit(stmt.body());
+
+        return count == stmt.count() && body == stmt.body() ? stmt : new Stmt.Loop(stmt.context(), stmt.label(), count, body);
+    }
+
+    @Override
+    public Stmt visitForStmt(Stmt.For stmt) {
+        var iterable = visit(stmt.iterable());
+        var body = visit(stmt.body());
+
+        if (iterable == stmt.iterable() && body == stmt.body()) {
+            return stmt;
+        }
+
+        return new Stmt.For(stmt.context(), stmt.label(), stmt.destructured(), stmt.names(), iterable, body);
+    }
+
+    @Override
+    public Stmt visitBreakStmt(Stmt.Break stmt) {
+        return stmt;
+    }
+
+    @Override
+    public Stmt visitContinueStmt(Stmt.Continue stmt) {
+        return stmt;
+    }
+
+    @Override
+    public Stmt visitReturnStmt(Stmt.Return stmt) {
+        var expr = visit(stmt.expr());
+
+        return expr == stmt.expr() ? stmt : new Stmt.Return(stmt.context(), expr);
+    }
+
+    @Override
+    public Stmt visitThrowStmt(Stmt.Throw stmt) {
+        var expr = visit(stmt.expr());
+
+        return expr == stmt.expr() ? stmt : new Stmt.Throw(stmt.context(), expr);
+    }
+
+    @Override
+    public Stmt visitExitStmt(Stmt.Exit stmt) {
+        var expr = visit(stmt.expr());
+
+        return expr == stmt.expr() ? stmt : new Stmt.Exit(stmt.context(), expr);
+    }
+
+    @Override
+    public Stmt visitFunStmt(Stmt.Fun stmt) {
+        return fun(stmt);
+    }
+
+    @Override
+    public Stmt visitClassStmt(Stmt.Class stmt) {
+        return clazz(stmt);
+    }
+
+    @Override
+    public Stmt visitEnumStmt(Stmt.Enum stmt) {
+        return stmt;
+    }
+}
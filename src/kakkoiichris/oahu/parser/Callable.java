@@ -10,19 +10,16 @@
  *#################################################*/
 package kakkoiichris.oahu.parser;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
-import java.util.stream.Stream;
 
 public sealed interface Callable<T extends Callable.Param> permits Stmt.Fun, Stmt.Class {
     int arity();
     
     List<T> params();
     
-    default Optional<List<Expr>> resolve(List<Expr.Invoke.Arg> args) {
+    default Optional<Plan> plan(List<Expr.Invoke.Arg> args) {
         var params = params();
         
         var isVararg = !params.isEmpty() && params.getLast().isVarargs();
@@ -31,81 +28,85 @@ public sealed interface Callable<T extends Callable.Param> permits Stmt.Fun, Stm
             return Optional.empty();
         }
         
-        var exprs = Stream
-            .generate(() -> (Expr) Expr.Empty.get())
-            .limit(params.size())
-            .collect(Collectors.toList());
+        var sources = new int[params.size()];
         
-        var split = args
-            .stream()
-            .collect(Collectors.groupingBy(Expr.Invoke.Arg::isPositional));
+        Arrays.fill(sources, Plan.UNBOUND);
         
-        var named = split.get(false);
+        var positional = new int[args.size()];
+        var count = 0;
         
-        if (!named.isEmpty()) {
-            for (var arg : named) {
-                var index = IntStream
-                    .range(0, params.size())
-                    .filter(i -> params.get(i).name().equals(arg.name()))
-                    .findFirst()
-                    .orElse(-1);
-                
-                if (index < 0) {
-                    return Optional.empty();
-                }
+        for (var a = 0; a < args.size(); a++) {
+            var arg = args.get(a);
+            
+            if (arg.isPositional()) {
+                positional[count++] = a;
                 
-                exprs.set(index, arg.expr());
+                continue;
+            }
+            
+            var index = indexOf(arg.name());
+            
+            if (index < 0) {
+                return Optional.empty();
             }
+            
+            sources[index] = a;
         }
         
-        var positional = split.get(true);
+        var varargs = new int[0];
         
-        if (!positional.isEmpty()) {
+        if (count > 0) {
             var p = 0;
             
-            for (var i = 0; i < exprs.size(); i++) {
-                if (exprs.get(i) == Expr.Empty.get()) {
-                    if (p < positional.size()) {
+            for (var i = 0; i < sources.length; i++) {
+                if (sources[i] == Plan.UNBOUND) {
+                    if (p < count) {
                         if (!params.get(i).isVarargs()) {
-                            exprs.set(i, positional.get(p++).expr());
+                            sources[i] = positional[p++];
                         }
                     }
                     else if (params.get(i).defaultValue() != Expr.Empty.get()) {
-                        exprs.set(i, params.get(i).defaultValue());
+                        sources[i] = Plan.DEFAULT;
                     }
                 }
             }
             
-            if (p < positional.size()) {
-                var varargs = new ArrayList<Expr>();
-                
-                while (p < positional.size()) {
-                    var arg = positional.get(p++);
-                    
-                    varargs.add(arg.spread() ? Expr.toExpr(new Expr.Invoke.Spread(arg.expr())) : arg.expr());
-                }
+            if (p < count) {
+                varargs = Arrays.copyOfRange(positional, p, count);
                 
-                exprs.set(exprs.size() - 1, Expr.toExpr(new Expr.Invoke.Vararg(varargs)));
+                sources[sources.length - 1] = Plan.VARARG;
             }
         }
         
-        for (var i = 0; i < params.size(); i++) {
-            var param = params.get(i);
-            
-            if (exprs.get(i) == Expr.Empty.get()) {
-                exprs.set(i, param.defaultValue());
+        for (var i = 0; i < sources.length; i++) {
+            if (sources[i] == Plan.UNBOUND && params.get(i).defaultValue() != Expr.Empty.get()) {
+                sources[i] = Plan.DEFAULT;
             }
         }
         
-        if (isVararg && exprs.getLast() == Expr.Empty.get()) {
-            exprs.set(exprs.size() - 1, Expr.toExpr(new Expr.Invoke.Vararg()));
+        if (isVararg && sources[sources.length - 1] == Plan.UNBOUND) {
+            sources[sources.length - 1] = Plan.VARARG;
+        }
+        
+        for (var source : sources) {
+            if (source == Plan.UNBOUND) {
+                return Optional.empty();
+            }
         }
         
-        if (exprs.stream().allMatch(expr -> expr != Expr.Empty.get())) {
-            return Optional.of(exprs);
+        return Optional.of(new Plan(params, sources, varargs));
+    }
+    
+    private int indexOf(Expr.Name name) {
+        var params = params();
+        
+        for (var i = 0; i < params.size(); i++) {
+            if (params.get(i).name().equals(name)) {
+                return i;
+            }
         }
         
-        return Optional.empty();
+        return -1;
     }
     
     interface Param {
@@ -117,4 +118,14 @@ public sealed interface Callable<T extends Callable.Param> permits Stmt.Fun, Stm
         
         Expr defaultValue();
     }
+    
+    record Plan(List<? extends Param> params, int[] sources, int[] varargs) {
+        public static final int UNBOUND = -3;
+        public static final int VARARG = -2;
+        public static final int DEFAULT = -1;
+        
+        public boolean isFor(Callable<?> callable) {
+            return params == callable.params();
+        }
+    }
 }
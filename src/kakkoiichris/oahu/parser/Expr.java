@@ -13,11 +13,10 @@ package kakkoiichris.oahu.parser;
 import kakkoiichris.oahu.lexer.Context;
 import kakkoiichris.oahu.lexer.TokenType;
 
-import java.util.Arrays;
 import java.util.List;
 
 public sealed interface Expr {
-    Context context();
+    long context();
 
     <X> X accept(Visitor<X> visitor);
 
@@ -48,6 +47,8 @@ public sealed interface Expr {
 
         X visitIndexExpr(Index expr);
 
+        X visitMemberExpr(Member expr);
+
         X visitInvokeExpr(Invoke expr);
 
         X visitListLiteralExpr(ListLiteral expr);
@@ -82,7 +83,7 @@ public sealed interface Expr {
         }
 
         @Override
-        public Context context() {
+        public long context() {
             return Context.none();
         }
 
@@ -92,29 +93,81 @@ public sealed interface Expr {
         }
     }
 
-    record Value(Context context, Object value) implements Expr {
+    record Value(long context, Object value) implements Expr {
         @Override
         public <X> X accept(Visitor<X> visitor) {
             return visitor.visitValueExpr(this);
         }
     }
 
-    record Name(Context context, String value) implements Expr {
+    final class Name implements Expr {
+        private final long context;
+        private final String value;
+
+        private int depth = -1;
+        private int slot = -1;
+
+        public Name(long context, String value) {
+            this.context = context;
+            this.value = value;
+        }
+
         public static Name none() {
             return new Name(Context.none(), "");
         }
 
+        @Override
+        public long context() {
+            return context;
+        }
+
+        public String value() {
+            return value;
+        }
+
         public boolean isEmpty() {
             return value.isEmpty();
         }
 
+        public boolean isResolved() {
+            return slot >= 0;
+        }
+
+        public int depth() {
+            return depth;
+        }
+
+        public int slot() {
+            return slot;
+        }
+
+        public void resolve(int depth, int slot) {
+            this.depth = depth;
+            this.slot = slot;
+        }
+
         @Override
         public <X> X accept(Visitor<X> visitor) {
             return visitor.visitNameExpr(this);
         }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Name name && value.equals(name.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return value;
+        }
     }
 
-    record Unary(Context context, Operator operator, Expr expr) implements Expr {
+    record Unary(long context, Operator operator, Expr expr) implements Expr {
         public enum Operator {
             SPREAD(TokenType.Symbol.STAR),
             NEGATIVE(TokenType.Symbol.DASH),
@@ -127,12 +180,8 @@ public sealed interface Expr {
                 this.type = type;
             }
 
-            public static Operator get(TokenType type) {
-                return Arrays
-                    .stream(values())
-                    .filter(o -> o.type == type)
-                    .toList()
-                    .getFirst();
+            public TokenType type() {
+                return type;
             }
         }
 
@@ -142,35 +191,85 @@ public sealed interface Expr {
         }
     }
 
-    record Binary(Context context, Operator operator, Expr left, Expr right) implements Expr {
+    final class Binary implements Expr {
+        private final long context;
+        private final Operator operator;
+        private final Expr left;
+        private final Expr right;
+
+        private Specialization specialization = Specialization.UNINITIALIZED;
+
+        public Binary(long context, Operator operator, Expr left, Expr right) {
+            this.context = context;
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public long context() {
+            return context;
+        }
+
+        public Operator operator() {
+            return operator;
+        }
+
+        public Expr left() {
+            return left;
+        }
+
+        public Expr right() {
+            return right;
+        }
+
+        public Specialization getSpecialization() {
+            return specialization;
+        }
+
+        public void setSpecialization(Specialization specialization) {
+            this.specialization = specialization;
+        }
+
         public enum Operator {
-            OR(TokenType.Keyword.OR),
-            AND(TokenType.Keyword.AND),
-            EQUAL(TokenType.Symbol.DOUBLE_EQUAL),
-            NOT_EQUAL(TokenType.Symbol.EXCLAMATION_EQUAL),
-            LESS(TokenType.Symbol.LESS),
-            LESS_EQUAL(TokenType.Symbol.LESS_EQUAL),
-            GREATER(TokenType.Symbol.GREATER),
-            GREATER_EQUAL(TokenType.Symbol.GREATER_EQUAL),
-            ADD(TokenType.Symbol.PLUS),
-            SUBTRACT(TokenType.Symbol.DASH),
-            MULTIPLY(TokenType.Symbol.STAR),
-            DIVIDE(TokenType.Symbol.SLASH),
-            MODULUS(TokenType.Symbol.PERCENT);
+            OR(TokenType.Keyword.OR, 1),
+            AND(TokenType.Keyword.AND, 2),
+            EQUAL(TokenType.Symbol.DOUBLE_EQUAL, 3),
+            NOT_EQUAL(TokenType.Symbol.EXCLAMATION_EQUAL, 3),
+            LESS(TokenType.Symbol.LESS, 4),
+            LESS_EQUAL(TokenType.Symbol.LESS_EQUAL, 4),
+            GREATER(TokenType.Symbol.GREATER, 4),
+            GREATER_EQUAL(TokenType.Symbol.GREATER_EQUAL, 4),
+            ADD(TokenType.Symbol.PLUS, 5),
+            SUBTRACT(TokenType.Symbol.DASH, 5),
+            MULTIPLY(TokenType.Symbol.STAR, 6),
+            DIVIDE(TokenType.Symbol.SLASH, 6),
+            MODULUS(TokenType.Symbol.PERCENT, 6);
 
             private final TokenType type;
+            private final int precedence;
 
-            Operator(TokenType type) {
+            Operator(TokenType type, int precedence) {
                 this.type = type;
+                this.precedence = precedence;
             }
 
-            public static Operator get(TokenType type) {
-                return Arrays
-                    .stream(values())
-                    .filter(o -> o.type == type)
-                    .toList()
-                    .getFirst();
+            public TokenType type() {
+                return type;
             }
+
+            public int precedence() {
+                return precedence;
+            }
+        }
+
+        public enum Specialization {
+            UNINITIALIZED,
+            NUMBER_NUMBER,
+            NUMBER_STRING,
+            STRING_NUMBER,
+            STRING_STRING,
+            GENERIC
         }
 
         @Override
@@ -179,14 +278,14 @@ public sealed interface Expr {
         }
     }
 
-    record Assign(Context context, Name name, Expr value) implements Expr {
+    record Assign(long context, Name name, Expr value) implements Expr {
         @Override
         public <X> X accept(Visitor<X> visitor) {
             return visitor.visitAssignExpr(this);
         }
     }
 
-    record Index(Context context, Expr target, List<Invoke.Arg> args) implements Expr {
+    record Index(long context, Expr target, List<Invoke.Arg> args) implements Expr {
         @Override
         public <X> X accept(Visitor<X> visitor) {
             return visitor.visitIndexExpr(this);
@@ -198,7 +297,80 @@ public sealed interface Expr {
         }
     }
 
-    record Invoke(Context context, Expr target, List<Arg> args) implements Expr {
+    final class Member implements Expr {
+        private final long context;
+        private final Expr target;
+        private final Name member;
+
+        private final InlineCache<Stmt.Class, Location> locations = new InlineCache<>();
+
+        public Member(long context, Expr target, Name member) {
+            this.context = context;
+            this.target = target;
+            this.member = member;
+        }
+
+        @Override
+        public long context() {
+            return context;
+        }
+
+        public Expr target() {
+            return target;
+        }
+
+        public Name member() {
+            return member;
+        }
+
+        public InlineCache<Stmt.Class, Location> locations() {
+            return locations;
+        }
+
+        @Override
+        public <X> X accept(Visitor<X> visitor) {
+            return visitor.visitMemberExpr(this);
+        }
+
+        @Override
+        public String toString() {
+            return "x.%s".formatted(member);
+        }
+
+        public record Location(int hops, int slot) {
+        }
+    }
+
+    final class Invoke implements Expr {
+        private final long context;
+        private final Expr target;
+        private final List<Arg> args;
+
+        private final InlineCache<List<?>, Callable.Plan> plans = new InlineCache<>();
+
+        public Invoke(long context, Expr target, List<Arg> args) {
+            this.context = context;
+            this.target = target;
+            this.args = args;
+        }
+
+        @Override
+        public long context() {
+            return context;
+        }
+
+        public Expr target() {
+            return target;
+        }
+
+        public List<Arg> args() {
+            return args;
+        }
+
+        public InlineCache<List<?>, Callable.Plan> plans() {
+            return plans;
+        }
+
         @Override
         public <X> X accept(Visitor<X> visitor) {
             return visitor.visitInvokeExpr(this);
@@ -209,23 +381,14 @@ public sealed interface Expr {
             return "x(y)";
         }
 
-        public record Arg(Context context, boolean spread, Name name, Expr expr) {
+        public record Arg(long context, boolean spread, Name name, Expr expr) {
             public boolean isPositional() {
                 return name.isEmpty();
             }
         }
-
-        public record Vararg(List<Expr> exprs) {
-            public Vararg() {
-                this(List.of());
-            }
-        }
-
-        public record Spread(Expr expr) {
-        }
     }
 
-    record ListLiteral(Context context, List<Expr> elements) implements Expr {
+    record ListLiteral(long context, List<Expr> elements) implements Expr {
         @Override
         public <X> X accept(Visitor<X> visitor) {
             return visitor.visitListLiteralExpr(this);
@@ -237,7 +400,7 @@ public sealed interface Expr {
         }
     }
 
-    record ListFor(Context context, Expr element, List<Name> names, boolean destructured, Expr iterable,
+    record ListFor(long context, Expr element, List<Name> names, boolean destructured, Expr iterable,
                    Expr test) implements Expr {
         @Override
         public <X> X accept(Visitor<X> visitor) {
@@ -250,7 +413,7 @@ public sealed interface Expr {
         }
     }
 
-    record Lambda(Context context, Stmt.Fun fun) implements Expr {
+    record Lambda(long context, Stmt.Fun fun) implements Expr {
         @Override
         public <X> X accept(Visitor<X> visitor) {
             return visitor.visitLambdaExpr(this);
@@ -262,7 +425,7 @@ public sealed interface Expr {
         }
     }
 
-    record Block(Context context, List<Expr> exprs) implements Expr {
+    record Block(long context, List<Expr> exprs) implements Expr {
         @Override
         public <X> X accept(Visitor<X> visitor) {
             return visitor.visitBlockExpr(this);
@@ -274,7 +437,7 @@ public sealed interface Expr {
         }
     }
 
-    record If(Context context, Expr condition, Expr body, Expr elze) implements Expr {
+    record If(long context, Expr condition, Expr body, Expr elze) implements Expr {
         @Override
         public <X> X accept(Visitor<X> visitor) {
             return visitor.visitIfExpr(this);
@@ -286,7 +449,7 @@ public sealed interface Expr {
         }
     }
 
-    record When(Context context, List<Branch> branches, Expr elze) implements Expr {
+    record When(long context, List<Branch> branches, Expr elze) implements Expr {
         @Override
         public <X> X accept(Visitor<X> visitor) {
             return visitor.visitWhenExpr(this);
@@ -297,11 +460,11 @@ public sealed interface Expr {
             return "when";
         }
 
-        public record Branch(Context context, Expr condition, Expr body) {
+        public record Branch(long context, Expr condition, Expr body) {
         }
     }
 
-    record Try(Context context, Expr body, Name error, Expr catchBody, Expr finallyBody) implements Expr {
+    record Try(long context, Expr body, Name error, Expr catchBody, Expr finallyBody) implements Expr {
         @Override
         public <X> X accept(Visitor<X> visitor) {
             return visitor.visitTryExpr(this);
@@ -313,7 +476,7 @@ public sealed interface Expr {
         }
     }
 
-    record Statement(Context context, Stmt stmt) implements Expr {
+    record Statement(long context, Stmt stmt) implements Expr {
         @Override
         public <X> X accept(Visitor<X> visitor) {
             return visitor.visitStatementExpr(this);
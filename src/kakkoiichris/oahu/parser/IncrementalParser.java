@@ -0,0 +1,229 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.parser;
+
+import kakkoiichris.oahu.lexer.Lexer;
+import kakkoiichris.oahu.lexer.TokenBuffer;
+import kakkoiichris.oahu.util.Source;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class IncrementalParser {
+    private Source source;
+
+    private List<Segment> segments = new ArrayList<>();
+
+    public IncrementalParser(Source source) {
+        this.source = source;
+    }
+
+    public Source source() {
+        return source;
+    }
+
+    public Program parse() {
+        source.fill(Integer.MAX_VALUE);
+
+        segments = new Reparse(source, 0, 1, List.of(), 0).parse();
+
+        return program();
+    }
+
+    // Replaces the text in [start, end) and re-parses from the statement before the edit until the parse falls back in step
+    public Program edit(int start, int end, String replacement) {
+        var next = source.edit(start, end, replacement);
+
+        var text = source.chars();
+
+        var delta = replacement.length() - (end - start);
+        var lines = countLines(replacement.toCharArray(), 0, replacement.length()) - countLines(text, start, end);
+
+        var first = 0;
+
+        while (first < segments.size() - 1 && segments.get(first).end() <= start) {
+            first++;
+        }
+
+        // The statement before may have looked ahead at the first token of the edited one
+        first = Math.max(first - 1, 0);
+
+        var reusable = first;
+
+        while (reusable < segments.size() && segments.get(reusable).start() <= end) {
+            reusable++;
+        }
+
+        var from = first < segments.size() ? segments.get(first).start() : 0;
+        var row = first < segments.size() ? segments.get(first).row() : 1;
+
+        var reparse = new Reparse(next, from, row, segments.subList(reusable, segments.size()), delta);
+
+        var parsed = reparse.parse();
+
+        var edited = new ArrayList<Segment>(segments.size() + parsed.size());
+
+        edited.addAll(segments.subList(0, first));
+        edited.addAll(parsed);
+
+        // Kept statements hold positions relative to their segment's origin, so only the origins move
+        for (var segment : segments.subList(0, first)) {
+            next.origins().rebase(segment.origin(), next, segment.start());
+        }
+
+        for (var segment : segments.subList(reusable + reparse.resumed, segments.size())) {
+            var shifted = segment.shift(delta, lines);
+
+            next.origins().rebase(shifted.origin(), next, shifted.start());
+
+            edited.add(shifted);
+        }
+
+        source = next;
+        segments = edited;
+
+        return program();
+    }
+
+    private Program program() {
+        var stmts = new ArrayList<Stmt>();
+
+        for (var segment : segments) {
+            stmts.addAll(segment.stmts());
+        }
+
+        return new Program(stmts);
+    }
+
+    private static int countLines(char[] text, int start, int end) {
+        var count = 0;
+
+        for (var i = start; i < end; i++) {
+            if (text[i] == '\n') {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    // Parses from a segment start and stops at the first statement that begins exactly where a reusable segment now begins
+    private static final class Reparse {
+        private final Source source;
+        private final int from;
+        private final int row;
+        private final List<Segment> reusable;
+        private final int delta;
+
+        private final TokenBuffer tokens;
+
+        private final List<Integer> cuts = new ArrayList<>();
+        private final List<Integer> rows = new ArrayList<>();
+        private final List<Integer> origins = new ArrayList<>();
+
+        private int next;
+        private int end;
+        private int resumed;
+
+        private Reparse(Source source, int from, int row, List<Segment> reusable, int delta) {
+            this.source = source;
+            this.from = from;
+            this.row = row;
+            this.reusable = reusable;
+            this.delta = delta;
+
+            tokens = new TokenBuffer(source, new Lexer(source, from, source.length(), row));
+
+            origins.add(source.origins().add(source, from));
+
+            tokens.setOrigin(origins.getFirst(), from);
+
+            end = source.length();
+            resumed = reusable.size();
+        }
+
+        private List<Segment> parse() {
+            var stmts = new Parser(source, tokens).parse(this::proceed).stmts();
+
+            var segments = new ArrayList<Segment>();
+
+            var start = from;
+            var startRow = row;
+            var current = new ArrayList<Stmt>();
+
+            for (var i = 0; i < stmts.size(); i++) {
+                if (!current.isEmpty() && cuts.get(i) >= 0) {
+                    segments.add(new Segment(start, cuts.get(i), startRow, origins.get(segments.size()), current));
+
+                    start = cuts.get(i);
+                    startRow = rows.get(i);
+                    current = new ArrayList<>();
+                }
+
+                current.add(stmts.get(i));
+            }
+
+            segments.add(new Segment(start, end, startRow, origins.get(segments.size()), current));
+
+            return segments;
+        }
+
+        private boolean proceed(int position) {
+            var cut = lineStart(tokens.start(position));
+
+            if (cut >= 0) {
+                while (next < reusable.size() && reusable.get(next).start() + delta < cut) {
+                    next++;
+                }
+
+                if (next < reusable.size() && reusable.get(next).start() + delta == cut) {
+                    end = cut;
+                    resumed = next;
+
+                    return false;
+                }
+            }
+
+            // The first statement always opens the first segment, whatever precedes it
+            if (cuts.isEmpty()) {
+                cut = -1;
+            }
+
+            if (cut >= 0) {
+                origins.add(source.origins().add(source, cut));
+
+                tokens.setOrigin(origins.getLast(), cut);
+            }
+
+            cuts.add(cut);
+            rows.add(tokens.row(position));
+
+            return true;
+        }
+
+        // Statements only start a segment when nothing but indentation precedes them on their line
+        private int lineStart(int offset) {
+            var text = source.chars();
+
+            while (offset > from && (text[offset - 1] == ' ' || text[offset - 1] == '\t')) {
+                offset--;
+            }
+
+            return offset > from && text[offset - 1] == '\n' ? offset : -1;
+        }
+    }
+
+    private record Segment(int start, int end, int row, int origin, List<Stmt> stmts) {
+        private Segment shift(int delta, int lines) {
+            return new Segment(start + delta, end + delta, row + lines, origin, stmts);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.parser;
+
+import java.util.Arrays;
+
+public final class InlineCache<K, V> {
+    public static final int LIMIT = 4;
+
+    private final Object[] keys = new Object[LIMIT];
+    private final Object[] values = new Object[LIMIT];
+
+    private int size;
+
+    private boolean megamorphic;
+
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        for (var i = 0; i < size; i++) {
+            if (keys[i] == key) {
+                return (V) values[i];
+            }
+        }
+
+        return null;
+    }
+
+    public void put(K key, V value) {
+        if (megamorphic) {
+            return;
+        }
+
+        for (var i = 0; i < size; i++) {
+            if (keys[i] == key) {
+                values[i] = value;
+
+                return;
+            }
+        }
+
+        // Past the limit the site has seen too many shapes to be worth probing; it falls back to the full lookup for good
+        if (size == LIMIT) {
+            Arrays.fill(keys, null);
+            Arrays.fill(values, null);
+
+            size = 0;
+
+            megamorphic = true;
+
+            return;
+        }
+
+        keys[size] = key;
+        values[size++] = value;
+    }
+
+    public State getState() {
+        if (megamorphic) {
+            return State.MEGAMORPHIC;
+        }
+
+        return switch (size) {
+            case 0 -> State.UNINITIALIZED;
+
+            case 1 -> State.MONOMORPHIC;
+
+            default -> State.POLYMORPHIC;
+        };
+    }
+
+    public enum State {
+        UNINITIALIZED,
+        MONOMORPHIC,
+        POLYMORPHIC,
+        MEGAMORPHIC
+    }
+}
@@ -0,0 +1,180 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.parser;
+
+import kakkoiichris.oahu.lexer.Lexer;
+import kakkoiichris.oahu.lexer.TokenBuffer;
+import kakkoiichris.oahu.util.Source;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public final class ParallelParser {
+    public static final int MIN_CHUNK = 1 << 18;
+
+    private static final String[] STARTERS = { "let", "var", "fun", "class", "enum", "for", "loop", "do" };
+
+    private final Source source;
+    private final ForkJoinPool pool;
+
+    public ParallelParser(Source source, ForkJoinPool pool) {
+        this.source = source;
+        this.pool = pool;
+    }
+
+    public Program parse() {
+        var chunks = split();
+
+        if (chunks.size() == 1) {
+            return new Parser(source, new Lexer(source)).parse();
+        }
+
+        return new Program(pool.invoke(new Task(chunks, 0, chunks.size())));
+    }
+
+    // Scans the whole text once, indexing every line and cutting at depth-0 newlines that begin a new statement
+    private List<Chunk> split() {
+        source.fill(Integer.MAX_VALUE);
+
+        var text = source.chars();
+        var length = source.length();
+
+        var target = Math.max(MIN_CHUNK, length / (pool.getParallelism() * 4));
+
+        var chunks = new ArrayList<Chunk>();
+
+        var start = 0;
+        var startRow = 1;
+        var row = 1;
+        var depth = 0;
+
+        var i = 0;
+
+        while (i < length) {
+            var c = text[i];
+
+            if (c == '"') {
+                i++;
+
+                while (i < length && text[i] != '"') {
+                    if (text[i] == '\\') {
+                        i++;
+                    }
+
+                    if (i < length && text[i] == '\n') {
+                        source.markLine(++row, i + 1);
+                    }
+
+                    i++;
+                }
+            }
+            else if (c == '/' && i + 1 < length && text[i + 1] == '/') {
+                while (i + 1 < length && text[i + 1] != '\n') {
+                    i++;
+                }
+            }
+            else if (c == '/' && i + 1 < length && text[i + 1] == '*') {
+                i += 2;
+
+                while (i + 1 < length && !(text[i] == '*' && text[i + 1] == '/')) {
+                    if (text[i] == '\n') {
+                        source.markLine(++row, i + 1);
+                    }
+
+                    i++;
+                }
+
+                i++;
+            }
+            else if (c == '(' || c == '[' || c == '{') {
+                depth++;
+            }
+            else if (c == ')' || c == ']' || c == '}') {
+                depth--;
+            }
+            else if (c == '\n') {
+                source.markLine(++row, i + 1);
+
+                if (depth == 0 && i + 1 - start >= target && startsStatement(text, i + 1, length)) {
+                    chunks.add(new Chunk(start, i + 1, startRow));
+
+                    start = i + 1;
+                    startRow = row;
+                }
+            }
+
+            i++;
+        }
+
+        chunks.add(new Chunk(start, length, startRow));
+
+        return chunks;
+    }
+
+    private static boolean startsStatement(char[] text, int i, int length) {
+        while (i < length && (text[i] == ' ' || text[i] == '\t')) {
+            i++;
+        }
+
+        for (var starter : STARTERS) {
+            var end = i + starter.length();
+
+            if (end < length && !Character.isLetterOrDigit(text[end]) && text[end] != '_' && new String(text, i, starter.length()).equals(starter)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private record Chunk(int start, int end, int row) {
+    }
+
+    private final class Task extends RecursiveTask<List<Stmt>> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient List<Chunk> chunks;
+        private final int from;
+        private final int to;
+
+        private Task(List<Chunk> chunks, int from, int to) {
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Stmt> compute() {
+            if (to - from == 1) {
+                var chunk = chunks.get(from);
+
+                var lexer = new Lexer(source, chunk.start(), chunk.end(), chunk.row());
+
+                return new Parser(source, new TokenBuffer(source, lexer)).parse().stmts();
+            }
+
+            var middle = (from + to) >>> 1;
+
+            var left = new Task(chunks, from, middle);
+            var right = new Task(chunks, middle, to);
+
+            right.fork();
+
+            var stmts = new ArrayList<>(left.compute());
+
+            stmts.addAll(right.join());
+
+            return stmts;
+        }
+    }
+}
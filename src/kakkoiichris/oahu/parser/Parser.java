@@ -10,9 +10,8 @@
  *#################################################*/
 package kakkoiichris.oahu.parser;
 
-import kakkoiichris.oahu.lexer.Context;
 import kakkoiichris.oahu.lexer.Lexer;
-import kakkoiichris.oahu.lexer.Token;
+import kakkoiichris.oahu.lexer.TokenBuffer;
 import kakkoiichris.oahu.lexer.TokenType;
 import kakkoiichris.oahu.util.OahuError;
 import kakkoiichris.oahu.util.OahuWarning;
@@ -20,43 +19,83 @@ import kakkoiichris.oahu.util.Source;
 import kakkoiichris.oahu.util.Util;
 
 import java.util.ArrayList;
+import java.util.function.IntPredicate;
 import java.util.stream.Collectors;
 
 public class Parser {
+    private static final int[] PRECEDENCES = new int[Lexer.KINDS];
+
+    private static final Expr.Binary.Operator[] BINARY_OPERATORS = new Expr.Binary.Operator[Lexer.KINDS];
+    private static final Expr.Unary.Operator[] UNARY_OPERATORS = new Expr.Unary.Operator[Lexer.KINDS];
+
+    static {
+        for (var operator : Expr.Binary.Operator.values()) {
+            var kind = Lexer.kindOf(operator.type());
+
+            PRECEDENCES[kind] = operator.precedence();
+            BINARY_OPERATORS[kind] = operator;
+        }
+
+        for (var operator : Expr.Unary.Operator.values()) {
+            if (operator != Expr.Unary.Operator.SPREAD) {
+                UNARY_OPERATORS[Lexer.kindOf(operator.type())] = operator;
+            }
+        }
+    }
+
     private final Source source;
-    private final Lexer lexer;
+    private final TokenBuffer tokens;
 
-    private Token<?> currentToken;
+    private int position;
 
     public Parser(Source source, Lexer lexer) {
-        this.source = source;
-        this.lexer = lexer;
+        this(source, new TokenBuffer(source, lexer));
+    }
 
-        currentToken = lexer.next();
+    public Parser(Source source, TokenBuffer tokens) {
+        this.source = source;
+        this.tokens = tokens;
     }
 
     public Program parse() {
+        return parse(_ -> true);
+    }
+
+    // Offers the token index each top-level statement starts at before parsing it; the parse stops when it is refused
+    public Program parse(IntPredicate proceed) {
         var stmts = new ArrayList<Stmt>();
 
-        while (!atEndOfFile()) {
+        newLine();
+
+        while (!atEndOfFile() && proceed.test(position)) {
             stmts.add(stmt());
+
+            newLine();
         }
 
         return new Program(stmts);
     }
 
-    private Context here() {
-        return currentToken.context();
+    private long here() {
+        return tokens.context(position);
+    }
+
+    private TokenType type() {
+        return tokens.type(position);
+    }
+
+    private int kind(int offset) {
+        return tokens.kind(position + offset);
     }
 
     private void step() {
-        if (lexer.hasNext()) {
-            currentToken = lexer.next();
+        if (kind(0) != Lexer.END_OF_FILE) {
+            position++;
         }
     }
 
     private boolean match(TokenType type) {
-        return currentToken.type() == type;
+        return kind(0) == Lexer.kindOf(type);
     }
 
     private boolean matchAny(TokenType... types) {
@@ -69,8 +108,10 @@ public class Parser {
         return false;
     }
 
-    private <X extends TokenType> boolean match(Class<X> clazz) {
-        return clazz.isInstance(currentToken.type());
+    private boolean matchValue() {
+        var kind = kind(0);
+
+        return kind == Lexer.NUMBER || kind == Lexer.STRING || kind == Lexer.LITERAL;
     }
 
     private boolean skip(TokenType type) {
@@ -97,13 +138,13 @@ public class Parser {
 
     private void mustSkip(TokenType type) {
         if (!skip(type)) {
-            throw OahuError.invalidTokenType(currentToken.type(), type, source, here());
+            throw OahuError.invalidTokenType(type(), type, source, here());
         }
     }
 
     private void mustSkipLine(TokenType type) {
         if (!skipLine(type)) {
-            throw OahuError.invalidTokenType(currentToken.type(), type, source, here());
+            throw OahuError.invalidTokenType(type(), type, source, here());
         }
     }
 
@@ -113,15 +154,6 @@ public class Parser {
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private <X extends TokenType> Token<X> get() {
-        var token = currentToken;
-
-        mustSkip(token.type());
-
-        return (Token<X>) token;
-    }
-
     private boolean atEndOfFile() {
         return match(TokenType.EndOfFile.get());
     }
@@ -342,6 +374,9 @@ public class Parser {
 
             mustSkip(TokenType.Symbol.RIGHT_PAREN);
         }
+        else {
+            names.add(name());
+        }
 
         mustSkip(TokenType.Symbol.COLON);
 
@@ -463,7 +498,57 @@ public class Parser {
     }
 
     private Stmt.Class classStmt() {
-        return null;
+        var location = here();
+
+        mustSkip(TokenType.Keyword.CLASS);
+
+        var name = name();
+
+        validateName(name);
+
+        var params = new ArrayList<Stmt.Class.Param>();
+
+        if (skip(TokenType.Symbol.LEFT_PAREN) && !skip(TokenType.Symbol.RIGHT_PAREN)) {
+            do {
+                var paramLoc = here();
+
+                Boolean constant = null;
+
+                if (skip(TokenType.Keyword.LET)) {
+                    constant = true;
+                }
+                else if (skip(TokenType.Keyword.VAR)) {
+                    constant = false;
+                }
+
+                var mutable = skip(TokenType.Keyword.MUT);
+
+                var varargs = skip(TokenType.Symbol.STAR);
+
+                var paramName = name();
+
+                validateName(paramName);
+
+                var defaultValue = skip(TokenType.Symbol.EQUAL) ? expr() : Expr.Empty.get();
+
+                params.add(new Stmt.Class.Param(paramLoc, constant, mutable, varargs, paramName, defaultValue));
+            }
+            while (skip(TokenType.Symbol.COMMA));
+
+            mustSkip(TokenType.Symbol.RIGHT_PAREN);
+        }
+
+        var init = new ArrayList<Stmt>();
+
+        if (skipLine(TokenType.Symbol.LEFT_BRACE)) {
+            while (!skip(TokenType.Symbol.RIGHT_BRACE)) {
+                init.add(stmt());
+
+                newLine();
+            }
+        }
+
+        return new Stmt.Class(location, "", false, name, params, Expr.Empty.get(), init);
     }
 
     private Stmt.Enum enumStmt() {
@@ -488,38 +573,41 @@ public class Parser {
         var expr = spread();
 
         if (matchAny(TokenType.Symbol.EQUAL, TokenType.Symbol.PLUS_EQUAL, TokenType.Symbol.DASH_EQUAL, TokenType.Symbol.STAR_EQUAL, TokenType.Symbol.SLASH_EQUAL, TokenType.Symbol.PERCENT_EQUAL)) {
-            Token<TokenType.Symbol> op = get();
+            var context = here();
+            var type = type();
 
-            return switch (op.type()) {
+            step();
+
+            return switch (type) {
                 case TokenType.Symbol.EQUAL -> {
                     var name = Util.cast(Expr.Name.class, expr)
                         .orElseThrow(); // TODO Assign Name
 
-                    yield new Expr.Assign(op.context(), name, assignment());
+                    yield new Expr.Assign(context, name, assignment());
                 }
 
-                case TokenType.Symbol.PLUS_EQUAL -> desugaredAssignment(op.context(), Expr.Binary.Operator.ADD, expr);
+                case TokenType.Symbol.PLUS_EQUAL -> desugaredAssignment(context, Expr.Binary.Operator.ADD, expr);
 
                 case TokenType.Symbol.DASH_EQUAL ->
-                    desugaredAssignment(op.context(), Expr.Binary.Operator.SUBTRACT, expr);
+                    desugaredAssignment(context, Expr.Binary.Operator.SUBTRACT, expr);
 
                 case TokenType.Symbol.STAR_EQUAL ->
-                    desugaredAssignment(op.context(), Expr.Binary.Operator.MULTIPLY, expr);
+                    desugaredAssignment(context, Expr.Binary.Operator.MULTIPLY, expr);
 
                 case TokenType.Symbol.SLASH_EQUAL ->
-                    desugaredAssignment(op.context(), Expr.Binary.Operator.DIVIDE, expr);
+                    desugaredAssignment(context, Expr.Binary.Operator.DIVIDE, expr);
 
                 case TokenType.Symbol.PERCENT_EQUAL ->
-                    desugaredAssignment(op.context(), Expr.Binary.Operator.MODULUS, expr);
+                    desugaredAssignment(context, Expr.Binary.Operator.MODULUS, expr);
 
-                default -> throw OahuError.failure("Broken assignment operator '%s'!".formatted(op.type()));
+                default -> throw OahuError.failure("Broken assignment operator '%s'!".formatted(type));
             };
         }
 
         return expr;
     }
 
-    private Expr.Assign desugaredAssignment(Context context, Expr.Binary.Operator operator, Expr left) {
+    private Expr.Assign desugaredAssignment(long context, Expr.Binary.Operator operator, Expr left) {
         var name = Util.cast(Expr.Name.class, left)
             .orElseThrow(); // TODO Assign Name
 
@@ -534,107 +622,46 @@ public class Parser {
 
     private Expr spread() {
         if (match(TokenType.Symbol.STAR)) {
-            var op = currentToken;
-
-            mustSkip(TokenType.Symbol.STAR);
-
-            return new Expr.Unary(op.context(), Expr.Unary.Operator.get(op.type()), disjunction());
-        }
-
-        return disjunction();
-    }
-
-    private Expr disjunction() {
-        var expr = conjunction();
-
-        while (match(TokenType.Keyword.OR)) {
-            var op = currentToken;
-
-            mustSkip(op.type());
-
-            expr = new Expr.Binary(op.context(), Expr.Binary.Operator.get(op.type()), expr, conjunction());
-        }
-
-        return expr;
-    }
-
-    private Expr conjunction() {
-        var expr = equality();
-
-        while (match(TokenType.Keyword.AND)) {
-            var op = currentToken;
-
-            mustSkip(op.type());
-
-            expr = new Expr.Binary(op.context(), Expr.Binary.Operator.get(op.type()), expr, equality());
-        }
-
-        return expr;
-    }
+            var context = here();
 
-    private Expr equality() {
-        var expr = comparison();
-
-        while (matchAny(TokenType.Symbol.DOUBLE_EQUAL, TokenType.Symbol.EXCLAMATION_EQUAL)) {
-            var op = currentToken;
-
-            mustSkip(op.type());
-
-            expr = new Expr.Binary(op.context(), Expr.Binary.Operator.get(op.type()), expr, comparison());
-        }
-
-        return expr;
-    }
-
-    private Expr comparison() {
-        var expr = additive();
-
-        while (matchAny(TokenType.Symbol.LESS, TokenType.Symbol.LESS_EQUAL, TokenType.Symbol.GREATER, TokenType.Symbol.GREATER_EQUAL)) {
-            var op = currentToken;
-
-            mustSkip(op.type());
+            step();
 
-            expr = new Expr.Binary(op.context(), Expr.Binary.Operator.get(op.type()), expr, additive());
+            return new Expr.Unary(context, Expr.Unary.Operator.SPREAD, binary(0));
         }
 
-        return expr;
+        return binary(0);
     }
 
-    private Expr additive() {
-        var expr = multiplicative();
-
-        while (matchAny(TokenType.Symbol.PLUS, TokenType.Symbol.DASH)) {
-            var op = currentToken;
+    // Precedence climbing: each loop consumes operators binding tighter than the caller's, so all levels share one frame
+    private Expr binary(int precedence) {
+        var expr = prefix();
 
-            mustSkip(op.type());
+        while (true) {
+            var kind = kind(0);
 
-            expr = new Expr.Binary(op.context(), Expr.Binary.Operator.get(op.type()), expr, multiplicative());
-        }
+            var next = PRECEDENCES[kind];
 
-        return expr;
-    }
-
-    private Expr multiplicative() {
-        var expr = prefix();
+            if (next <= precedence) {
+                return expr;
+            }
 
-        while (matchAny(TokenType.Symbol.STAR, TokenType.Symbol.SLASH, TokenType.Symbol.PERCENT)) {
-            var op = currentToken;
+            var context = here();
 
-            mustSkip(op.type());
+            step();
 
-            expr = new Expr.Binary(op.context(), Expr.Binary.Operator.get(op.type()), expr, prefix());
+            expr = new Expr.Binary(context, BINARY_OPERATORS[kind], expr, binary(next));
         }
-
-        return expr;
     }
 
     private Expr prefix() {
-        if (matchAny(TokenType.Symbol.DASH, TokenType.Symbol.EXCLAMATION, TokenType.Symbol.POUND)) {
-            var op = currentToken;
+        var operator = UNARY_OPERATORS[kind(0)];
 
-            mustSkip(op.type());
+        if (operator != null) {
+            var context = here();
 
-            return new Expr.Unary(op.context(), Expr.Unary.Operator.get(op.type()), prefix());
+            step();
+
+            return new Expr.Unary(context, operator, prefix());
         }
 
         return postfix();
@@ -644,10 +671,10 @@ public class Parser {
         var expr = terminal();
 
         while (matchAny(TokenType.Symbol.DOT, TokenType.Symbol.LEFT_SQUARE, TokenType.Symbol.LEFT_PAREN)) {
-            var op = currentToken;
+            var context = here();
 
             if (skip(TokenType.Symbol.DOT)) {
-                expr = new Expr.Binary(op.context(), Expr.Binary.Operator.get(op.type()), expr, terminal());
+                expr = new Expr.Member(context, expr, name());
             }
             else if (skip(TokenType.Symbol.LEFT_SQUARE)) {
                 var args = new ArrayList<Expr.Invoke.Arg>();
@@ -667,7 +694,7 @@ public class Parser {
                     mustSkip(TokenType.Symbol.RIGHT_SQUARE);
                 }
 
-                expr = new Expr.Index(op.context(), expr, args);
+                expr = new Expr.Index(context, expr, args);
             }
             else if (skip(TokenType.Symbol.LEFT_PAREN)) {
                 var args = new ArrayList<Expr.Invoke.Arg>();
@@ -700,7 +727,7 @@ public class Parser {
                     mustSkip(TokenType.Symbol.RIGHT_PAREN);
                 }
 
-                expr = new Expr.Invoke(op.context(), expr, args);
+                expr = new Expr.Invoke(context, expr, args);
             }
         }
 
@@ -708,11 +735,11 @@ public class Parser {
     }
 
     private Expr terminal() {
-        if (match(TokenType.Value.class)) {
+        if (matchValue()) {
             return value();
         }
 
-        if (match(TokenType.Name.class)) {
+        if (kind(0) == Lexer.NAME) {
             return name();
         }
 
@@ -740,19 +767,29 @@ public class Parser {
             return tryExpr();
         }
 
-        throw OahuError.invalidTerminal(currentToken.type(), source, here());
+        throw OahuError.invalidTerminal(type(), source, here());
     }
 
     private Expr.Value value() {
-        Token<TokenType.Value> token = get();
+        var context = here();
+        var value = tokens.value(position);
+
+        step();
 
-        return new Expr.Value(token.context(), token.type().value());
+        return new Expr.Value(context, value);
     }
 
     private Expr.Name name() {
-        Token<TokenType.Name> token = get();
+        if (kind(0) != Lexer.NAME) {
+            throw OahuError.invalidName(type(), source, here());
+        }
+
+        var context = here();
+        var name = tokens.name(position);
 
-        return new Expr.Name(token.context(), token.type().name());
+        step();
+
+        return new Expr.Name(context, name);
     }
 
     private Expr nested() {
@@ -774,7 +811,7 @@ public class Parser {
 
         var generator = false;
 
-        if (match(TokenType.Symbol.RIGHT_SQUARE)) {
+        if (!match(TokenType.Symbol.RIGHT_SQUARE)) {
             do {
                 elements.add(expr());
             }
@@ -886,7 +923,7 @@ public class Parser {
 
         var params = names
             .stream()
-            .map(name -> new Stmt.Fun.Param(name.context(), false, false, name, null))
+            .map(name -> new Stmt.Fun.Param(name.context(), false, false, name, Expr.Empty.get()))
             .collect(Collectors.toList());
 
         var body = exprBody();
@@ -945,6 +982,8 @@ public class Parser {
 
                 elze = exprBody();
 
+                newLine();
+
                 break;
             }
 
@@ -967,7 +1006,7 @@ public class Parser {
         return new Expr.When(location, branches, elze);
     }
 
-    private Expr.When.Branch branch(Context context) {
+    private Expr.When.Branch branch(long context) {
         var condition = expr();
 
         mustSkipLine(TokenType.Symbol.ARROW);
@@ -977,26 +1016,26 @@ public class Parser {
         return new Expr.When.Branch(context, condition, body);
     }
 
-    private Expr.When.Branch subjectBranch(Context context, Expr subject) {
+    private Expr.When.Branch subjectBranch(long context, Expr subject) {
         Expr.Binary.Operator operator;
 
-        if (currentToken.type() == TokenType.Symbol.LESS) {
+        if (match(TokenType.Symbol.LESS)) {
             operator = Expr.Binary.Operator.LESS;
         }
-        else if (currentToken.type() == TokenType.Symbol.LESS_EQUAL) {
+        else if (match(TokenType.Symbol.LESS_EQUAL)) {
             operator = Expr.Binary.Operator.LESS;
         }
-        else if (currentToken.type() == TokenType.Symbol.GREATER) {
+        else if (match(TokenType.Symbol.GREATER)) {
             operator = Expr.Binary.Operator.LESS;
         }
-        else if (currentToken.type() == TokenType.Symbol.GREATER_EQUAL) {
+        else if (match(TokenType.Symbol.GREATER_EQUAL)) {
             operator = Expr.Binary.Operator.LESS;
         }
         else{
             operator= Expr.Binary.Operator.EQUAL;
         }
 
-        var condition = new Expr.Binary(context, operator, subject, additive());
+        var condition = new Expr.Binary(context, operator, subject, binary(Expr.Binary.Operator.ADD.precedence() - 1));
 
         mustSkipLine(TokenType.Symbol.ARROW);
 
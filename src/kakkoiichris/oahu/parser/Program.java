@@ -13,7 +13,11 @@ package kakkoiichris.oahu.parser;
 import java.util.Iterator;
 import java.util.List;
 
-public record Program(List<Stmt> stmts) implements Iterable<Stmt> {
+public record Program(List<Stmt> stmts, int locals) implements Iterable<Stmt> {
+    public Program(List<Stmt> stmts) {
+        this(stmts, 0);
+    }
+
     @Override
     public Iterator<Stmt> iterator() {
         return stmts.iterator();
@@ -0,0 +1,998 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.parser;
+
+import kakkoiichris.oahu.lexer.Context;
+import kakkoiichris.oahu.runtime.data.Null;
+import kakkoiichris.oahu.runtime.data.Unit;
+import kakkoiichris.oahu.util.OahuError;
+import kakkoiichris.oahu.util.OahuWarning;
+import kakkoiichris.oahu.util.Origins;
+import kakkoiichris.oahu.util.Source;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+public final class ProgramCache {
+    private static final int MAGIC = 0x4F414843;
+    private static final int VERSION = 3;
+
+    private static final String EXTENSION = ".oahuc";
+
+    private static final int BLOCK = 1 << 13;
+
+    private final Path directory;
+
+    public ProgramCache(Path directory) {
+        this.directory = directory;
+    }
+
+    public static ProgramCache ofDefault() {
+        return new ProgramCache(Path.of(System.getProperty("user.home"), ".oahu", "cache"));
+    }
+
+    public Path directory() {
+        return directory;
+    }
+
+    // The hash is taken over the UTF-8 text, straight from the mapped file when there is one, so a hit never decodes it
+    public static byte[] hash(Source source) {
+        MessageDigest digest;
+
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw OahuError.failure("SHA-256 is unavailable!");
+        }
+
+        var encoded = source.encoded();
+
+        if (encoded.isPresent()) {
+            digest.update(encoded.get());
+
+            return digest.digest();
+        }
+
+        source.fill(Integer.MAX_VALUE);
+
+        var encoder = StandardCharsets.UTF_8
+            .newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        var in = CharBuffer.wrap(source.chars(), 0, source.length());
+        var out = ByteBuffer.allocate(BLOCK);
+
+        while (encoder.encode(in, out, true).isOverflow()) {
+            digest.update(out.flip());
+
+            out.clear();
+        }
+
+        digest.update(out.flip());
+
+        return digest.digest();
+    }
+
+    private Path pathOf(byte[] hash) {
+        return directory.resolve(HexFormat.of().formatHex(hash) + EXTENSION);
+    }
+
+    // A missing, stale or unreadable entry is a miss; the caller parses the source as usual. A hit restores the line
+    // index and prints the parser warnings again, since the lexer and parser that made them never run
+    public Optional<Program> load(Source source, byte[] hash) {
+        var path = pathOf(hash);
+
+        if (!Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+
+        try {
+            var in = ByteBuffer.wrap(Files.readAllBytes(path));
+
+            if (in.getInt() != MAGIC || in.getShort() != VERSION) {
+                return Optional.empty();
+            }
+
+            var stored = new byte[hash.length];
+
+            in.get(stored);
+
+            if (!Arrays.equals(stored, hash)) {
+                return Optional.empty();
+            }
+
+            var entry = new Reader(in, source.id()).entry();
+
+            var lines = entry.lines();
+
+            for (var row = 2; row <= lines.length; row++) {
+                source.markLine(row, lines[row - 1]);
+            }
+
+            for (var warning : entry.warnings()) {
+                OahuWarning.replay(warning, source);
+            }
+
+            return Optional.of(entry.program());
+        }
+        catch (IOException | BufferUnderflowException e) {
+            return Optional.empty();
+        }
+    }
+
+    // Entries are written to a temporary file and moved into place, so a concurrent reader never sees half of one
+    public void store(Source source, byte[] hash, Program program) {
+        var body = new Writer(source.origins()).entry(program, source.warnings(), source.lineIndex());
+
+        Path temp = null;
+
+        try {
+            Files.createDirectories(directory);
+
+            temp = Files.createTempFile(directory, "entry", ".tmp");
+
+            try (var out = new DataOutputStream(Files.newOutputStream(temp))) {
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+                out.write(hash);
+                out.write(body);
+            }
+
+            Files.move(temp, pathOf(hash), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e) {
+            // An unwritable cache only costs the next run a parse
+            try {
+                if (temp != null) {
+                    Files.deleteIfExists(temp);
+                }
+            }
+            catch (IOException _) {
+            }
+        }
+    }
+
+    private static final class Tag {
+        private static final int EMPTY = 0;
+        private static final int VALUE = 1;
+        private static final int NAME = 2;
+        private static final int UNARY = 3;
+        private static final int BINARY = 4;
+        private static final int ASSIGN = 5;
+        private static final int INDEX = 6;
+        private static final int MEMBER = 7;
+        private static final int INVOKE = 8;
+        private static final int LIST_LITERAL = 9;
+        private static final int LIST_FOR = 10;
+        private static final int LAMBDA = 11;
+        private static final int BLOCK = 12;
+        private static final int IF = 13;
+        private static final int WHEN = 14;
+        private static final int TRY = 15;
+        private static final int STATEMENT = 16;
+
+        private static final int EMPTY_STMT = 0;
+        private static final int EXPRESSION_STMT = 1;
+        private static final int DECLARATION_STMT = 2;
+        private static final int BLOCK_STMT = 3;
+        private static final int WHILE_STMT = 4;
+        private static final int DO_STMT = 5;
+        private static final int LOOP_STMT = 6;
+        private static final int FOR_STMT = 7;
+        private static final int BREAK_STMT = 8;
+        private static final int CONTINUE_STMT = 9;
+        private static final int RETURN_STMT = 10;
+        private static final int THROW_STMT = 11;
+        private static final int EXIT_STMT = 12;
+        private static final int FUN_STMT = 13;
+        private static final int CLASS_STMT = 14;
+        private static final int ENUM_STMT = 15;
+
+        private static final int NUMBER = 0;
+        private static final int STRING = 1;
+        private static final int TRUE = 2;
+        private static final int FALSE = 3;
+        private static final int NULL = 4;
+        private static final int UNIT = 5;
+    }
+
+    // Names, paths and strings all go through one table, so each is stored once
+    private static final class Writer implements Expr.Visitor<Unit>, Stmt.Visitor<Unit> {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        private final Map<String, Integer> indices = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+
+        private final Origins origins;
+
+        // Offsets are stored relative to the previous context, which is nearly always close by
+        private int offset;
+
+        private Writer(Origins origins) {
+            this.origins = origins;
+        }
+
+        private byte[] entry(Program program, List<OahuWarning.Parsed> warnings, int[] lines) {
+            writeList(program.stmts(), this::visit);
+
+            writeList(warnings, warning -> {
+                writeInt(warning.kind().ordinal());
+                writeContext(warning.context());
+            });
+
+            writeInt(lines.length);
+
+            for (var i = 1; i < lines.length; i++) {
+                writeInt(lines[i] - lines[i - 1]);
+            }
+
+            var table = new ByteArrayOutputStream();
+
+            var tableOut = new DataOutputStream(table);
+
+            try {
+                writeInt(tableOut, strings.size());
+
+                for (var string : strings) {
+                    var utf = string.getBytes(StandardCharsets.UTF_8);
+
+                    writeInt(tableOut, utf.length);
+
+                    tableOut.write(utf);
+                }
+
+                bytes.writeTo(tableOut);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            return table.toByteArray();
+        }
+
+        private static void writeInt(DataOutputStream out, int value) throws IOException {
+            var zigzag = (value << 1) ^ (value >> 31);
+
+            while ((zigzag & ~0x7F) != 0) {
+                out.writeByte((zigzag & 0x7F) | 0x80);
+
+                zigzag >>>= 7;
+            }
+
+            out.writeByte(zigzag);
+        }
+
+        private void writeInt(int value) {
+            try {
+                writeInt(out, value);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void writeBoolean(boolean value) {
+            writeInt(value ? 1 : 0);
+        }
+
+        private void writeString(String string) {
+            var index = indices.get(string);
+
+            if (index == null) {
+                index = strings.size();
+
+                indices.put(string, index);
+                strings.add(string);
+            }
+
+            writeInt(index);
+        }
+
+        private void writeDouble(double value) {
+            try {
+                out.writeDouble(value);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // The source id is not stored; a loaded program takes the id of the source it was loaded for
+        private void writeContext(long context) {
+            if (Context.isNone(context)) {
+                writeInt(-1);
+
+                return;
+            }
+
+            // Offsets are stored from the start of the text, whatever origin they were made under
+            var absolute = origins.baseOf(Context.file(context)) + Context.offset(context);
+
+            writeInt(Context.length(context));
+            writeInt(absolute - offset);
+
+            offset = absolute;
+        }
+
+        private void writeName(Expr.Name name) {
+            writeContext(name.context());
+            writeString(name.value());
+        }
+
+        private <T> void writeList(List<T> list, Consumer<T> element) {
+            writeInt(list.size());
+
+            for (var t : list) {
+                element.accept(t);
+            }
+        }
+
+        private void writeArg(Expr.Invoke.Arg arg) {
+            writeContext(arg.context());
+            writeBoolean(arg.spread());
+            writeName(arg.name());
+            visit(arg.expr());
+        }
+
+        private void writeFun(Stmt.Fun fun) {
+            writeContext(fun.context());
+            writeString(fun.path());
+            writeBoolean(fun.isLinked());
+            writeName(fun.name());
+            writeList(fun.params(), param -> {
+                writeContext(param.context());
+                writeBoolean(param.isMutable());
+                writeBoolean(param.isVarargs());
+                writeName(param.name());
+                visit(param.defaultValue());
+            });
+            visit(fun.body());
+        }
+
+        private void writeClass(Stmt.Class clazz) {
+            writeContext(clazz.context());
+            writeString(clazz.path());
+            writeBoolean(clazz.isLinked());
+            writeName(clazz.name());
+            writeList(clazz.params(), param -> {
+                writeContext(param.context());
+                writeInt(param.isConstant() == null ? -1 : param.isConstant() ? 1 : 0);
+                writeBoolean(param.isMutable());
+                writeBoolean(param.isVarargs());
+                writeName(param.name());
+                visit(param.defaultValue());
+            });
+            visit(clazz.base());
+            writeList(clazz.init(), this::visit);
+        }
+
+        @Override
+        public Unit visitEmptyExpr(Expr.Empty expr) {
+            writeInt(Tag.EMPTY);
+
+            return Unit.get();
+        }
+
+        @Override
+        public Unit visitValueExpr(Expr.Value expr) {
+            writeInt(Tag.VALUE);
+            writeContext(expr.context());
+
+            switch (expr.value()) {
+                case Double number -> {
+                    writeInt(Tag.NUMBER);
+                    writeDouble(number);
+                }
+
+                case String string -> {
+                    writeInt(Tag.STRING);
+                    writeString(string);
+                }
+
+                case Boolean bool -> writeInt(bool ? Tag.TRUE : Tag.FALSE);
+
+                case Null _ -> writeInt(Tag.NULL);
+
+                case Unit _ -> writeInt(Tag.UNIT);
+
+                default -> throw OahuError.failure("Value '%s' cannot be cached!".formatted(expr.value()));
+            }
+
+            return Unit.get();
+        }
+
+        @Override
+        public Unit visitNameExpr(Expr.Name expr) {
+            writeInt(Tag.NAME);
+            writeName(expr);
+
+            return Unit.get();
+        }
+
+        @Override
+        public Unit visitUnaryExpr(Expr.Unary expr) {
+            writeInt(Tag.UNARY);
+            writeContext(expr.context());
+            writeInt(expr.operator().ordinal());
+            visit(expr.expr());
+
+            return Unit.get();
+        }
+
+        @Override
+        public Unit visitBinaryExpr(Expr.Binary expr) {
+            writeInt(Tag.BINARY);
+            writeContext(expr.context());
+            writeInt(expr.operator().ordinal());
+            visit(expr.left());
+            visit(expr.right());
+
+            return Unit.get();
+        }
+
+        @Override
+        public Unit visitAssignExpr(Expr.Assign expr) {
+            writeInt(Tag.ASSIGN);
+            writeContext(expr.context());
+            writeName(expr.name());
+            visit(expr.value());
+
+            return Unit.get();
+        }
+
+        @Override
+        public Unit visitIndexExpr(Expr.Index expr) {
+            writeInt(Tag.INDEX);
+            writeContext(expr.context());
+            visit(expr.target());
+            writeList(expr.args(), this::writeArg);
+
+            return Unit.get();
+        }
+
+        @Override
+        public Unit visitMemberExpr(Expr.Member expr) {
+            writeInt(Tag.MEMBER);
+            writeContext(expr.context());
+            visit(expr.target());
+            writeName(expr.member());
+
+            return Unit.get();
+        }
+
+        @Override
+        public Unit visitInvokeExpr(Expr.Invoke expr) {
+            writeInt(Tag.INVOKE);
+            writeContext(expr.context());
+            visit(expr.target());
+            writeList(expr.args(), this::writeArg);
+
+            return Unit.get();
+        }
+
+        @Override
+        public Unit visitListLiteralExpr(Expr.ListLiteral expr) {
+            writeInt(Tag.LIST_LITERAL);
+            writeContext(expr.context());
+            writeList(expr.elements(), this::visit);
+
+            return Unit.get();
+        }
+
+        @Override
+        public Unit visitListForExpr(Expr.ListFor expr) {
+            writeInt(Tag.LIST_FOR);
+            writeContext(expr.context());
+            visit(expr.element());
+            writeList(expr.names(), this::writeName);
+            writeBoolean(expr.destructured());
+            visit(expr.iterable());
+            visit(expr.test());
+
+            return Unit.get();
+        }
+
+        @Override
+        public Unit visitLambdaExpr(Expr.Lambda expr) {
+            writeInt(Tag.LAMBDA);
+            writeContext(expr.context());
+            writeFun(expr.fun());
+
+            return Unit.get();
+        }
+
+        @Override
+        public Unit visitBlockExpr(Expr.Block expr) {
+            writeInt(Tag.BLOCK);
+            writeContext(expr.context());
+            writeList(expr.exprs(), this::visit);
+
+            return Unit.get();
+        }
+
+        @Override
+        public Unit visitIfExpr(Expr.If expr) {
+            writeInt(Tag.IF);
+            writeContext(expr.context());
+            visit(expr.condition());
+            visit(expr.body());
+            visit(expr.elze());
+
+            return Unit.get();
+        }
+
+        @Override
+        public Unit visitWhenExpr(Expr.When expr) {
+            writeInt(Tag.WHEN);
+            writeContext(expr.context());
+            writeList(expr.branches(), branch -> {
+                writeContext(branch.context());
+                visit(branch.condition());
+                visit(branch.body());
+            });
+            visit(expr.elze());
+
+            return Unit.get();
+        }
+
+        @Override
+        public Unit visitTryExpr(Expr.Try expr) {
+            writeInt(Tag.TRY);
+            writeContext(expr.context());
+            visit(expr.body());
+            writeName(expr.error());
+            visit(expr.catchBody());
+            visit(expr.finallyBody());
+
+            return Unit.get();
+        }
+
+        @Override
+        public Unit visitStatementExpr(Expr.Statement expr) {
+            writeInt(Tag.STATEMENT);
+            writeContext(expr.context());
+            visit(expr.stmt());
+
+            return Unit.get();
+        }
+
+        @Override
+        public Unit visitEmptyStmt(Stmt.Empty stmt) {
+            writeInt(Tag.EMPTY_STMT);
+
+            return Unit.get();
+        }
+
+        @Override
+        public Unit visitExpressionStmt(Stmt.Expression stmt) {
+            writeInt(Tag.EXPRESSION_STMT);
+            writeContext(stmt.context());
+            visit(stmt.expr());
+
+            return Unit.get();
+        }
+
+        @Override
+        public Unit visitDeclarationStmt(Stmt.Declaration stmt) {
+            writeInt(Tag.DECLARATION_STMT);
+            writeContext(stmt.context());
+            writeBoolean(stmt.constant());
+            writeBoolean(stmt.mutable());
+            writeBoolean(stmt.destructured());
+            writeList(stmt.names(), this::writeName);
+            visit(stmt.expr());
+
+            return Unit.get();
+        }
+
+        @Override
+        public Unit visitBlockStmt(Stmt.Block stmt) {
+            writeInt(Tag.BLOCK_STMT);
+            writeContext(stmt.context());
+            writeList(stmt.stmts(), this::visit);
+
+            return Unit.get();
+        }
+
+        @Override
+        public Unit visitWhileStmt(Stmt.While stmt) {
+            writeInt(Tag.WHILE_STMT);
+            writeContext(stmt.context());
+            writeName(stmt.label());
+            visit(stmt.condition());
+            visit(stmt.body());
+
+            return Unit.get();
+        }
+
+        @Override
+        public Unit visitDoStmt(Stmt.Do stmt) {
+            writeInt(Tag.DO_STMT);
+            writeContext(stmt.context());
+            writeName(stmt.label());
+            visit(stmt.body());
+            visit(stmt.condition());
+
+            return Unit.get();
+        }
+
+        @Override
+        public Unit visitLoopStmt(Stmt.Loop stmt) {
+            writeInt(Tag.LOOP_STMT);
+            writeContext(stmt.context());
+            writeName(stmt.label());
+            visit(stmt.count());
+            visit(stmt.body());
+
+            return Unit.get();
+        }
+
+        @Override
+        public Unit visitForStmt(Stmt.For stmt) {
+            writeInt(Tag.FOR_STMT);
+            writeContext(stmt.context());
+            writeName(stmt.label());
+            writeBoolean(stmt.destructured());
+            writeList(stmt.names(), this::writeName);
+            visit(stmt.iterable());
+            visit(stmt.body());
+
+            return Unit.get();
+        }
+
+        @Override
+        public Unit visitBreakStmt(Stmt.Break stmt) {
+            writeInt(Tag.BREAK_STMT);
+            writeContext(stmt.context());
+            writeName(stmt.label());
+
+            return Unit.get();
+        }
+
+        @Override
+        public Unit visitContinueStmt(Stmt.Continue stmt) {
+            writeInt(Tag.CONTINUE_STMT);
+            writeContext(stmt.context());
+            writeName(stmt.label());
+
+            return Unit.get();
+        }
+
+        @Override
+        public Unit visitReturnStmt(Stmt.Return stmt) {
+            writeInt(Tag.RETURN_STMT);
+            writeContext(stmt.context());
+            visit(stmt.expr());
+
+            return Unit.get();
+        }
+
+        @Override
+        public Unit visitThrowStmt(Stmt.Throw stmt) {
+            writeInt(Tag.THROW_STMT);
+            writeContext(stmt.context());
+            visit(stmt.expr());
+
+            return Unit.get();
+        }
+
+        @Override
+        public Unit visitExitStmt(Stmt.Exit stmt) {
+            writeInt(Tag.EXIT_STMT);
+            writeContext(stmt.context());
+            visit(stmt.expr());
+
+            return Unit.get();
+        }
+
+        @Override
+        public Unit visitFunStmt(Stmt.Fun stmt) {
+            writeInt(Tag.FUN_STMT);
+            writeFun(stmt);
+
+            return Unit.get();
+        }
+
+        @Override
+        public Unit visitClassStmt(Stmt.Class stmt) {
+            writeInt(Tag.CLASS_STMT);
+            writeClass(stmt);
+
+            return Unit.get();
+        }
+
+        @Override
+        public Unit visitEnumStmt(Stmt.Enum stmt) {
+            writeInt(Tag.ENUM_STMT);
+            writeContext(stmt.context());
+            writeClass(stmt.clazz());
+            writeList(stmt.entries(), entry -> {
+                writeContext(entry.context());
+                writeName(entry.name());
+                writeList(entry.args(), this::writeArg);
+                visit(entry.ordinal());
+            });
+
+            return Unit.get();
+        }
+    }
+
+    private record Entry(Program program, List<OahuWarning.Parsed> warnings, int[] lines) {
+    }
+
+    private static final class Reader {
+        private final ByteBuffer in;
+        private final int file;
+
+        private String[] strings;
+
+        private int offset;
+
+        private Reader(ByteBuffer in, int file) {
+            this.in = in;
+            this.file = file;
+        }
+
+        private Entry entry() throws IOException {
+            strings = new String[count()];
+
+            for (var i = 0; i < strings.length; i++) {
+                var length = count();
+
+                strings[i] = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+
+                in.position(in.position() + length);
+            }
+
+            var program = new Program(readList(this::stmt));
+
+            var warnings = readList(() -> new OahuWarning.Parsed(readIndex(OahuWarning.Kind.values()), readContext()));
+
+            var lines = new int[Math.max(count(), 1)];
+
+            for (var i = 1; i < lines.length; i++) {
+                lines[i] = lines[i - 1] + readInt();
+            }
+
+            return new Entry(program, warnings, lines);
+        }
+
+        // Sizes are checked against what is left, so a damaged entry fails as a format error rather than a huge allocation
+        private int count() throws IOException {
+            var count = readInt();
+
+            if (count < 0 || count > in.remaining()) {
+                throw new StreamCorruptedException("Bad count!");
+            }
+
+            return count;
+        }
+
+        private <E> E readIndex(E[] values) throws IOException {
+            var index = readInt();
+
+            if (index < 0 || index >= values.length) {
+                throw new StreamCorruptedException("Bad index!");
+            }
+
+            return values[index];
+        }
+
+        private int readInt() {
+            var zigzag = 0;
+
+            for (var shift = 0; ; shift += 7) {
+                var b = in.get();
+
+                zigzag |= (b & 0x7F) << shift;
+
+                if (b >= 0) {
+                    break;
+                }
+            }
+
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+
+        private boolean readBoolean() {
+            return readInt() != 0;
+        }
+
+        private String readString() throws IOException {
+            return readIndex(strings);
+        }
+
+        private long readContext() {
+            var length = readInt();
+
+            if (length < 0) {
+                return Context.none();
+            }
+
+            offset += readInt();
+
+            return Context.of(file, offset, length);
+        }
+
+        private Expr.Name readName() throws IOException {
+            return new Expr.Name(readContext(), readString());
+        }
+
+        private <T> List<T> readList(Element<T> element) throws IOException {
+            var size = count();
+
+            var list = new ArrayList<T>(size);
+
+            for (var i = 0; i < size; i++) {
+                list.add(element.read());
+            }
+
+            return list;
+        }
+
+        private Expr.Invoke.Arg readArg() throws IOException {
+            return new Expr.Invoke.Arg(readContext(), readBoolean(), readName(), expr());
+        }
+
+        private Stmt.Fun readFun() throws IOException {
+            var context = readContext();
+            var path = readString();
+            var isLinked = readBoolean();
+            var name = readName();
+            var params = readList(() -> new Stmt.Fun.Param(readContext(), readBoolean(), readBoolean(), readName(), expr()));
+            var body = stmt();
+
+            return new Stmt.Fun(context, path, isLinked, name, params, body);
+        }
+
+        private Stmt.Class readClass() throws IOException {
+            var context = readContext();
+            var path = readString();
+            var isLinked = readBoolean();
+            var name = readName();
+            var params = readList(() -> {
+                var paramContext = readContext();
+                var constant = readInt();
+
+                return new Stmt.Class.Param(paramContext, constant < 0 ? null : constant == 1, readBoolean(), readBoolean(), readName(), expr());
+            });
+            var base = expr();
+            var init = readList(this::stmt);
+
+            return new Stmt.Class(context, path, isLinked, name, params, base, init);
+        }
+
+        private Object readValue() throws IOException {
+            return switch (readInt()) {
+                case Tag.NUMBER -> in.getDouble();
+
+                case Tag.STRING -> readString();
+
+                case Tag.TRUE -> true;
+
+                case Tag.FALSE -> false;
+
+                case Tag.NULL -> Null.get();
+
+                case Tag.UNIT -> Unit.get();
+
+                default -> throw new IOException("Unknown value tag!");
+            };
+        }
+
+        // Arguments are evaluated left to right, which is the order they were written in
+        private Expr expr() throws IOException {
+            return switch (readInt()) {
+                case Tag.EMPTY -> Expr.Empty.get();
+
+                case Tag.VALUE -> new Expr.Value(readContext(), readValue());
+
+                case Tag.NAME -> readName();
+
+                case Tag.UNARY -> new Expr.Unary(readContext(), readIndex(Expr.Unary.Operator.values()), expr());
+
+                case Tag.BINARY -> new Expr.Binary(readContext(), readIndex(Expr.Binary.Operator.values()), expr(), expr());
+
+                case Tag.ASSIGN -> new Expr.Assign(readContext(), readName(), expr());
+
+                case Tag.INDEX -> new Expr.Index(readContext(), expr(), readList(this::readArg));
+
+                case Tag.MEMBER -> new Expr.Member(readContext(), expr(), readName());
+
+                case Tag.INVOKE -> new Expr.Invoke(readContext(), expr(), readList(this::readArg));
+
+                case Tag.LIST_LITERAL -> new Expr.ListLiteral(readContext(), readList(this::expr));
+
+                case Tag.LIST_FOR -> new Expr.ListFor(readContext(), expr(), readList(this::readName), readBoolean(), expr(), expr());
+
+                case Tag.LAMBDA -> new Expr.Lambda(readContext(), readFun());
+
+                case Tag.BLOCK -> new Expr.Block(readContext(), readList(this::expr));
+
+                case Tag.IF -> new Expr.If(readContext(), expr(), expr(), expr());
+
+                case Tag.WHEN -> new Expr.When(readContext(), readList(() -> new Expr.When.Branch(readContext(), expr(), expr())), expr());
+
+                case Tag.TRY -> new Expr.Try(readContext(), expr(), readName(), expr(), expr());
+
+                case Tag.STATEMENT -> new Expr.Statement(readContext(), stmt());
+
+                default -> throw new IOException("Unknown expression tag!");
+            };
+        }
+
+        private Stmt stmt() throws IOException {
+            return switch (readInt()) {
+                case Tag.EMPTY_STMT -> Stmt.Empty.get();
+
+                case Tag.EXPRESSION_STMT -> new Stmt.Expression(readContext(), expr());
+
+                case Tag.DECLARATION_STMT -> new Stmt.Declaration(readContext(), readBoolean(), readBoolean(), readBoolean(), readList(this::readName), expr());
+
+                case Tag.BLOCK_STMT -> new Stmt.Block(readContext(), readList(this::stmt));
+
+                case Tag.WHILE_STMT -> new Stmt.While(readContext(), readName(), expr(), stmt());
+
+                case Tag.DO_STMT -> new Stmt.Do(readContext(), readName(), stmt(), expr());
+
+                case Tag.LOOP_STMT -> new Stmt.Loop(readContext(), readName(), expr(), stmt());
+
+                case Tag.FOR_STMT -> new Stmt.For(readContext(), readName(), readBoolean(), readList(this::readName), expr(), stmt());
+
+                case Tag.BREAK_STMT -> new Stmt.Break(readContext(), readName());
+
+                case Tag.CONTINUE_STMT -> new Stmt.Continue(readContext(), readName());
+
+                case Tag.RETURN_STMT -> new Stmt.Return(readContext(), expr());
+
+                case Tag.THROW_STMT -> new Stmt.Throw(readContext(), expr());
+
+                case Tag.EXIT_STMT -> new Stmt.Exit(readContext(), expr());
+
+                case Tag.FUN_STMT -> readFun();
+
+                case Tag.CLASS_STMT -> readClass();
+
+                case Tag.ENUM_STMT -> new Stmt.Enum(readContext(), readClass(), readList(() -> new Stmt.Enum.Entry(readContext(), readName(), readList(this::readArg), expr())));
+
+                default -> throw new IOException("Unknown statement tag!");
+            };
+        }
+
+        private interface Element<T> {
+            T read() throws IOException;
+        }
+    }
+}
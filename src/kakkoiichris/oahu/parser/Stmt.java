@@ -12,18 +12,19 @@ package kakkoiichris.oahu.parser;
 
 import kakkoiichris.oahu.lexer.Context;
 import kakkoiichris.oahu.runtime.Memory;
+import kakkoiichris.oahu.runtime.Redirect;
 import kakkoiichris.oahu.runtime.Runtime;
 import kakkoiichris.oahu.runtime.data.Instance;
+import kakkoiichris.oahu.runtime.data.Table;
 import kakkoiichris.oahu.util.Util;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.StringJoiner;
 import java.util.function.BiFunction;
 
 public sealed interface Stmt {
-    Context context();
+    long context();
 
     <X> X accept(Visitor<X> visitor);
 
@@ -80,7 +81,7 @@ public sealed interface Stmt {
         }
 
         @Override
-        public Context context() {
+        public long context() {
             return Context.none();
         }
 
@@ -95,7 +96,7 @@ public sealed interface Stmt {
         }
     }
 
-    record Expression(Context context, Expr expr) implements Stmt {
+    record Expression(long context, Expr expr) implements Stmt {
         @Override
         public <X> X accept(Visitor<X> visitor) {
             return visitor.visitExpressionStmt(this);
@@ -108,7 +109,7 @@ public sealed interface Stmt {
     }
 
     record Declaration(
-        Context context,
+        long context,
         boolean constant,
         boolean mutable,
         boolean destructured,
@@ -138,7 +139,35 @@ public sealed interface Stmt {
         }
     }
 
-    record Block(Context context, List<Stmt> stmts) implements Stmt {
+    final class Block implements Stmt {
+        private final long context;
+        private final List<Stmt> stmts;
+
+        private int locals;
+
+        public Block(long context, List<Stmt> stmts) {
+            this.context = context;
+            this.stmts = stmts;
+        }
+
+        @Override
+        public long context() {
+            return context;
+        }
+
+        public List<Stmt> stmts() {
+            return stmts;
+        }
+
+        // A loop body whose declarations are captured runs in a fresh frame of this size each iteration; zero shares the enclosing frame
+        public int locals() {
+            return locals;
+        }
+
+        public void setLocals(int locals) {
+            this.locals = locals;
+        }
+
         @Override
         public <X> X accept(Visitor<X> visitor) {
             return visitor.visitBlockStmt(this);
@@ -150,12 +179,55 @@ public sealed interface Stmt {
         }
     }
 
-    record While(Context context, Expr.Name label, Expr condition, Stmt body) implements Stmt {
+    final class While implements Stmt {
+        private final long context;
+        private final Expr.Name label;
+        private final Expr condition;
+        private final Stmt body;
+
+        private Counter counter;
+
+        public While(long context, Expr.Name label, Expr condition, Stmt body) {
+            this.context = context;
+            this.label = label;
+            this.condition = condition;
+            this.body = body;
+        }
+
+        @Override
+        public long context() {
+            return context;
+        }
+
+        public Expr.Name label() {
+            return label;
+        }
+
+        public Expr condition() {
+            return condition;
+        }
+
+        public Stmt body() {
+            return body;
+        }
+
+        public Counter getCounter() {
+            return counter;
+        }
+
+        public void setCounter(Counter counter) {
+            this.counter = counter;
+        }
+
         @Override
         public <X> X accept(Visitor<X> visitor) {
             return visitor.visitWhileStmt(this);
         }
 
+        // The body without its trailing step, for a loop whose counter moves by a constant step toward a fixed limit
+        public record Counter(Expr.Name name, Expr.Binary.Operator operator, Expr limit, double step, Stmt body) {
+        }
+
         @Override
         public String toString() {
             if (label.isEmpty()) {
@@ -166,7 +238,7 @@ public sealed interface Stmt {
         }
     }
 
-    record Do(Context context, Expr.Name label, Stmt body, Expr condition) implements Stmt {
+    record Do(long context, Expr.Name label, Stmt body, Expr condition) implements Stmt {
         @Override
         public <X> X accept(Visitor<X> visitor) {
             return visitor.visitDoStmt(this);
@@ -182,7 +254,7 @@ public sealed interface Stmt {
         }
     }
 
-    record Loop(Context context, Expr.Name label, Expr count, Stmt body) implements Stmt {
+    record Loop(long context, Expr.Name label, Expr count, Stmt body) implements Stmt {
         @Override
         public <X> X accept(Visitor<X> visitor) {
             return visitor.visitLoopStmt(this);
@@ -198,8 +270,59 @@ public sealed interface Stmt {
         }
     }
 
-    record For(Context context, Expr.Name label, boolean destructured, List<Expr.Name> names, Expr iterable,
-               Stmt body) implements Stmt {
+    final class For implements Stmt {
+        private final long context;
+        private final Expr.Name label;
+        private final boolean destructured;
+        private final List<Expr.Name> names;
+        private final Expr iterable;
+        private final Stmt body;
+
+        private int locals;
+
+        public For(long context, Expr.Name label, boolean destructured, List<Expr.Name> names, Expr iterable, Stmt body) {
+            this.context = context;
+            this.label = label;
+            this.destructured = destructured;
+            this.names = names;
+            this.iterable = iterable;
+            this.body = body;
+        }
+
+        @Override
+        public long context() {
+            return context;
+        }
+
+        public Expr.Name label() {
+            return label;
+        }
+
+        public boolean destructured() {
+            return destructured;
+        }
+
+        public List<Expr.Name> names() {
+            return names;
+        }
+
+        public Expr iterable() {
+            return iterable;
+        }
+
+        public Stmt body() {
+            return body;
+        }
+
+        // Like a block's, the names and body get a fresh frame of this size each iteration when a closure captures them
+        public int locals() {
+            return locals;
+        }
+
+        public void setLocals(int locals) {
+            this.locals = locals;
+        }
+
         @Override
         public <X> X accept(Visitor<X> visitor) {
             return visitor.visitForStmt(this);
@@ -235,7 +358,12 @@ public sealed interface Stmt {
         }
     }
 
-    record Break(Context context, Expr.Name label) implements Stmt {
+    // The redirect is made once per statement, so taking the break allocates nothing
+    record Break(long context, Expr.Name label, Redirect.Break redirect) implements Stmt {
+        public Break(long context, Expr.Name label) {
+            this(context, label, Redirect.Break.of(label));
+        }
+
         @Override
         public <X> X accept(Visitor<X> visitor) {
             return visitor.visitBreakStmt(this);
@@ -251,7 +379,11 @@ public sealed interface Stmt {
         }
     }
 
-    record Continue(Context context, Expr.Name label) implements Stmt {
+    record Continue(long context, Expr.Name label, Redirect.Continue redirect) implements Stmt {
+        public Continue(long context, Expr.Name label) {
+            this(context, label, Redirect.Continue.of(label));
+        }
+
         @Override
         public <X> X accept(Visitor<X> visitor) {
             return visitor.visitContinueStmt(this);
@@ -267,7 +399,7 @@ public sealed interface Stmt {
         }
     }
 
-    record Throw(Context context, Expr expr) implements Stmt {
+    record Throw(long context, Expr expr) implements Stmt {
         @Override
         public <X> X accept(Visitor<X> visitor) {
             return visitor.visitThrowStmt(this);
@@ -279,7 +411,7 @@ public sealed interface Stmt {
         }
     }
 
-    record Return(Context context, Expr expr) implements Stmt {
+    record Return(long context, Expr expr) implements Stmt {
         @Override
         public <X> X accept(Visitor<X> visitor) {
             return visitor.visitReturnStmt(this);
@@ -291,7 +423,7 @@ public sealed interface Stmt {
         }
     }
 
-    record Exit(Context context, Expr expr) implements Stmt {
+    record Exit(long context, Expr expr) implements Stmt {
         @Override
         public <X> X accept(Visitor<X> visitor) {
             return visitor.visitExitStmt(this);
@@ -304,7 +436,7 @@ public sealed interface Stmt {
     }
 
     final class Fun implements Stmt, Callable<Fun.Param> {
-        private final Context context;
+        private final long context;
         private final String path;
         private final boolean isLinked;
         private final Expr.Name name;
@@ -315,7 +447,9 @@ public sealed interface Stmt {
 
         private Link link;
 
-        public Fun(Context context, String path, boolean isLinked, Expr.Name name, List<Param> params, Stmt body) {
+        private int locals;
+
+        public Fun(long context, String path, boolean isLinked, Expr.Name name, List<Param> params, Stmt body) {
             this.context = context;
             this.path = path;
             this.isLinked = isLinked;
@@ -325,7 +459,7 @@ public sealed interface Stmt {
         }
 
         @Override
-        public Context context() {
+        public long context() {
             return context;
         }
 
@@ -366,6 +500,14 @@ public sealed interface Stmt {
             this.link = link;
         }
 
+        public int locals() {
+            return locals;
+        }
+
+        public void setLocals(int locals) {
+            this.locals = locals;
+        }
+
         public Fun copy() {
             var copy = new Fun(context(), path, isLinked, name, params, body);
 
@@ -373,11 +515,17 @@ public sealed interface Stmt {
                 copy.setLink(link);
             }
 
+            copy.setLocals(locals);
+
             return copy;
         }
 
         public Fun copyWithExtension() {
-            return new Fun(context(), "", isLinked, name, params, body);
+            var copy = new Fun(context(), "", isLinked, name, params, body);
+
+            copy.setLocals(locals);
+
+            return copy;
         }
 
         @Override
@@ -396,7 +544,7 @@ public sealed interface Stmt {
         }
 
         public record Param(
-            Context context,
+            long context,
             boolean isMutable,
             boolean isVarargs,
             Expr.Name name,
@@ -430,31 +578,43 @@ public sealed interface Stmt {
             }
 
             public Object invoke(Runtime runtime, Instance instance, List<Object> args) {
-                return method.apply(runtime, new Data(instance, args));
+                return invoke(runtime, instance, instance, args);
             }
 
-            public record Data(Instance instance, List<Object> args) {
+            public Object invoke(Runtime runtime, Instance instance, Object receiver, List<Object> args) {
+                return method.apply(runtime, new Data(instance, receiver, args));
+            }
+
+            public record Data(Instance instance, Object receiver, List<Object> args) {
                 public <X> Optional<X> unlink(java.lang.Class<X> clazz) {
                     return Util.cast(clazz, instance.getLink());
                 }
 
-                public List<Object> unwrap() {
-                    var list = new ArrayList<>();
+                public Optional<Boolean> asBoolean() {
+                    return Util.cast(Boolean.class, receiver);
+                }
 
-                    for (var arg : args) {
-                        var value = Instance.fromInstance(arg);
+                public Optional<Double> asNumber() {
+                    return Util.cast(Double.class, receiver);
+                }
 
-                        list.add(value);
-                    }
+                public Optional<String> asString() {
+                    return Util.cast(String.class, receiver);
+                }
 
-                    return list;
+                public Optional<Table> asTable() {
+                    return Util.cast(Table.class, receiver);
+                }
+
+                public List<Object> unwrap() {
+                    return args;
                 }
             }
         }
     }
 
     final class Class implements Stmt, Callable<Class.Param> {
-        private final Context context;
+        private final long context;
         private final String path;
         private final boolean isLinked;
         private final Expr.Name name;
@@ -462,9 +622,13 @@ public sealed interface Stmt {
         private final Expr base;
         private final List<Stmt> init;
 
+        private Memory.Scope scope;
+
         private Link link;
 
-        public Class(Context context, String path, boolean isLinked, Expr.Name name, List<Param> params, Expr base, List<Stmt> init) {
+        private int locals;
+
+        public Class(long context, String path, boolean isLinked, Expr.Name name, List<Param> params, Expr base, List<Stmt> init) {
             this.context = context;
             this.path = path;
             this.isLinked = isLinked;
@@ -475,7 +639,7 @@ public sealed interface Stmt {
         }
 
         @Override
-        public Context context() {
+        public long context() {
             return context;
         }
 
@@ -503,6 +667,14 @@ public sealed interface Stmt {
             return init;
         }
 
+        public Memory.Scope scope() {
+            return scope;
+        }
+
+        public void setScope(Memory.Scope scope) {
+            this.scope = scope;
+        }
+
         public Link link() {
             return link;
         }
@@ -511,6 +683,23 @@ public sealed interface Stmt {
             this.link = link;
         }
 
+        public int locals() {
+            return locals;
+        }
+
+        public void setLocals(int locals) {
+            this.locals = locals;
+        }
+
+        public Class copy() {
+            var copy = new Class(context(), path, isLinked, name, params, base, init);
+
+            copy.setLink(link);
+            copy.setLocals(locals);
+
+            return copy;
+        }
+
         @Override
         public int arity() {
             return params.size();
@@ -527,7 +716,7 @@ public sealed interface Stmt {
         }
 
         public record Param(
-            Context context,
+            long context,
             Boolean isConstant,
             boolean isMutable,
             boolean isVarargs,
@@ -559,7 +748,7 @@ public sealed interface Stmt {
         }
     }
 
-    record Enum(Context context, Class clazz, List<Entry> entries) implements Stmt {
+    record Enum(long context, Class clazz, List<Entry> entries) implements Stmt {
         @Override
         public <X> X accept(Visitor<X> visitor) {
             return visitor.visitEnumStmt(this);
@@ -570,7 +759,7 @@ public sealed interface Stmt {
             return "enum %s".formatted(clazz.name());
         }
 
-        public record Entry(Context context, Expr.Name name, List<Expr.Invoke.Arg> args, Expr ordinal) {
+        public record Entry(long context, Expr.Name name, List<Expr.Invoke.Arg> args, Expr ordinal) {
             @Override
             public String toString() {
                 return name.toString();
@@ -0,0 +1,621 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.resolver;
+
+import kakkoiichris.oahu.optimizer.Transformer;
+import kakkoiichris.oahu.parser.Callable;
+import kakkoiichris.oahu.parser.Expr;
+import kakkoiichris.oahu.parser.Program;
+import kakkoiichris.oahu.parser.Stmt;
+import kakkoiichris.oahu.runtime.data.Unit;
+import kakkoiichris.oahu.util.OahuError;
+import kakkoiichris.oahu.util.Source;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+
+public class Resolver implements Expr.Visitor<Unit>, Stmt.Visitor<Unit> {
+    private final Source source;
+    private final Program program;
+
+    private final Queue<Deferred> deferred = new ArrayDeque<>();
+
+    private Scope scope;
+
+    public Resolver(Source source, Program program) {
+        this.source = source;
+        this.program = program;
+    }
+
+    public Program resolve() {
+        var global = new Frame(0);
+
+        scope = new Scope(global, null, false);
+
+        for (var stmt : program) {
+            visit(stmt);
+        }
+
+        // Function bodies are resolved once their enclosing scopes are complete, so they may use later names
+        while (!deferred.isEmpty()) {
+            var next = deferred.poll();
+
+            resolveFun(next.fun(), next.scope());
+        }
+
+        return new Program(program.stmts(), global.size);
+    }
+
+    private void push() {
+        scope = new Scope(scope.frame, scope, scope.dynamic);
+    }
+
+    private void pop() {
+        scope = scope.parent;
+    }
+
+    private void declare(Expr.Name name) {
+        if (name.isEmpty()) {
+            return;
+        }
+
+        // Reused trees are resolved again, so a name that is now dynamic must not keep an old slot
+        name.resolve(-1, -1);
+
+        if (name.value().equals("_")) {
+            if (!scope.dynamic) {
+                name.resolve(0, scope.frame.size++);
+            }
+
+            return;
+        }
+
+        if (scope.names.containsKey(name.value())) {
+            throw OahuError.redeclaredName(name, source, name.context());
+        }
+
+        if (scope.dynamic) {
+            scope.names.put(name.value(), -1);
+
+            return;
+        }
+
+        var slot = scope.frame.size++;
+
+        scope.names.put(name.value(), slot);
+
+        name.resolve(0, slot);
+    }
+
+    // A closure made in one iteration must not see the next iteration's declarations, so such bodies get a frame of their own
+    private boolean isFramed(Stmt body, boolean declares) {
+        if (scope.dynamic) {
+            return false;
+        }
+
+        var captures = Captures.of(body);
+
+        return captures.closes && (declares || captures.declares);
+    }
+
+    private Frame pushFrame() {
+        var frame = new Frame(scope.frame.level + 1);
+
+        scope = new Scope(frame, scope, false);
+
+        return frame;
+    }
+
+    private void resolveBody(Stmt body) {
+        if (!(body instanceof Stmt.Block block) || !isFramed(block, false)) {
+            visit(body);
+
+            return;
+        }
+
+        var frame = pushFrame();
+
+        try {
+            for (var subStmt : block.stmts()) {
+                visit(subStmt);
+            }
+        }
+        finally {
+            pop();
+        }
+
+        // A body whose declarations all sit in a nested frame still needs its own, so the depths resolved in it hold
+        block.setLocals(Math.max(frame.size, 1));
+    }
+
+    private void lookup(Expr.Name name) {
+        name.resolve(-1, -1);
+
+        for (var s = scope; s != null; s = s.parent) {
+            var slot = s.names.get(name.value());
+
+            if (slot != null) {
+                if (slot >= 0) {
+                    name.resolve(scope.frame.level - s.frame.level, slot);
+                }
+
+                return;
+            }
+        }
+    }
+
+    private void resolveParams(Iterable<? extends Callable.Param> params) {
+        for (var param : params) {
+            visit(param.defaultValue());
+
+            declare(param.name());
+        }
+    }
+
+    private void resolveFun(Stmt.Fun fun, Scope enclosing) {
+        var outer = scope;
+
+        var frame = new Frame(enclosing.frame.level + 1);
+
+        scope = new Scope(frame, enclosing, false);
+
+        try {
+            resolveParams(fun.params());
+
+            visit(fun.body());
+        }
+        finally {
+            scope = outer;
+        }
+
+        fun.setLocals(frame.size);
+    }
+
+    @Override
+    public Unit visitEmptyExpr(Expr.Empty expr) {
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitValueExpr(Expr.Value expr) {
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitNameExpr(Expr.Name expr) {
+        lookup(expr);
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitUnaryExpr(Expr.Unary expr) {
+        visit(expr.expr());
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitBinaryExpr(Expr.Binary expr) {
+        visit(expr.left());
+        visit(expr.right());
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitAssignExpr(Expr.Assign expr) {
+        visit(expr.value());
+
+        lookup(expr.name());
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitIndexExpr(Expr.Index expr) {
+        visit(expr.target());
+
+        for (var arg : expr.args()) {
+            visit(arg.expr());
+        }
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitMemberExpr(Expr.Member expr) {
+        visit(expr.target());
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitInvokeExpr(Expr.Invoke expr) {
+        visit(expr.target());
+
+        for (var arg : expr.args()) {
+            visit(arg.expr());
+        }
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitListLiteralExpr(Expr.ListLiteral expr) {
+        for (var element : expr.elements()) {
+            visit(element);
+        }
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitListForExpr(Expr.ListFor expr) {
+        visit(expr.iterable());
+
+        push();
+
+        try {
+            for (var name : expr.names()) {
+                declare(name);
+            }
+
+            visit(expr.element());
+            visit(expr.test());
+        }
+        finally {
+            pop();
+        }
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitLambdaExpr(Expr.Lambda expr) {
+        deferred.add(new Deferred(expr.fun(), scope));
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitBlockExpr(Expr.Block expr) {
+        push();
+
+        try {
+            for (var subExpr : expr.exprs()) {
+                visit(subExpr);
+            }
+        }
+        finally {
+            pop();
+        }
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitIfExpr(Expr.If expr) {
+        visit(expr.condition());
+        visit(expr.body());
+        visit(expr.elze());
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitWhenExpr(Expr.When expr) {
+        for (var branch : expr.branches()) {
+            visit(branch.condition());
+            visit(branch.body());
+        }
+
+        visit(expr.elze());
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitTryExpr(Expr.Try expr) {
+        visit(expr.body());
+
+        push();
+
+        try {
+            declare(expr.error());
+
+            visit(expr.catchBody());
+        }
+        finally {
+            pop();
+        }
+
+        visit(expr.finallyBody());
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitStatementExpr(Expr.Statement expr) {
+        visit(expr.stmt());
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitEmptyStmt(Stmt.Empty stmt) {
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitExpressionStmt(Stmt.Expression stmt) {
+        visit(stmt.expr());
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitDeclarationStmt(Stmt.Declaration stmt) {
+        visit(stmt.expr());
+
+        for (var name : stmt.names()) {
+            declare(name);
+        }
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitBlockStmt(Stmt.Block stmt) {
+        stmt.setLocals(0);
+
+        push();
+
+        try {
+            for (var subStmt : stmt.stmts()) {
+                visit(subStmt);
+            }
+        }
+        finally {
+            pop();
+        }
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitWhileStmt(Stmt.While stmt) {
+        visit(stmt.condition());
+
+        resolveBody(stmt.body());
+
+        // The counted form runs the same statements, so it needs the same frame
+        if (stmt.getCounter() != null && stmt.getCounter().body() instanceof Stmt.Block counted && stmt.body() instanceof Stmt.Block block) {
+            counted.setLocals(block.locals());
+        }
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitDoStmt(Stmt.Do stmt) {
+        resolveBody(stmt.body());
+
+        visit(stmt.condition());
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitLoopStmt(Stmt.Loop stmt) {
+        visit(stmt.count());
+
+        resolveBody(stmt.body());
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitForStmt(Stmt.For stmt) {
+        visit(stmt.iterable());
+
+        Frame frame = null;
+
+        if (isFramed(stmt.body(), true)) {
+            frame = pushFrame();
+        }
+        else {
+            push();
+        }
+
+        try {
+            for (var name : stmt.names()) {
+                declare(name);
+            }
+
+            visit(stmt.body());
+        }
+        finally {
+            pop();
+        }
+
+        stmt.setLocals(frame != null ? frame.size : 0);
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitBreakStmt(Stmt.Break stmt) {
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitContinueStmt(Stmt.Continue stmt) {
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitReturnStmt(Stmt.Return stmt) {
+        visit(stmt.expr());
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitThrowStmt(Stmt.Throw stmt) {
+        visit(stmt.expr());
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitExitStmt(Stmt.Exit stmt) {
+        visit(stmt.expr());
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitFunStmt(Stmt.Fun stmt) {
+        declare(stmt.name());
+
+        deferred.add(new Deferred(stmt, scope));
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitClassStmt(Stmt.Class stmt) {
+        declare(stmt.name());
+
+        visit(stmt.base());
+
+        var outer = scope;
+
+        var frame = new Frame(scope.frame.level + 1);
+
+        scope = new Scope(frame, outer, false);
+
+        try {
+            resolveParams(stmt.params());
+
+            scope = new Scope(new Frame(frame.level + 1), scope, true);
+
+            for (var init : stmt.init()) {
+                visit(init);
+            }
+        }
+        finally {
+            scope = outer;
+        }
+
+        stmt.setLocals(frame.size);
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitEnumStmt(Stmt.Enum stmt) {
+        return Unit.get();
+    }
+
+    private static final class Frame {
+        private final int level;
+
+        private int size;
+
+        private Frame(int level) {
+            this.level = level;
+        }
+    }
+
+    private static final class Scope {
+        private final Frame frame;
+        private final Scope parent;
+        private final boolean dynamic;
+
+        private final Map<String, Integer> names = new HashMap<>();
+
+        private Scope(Frame frame, Scope parent, boolean dynamic) {
+            this.frame = frame;
+            this.parent = parent;
+            this.dynamic = dynamic;
+        }
+    }
+
+    private record Deferred(Stmt.Fun fun, Scope scope) {
+    }
+
+    // Finds whether a loop body declares names and whether it makes a closure that could hold on to its frame
+    private static final class Captures extends Transformer {
+        private boolean declares;
+        private boolean closes;
+
+        private static Captures of(Stmt body) {
+            var captures = new Captures();
+
+            captures.visit(body);
+
+            return captures;
+        }
+
+        @Override
+        public Expr visitListForExpr(Expr.ListFor expr) {
+            declares = true;
+
+            return super.visitListForExpr(expr);
+        }
+
+        @Override
+        public Expr visitLambdaExpr(Expr.Lambda expr) {
+            closes = true;
+
+            return expr;
+        }
+
+        @Override
+        public Expr visitTryExpr(Expr.Try expr) {
+            declares = true;
+
+            return super.visitTryExpr(expr);
+        }
+
+        @Override
+        public Stmt visitDeclarationStmt(Stmt.Declaration stmt) {
+            declares = true;
+
+            return super.visitDeclarationStmt(stmt);
+        }
+
+        @Override
+        public Stmt visitForStmt(Stmt.For stmt) {
+            declares = true;
+
+            return super.visitForStmt(stmt);
+        }
+
+        @Override
+        public Stmt visitFunStmt(Stmt.Fun stmt) {
+            declares = closes = true;
+
+            return stmt;
+        }
+
+        @Override
+        public Stmt visitClassStmt(Stmt.Class stmt) {
+            declares = closes = true;
+
+            return stmt;
+        }
+    }
+}
@@ -8,11 +8,14 @@
  #                                          \___\  #
  #        Copyright (C) 2019, KakkoiiChris         #
  *#################################################*/
-package kakkoiichris.oahu.lexer;
+package kakkoiichris.oahu.runtime;
 
-public record Token<T extends TokenType>(Context context, T type) {
-    @Override
-    public String toString() {
-        return String.format("%s%s", type, context);
+public enum Engine {
+    AST,
+    VM,
+    CLOSURE;
+
+    public static Engine get(String name) {
+        return valueOf(name.toUpperCase());
     }
 }
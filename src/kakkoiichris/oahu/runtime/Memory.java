@@ -10,148 +10,263 @@
  *#################################################*/
 package kakkoiichris.oahu.runtime;
 
-import kakkoiichris.oahu.runtime.data.Instance;
-
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Stack;
 
 public class Memory {
-    private final Stack<Scope> scopes = new Stack<>();
+    private Scope[] scopes = new Scope[64];
 
-    private final Map<Object, Instance.Primitive<?>> primitives = new HashMap<>();
+    private int top = -1;
 
     public void push(Scope scope) {
-        scopes.push(scope);
+        scope.capture();
+
+        grow();
+
+        scopes[++top] = scope;
+    }
+
+    public void push(Scope parent, int size) {
+        grow();
+
+        var scope = scopes[++top];
+
+        if (scope == null || scope.captured || scope.capacity() < size) {
+            scopes[top] = new Scope("", parent, size);
+        }
+        else {
+            scope.reset(parent, size);
+        }
     }
 
-    public void push() {
-        scopes.push(new Scope("", peek()));
+    public void push(int size) {
+        push(peek(), size);
     }
 
-    public void pushGlobal() {
-        scopes.push(new Scope("", null));
+    public void pushGlobal(int size) {
+        push(null, size);
     }
 
     public void pop() {
-        scopes.pop();
+        top--;
     }
 
     public Scope peek() {
-        return scopes.peek();
+        return scopes[top];
     }
 
-    public boolean isEmpty() {
-        return scopes.isEmpty();
+    public Scope peek(int depth) {
+        var scope = scopes[top];
+
+        for (var i = 0; i < depth; i++) {
+            scope = scope.parent;
+        }
+
+        return scope;
+    }
+
+    public Scope capture() {
+        var scope = peek();
+
+        scope.capture();
+
+        return scope;
     }
 
-    public Optional<Reference> get(String name) {
-        for (var scope : scopes) {
-            var ref = scope.get(name);
+    public boolean isEmpty() {
+        return top < 0;
+    }
 
-            if (ref.isPresent()) {
-                return ref;
+    public Optional<Scope> find(String name) {
+        for (var scope = peek(); scope != null; scope = scope.parent) {
+            if (scope.indexOf(name) >= 0) {
+                return Optional.of(scope);
             }
         }
 
         return Optional.empty();
     }
 
+    public Optional<Object> get(String name) {
+        return find(name).map(scope -> scope.get(name));
+    }
+
+    public Object get(int depth, int slot) {
+        return peek(depth).get(slot);
+    }
+
     public boolean newRef(boolean constant, boolean mutable, String name, Object value) {
-        return scopes.peek().newRef(constant, mutable, name, value);
+        return peek().newRef(constant, mutable, name, value);
     }
 
-    public boolean newLet(boolean mutable,String name, Object value) {
-        return scopes.peek().newLet(mutable, name, value);
+    public void newRef(int slot, boolean constant, boolean mutable, Object value) {
+        peek().newRef(slot, constant, mutable, value);
     }
 
-    public boolean newVar(boolean mutable,String name, Object value) {
-        return scopes.peek().newVar(mutable, name, value);
+    public boolean newLet(boolean mutable, String name, Object value) {
+        return peek().newLet(mutable, name, value);
     }
 
-    public Optional<Instance.Primitive<?>> getPrimitive(Object key) {
-        return Optional.ofNullable(primitives.get(key));
+    public boolean newVar(boolean mutable, String name, Object value) {
+        return peek().newVar(mutable, name, value);
     }
 
-    public void setPrimitive(Object key, Instance.Primitive<?> primitive) {
-        primitives.put(key, primitive);
+    private void grow() {
+        if (top + 1 == scopes.length) {
+            scopes = Arrays.copyOf(scopes, scopes.length * 2);
+        }
     }
 
     public static class Scope {
         protected final String id;
-        protected final Scope parent;
 
-        protected final Map<String, Reference> references = new HashMap<>();
+        protected Scope parent;
 
-        public Scope(String id, Scope parent) {
+        private Object[] slots;
+        private long[] constants;
+        private long[] mutables;
+
+        private int size;
+
+        private Map<String, Integer> names;
+        private String[] keys;
+
+        private boolean captured;
+
+        public Scope(String id, Scope parent, int size) {
             this.id = id;
             this.parent = parent;
+            this.size = size;
+
+            slots = new Object[size];
+            constants = new long[words(size)];
+            mutables = new long[words(size)];
         }
 
-        public Optional<Reference> get(String name) {
-            if (references.containsKey(name)) {
-                return Optional.of(references.get(name));
-            }
+        public Scope(String id, Scope parent) {
+            this(id, parent, 0);
+        }
 
-            return Optional.empty();
+        private static int words(int size) {
+            return (size + 63) >>> 6;
         }
 
-        public boolean newRef(boolean constant, boolean mutable, String name, Object value) {
-            var reference = get(name);
+        private int capacity() {
+            return slots.length;
+        }
 
-            if (reference.isPresent()) {
-                return false;
+        private void reset(Scope parent, int size) {
+            this.parent = parent;
+            this.size = size;
+
+            Arrays.fill(slots, 0, size, null);
+            Arrays.fill(constants, 0, words(size), 0L);
+            Arrays.fill(mutables, 0, words(size), 0L);
+
+            names = null;
+            keys = null;
+        }
+
+        private void capture() {
+            for (var scope = this; scope != null && !scope.captured; scope = scope.parent) {
+                scope.captured = true;
             }
+        }
 
-            references.put(name, new Reference(constant, mutable, value));
+        public Scope getParent() {
+            return parent;
+        }
 
-            return true;
+        public Object get(int slot) {
+            return slots[slot];
         }
 
-        public boolean newLet(boolean mutable, String name, Object value) {
-            return newRef(true, mutable, name, value);
+        public void set(int slot, Object value) {
+            slots[slot] = value;
         }
 
-        public boolean newVar(boolean mutable, String name, Object value) {
-            return newRef(false, mutable, name, value);
+        public boolean isConstant(int slot) {
+            return (constants[slot >>> 6] & (1L << slot)) != 0;
         }
-    }
 
-    public static final class Reference {
-        private final boolean isConstant;
-        private final boolean isMutable;
+        public boolean isMutable(int slot) {
+            return (mutables[slot >>> 6] & (1L << slot)) != 0;
+        }
 
-        private Object value;
+        public int indexOf(String name) {
+            if (names == null) {
+                return -1;
+            }
 
-        public Reference(boolean isConstant, boolean isMutable, Object value) {
-            this.isConstant = isConstant;
-            this.isMutable = isMutable;
-            this.value = value;
+            return names.getOrDefault(name, -1);
         }
 
-        public boolean isConstant() {
-            return isConstant;
+        public String keyAt(int slot) {
+            if (keys == null || slot >= keys.length) {
+                return null;
+            }
+
+            return keys[slot];
         }
 
-        public boolean isMutable() {
-            return isMutable;
+        public Object get(String name) {
+            var slot = indexOf(name);
+
+            if (slot < 0) {
+                return null;
+            }
+
+            return slots[slot];
         }
 
-        public Object getValue() {
-            return value;
+        public void newRef(int slot, boolean constant, boolean mutable, Object value) {
+            var word = slot >>> 6;
+            var bit = 1L << slot;
+
+            constants[word] = constant ? constants[word] | bit : constants[word] & ~bit;
+            mutables[word] = mutable ? mutables[word] | bit : mutables[word] & ~bit;
+
+            slots[slot] = value;
         }
 
-        public void setValue(Object value) {
-            this.value = value;
+        public boolean newRef(boolean constant, boolean mutable, String name, Object value) {
+            if (indexOf(name) >= 0) {
+                return false;
+            }
+
+            if (names == null) {
+                names = new HashMap<>();
+                keys = new String[slots.length];
+            }
+
+            var slot = size++;
+
+            if (slot == slots.length) {
+                slots = Arrays.copyOf(slots, Math.max(4, slots.length * 2));
+                constants = Arrays.copyOf(constants, words(slots.length));
+                mutables = Arrays.copyOf(mutables, words(slots.length));
+            }
+
+            if (slot >= keys.length) {
+                keys = Arrays.copyOf(keys, slots.length);
+            }
+
+            names.put(name, slot);
+            keys[slot] = name;
+
+            newRef(slot, constant, mutable, value);
+
+            return true;
         }
-    }
 
-    public static Object fromReference(Object x) {
-        if (x instanceof Reference r) {
-            return r.getValue();
+        public boolean newLet(boolean mutable, String name, Object value) {
+            return newRef(true, mutable, name, value);
         }
 
-        return x;
+        public boolean newVar(boolean mutable, String name, Object value) {
+            return newRef(false, mutable, name, value);
+        }
     }
 }
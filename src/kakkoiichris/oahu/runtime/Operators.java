@@ -0,0 +1,405 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.runtime;
+
+import kakkoiichris.oahu.parser.Expr;
+import kakkoiichris.oahu.runtime.data.Unit;
+
+public final class Operators {
+    private Operators() {
+    }
+
+    public static Object unary(Expr.Unary.Operator operator, Object e) {
+        return switch (operator) {
+            case NEGATIVE -> negate(e);
+
+            case NOT -> not(e);
+
+            default -> Unit.get();
+        };
+    }
+
+    public static Object binary(Expr.Binary.Operator operator, Object l, Object r) {
+        return switch (operator) {
+            case OR -> or(l, r);
+
+            case AND -> and(l, r);
+
+            case EQUAL -> equal(l, r);
+
+            case NOT_EQUAL -> notEqual(l, r);
+
+            case LESS -> less(l, r);
+
+            case LESS_EQUAL -> lessEqual(l, r);
+
+            case GREATER -> greater(l, r);
+
+            case GREATER_EQUAL -> greaterEqual(l, r);
+
+            case ADD -> add(l, r);
+
+            case SUBTRACT -> subtract(l, r);
+
+            case MULTIPLY -> multiply(l, r);
+
+            case DIVIDE -> divide(l, r);
+
+            case MODULUS -> modulus(l, r);
+        };
+    }
+
+    public static boolean isSpecializable(Expr.Binary.Operator operator, Object l) {
+        return switch (operator) {
+            case OR, AND -> false;
+
+            case SUBTRACT, DIVIDE, MODULUS -> l instanceof Double;
+
+            default -> l instanceof Double || l instanceof String;
+        };
+    }
+
+    public static Expr.Binary.Specialization specialize(Expr.Binary.Operator operator, Object l, Object r) {
+        var specialization = specialize(l, r);
+
+        var valid = switch (operator) {
+            case OR, AND -> false;
+
+            case EQUAL, NOT_EQUAL, ADD -> true;
+
+            case LESS, LESS_EQUAL, GREATER, GREATER_EQUAL -> specialization == Expr.Binary.Specialization.NUMBER_NUMBER || specialization == Expr.Binary.Specialization.STRING_STRING;
+
+            case MULTIPLY -> specialization == Expr.Binary.Specialization.NUMBER_NUMBER || specialization == Expr.Binary.Specialization.STRING_NUMBER;
+
+            case SUBTRACT, DIVIDE, MODULUS -> specialization == Expr.Binary.Specialization.NUMBER_NUMBER;
+        };
+
+        return valid ? specialization : Expr.Binary.Specialization.GENERIC;
+    }
+
+    private static Expr.Binary.Specialization specialize(Object l, Object r) {
+        if (l instanceof Double) {
+            if (r instanceof Double) {
+                return Expr.Binary.Specialization.NUMBER_NUMBER;
+            }
+
+            if (r instanceof String) {
+                return Expr.Binary.Specialization.NUMBER_STRING;
+            }
+        }
+
+        if (l instanceof String) {
+            if (r instanceof Double) {
+                return Expr.Binary.Specialization.STRING_NUMBER;
+            }
+
+            if (r instanceof String) {
+                return Expr.Binary.Specialization.STRING_STRING;
+            }
+        }
+
+        return Expr.Binary.Specialization.GENERIC;
+    }
+
+    public static boolean isArithmetic(Expr.Binary.Operator operator) {
+        return switch (operator) {
+            case ADD, SUBTRACT, MULTIPLY, DIVIDE, MODULUS -> true;
+
+            default -> false;
+        };
+    }
+
+    public static double arithmetic(Expr.Binary.Operator operator, double l, double r) {
+        return switch (operator) {
+            case ADD -> l + r;
+
+            case SUBTRACT -> l - r;
+
+            case MULTIPLY -> l * r;
+
+            case DIVIDE -> l / r;
+
+            case MODULUS -> modulus(l, r);
+
+            default -> Double.NaN;
+        };
+    }
+
+    public static boolean comparison(Expr.Binary.Operator operator, double l, double r) {
+        return switch (operator) {
+            case LESS -> l < r;
+
+            case LESS_EQUAL -> l <= r;
+
+            case GREATER -> l > r;
+
+            case GREATER_EQUAL -> l >= r;
+
+            default -> false;
+        };
+    }
+
+    public static Object numbers(Expr.Binary.Operator operator, double l, double r) {
+        return switch (operator) {
+            case EQUAL -> Double.compare(l, r) == 0;
+
+            case NOT_EQUAL -> Double.compare(l, r) != 0;
+
+            case LESS -> l < r;
+
+            case LESS_EQUAL -> l <= r;
+
+            case GREATER -> l > r;
+
+            case GREATER_EQUAL -> l >= r;
+
+            case ADD -> l + r;
+
+            case SUBTRACT -> l - r;
+
+            case MULTIPLY -> l * r;
+
+            case DIVIDE -> l / r;
+
+            case MODULUS -> modulus(l, r);
+
+            default -> Invalid.LEFT;
+        };
+    }
+
+    private static double modulus(double l, double r) {
+        // Compiled drem is a slow runtime call, so integral operands take the exact long path
+        if (Math.abs(l) < 0x1p53 && l == (long) l && r == (long) r && r != 0) {
+            var result = (long) l % (long) r;
+
+            return result == 0 ? Math.copySign(0.0, l) : result;
+        }
+
+        return l % r;
+    }
+
+    public static Object numberString(Expr.Binary.Operator operator, double l, String r) {
+        return switch (operator) {
+            case EQUAL -> false;
+
+            case NOT_EQUAL -> true;
+
+            case ADD -> l + r;
+
+            default -> Invalid.RIGHT;
+        };
+    }
+
+    public static Object stringNumber(Expr.Binary.Operator operator, String l, double r) {
+        return switch (operator) {
+            case EQUAL -> false;
+
+            case NOT_EQUAL -> true;
+
+            case ADD -> l + r;
+
+            case MULTIPLY -> l.repeat((int) r);
+
+            default -> Invalid.RIGHT;
+        };
+    }
+
+    public static Object strings(Expr.Binary.Operator operator, String l, String r) {
+        return switch (operator) {
+            case EQUAL -> l.equals(r);
+
+            case NOT_EQUAL -> !l.equals(r);
+
+            case LESS -> l.compareTo(r) < 0;
+
+            case LESS_EQUAL -> l.compareTo(r) <= 0;
+
+            case GREATER -> l.compareTo(r) > 0;
+
+            case GREATER_EQUAL -> l.compareTo(r) >= 0;
+
+            case ADD -> l + r;
+
+            default -> Invalid.RIGHT;
+        };
+    }
+
+    public static Object negate(Object e) {
+        if (e instanceof Double d) {
+            return -d;
+        }
+
+        if (e instanceof String s) {
+            return new StringBuilder(s)
+                .reverse()
+                .toString();
+        }
+
+        return Invalid.LEFT;
+    }
+
+    public static Object not(Object e) {
+        if (e instanceof Boolean b) {
+            return !b;
+        }
+
+        return Invalid.LEFT;
+    }
+
+    public static Object or(Object l, Object r) {
+        if (l instanceof Boolean b && b) {
+            return true;
+        }
+
+        if (r instanceof Boolean) {
+            return r;
+        }
+
+        return Invalid.LEFT;
+    }
+
+    public static Object and(Object l, Object r) {
+        if (l instanceof Boolean b && !b) {
+            return false;
+        }
+
+        if (r instanceof Boolean) {
+            return r;
+        }
+
+        return Invalid.LEFT;
+    }
+
+    public static Object equal(Object l, Object r) {
+        return l.equals(r);
+    }
+
+    public static Object notEqual(Object l, Object r) {
+        return !l.equals(r);
+    }
+
+    public static Object less(Object l, Object r) {
+        if (l instanceof Double da) {
+            return r instanceof Double db ? (Object) (da < db) : Invalid.RIGHT;
+        }
+
+        if (l instanceof String sa) {
+            return r instanceof String sb ? (Object) (sa.compareTo(sb) < 0) : Invalid.RIGHT;
+        }
+
+        return Invalid.LEFT;
+    }
+
+    public static Object lessEqual(Object l, Object r) {
+        if (l instanceof Double da) {
+            return r instanceof Double db ? (Object) (da <= db) : Invalid.RIGHT;
+        }
+
+        if (l instanceof String sa) {
+            return r instanceof String sb ? (Object) (sa.compareTo(sb) <= 0) : Invalid.RIGHT;
+        }
+
+        return Invalid.LEFT;
+    }
+
+    public static Object greater(Object l, Object r) {
+        if (l instanceof Double da) {
+            return r instanceof Double db ? (Object) (da > db) : Invalid.RIGHT;
+        }
+
+        if (l instanceof String sa) {
+            return r instanceof String sb ? (Object) (sa.compareTo(sb) > 0) : Invalid.RIGHT;
+        }
+
+        return Invalid.LEFT;
+    }
+
+    public static Object greaterEqual(Object l, Object r) {
+        if (l instanceof Double da) {
+            return r instanceof Double db ? (Object) (da >= db) : Invalid.RIGHT;
+        }
+
+        if (l instanceof String sa) {
+            return r instanceof String sb ? (Object) (sa.compareTo(sb) >= 0) : Invalid.RIGHT;
+        }
+
+        return Invalid.LEFT;
+    }
+
+    public static Object add(Object l, Object r) {
+        if (l instanceof Double da) {
+            if (r instanceof Double db) {
+                return da + db;
+            }
+
+            if (r instanceof String sb) {
+                return da + sb;
+            }
+
+            return Invalid.RIGHT;
+        }
+
+        if (l instanceof String sa) {
+            if (r instanceof Double db) {
+                return sa + db;
+            }
+
+            if (r instanceof String sb) {
+                return sa + sb;
+            }
+
+            return Invalid.RIGHT;
+        }
+
+        return Invalid.LEFT;
+    }
+
+    public static Object subtract(Object l, Object r) {
+        if (l instanceof Double da) {
+            return r instanceof Double db ? (Object) (da - db) : Invalid.RIGHT;
+        }
+
+        return Invalid.LEFT;
+    }
+
+    public static Object multiply(Object l, Object r) {
+        if (l instanceof Double da) {
+            return r instanceof Double db ? (Object) (da * db) : Invalid.RIGHT;
+        }
+
+        if (l instanceof String sa) {
+            return r instanceof Double db ? (Object) sa.repeat(db.intValue()) : Invalid.RIGHT;
+        }
+
+        return Invalid.LEFT;
+    }
+
+    public static Object divide(Object l, Object r) {
+        if (l instanceof Double da) {
+            return r instanceof Double db ? (Object) (da / db) : Invalid.RIGHT;
+        }
+
+        return Invalid.LEFT;
+    }
+
+    public static Object modulus(Object l, Object r) {
+        if (l instanceof Double da) {
+            return r instanceof Double db ? (Object) (da % db) : Invalid.RIGHT;
+        }
+
+        return Invalid.LEFT;
+    }
+
+    public enum Invalid {
+        LEFT,
+        RIGHT
+    }
+}
@@ -13,28 +13,78 @@ package kakkoiichris.oahu.runtime;
 import kakkoiichris.oahu.parser.Expr;
 
 public sealed class Redirect extends RuntimeException {
+    private Redirect() {
+        super(null, null, false, false);
+    }
+
     public static final class Break extends Redirect {
+        private static final Break UNLABELED = new Break(Expr.Name.none());
+
         private final Expr.Name label;
         
-        public Break(Expr.Name label) {
+        private Break(Expr.Name label) {
             this.label = label;
         }
+
+        public static Break of(Expr.Name label) {
+            if (label.isEmpty()) {
+                return UNLABELED;
+            }
+
+            return new Break(label);
+        }
     
         public Expr.Name getLabel() {
             return label;
         }
+
+        public boolean matches(Expr.Name loop) {
+            return label.isEmpty() || label.equals(loop);
+        }
+
+        @Override
+        public String toString() {
+            if (label.isEmpty()) {
+                return "break";
+            }
+
+            return "break @ %s".formatted(label);
+        }
     }
     
     public static final class Continue extends Redirect {
+        private static final Continue UNLABELED = new Continue(Expr.Name.none());
+
         private final Expr.Name label;
         
-        public Continue(Expr.Name label) {
+        private Continue(Expr.Name label) {
             this.label = label;
         }
+
+        public static Continue of(Expr.Name label) {
+            if (label.isEmpty()) {
+                return UNLABELED;
+            }
+
+            return new Continue(label);
+        }
         
         public Expr.Name getLabel() {
             return label;
         }
+
+        public boolean matches(Expr.Name loop) {
+            return label.isEmpty() || label.equals(loop);
+        }
+
+        @Override
+        public String toString() {
+            if (label.isEmpty()) {
+                return "continue";
+            }
+
+            return "continue @ %s".formatted(label);
+        }
     }
     
     public static final class Exit extends Redirect {
@@ -47,18 +97,32 @@ public sealed class Redirect extends RuntimeException {
         public Object getValue() {
             return value;
         }
+
+        @Override
+        public String toString() {
+            return "exit";
+        }
     }
     
+    // Each runtime reuses one return: the value is set by the return statement and read by the call it returns from
+    // before anything else can run, so nested and recursive calls never see each other's value
     public static final class Return extends Redirect {
-        private final Object value;
-        
-        public Return(Object value) {
-            this.value = value;
-        }
-        
+        private Object value;
+
         public Object getValue() {
             return value;
         }
+
+        public Return withValue(Object value) {
+            this.value = value;
+
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return "return";
+        }
     }
     
     public static final class Throw extends Redirect {
@@ -71,5 +135,10 @@ public sealed class Redirect extends RuntimeException {
         public Object getValue() {
             return value;
         }
+
+        @Override
+        public String toString() {
+            return "throw";
+        }
     }
 }
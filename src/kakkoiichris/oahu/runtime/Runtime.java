@@ -10,6 +10,7 @@
  *#################################################*/
 package kakkoiichris.oahu.runtime;
 
+import kakkoiichris.oahu.jit.Jit;
 import kakkoiichris.oahu.parser.Callable;
 import kakkoiichris.oahu.parser.Expr;
 import kakkoiichris.oahu.parser.Program;
@@ -26,7 +27,7 @@ import kakkoiichris.oahu.util.Util;
 
 import java.util.*;
 
-public class Runtime implements Expr.Visitor<Object>, Stmt.Visitor<Unit> {
+public class Runtime implements Expr.Visitor<Object>, Stmt.Visitor<Object>, Script {
     private static final Map<Class<?>, String> primitives = Map.of(
         Boolean.class, "Bool",
         Double.class, "Number",
@@ -34,12 +35,25 @@ public class Runtime implements Expr.Visitor<Object>, Stmt.Visitor<Unit> {
         Table.class, "Table"
     );
 
+    private final Map<Class<?>, Instance> descriptors = new HashMap<>();
+
+    // Top-level classes by name; their names are resolved to slots, so the dynamic lookup in memory never sees them
+    private final Map<String, Stmt.Class> classes = new HashMap<>();
+
     private final Memory memory = new Memory();
 
+    private final Redirect.Return returned = new Redirect.Return();
+
     private final Source source;
     private final Program program;
     private final Linker linker;
 
+    private Jit jit;
+
+    private boolean specialize;
+
+    private Object escaped;
+
     public Runtime(Source source, Program program, Link... links) {
         this.source = source;
         this.program = program;
@@ -47,12 +61,31 @@ public class Runtime implements Expr.Visitor<Object>, Stmt.Visitor<Unit> {
         linker = new Linker(source, links);
     }
 
+    public void enableJit(int threshold) {
+        jit = new Jit(this, source, threshold);
+    }
+
+    public void enableSpecialization() {
+        specialize = true;
+    }
+
+    @Override
     public Result run() {
         try {
-            memory.pushGlobal();
+            memory.pushGlobal(program.locals());
 
             for (var stmt : program) {
-                visit(stmt);
+                var completion = visit(stmt);
+
+                if (completion instanceof Redirect.Return redirect) {
+                    var value = redirect.getValue();
+
+                    return new Result(value, value.toString());
+                }
+
+                if (completion instanceof Redirect redirect) {
+                    throw OahuError.unhandledRedirect(redirect, source, stmt.context());
+                }
             }
         }
         catch (Redirect.Return redirect) {
@@ -79,14 +112,38 @@ public class Runtime implements Expr.Visitor<Object>, Stmt.Visitor<Unit> {
 
     @Override
     public Object visitNameExpr(Expr.Name expr) {
-        return memory
-            .get(expr.value())
-            .orElseThrow(() -> OahuError.undefinedName(expr, source, expr.context()));
+        return lookup(expr);
+    }
+
+    private Object lookup(Expr.Name name) {
+        Object value;
+
+        if (name.isResolved()) {
+            value = memory.get(name.depth(), name.slot());
+        }
+        else {
+            value = memory.get(name.value()).orElse(null);
+        }
+
+        if (value == null) {
+            throw OahuError.undefinedName(name, source, name.context());
+        }
+
+        return value;
+    }
+
+    private void define(Expr.Name name, boolean constant, boolean mutable, Object value, long context) {
+        if (name.isResolved()) {
+            memory.newRef(name.slot(), constant, mutable, value);
+        }
+        else if (!memory.newRef(constant, mutable, name.value(), value)) {
+            throw OahuError.redefinedName(name, source, context);
+        }
     }
 
     @Override
     public Object visitUnaryExpr(Expr.Unary expr) {
-        var e = Memory.fromReference(visit(expr.expr()));
+        var e = visit(expr.expr());
 
         return switch (expr.operator()) {
             case NEGATIVE -> {
@@ -117,15 +174,173 @@ public class Runtime implements Expr.Visitor<Object>, Stmt.Visitor<Unit> {
 
     @Override
     public Object visitBinaryExpr(Expr.Binary expr) {
+        if (specialize) {
+            if (expr.getSpecialization() == Expr.Binary.Specialization.NUMBER_NUMBER) {
+                return numeric(expr);
+            }
+
+            return specialized(expr, visit(expr.left()));
+        }
+
+        return binary(expr, visit(expr.left()));
+    }
+
+    private Object numeric(Expr.Binary expr) {
+        var l = evalNumber(expr.left());
+
+        if (escaped != null) {
+            return specialized(expr, unescape());
+        }
+
+        var r = evalNumber(expr.right());
+
+        if (escaped != null) {
+            return generalized(expr, l, unescape());
+        }
+
+        return Operators.numbers(expr.operator(), l, r);
+    }
+
+    private double evalNumber(Expr expr) {
+        if (expr instanceof Expr.Binary binary && binary.getSpecialization() == Expr.Binary.Specialization.NUMBER_NUMBER && Operators.isArithmetic(binary.operator())) {
+            var l = evalNumber(binary.left());
+
+            if (escaped != null) {
+                return escape(specialized(binary, unescape()));
+            }
+
+            var r = evalNumber(binary.right());
+
+            if (escaped != null) {
+                return escape(generalized(binary, l, unescape()));
+            }
+
+            return Operators.arithmetic(binary.operator(), l, r);
+        }
+
+        var value = visit(expr);
+
+        if (value instanceof Double d) {
+            return d;
+        }
+
+        return escape(value);
+    }
+
+    private double escape(Object value) {
+        escaped = value;
+
+        return Double.NaN;
+    }
+
+    private Object unescape() {
+        var value = escaped;
+
+        escaped = null;
+
+        return value;
+    }
+
+    private Object specialized(Expr.Binary expr, Object l) {
+        var operator = expr.operator();
+
+        switch (expr.getSpecialization()) {
+            case UNINITIALIZED -> {
+                if (Operators.isSpecializable(operator, l)) {
+                    var r = visit(expr.right());
+
+                    expr.setSpecialization(Operators.specialize(operator, l, r));
+
+                    return checked(expr, l, r);
+                }
+            }
+
+            case NUMBER_NUMBER -> {
+                if (l instanceof Double a) {
+                    var r = visit(expr.right());
+
+                    if (r instanceof Double b) {
+                        return Operators.numbers(operator, a, b);
+                    }
+
+                    return generalized(expr, l, r);
+                }
+            }
+
+            case NUMBER_STRING -> {
+                if (l instanceof Double a) {
+                    var r = visit(expr.right());
+
+                    if (r instanceof String b) {
+                        return Operators.numberString(operator, a, b);
+                    }
+
+                    return generalized(expr, l, r);
+                }
+            }
+
+            case STRING_NUMBER -> {
+                if (l instanceof String a) {
+                    var r = visit(expr.right());
+
+                    if (r instanceof Double b) {
+                        return Operators.stringNumber(operator, a, b);
+                    }
+
+                    return generalized(expr, l, r);
+                }
+            }
+
+            case STRING_STRING -> {
+                if (l instanceof String a) {
+                    var r = visit(expr.right());
+
+                    if (r instanceof String b) {
+                        return Operators.strings(operator, a, b);
+                    }
+
+                    return generalized(expr, l, r);
+                }
+            }
+
+            case GENERIC -> {
+                return binary(expr, l);
+            }
+        }
+
+        expr.setSpecialization(Expr.Binary.Specialization.GENERIC);
+
+        return binary(expr, l);
+    }
+
+    private Object generalized(Expr.Binary expr, Object l, Object r) {
+        expr.setSpecialization(Expr.Binary.Specialization.GENERIC);
+
+        return checked(expr, l, r);
+    }
+
+    private Object checked(Expr.Binary expr, Object l, Object r) {
+        var result = Operators.binary(expr.operator(), l, r);
+
+        if (result == Operators.Invalid.LEFT) {
+            throw OahuError.invalidLeftOperand(l, expr.operator(), source, expr.left().context());
+        }
+
+        if (result == Operators.Invalid.RIGHT) {
+            throw OahuError.invalidRightOperand(r, expr.operator(), source, expr.right().context());
+        }
+
+        return result;
+    }
+
+    private Object binary(Expr.Binary expr, Object l) {
         return switch (expr.operator()) {
             case OR -> {
-                var l = Memory.fromReference(visit(expr.left()));
-
                 if (l instanceof Boolean b && b) {
                     yield true;
                 }
 
-                var r = Memory.fromReference(visit(expr.right()));
+                var r = visit(expr.right());
 
                 if (r instanceof Boolean) {
                     yield r;
@@ -135,13 +350,11 @@ public class Runtime implements Expr.Visitor<Object>, Stmt.Visitor<Unit> {
             }
 
             case AND -> {
-                var l = Memory.fromReference(visit(expr.left()));
-
                 if (l instanceof Boolean b && !b) {
                     yield false;
                 }
 
-                var r = Memory.fromReference(visit(expr.right()));
+                var r = visit(expr.right());
 
                 if (r instanceof Boolean) {
                     yield r;
@@ -151,24 +364,20 @@ public class Runtime implements Expr.Visitor<Object>, Stmt.Visitor<Unit> {
             }
 
             case EQUAL -> {
-                var l = Memory.fromReference(visit(expr.left()));
-                var r = Memory.fromReference(visit(expr.right()));
+                var r = visit(expr.right());
 
                 yield l.equals(r);
             }
 
             case NOT_EQUAL -> {
-                var l = Memory.fromReference(visit(expr.left()));
-                var r = Memory.fromReference(visit(expr.right()));
+                var r = visit(expr.right());
 
                 yield !l.equals(r);
             }
 
             case LESS -> {
-                var l = Memory.fromReference(visit(expr.left()));
-
                 if (l instanceof Double da) {
-                    var r = Memory.fromReference(visit(expr.right()));
+                    var r = visit(expr.right());
 
                     if (r instanceof Double db) {
                         yield da < db;
@@ -178,7 +387,7 @@ public class Runtime implements Expr.Visitor<Object>, Stmt.Visitor<Unit> {
                 }
 
                 if (l instanceof String sa) {
-                    var r = Memory.fromReference(visit(expr.right()));
+                    var r = visit(expr.right());
 
                     if (r instanceof String sb) {
                         yield sa.compareTo(sb) < 0;
@@ -191,10 +400,8 @@ public class Runtime implements Expr.Visitor<Object>, Stmt.Visitor<Unit> {
             }
 
             case LESS_EQUAL -> {
-                var l = Memory.fromReference(visit(expr.left()));
-
                 if (l instanceof Double da) {
-                    var r = Memory.fromReference(visit(expr.right()));
+                    var r = visit(expr.right());
 
                     if (r instanceof Double db) {
                         yield da <= db;
@@ -204,7 +411,7 @@ public class Runtime implements Expr.Visitor<Object>, Stmt.Visitor<Unit> {
                 }
 
                 if (l instanceof String sa) {
-                    var r = Memory.fromReference(visit(expr.right()));
+                    var r = visit(expr.right());
 
                     if (r instanceof String sb) {
                         yield sa.compareTo(sb) <= 0;
@@ -217,10 +424,8 @@ public class Runtime implements Expr.Visitor<Object>, Stmt.Visitor<Unit> {
             }
 
             case GREATER -> {
-                var l = Memory.fromReference(visit(expr.left()));
-
                 if (l instanceof Double da) {
-                    var r = Memory.fromReference(visit(expr.right()));
+                    var r = visit(expr.right());
 
                     if (r instanceof Double db) {
                         yield da > db;
@@ -230,7 +435,7 @@ public class Runtime implements Expr.Visitor<Object>, Stmt.Visitor<Unit> {
                 }
 
                 if (l instanceof String sa) {
-                    var r = Memory.fromReference(visit(expr.right()));
+                    var r = visit(expr.right());
 
                     if (r instanceof String sb) {
                         yield sa.compareTo(sb) > 0;
@@ -243,10 +448,8 @@ public class Runtime implements Expr.Visitor<Object>, Stmt.Visitor<Unit> {
             }
 
             case GREATER_EQUAL -> {
-                var l = Memory.fromReference(visit(expr.left()));
-
                 if (l instanceof Double da) {
-                    var r = Memory.fromReference(visit(expr.right()));
+                    var r = visit(expr.right());
 
                     if (r instanceof Double db) {
                         yield da >= db;
@@ -256,7 +459,7 @@ public class Runtime implements Expr.Visitor<Object>, Stmt.Visitor<Unit> {
                 }
 
                 if (l instanceof String sa) {
-                    var r = Memory.fromReference(visit(expr.right()));
+                    var r = visit(expr.right());
 
                     if (r instanceof String sb) {
                         yield sa.compareTo(sb) >= 0;
@@ -269,10 +472,8 @@ public class Runtime implements Expr.Visitor<Object>, Stmt.Visitor<Unit> {
             }
 
             case ADD -> {
-                var l = Memory.fromReference(visit(expr.left()));
-
                 if (l instanceof Double da) {
-                    var r = Memory.fromReference(visit(expr.right()));
+                    var r = visit(expr.right());
 
                     if (r instanceof Double db) {
                         yield da + db;
@@ -286,7 +487,7 @@ public class Runtime implements Expr.Visitor<Object>, Stmt.Visitor<Unit> {
                 }
 
                 if (l instanceof String sa) {
-                    var r = Memory.fromReference(visit(expr.right()));
+                    var r = visit(expr.right());
 
                     if (r instanceof Double db) {
                         yield sa + db;
@@ -303,10 +504,8 @@ public class Runtime implements Expr.Visitor<Object>, Stmt.Visitor<Unit> {
             }
 
             case SUBTRACT -> {
-                var l = Memory.fromReference(visit(expr.left()));
-
                 if (l instanceof Double da) {
-                    var r = Memory.fromReference(visit(expr.right()));
+                    var r = visit(expr.right());
 
                     if (r instanceof Double db) {
                         yield da - db;
@@ -319,10 +518,8 @@ public class Runtime implements Expr.Visitor<Object>, Stmt.Visitor<Unit> {
             }
 
             case MULTIPLY -> {
-                var l = Memory.fromReference(visit(expr.left()));
-
                 if (l instanceof Double da) {
-                    var r = Memory.fromReference(visit(expr.right()));
+                    var r = visit(expr.right());
 
                     if (r instanceof Double db) {
                         yield da * db;
@@ -332,7 +529,7 @@ public class Runtime implements Expr.Visitor<Object>, Stmt.Visitor<Unit> {
                 }
 
                 if (l instanceof String sa) {
-                    var r = Memory.fromReference(visit(expr.right()));
+                    var r = visit(expr.right());
 
                     if (r instanceof Double db) {
                         yield sa.repeat(db.intValue());
@@ -345,10 +542,8 @@ public class Runtime implements Expr.Visitor<Object>, Stmt.Visitor<Unit> {
             }
 
             case DIVIDE -> {
-                var l = Memory.fromReference(visit(expr.left()));
-
                 if (l instanceof Double da) {
-                    var r = Memory.fromReference(visit(expr.right()));
+                    var r = visit(expr.right());
 
                     if (r instanceof Double db) {
                         yield da / db;
@@ -361,13 +556,11 @@ public class Runtime implements Expr.Visitor<Object>, Stmt.Visitor<Unit> {
             }
 
             case MODULUS -> {
-                var l = Memory.fromReference(visit(expr.left()));
-
                 if (l instanceof Double da) {
-                    var r = Memory.fromReference(visit(expr.right()));
+                    var r = visit(expr.right());
 
                     if (r instanceof Double db) {
-                        yield da % db;
+                        yield Operators.arithmetic(expr.operator(), da, db);
                     }
 
                     throw OahuError.invalidRightOperand(r, expr.operator(), source, expr.right().context());
@@ -380,21 +573,31 @@ public class Runtime implements Expr.Visitor<Object>, Stmt.Visitor<Unit> {
 
     @Override
     public Object visitAssignExpr(Expr.Assign expr) {
-        var value = Memory.fromReference(visit(expr.value()));
+        var value = visit(expr.value());
 
-        var refOpt = memory.get(expr.name().value());
+        var name = expr.name();
 
-        if (refOpt.isEmpty()) {
-            throw OahuError.undefinedName(expr.name(), source, expr.name().context());
+        Memory.Scope scope;
+        int slot;
+
+        if (name.isResolved()) {
+            scope = memory.peek(name.depth());
+            slot = name.slot();
+        }
+        else {
+            scope = memory.find(name.value()).orElse(null);
+            slot = scope != null ? scope.indexOf(name.value()) : -1;
         }
 
-        var ref = refOpt.get();
+        if (scope == null || scope.get(slot) == null) {
+            throw OahuError.undefinedName(name, source, name.context());
+        }
 
-        if (ref.isConstant()) {
-            throw OahuError.reassignedConstant(source, expr.name().context());
+        if (scope.isConstant(slot)) {
+            throw OahuError.reassignedConstant(source, name.context());
         }
 
-        ref.setValue(value);
+        scope.set(slot, value);
 
         return value;
     }
@@ -405,59 +608,107 @@ public class Runtime implements Expr.Visitor<Object>, Stmt.Visitor<Unit> {
     }
 
     @Override
-    public Object visitInvokeExpr(Expr.Invoke expr) {
+    public Object visitMemberExpr(Expr.Member expr) {
         var target = visit(expr.target());
 
-        Callable<?> callable = Util.cast(Callable.class, target).orElseThrow(() -> OahuError.notCallableValueError(target, source, expr.context()));
+        return member(expr, target);
+    }
 
-        var exprs = callable.resolve(expr.args()).orElseThrow(); // TODO Resolve exprs
+    private Object member(Expr.Member expr, Object target) {
+        var instance = (target instanceof Instance i) ? i : descriptorOf(target).orElse(Null.get());
 
-        var args = new ArrayList<>();
+        var clazz = instance.getClazz();
 
-        for (var arg : exprs) {
-            var argValue = visit(arg);
+        var name = expr.member().value();
 
-            if (!(argValue instanceof Expr.Invoke.Vararg vararg)) {
-                continue;
+        var location = expr.locations().get(clazz);
+
+        if (location != null) {
+            Memory.Scope scope = instance;
+
+            for (var i = 0; i < location.hops(); i++) {
+                scope = scope.getParent();
             }
 
-            var list = new ArrayList<>();
+            if (name.equals(scope.keyAt(location.slot()))) {
+                return scope.get(location.slot());
+            }
+        }
 
-            for (var subExpr : vararg.exprs()) {
-                var subValue = visit(subExpr);
+        var hops = 0;
 
-                if (!(subValue instanceof Expr.Invoke.Spread spread)) {
-                    list.add(subValue);
+        for (Memory.Scope scope = instance; scope instanceof Instance && scope != Null.get(); scope = scope.getParent()) {
+            var slot = scope.indexOf(name);
 
-                    continue;
-                }
+            if (slot >= 0) {
+                expr.locations().put(clazz, new Expr.Member.Location(hops, slot));
 
-                var value = visit(spread.expr());
+                return scope.get(slot);
+            }
 
-                if (!(value instanceof Instance.Primitive<?> primitive)) {
-                    throw OahuError.notSpreadableValueError(value, source, spread.expr().context());
-                }
+            hops++;
+        }
 
-                switch (primitive) {
-                    case Instance.Primitive.String string -> {
-                        for (var c : string.getPrimitive().toCharArray()) {
-                            list.add(toInstance(String.valueOf(c)).orElseThrow());
-                        }
-                    }
+        throw OahuError.undefinedMember(expr.member(), target, source, expr.member().context());
+    }
 
-                    case Instance.Primitive.Table table -> {
-                        for (var x : table.getPrimitive()) {
-                            list.add(x);
-                        }
-                    }
+    @Override
+    public Object visitInvokeExpr(Expr.Invoke expr) {
+        Object receiver = null;
 
-                    default -> throw OahuError.notSpreadableValueError(primitive, source, spread.expr().context());
-                }
-            }
+        Object target;
+
+        if (expr.target() instanceof Expr.Member member) {
+            receiver = visit(member.target());
+
+            target = member(member, receiver);
+        }
+        else {
+            target = visit(expr.target());
+        }
+
+        if (!(target instanceof Callable<?> callable)) {
+            throw OahuError.notCallableValueError(target, source, expr.context());
+        }
+
+        var plan = expr.plans().get(callable.params());
+
+        if (plan == null) {
+            plan = callable.plan(expr.args()).orElseThrow(() -> OahuError.unresolvedArguments(callable, source, expr.context()));
+
+            expr.plans().put(callable.params(), plan);
+        }
+
+        var args = arguments(plan, expr.args());
+
+        if (receiver != null && callable instanceof Stmt.Fun fun) {
+            return invokeMethod(receiver, fun, args);
+        }
+
+        return invoke(callable, args);
+    }
+
+    public Object call(Object target, List<Object> args, long context) {
+        if (!(target instanceof Callable<?> callable)) {
+            throw OahuError.notCallableValueError(target, source, context);
+        }
+
+        if (callable instanceof Stmt.Fun fun && args.size() == fun.arity() && (args.isEmpty() || !fun.params().getLast().isVarargs())) {
+            return invokeFun(fun, args);
+        }
 
-            args.add(toInstance(new Table(list, new HashMap<>())).orElseThrow());
+        var positional = new ArrayList<Expr.Invoke.Arg>();
+
+        for (var arg : args) {
+            positional.add(new Expr.Invoke.Arg(context, false, Expr.Name.none(), Expr.toExpr(arg)));
         }
 
+        var plan = callable.plan(positional).orElseThrow(() -> OahuError.unresolvedArguments(callable, source, context));
+
+        return invoke(callable, arguments(plan, positional));
+    }
+
+    private Object invoke(Callable<?> callable, List<Object> args) {
         return switch (callable) {
             case Stmt.Fun fun -> invokeFun(fun, args);
 
@@ -465,33 +716,103 @@ public class Runtime implements Expr.Visitor<Object>, Stmt.Visitor<Unit> {
         };
     }
 
+    private List<Object> arguments(Callable.Plan plan, List<Expr.Invoke.Arg> args) {
+        var sources = plan.sources();
+
+        var values = new Object[sources.length];
+
+        for (var i = 0; i < sources.length; i++) {
+            var source = sources[i];
+
+            if (source >= 0) {
+                values[i] = visit(args.get(source).expr());
+            }
+            else if (source == Callable.Plan.DEFAULT) {
+                values[i] = plan.params().get(i).defaultValue();
+            }
+            else {
+                values[i] = vararg(plan, args);
+            }
+        }
+
+        return Arrays.asList(values);
+    }
+
+    private Table vararg(Callable.Plan plan, List<Expr.Invoke.Arg> args) {
+        var list = new ArrayList<>();
+
+        for (var index : plan.varargs()) {
+            var arg = args.get(index);
+
+            var value = visit(arg.expr());
+
+            if (!arg.spread()) {
+                list.add(value);
+
+                continue;
+            }
+
+            switch (value) {
+                case String string -> {
+                    for (var c : string.toCharArray()) {
+                        list.add(String.valueOf(c));
+                    }
+                }
+
+                case Table table -> list.addAll(table.list());
+
+                default -> throw OahuError.notSpreadableValueError(value, source, arg.expr().context());
+            }
+        }
+
+        return new Table(list, new HashMap<>());
+    }
+
     private Object invokeFun(Stmt.Fun fun, List<Object> args) {
         var scope = fun.scope();
 
-        Object result;
+        if (jit != null && !fun.isLinked()) {
+            var compiled = jit.lookup(fun);
 
-        try {
-            memory.push(new Memory.Scope(String.format("%s inner", fun.path()), scope));
+            if (compiled != null) {
+                var values = new Object[args.size()];
 
-            if (fun.isLinked()) {
-                if (!fun.getLink().resolve(args)) {
-                    throw OahuError.linkResolutionError(fun.path(), fun.getLink().arity(), args.size());
+                for (var i = 0; i < values.length; i++) {
+                    var arg = args.get(i);
+
+                    values[i] = arg == fun.params().get(i).defaultValue() ? null : arg;
                 }
 
-                var instance = (scope instanceof Instance i) ? i : Null.get();
+                return compiled.invoke(scope, values);
+            }
+        }
+
+        Object result;
 
-                result = fun.getLink().invoke(this, instance, args);
+        try {
+            memory.push(scope, fun.locals());
+
+            if (fun.isLinked()) {
+                result = invokeLink(fun, null, args);
             }
             else {
                 for (var i = 0; i < fun.params().size(); i++) {
                     var param = fun.params().get(i);
 
-                    if (!memory.newLet(param.isMutable(), param.name().value(), args.get(i))) {
-                        throw OahuError.redefinedName(param.name(), source, param.context());
-                    }
+                    define(param.name(), true, param.isMutable(), argument(param, args.get(i)), param.context());
                 }
 
-                result = visit(fun.body());
+                var completion = visit(fun.body());
+
+                if (completion instanceof Redirect.Return r) {
+                    result = r.getValue();
+                }
+                else if (completion instanceof Redirect r) {
+                    throw OahuError.unhandledRedirect(r, source, fun.context());
+                }
+                else {
+                    result = completion;
+                }
             }
         }
         catch (Redirect.Return r) {
@@ -507,45 +828,44 @@ public class Runtime implements Expr.Visitor<Object>, Stmt.Visitor<Unit> {
             memory.pop();
         }
 
-        //TODO
-        return toInstance(result).orElseThrow();
+        return result;
+    }
+
+    private Object argument(Callable.Param param, Object arg) {
+        if (arg == param.defaultValue()) {
+            return visit(param.defaultValue());
+        }
+
+        return arg;
     }
 
-    private Instance invokeClass(Stmt.Class clazz, List<Object> args, Object primitive) {
+    private Instance invokeClass(Stmt.Class clazz, List<Object> args) {
         try {
-            memory.push();
+            memory.push(clazz.scope(), clazz.locals());
 
             for (var i = 0; i < clazz.params().size(); i++) {
                 var param = clazz.params().get(i);
 
-                if (!memory.newLet(param.isMutable(), param.name().value(), args.get(i))) {
-                    throw OahuError.redefinedName(param.name(), source, param.name().context());
-                }
+                define(param.name(), true, param.isMutable(), argument(param, args.get(i)), param.name().context());
             }
 
-            var base = Util.cast(Memory.Scope.class, Memory.fromReference(visit(clazz.base()))).filter(i -> i != Null.get()).orElse(memory.peek());
+            var base = Util.cast(Memory.Scope.class, visit(clazz.base())).filter(i -> i != Null.get()).orElse(memory.capture());
 
             var instance = new Instance(clazz, base, this);
 
-            if (primitives.containsValue(clazz.path())) {
-                if (primitive == null) {
-                    throw OahuError.failure("Primitive for wrapper class is broken!");
+            for (var param : clazz.params()) {
+                if (param.isConstant() != null) {
+                    instance.newRef(param.isConstant(), param.isMutable(), param.name().value(), lookup(param.name()));
                 }
-
-                //instance.setPrimitive(primitive);
             }
 
             try {
                 memory.push(instance);
 
-                for (var param : clazz.params()) {
-                    if (param.isConstant() != null) {
-                        memory.newRef(param.isConstant(), param.isMutable(), param.name().value(), memory.get(param.name().value()).orElseThrow(() -> OahuError.undefinedName(param.name(), source, param.name().context())));
-                    }
-                }
-
                 for (var stmt : clazz.init()) {
-                    visit(stmt);
+                    if (visit(stmt) instanceof Redirect r) {
+                        throw OahuError.unhandledRedirect(r, source, stmt.context());
+                    }
                 }
             }
             finally {
@@ -584,50 +904,50 @@ public class Runtime implements Expr.Visitor<Object>, Stmt.Visitor<Unit> {
         }
     }
 
-    private Instance invokeClass(Stmt.Class clazz, List<Object> args) {
-        return invokeClass(clazz, args, null);
-    }
-
-    private Instance invokeClass(Stmt.Class clazz, Object primitive) {
-        return invokeClass(clazz, List.of(), primitive);
-    }
+    public Optional<Instance> descriptorOf(Object value) {
+        var type = value.getClass();
 
-    private Instance invokeClass(Stmt.Class clazz) {
-        return invokeClass(clazz, List.of(), null);
-    }
+        var descriptor = descriptors.get(type);
 
-    public Optional<Object> toInstance(Object value) {
-        if (value instanceof Callable<?> || value instanceof Instance) {
-            return Optional.of(value);
+        if (descriptor != null) {
+            return Optional.of(descriptor);
         }
 
-        var primitive = memory.getPrimitive(value);
+        var className = primitives.get(type);
 
-        if (primitive.isPresent()) {
-            return Optional.of(primitive.get());
+        if (className == null) {
+            return Optional.empty();
         }
 
-        if (memory.isEmpty()) {
+        var clazz = classes.get(className);
+
+        if (clazz == null) {
             return Optional.empty();
         }
 
-        var className = primitives.getOrDefault(value.getClass(), "");
+        descriptor = invokeClass(clazz, List.of());
 
-        if (className.isEmpty()) {
-            return Optional.empty();
+        descriptors.put(type, descriptor);
+
+        return Optional.of(descriptor);
+    }
+
+    public Object invokeMethod(Object receiver, Stmt.Fun fun, List<Object> args) {
+        if (fun.isLinked()) {
+            return invokeLink(fun, receiver, args);
         }
 
-        var clazz = memory
-            .get(className)
-            .flatMap(x -> Util.cast(Stmt.Class.class, x))
-            .orElseThrow(() -> OahuError.failure("Broken primitive instance conversion!"));
+        return invokeFun(fun, args);
+    }
 
-        //TODO
-        var instance = Util.cast(Instance.Primitive.class, invokeClass(clazz, value)).orElseThrow();
+    private Object invokeLink(Stmt.Fun fun, Object receiver, List<Object> args) {
+        if (!fun.getLink().resolve(args)) {
+            throw OahuError.linkResolutionError(fun.path(), fun.getLink().arity(), args.size());
+        }
 
-        memory.setPrimitive(value, instance);
+        var instance = (fun.scope() instanceof Instance i) ? i : Null.get();
 
-        return Optional.of(instance);
+        return fun.getLink().invoke(this, instance, receiver == null ? instance : receiver, args);
     }
 
     @Override
@@ -650,22 +970,19 @@ public class Runtime implements Expr.Visitor<Object>, Stmt.Visitor<Unit> {
 
     @Override
     public Object visitLambdaExpr(Expr.Lambda expr) {
-        return expr.fun();
+        var copy = expr.fun().copy();
+
+        copy.setScope(memory.capture());
+
+        return copy;
     }
 
     @Override
     public Object visitBlockExpr(Expr.Block expr) {
         Object last = Unit.get();
 
-        try {
-            memory.push();
-
-            for (var subExpr : expr.exprs()) {
-                last = visit(subExpr);
-            }
-        }
-        finally {
-            memory.pop();
+        for (var subExpr : expr.exprs()) {
+            last = visit(subExpr);
         }
 
         return last;
@@ -673,7 +990,13 @@ public class Runtime implements Expr.Visitor<Object>, Stmt.Visitor<Unit> {
 
     @Override
     public Object visitIfExpr(Expr.If expr) {
-        return null;
+        var condition = visit(expr.condition());
+
+        if (condition instanceof Boolean bool && bool) {
+            return visit(expr.body());
+        }
+
+        return visit(expr.elze());
     }
 
     @Override
@@ -696,120 +1019,351 @@ public class Runtime implements Expr.Visitor<Object>, Stmt.Visitor<Unit> {
 
     @Override
     public Object visitStatementExpr(Expr.Statement expr) {
-        return visit(expr.stmt());
+        var completion = visit(expr.stmt());
+
+        if (completion instanceof Redirect redirect) {
+            throw redirect;
+        }
+
+        return completion;
+    }
+
+    private Object execute(Expr expr) {
+        switch (expr) {
+            case Expr.Statement statement -> {
+                return visit(statement.stmt());
+            }
+
+            case Expr.Block block -> {
+                for (var subExpr : block.exprs()) {
+                    var completion = execute(subExpr);
+
+                    if (completion instanceof Redirect) {
+                        return completion;
+                    }
+                }
+
+                return Unit.get();
+            }
+
+            case Expr.If ifExpr -> {
+                var condition = visit(ifExpr.condition());
+
+                if (condition instanceof Boolean bool && bool) {
+                    return execute(ifExpr.body());
+                }
+
+                return execute(ifExpr.elze());
+            }
+
+            case Expr.When when -> {
+                for (var branch : when.branches()) {
+                    var condition = visit(branch.condition());
+
+                    if (condition instanceof Boolean bool && bool) {
+                        return execute(branch.body());
+                    }
+                }
+
+                return execute(when.elze());
+            }
+
+            default -> {
+                visit(expr);
+
+                return Unit.get();
+            }
+        }
+    }
+
+    private boolean isTrue(Expr condition) {
+        return visit(condition) instanceof Boolean bool && bool;
     }
 
     @Override
-    public Unit visitEmptyStmt(Stmt.Empty stmt) {
+    public Object visitEmptyStmt(Stmt.Empty stmt) {
         return Unit.get();
     }
 
     @Override
-    public Unit visitExpressionStmt(Stmt.Expression stmt) {
-        visit(stmt.expr());
-
-        return Unit.get();
+    public Object visitExpressionStmt(Stmt.Expression stmt) {
+        return execute(stmt.expr());
     }
 
     @Override
-    public Unit visitDeclarationStmt(Stmt.Declaration stmt) {
+    public Object visitDeclarationStmt(Stmt.Declaration stmt) {
         var constant = stmt.constant();
         var mutable = stmt.mutable();
         var destructured = stmt.destructured();
 
         var value = visit(stmt.expr());
 
-        if (!destructured && !memory.newRef(constant, mutable, stmt.names().getFirst().value(), value)) {
-
+        if (!destructured) {
+            define(stmt.names().getFirst(), constant, mutable, value, stmt.context());
         }
 
         return Unit.get();
     }
 
     @Override
-    public Unit visitBlockStmt(Stmt.Block stmt) {
+    public Object visitBlockStmt(Stmt.Block stmt) {
+        if (stmt.locals() == 0) {
+            return block(stmt);
+        }
+
+        try {
+            memory.push(stmt.locals());
+
+            return block(stmt);
+        }
+        finally {
+            memory.pop();
+        }
+    }
+
+    private Object block(Stmt.Block stmt) {
+        for (var subStmt : stmt.stmts()) {
+            var completion = visit(subStmt);
+
+            if (completion instanceof Redirect) {
+                return completion;
+            }
+        }
+
         return Unit.get();
     }
 
     @Override
-    public Unit visitWhileStmt(Stmt.While stmt) {
+    public Object visitWhileStmt(Stmt.While stmt) {
+        if (stmt.getCounter() != null) {
+            var completion = count(stmt, stmt.getCounter());
+
+            if (completion != null) {
+                return completion;
+            }
+        }
+
+        while (isTrue(stmt.condition())) {
+            if (visit(stmt.body()) instanceof Redirect redirect) {
+                if (redirect instanceof Redirect.Break b && b.matches(stmt.label())) {
+                    break;
+                }
+
+                if (!(redirect instanceof Redirect.Continue c && c.matches(stmt.label()))) {
+                    return redirect;
+                }
+            }
+        }
+
+        return Unit.get();
+    }
+
+    // Runs a counting loop on a primitive counter, publishing it after each step; null means the loop has to run the slow way
+    private Object count(Stmt.While stmt, Stmt.While.Counter counter) {
+        var name = counter.name();
+
+        if (!name.isResolved()) {
+            return null;
+        }
+
+        var scope = memory.peek(name.depth());
+        var slot = name.slot();
+
+        if (!(scope.get(slot) instanceof Double start) || scope.isConstant(slot) || !(visit(counter.limit()) instanceof Double limit)) {
+            return null;
+        }
+
+        for (double i = start; Operators.comparison(counter.operator(), i, limit); ) {
+            if (visit(counter.body()) instanceof Redirect redirect) {
+                if (redirect instanceof Redirect.Break b && b.matches(stmt.label())) {
+                    break;
+                }
+
+                return redirect;
+            }
+
+            i += counter.step();
+
+            scope.set(slot, i);
+        }
+
         return Unit.get();
     }
 
     @Override
-    public Unit visitDoStmt(Stmt.Do stmt) {
+    public Object visitDoStmt(Stmt.Do stmt) {
+        do {
+            if (visit(stmt.body()) instanceof Redirect redirect) {
+                if (redirect instanceof Redirect.Break b && b.matches(stmt.label())) {
+                    break;
+                }
+
+                if (!(redirect instanceof Redirect.Continue c && c.matches(stmt.label()))) {
+                    return redirect;
+                }
+            }
+        }
+        while (isTrue(stmt.condition()));
+
         return Unit.get();
     }
 
     @Override
-    public Unit visitLoopStmt(Stmt.Loop stmt) {
+    public Object visitLoopStmt(Stmt.Loop stmt) {
+        var count = Double.POSITIVE_INFINITY;
+
+        if (stmt.count() != Expr.Empty.get()) {
+            var value = visit(stmt.count());
+
+            if (!(value instanceof Double d)) {
+                throw OahuError.invalidLoopCount(value, source, stmt.count().context());
+            }
+
+            count = d;
+        }
+
+        for (var i = 0; i < count; i++) {
+            if (visit(stmt.body()) instanceof Redirect redirect) {
+                if (redirect instanceof Redirect.Break b && b.matches(stmt.label())) {
+                    break;
+                }
+
+                if (!(redirect instanceof Redirect.Continue c && c.matches(stmt.label()))) {
+                    return redirect;
+                }
+            }
+        }
+
         return Unit.get();
     }
 
     @Override
-    public Unit visitForStmt(Stmt.For stmt) {
+    public Object visitForStmt(Stmt.For stmt) {
+        var iterable = visit(stmt.iterable());
+
+        Iterable<?> elements = switch (iterable) {
+            case Table table -> table;
+
+            case String string -> string
+                .chars()
+                .mapToObj(c -> String.valueOf((char) c))
+                .toList();
+
+            default -> throw OahuError.notIterableValueError(iterable, source, stmt.iterable().context());
+        };
+
+        for (var element : elements) {
+            Object completion;
+
+            if (stmt.locals() == 0) {
+                completion = iterate(stmt, element);
+            }
+            else {
+                try {
+                    memory.push(stmt.locals());
+
+                    completion = iterate(stmt, element);
+                }
+                finally {
+                    memory.pop();
+                }
+            }
+
+            if (completion instanceof Redirect redirect) {
+                if (redirect instanceof Redirect.Break b && b.matches(stmt.label())) {
+                    break;
+                }
+
+                if (!(redirect instanceof Redirect.Continue c && c.matches(stmt.label()))) {
+                    return redirect;
+                }
+            }
+        }
+
         return Unit.get();
     }
 
+    private Object iterate(Stmt.For stmt, Object element) {
+        if (stmt.destructured()) {
+            var table = Util.cast(Table.class, element)
+                .orElseThrow(() -> OahuError.notIterableValueError(element, source, stmt.context()));
+
+            for (var i = 0; i < stmt.names().size(); i++) {
+                define(stmt.names().get(i), true, false, table.get(i), stmt.context());
+            }
+        }
+        else {
+            define(stmt.names().getFirst(), true, false, element, stmt.context());
+        }
+
+        return visit(stmt.body());
+    }
+
     @Override
-    public Unit visitBreakStmt(Stmt.Break stmt) {
-        throw new Redirect.Break(stmt.label());
+    public Object visitBreakStmt(Stmt.Break stmt) {
+        return stmt.redirect();
     }
 
     @Override
-    public Unit visitContinueStmt(Stmt.Continue stmt) {
-        throw new Redirect.Continue(stmt.label());
+    public Object visitContinueStmt(Stmt.Continue stmt) {
+        return stmt.redirect();
     }
 
     @Override
-    public Unit visitReturnStmt(Stmt.Return stmt) {
+    public Object visitReturnStmt(Stmt.Return stmt) {
         var value = visit(stmt.expr());
 
-        throw new Redirect.Return(value);
+        return returned.withValue(value);
     }
 
     @Override
-    public Unit visitThrowStmt(Stmt.Throw stmt) {
+    public Object visitThrowStmt(Stmt.Throw stmt) {
         var value = visit(stmt.expr());
 
         throw new Redirect.Throw(value);
     }
 
     @Override
-    public Unit visitExitStmt(Stmt.Exit stmt) {
+    public Object visitExitStmt(Stmt.Exit stmt) {
         var value = visit(stmt.expr());
 
         throw new Redirect.Exit(value);
     }
 
     @Override
-    public Unit visitFunStmt(Stmt.Fun stmt) {
+    public Object visitFunStmt(Stmt.Fun stmt) {
         var copy = stmt.copy();
 
         if (copy.isLinked()) {
             copy.setLink(linker.getFunction(copy.path()).orElseThrow(() -> OahuError.missingFunctionLink(copy.path())));
         }
 
-        copy.setScope(memory.peek());
+        copy.setScope(memory.capture());
 
-        if (!memory.newLet(false, stmt.name().value(), copy)) {
-            throw OahuError.redefinedName(stmt.name(), source, stmt.context());
-        }
+        define(stmt.name(), true, false, copy, stmt.context());
 
         return Unit.get();
     }
 
     @Override
-    public Unit visitClassStmt(Stmt.Class stmt) {
-        if (!memory.newLet(false, stmt.name().value(), stmt)) {
-            throw OahuError.redefinedName(stmt.name(), source, stmt.context());
+    public Object visitClassStmt(Stmt.Class stmt) {
+        var copy = stmt.copy();
+
+        copy.setScope(memory.capture());
+
+        define(stmt.name(), true, false, copy, stmt.context());
+
+        if (copy.scope().getParent() == null) {
+            classes.put(stmt.name().value(), copy);
+
+            descriptors.clear();
         }
 
         return Unit.get();
     }
 
     @Override
-    public Unit visitEnumStmt(Stmt.Enum stmt) {
+    public Object visitEnumStmt(Stmt.Enum stmt) {
         return Unit.get();
     }
 
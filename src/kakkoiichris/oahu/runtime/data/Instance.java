@@ -44,108 +44,4 @@ public class Instance extends Memory.Scope {
 
         return Optional.empty();
     }
-
-    public Optional<Boolean> asBoolean() {
-        if (this instanceof Primitive.Bool bool) {
-            return Optional.of(bool.primitive);
-        }
-
-        return Optional.empty();
-    }
-
-    public Optional<Double> asNumber() {
-        if (this instanceof Primitive.Number number) {
-            return Optional.of(number.primitive);
-        }
-
-        return Optional.empty();
-    }
-
-    public Optional<String> asString() {
-        if (this instanceof Primitive.String string) {
-            return Optional.of(string.primitive);
-        }
-
-        return Optional.empty();
-    }
-
-    public Optional<Table> asTable() {
-        if (this instanceof Primitive.Table table) {
-            return Optional.of(table.primitive);
-        }
-
-        return Optional.empty();
-    }
-
-    public static Object fromInstance(Object x) {
-        if (x instanceof Primitive<?> p) {
-            return p.getPrimitive();
-        }
-
-        return x;
-    }
-
-    public static abstract sealed class Primitive<T> extends Instance {
-        public Primitive(Stmt.Class clazz, Memory.Scope parent, Runtime runtime) {
-            super(clazz, parent, runtime);
-        }
-
-        public abstract T getPrimitive();
-
-        public static final class Bool extends Primitive<Boolean> {
-            private final boolean primitive;
-
-            public Bool(Stmt.Class clazz, Memory.Scope parent, Runtime runtime, boolean primitive) {
-                super(clazz, parent, runtime);
-
-                this.primitive = primitive;
-            }
-
-            public Boolean getPrimitive() {
-                return primitive;
-            }
-        }
-
-        public static final class Number extends Primitive<Double> {
-            private final double primitive;
-
-            public Number(Stmt.Class clazz, Memory.Scope parent, Runtime runtime, double primitive) {
-                super(clazz, parent, runtime);
-
-                this.primitive = primitive;
-            }
-
-            public Double getPrimitive() {
-                return primitive;
-            }
-        }
-
-        public static final class String extends Primitive<java.lang.String> {
-            private final java.lang.String primitive;
-
-            public String(Stmt.Class clazz, Memory.Scope parent, Runtime runtime, java.lang.String primitive) {
-                super(clazz, parent, runtime);
-
-                this.primitive = primitive;
-            }
-
-            public java.lang.String getPrimitive() {
-                return primitive;
-            }
-        }
-
-        public static final class Table extends Primitive<kakkoiichris.oahu.runtime.data.Table> {
-            private final kakkoiichris.oahu.runtime.data.Table primitive;
-
-            public Table(Stmt.Class clazz, Memory.Scope parent, Runtime runtime, kakkoiichris.oahu.runtime.data.Table primitive) {
-                super(clazz, parent, runtime);
-
-                this.primitive = primitive;
-            }
-
-            public kakkoiichris.oahu.runtime.data.Table getPrimitive() {
-                return primitive;
-            }
-        }
-    }
 }
@@ -109,13 +109,13 @@ public class CoreLink implements Link {
 
     private void linkBoolean(BiConsumer<String, Stmt.Fun.Link> addFunction) {
         addFunction.accept("Boolean.not", new Stmt.Fun.Link((_, data) -> {
-            var thiz = data.instance().asBoolean().orElseThrow(() -> OahuError.failure("BOOLEAN_PRIMITIVE_MISMATCH"));
+            var thiz = data.asBoolean().orElseThrow(() -> OahuError.failure("BOOLEAN_PRIMITIVE_MISMATCH"));
 
             return !thiz;
         }));
 
         addFunction.accept("Boolean.and", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asBoolean().orElseThrow(() -> OahuError.failure("BOOLEAN_PRIMITIVE_MISMATCH"));
+            var thiz = data.asBoolean().orElseThrow(() -> OahuError.failure("BOOLEAN_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -132,7 +132,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("Boolean.xor", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asBoolean().orElseThrow(() -> OahuError.failure("BOOLEAN_PRIMITIVE_MISMATCH"));
+            var thiz = data.asBoolean().orElseThrow(() -> OahuError.failure("BOOLEAN_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -142,7 +142,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("Boolean.or", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asBoolean().orElseThrow(() -> OahuError.failure("BOOLEAN_PRIMITIVE_MISMATCH"));
+            var thiz = data.asBoolean().orElseThrow(() -> OahuError.failure("BOOLEAN_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -152,7 +152,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("Boolean.equ", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asBoolean().orElseThrow(() -> OahuError.failure("BOOLEAN_PRIMITIVE_MISMATCH"));
+            var thiz = data.asBoolean().orElseThrow(() -> OahuError.failure("BOOLEAN_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -164,13 +164,13 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("Boolean.toNumber", new Stmt.Fun.Link((_, data) -> {
-            var thiz = data.instance().asBoolean().orElseThrow(() -> OahuError.failure("BOOLEAN_PRIMITIVE_MISMATCH"));
+            var thiz = data.asBoolean().orElseThrow(() -> OahuError.failure("BOOLEAN_PRIMITIVE_MISMATCH"));
 
             return thiz ? 1.0 : 0.0;
         }));
 
         addFunction.accept("Boolean.toString", new Stmt.Fun.Link((_, data) -> {
-            var thiz = data.instance().asBoolean().orElseThrow(() -> OahuError.failure("BOOLEAN_PRIMITIVE_MISMATCH"));
+            var thiz = data.asBoolean().orElseThrow(() -> OahuError.failure("BOOLEAN_PRIMITIVE_MISMATCH"));
 
             return thiz.toString();
         }));
@@ -178,7 +178,7 @@ public class CoreLink implements Link {
 
     private void linkNumber(BiConsumer<String, Stmt.Fun.Link> addFunction) {
         addFunction.accept("Number.add", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asNumber().orElseThrow(() -> OahuError.failure("NUMBER_PRIMITIVE_MISMATCH"));
+            var thiz = data.asNumber().orElseThrow(() -> OahuError.failure("NUMBER_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -188,7 +188,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("Number.sub", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asNumber().orElseThrow(() -> OahuError.failure("NUMBER_PRIMITIVE_MISMATCH"));
+            var thiz = data.asNumber().orElseThrow(() -> OahuError.failure("NUMBER_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -198,7 +198,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("Number.mul", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asNumber().orElseThrow(() -> OahuError.failure("NUMBER_PRIMITIVE_MISMATCH"));
+            var thiz = data.asNumber().orElseThrow(() -> OahuError.failure("NUMBER_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -208,7 +208,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("Number.div", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asNumber().orElseThrow(() -> OahuError.failure("NUMBER_PRIMITIVE_MISMATCH"));
+            var thiz = data.asNumber().orElseThrow(() -> OahuError.failure("NUMBER_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -218,7 +218,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("Number.rem", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asNumber().orElseThrow(() -> OahuError.failure("NUMBER_PRIMITIVE_MISMATCH"));
+            var thiz = data.asNumber().orElseThrow(() -> OahuError.failure("NUMBER_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -228,7 +228,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("Number.xor", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asNumber().orElseThrow(() -> OahuError.failure("NUMBER_PRIMITIVE_MISMATCH"));
+            var thiz = data.asNumber().orElseThrow(() -> OahuError.failure("NUMBER_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -238,7 +238,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("Number.and", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asNumber().orElseThrow(() -> OahuError.failure("NUMBER_PRIMITIVE_MISMATCH"));
+            var thiz = data.asNumber().orElseThrow(() -> OahuError.failure("NUMBER_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -247,10 +247,10 @@ public class CoreLink implements Link {
             return Console.truncate(thiz) + that;
         }));
 
-        addFunction.accept("Number.neg", new Stmt.Fun.Link((_, data) -> -data.instance().asNumber().orElseThrow(() -> OahuError.failure("NUMBER_PRIMITIVE_MISMATCH"))));
+        addFunction.accept("Number.neg", new Stmt.Fun.Link((_, data) -> -data.asNumber().orElseThrow(() -> OahuError.failure("NUMBER_PRIMITIVE_MISMATCH"))));
 
         addFunction.accept("Number.cmp", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asNumber().orElseThrow(() -> OahuError.failure("NUMBER_PRIMITIVE_MISMATCH"));
+            var thiz = data.asNumber().orElseThrow(() -> OahuError.failure("NUMBER_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -260,7 +260,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("Number.equ", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asNumber().orElseThrow(() -> OahuError.failure("NUMBER_PRIMITIVE_MISMATCH"));
+            var thiz = data.asNumber().orElseThrow(() -> OahuError.failure("NUMBER_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -269,22 +269,22 @@ public class CoreLink implements Link {
             return thiz.equals(that);
         }));
 
-        addFunction.accept("Number.toBoolean", new Stmt.Fun.Link((_, data) -> data.instance().asNumber().orElseThrow(() -> OahuError.failure("NUMBER_PRIMITIVE_MISMATCH")) != 0.0));
+        addFunction.accept("Number.toBoolean", new Stmt.Fun.Link((_, data) -> data.asNumber().orElseThrow(() -> OahuError.failure("NUMBER_PRIMITIVE_MISMATCH")) != 0.0));
 
-        addFunction.accept("Number.toString", new Stmt.Fun.Link((_, data) -> Console.truncate(data.instance().asNumber().orElseThrow(() -> OahuError.failure("NUMBER_PRIMITIVE_MISMATCH")))));
+        addFunction.accept("Number.toString", new Stmt.Fun.Link((_, data) -> Console.truncate(data.asNumber().orElseThrow(() -> OahuError.failure("NUMBER_PRIMITIVE_MISMATCH")))));
 
-        addFunction.accept("Number.fromUnicode", new Stmt.Fun.Link((_, data) -> String.valueOf((char) data.instance().asNumber().orElseThrow(() -> OahuError.failure("NUMBER_PRIMITIVE_MISMATCH")).intValue())));
+        addFunction.accept("Number.fromUnicode", new Stmt.Fun.Link((_, data) -> String.valueOf((char) data.asNumber().orElseThrow(() -> OahuError.failure("NUMBER_PRIMITIVE_MISMATCH")).intValue())));
 
-        addFunction.accept("Number.isFinite", new Stmt.Fun.Link((_, data) -> Double.isFinite(data.instance().asNumber().orElseThrow(() -> OahuError.failure("NUMBER_PRIMITIVE_MISMATCH")))));
+        addFunction.accept("Number.isFinite", new Stmt.Fun.Link((_, data) -> Double.isFinite(data.asNumber().orElseThrow(() -> OahuError.failure("NUMBER_PRIMITIVE_MISMATCH")))));
 
-        addFunction.accept("Number.isInfinite", new Stmt.Fun.Link((_, data) -> Double.isInfinite(data.instance().asNumber().orElseThrow(() -> OahuError.failure("NUMBER_PRIMITIVE_MISMATCH")))));
+        addFunction.accept("Number.isInfinite", new Stmt.Fun.Link((_, data) -> Double.isInfinite(data.asNumber().orElseThrow(() -> OahuError.failure("NUMBER_PRIMITIVE_MISMATCH")))));
 
-        addFunction.accept("Number.isNaN", new Stmt.Fun.Link((_, data) -> Double.isNaN(data.instance().asNumber().orElseThrow(() -> OahuError.failure("NUMBER_PRIMITIVE_MISMATCH")))));
+        addFunction.accept("Number.isNaN", new Stmt.Fun.Link((_, data) -> Double.isNaN(data.asNumber().orElseThrow(() -> OahuError.failure("NUMBER_PRIMITIVE_MISMATCH")))));
     }
 
     private void linkString(BiConsumer<String, Stmt.Fun.Link> addFunction) {
         addFunction.accept("String.add", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"));
+            var thiz = data.asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -294,7 +294,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("String.mul", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"));
+            var thiz = data.asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -304,7 +304,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("String.and", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"));
+            var thiz = data.asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"));
 
             var that = data.args().getFirst();
 
@@ -312,7 +312,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("String.cmp", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"));
+            var thiz = data.asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -322,7 +322,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("String.equ", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"));
+            var thiz = data.asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -332,7 +332,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("String.get", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"));
+            var thiz = data.asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -346,7 +346,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("String.in", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"));
+            var thiz = data.asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -356,13 +356,13 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("String.toBoolean", new Stmt.Fun.Link((_, data) -> {
-            var thiz = data.instance().asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"));
+            var thiz = data.asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"));
 
             return Boolean.parseBoolean(thiz);
         }));
 
         addFunction.accept("String.toNumber", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"));
+            var thiz = data.asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -381,14 +381,14 @@ public class CoreLink implements Link {
             }
         }));
 
-        addFunction.accept("String.toString", new Stmt.Fun.Link((_, data) -> data.instance().asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"))));
+        addFunction.accept("String.toString", new Stmt.Fun.Link((_, data) -> data.asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"))));
 
-        addFunction.accept("String.toUnicode", new Stmt.Fun.Link((_, data) -> (double) data.instance().asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH")).charAt(0)));
+        addFunction.accept("String.toUnicode", new Stmt.Fun.Link((_, data) -> (double) data.asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH")).charAt(0)));
 
-        addFunction.accept("String.size", new Stmt.Fun.Link((_, data) -> (double) data.instance().asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH")).length()));
+        addFunction.accept("String.size", new Stmt.Fun.Link((_, data) -> (double) data.asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH")).length()));
 
         addFunction.accept("String.find", new Stmt.Fun.Link(2, (_, data) -> {
-            var thiz = data.instance().asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"));
+            var thiz = data.asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -399,7 +399,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("String.findLast", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"));
+            var thiz = data.asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -409,7 +409,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("String.startsWith", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"));
+            var thiz = data.asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -419,7 +419,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("String.endsWith", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"));
+            var thiz = data.asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -429,7 +429,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("String.split", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"));
+            var thiz = data.asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -439,7 +439,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("String.pad", new Stmt.Fun.Link(3, (_, data) -> {
-            var thiz = data.instance().asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"));
+            var thiz = data.asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -450,12 +450,12 @@ public class CoreLink implements Link {
             return string.repeat(left.intValue()) + thiz + string.repeat(right.intValue());
         }));
 
-        addFunction.accept("String.toLower", new Stmt.Fun.Link((_, data) -> data.instance().asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH")).toLowerCase()));
+        addFunction.accept("String.toLower", new Stmt.Fun.Link((_, data) -> data.asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH")).toLowerCase()));
 
-        addFunction.accept("String.toUpper", new Stmt.Fun.Link((_, data) -> data.instance().asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH")).toUpperCase()));
+        addFunction.accept("String.toUpper", new Stmt.Fun.Link((_, data) -> data.asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH")).toUpperCase()));
 
         addFunction.accept("String.trim", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"));
+            var thiz = data.asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -464,17 +464,17 @@ public class CoreLink implements Link {
             return ((indent) ? thiz.stripIndent() : thiz).trim();
         }));
 
-        addFunction.accept("String.isAlpha", new Stmt.Fun.Link((_, data) -> data.instance().asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH")).chars().allMatch(Character::isLetter)));
+        addFunction.accept("String.isAlpha", new Stmt.Fun.Link((_, data) -> data.asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH")).chars().allMatch(Character::isLetter)));
 
-        addFunction.accept("String.isDigit", new Stmt.Fun.Link((_, data) -> data.instance().asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH")).chars().allMatch(Character::isDigit)));
+        addFunction.accept("String.isDigit", new Stmt.Fun.Link((_, data) -> data.asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH")).chars().allMatch(Character::isDigit)));
 
-        addFunction.accept("String.isAlnum", new Stmt.Fun.Link((_, data) -> data.instance().asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH")).chars().allMatch(Character::isLetterOrDigit)));
+        addFunction.accept("String.isAlnum", new Stmt.Fun.Link((_, data) -> data.asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH")).chars().allMatch(Character::isLetterOrDigit)));
 
-        addFunction.accept("String.isLower", new Stmt.Fun.Link((_, data) -> data.instance().asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH")).chars().allMatch(Character::isLowerCase)));
+        addFunction.accept("String.isLower", new Stmt.Fun.Link((_, data) -> data.asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH")).chars().allMatch(Character::isLowerCase)));
 
-        addFunction.accept("String.isUpper", new Stmt.Fun.Link((_, data) -> data.instance().asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH")).chars().allMatch(Character::isUpperCase)));
+        addFunction.accept("String.isUpper", new Stmt.Fun.Link((_, data) -> data.asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH")).chars().allMatch(Character::isUpperCase)));
 
-        addFunction.accept("String.isSpace", new Stmt.Fun.Link((_, data) -> data.instance().asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH")).chars().allMatch(Character::isWhitespace)));
+        addFunction.accept("String.isSpace", new Stmt.Fun.Link((_, data) -> data.asString().orElseThrow(() -> OahuError.failure("STRING_PRIMITIVE_MISMATCH")).chars().allMatch(Character::isWhitespace)));
 
         addFunction.accept("String.match", new Stmt.Fun.Link(1, ((_, _) -> 0
             /*var string = data.instance.asString()!!
@@ -521,7 +521,7 @@ public class CoreLink implements Link {
 
     private void linkList(BiConsumer<String, Stmt.Fun.Link> addFunction) {
         addFunction.accept("List.add", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
+            var thiz = data.asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -537,7 +537,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("List.mul", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
+            var thiz = data.asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -547,7 +547,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("List.cmp", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
+            var thiz = data.asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -557,7 +557,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("List.get", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
+            var thiz = data.asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -571,7 +571,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("List.set", new Stmt.Fun.Link(2, (_, data) -> {
-            var thiz = data.instance().asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
+            var thiz = data.asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -588,7 +588,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("List.in", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
+            var thiz = data.asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -598,7 +598,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("List.equ", new Stmt.Fun.Link(1, (_, _) -> {
-//            var thiz = data.instance().asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
+//            var thiz = data.asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
 //
 //            var(that) = data.args
 //
@@ -622,10 +622,10 @@ public class CoreLink implements Link {
             return false;
         }));
 
-        addFunction.accept("List.size", new Stmt.Fun.Link((_, data) -> (double) data.instance().asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH")).size()));
+        addFunction.accept("List.size", new Stmt.Fun.Link((_, data) -> (double) data.asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH")).size()));
 
         addFunction.accept("List.find", new Stmt.Fun.Link(1, (_, _) -> {
-//            var thiz = data.instance().asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
+//            var thiz = data.asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
 //
 //            var(x) = data.args
 //
@@ -633,7 +633,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("List.add", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
+            var thiz = data.asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
 
             var x = data.args().getFirst();
 
@@ -641,7 +641,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("List.addAt", new Stmt.Fun.Link(2, (_, data) -> {
-            var thiz = data.instance().asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
+            var thiz = data.asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -654,7 +654,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("List.remove", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
+            var thiz = data.asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
 
             var x = data.args().getFirst();
 
@@ -664,7 +664,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("List.removeAt", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
+            var thiz = data.asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -674,7 +674,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("List.push", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
+            var thiz = data.asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
 
             var x = data.args().getFirst();
 
@@ -683,10 +683,10 @@ public class CoreLink implements Link {
             return Unit.get();
         }));
 
-        addFunction.accept("List.pop", new Stmt.Fun.Link((_, data) -> data.instance().asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH")).pop()));
+        addFunction.accept("List.pop", new Stmt.Fun.Link((_, data) -> data.asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH")).pop()));
 
         addFunction.accept("List.unshift", new Stmt.Fun.Link(1, (_, data) -> {
-            var thiz = data.instance().asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
+            var thiz = data.asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
 
             var x = data.args().getFirst();
 
@@ -695,10 +695,10 @@ public class CoreLink implements Link {
             return Unit.get();
         }));
 
-        addFunction.accept("List.shift", new Stmt.Fun.Link((_, data) -> data.instance().asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH")).shift()));
+        addFunction.accept("List.shift", new Stmt.Fun.Link((_, data) -> data.asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH")).shift()));
 
         addFunction.accept("List.splice", new Stmt.Fun.Link(3, (_, data) -> {
-            var thiz = data.instance().asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
+            var thiz = data.asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
 
             var args = data.unwrap();
 
@@ -710,7 +710,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("List.reverse", new Stmt.Fun.Link((_, data) -> {
-            var thiz = data.instance().asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
+            var thiz = data.asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
 
             //thiz.reverse();
 
@@ -718,7 +718,7 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("List.shuffle", new Stmt.Fun.Link((_, data) -> {
-            var thiz = data.instance().asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
+            var thiz = data.asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
 
             //thiz.shuffle()
 
@@ -726,16 +726,16 @@ public class CoreLink implements Link {
         }));
 
         addFunction.accept("List.sort", new Stmt.Fun.Link((_, data) -> {
-            var thiz = data.instance().asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
+            var thiz = data.asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH"));
 
             //thiz.stream().sorted().toList();
 
             return Unit.get();
         }));
 
-        addFunction.accept("List.random", new Stmt.Fun.Link((_, data) -> data.instance().asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH")).random()));
+        addFunction.accept("List.random", new Stmt.Fun.Link((_, data) -> data.asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH")).random()));
 
-        addFunction.accept("List.toString", new Stmt.Fun.Link((_, data) -> data.instance().asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH")).toString()));
+        addFunction.accept("List.toString", new Stmt.Fun.Link((_, data) -> data.asTable().orElseThrow(() -> OahuError.failure("LIST_PRIMITIVE_MISMATCH")).toString()));
     }
 
     private void linkStringBuilder(BiConsumer<String, Stmt.Fun.Link> addFunction) {
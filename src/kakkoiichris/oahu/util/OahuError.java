@@ -19,16 +19,64 @@ import static kakkoiichris.oahu.util.Aesthetics.ICON;
 
 @SuppressWarnings("preview")
 public class OahuError extends RuntimeException {
+    private final transient Stage stage;
+    private final transient Source source;
+    private final transient long context;
+
+    private String rendered;
+
     private OahuError(String message) {
         super(message);
+
+        stage = null;
+        source = null;
+        context = Context.none();
+
+        rendered = message;
+    }
+
+    // Errors are often caught and discarded, so the row, column and line are only worked out once the message is read
+    private OahuError(Stage stage, String message, Source source, long context) {
+        super(message);
+
+        this.stage = stage;
+        this.source = source;
+        this.context = context;
     }
 
-    private static OahuError error(Stage stage, String message, Source source, Context context) {
-        var row = context.row();
-        var line = source.getLine(context.row());
+    @Override
+    public String getMessage() {
+        if (rendered == null) {
+            rendered = render(stage, super.getMessage(), source, context);
+        }
+
+        return rendered;
+    }
+
+    private static OahuError error(Stage stage, String message, Source source, long context) {
+        return new OahuError(stage, message, source, context);
+    }
+
+    private static String render(Stage stage, String message, Source source, long context) {
+        var owner = source.origins().sourceOf(Context.file(context)).orElse(source);
+
+        var row = 0;
+        var column = 0;
+        var line = "";
+        var underline = "";
+
+        if (!Context.isNone(context)) {
+            var offset = source.origins().baseOf(Context.file(context)) + Context.offset(context);
+
+            row = owner.rowOf(offset);
+            column = owner.columnOf(offset);
+            line = owner.getLine(row);
 
-        var spacing = " ".repeat(context.column() + (String.valueOf(context.row()).length() + 1));
-        var underline = Aesthetics.UNDERLINE.repeat(context.length());
+            // A range that runs onto later lines is only underlined to the end of its first
+            underline = Aesthetics.UNDERLINE.repeat(Math.clamp(line.length() - column + 1, 1, Math.max(Context.length(context), 1)));
+        }
+
+        var spacing = " ".repeat(column + (String.valueOf(row).length() + 1));
 
         var string = STR."""
             O'ahu \{stage} Error \{ICON} \{message}!
@@ -36,7 +84,7 @@ public class OahuError extends RuntimeException {
             \{row}| \{line}
             \{spacing}\{underline}""";
 
-        return new OahuError(Aesthetics.wrapBox(string));
+        return Aesthetics.wrapBox(string);
     }
 
     private static OahuError error(String message) {
@@ -45,103 +93,131 @@ public class OahuError extends RuntimeException {
         return new OahuError(Aesthetics.wrapBox(string));
     }
 
-    private static OahuError forLexer(String message, Source source, Context context) {
+    private static OahuError forLexer(String message, Source source, long context) {
         return error(Stage.LEXER, message, source, context);
     }
 
-    public static OahuError earlyEndOfFile(Source source, Context context) {
+    public static OahuError earlyEndOfFile(Source source, long context) {
         return forLexer("Reached end of file early", source, context);
     }
 
-    public static OahuError illegalCharacter(char illegal, Source source, Context context) {
+    public static OahuError illegalCharacter(char illegal, Source source, long context) {
         return forLexer("Character '%c' is illegal".formatted(illegal), source, context);
     }
 
-    public static OahuError illegalCharacterEscape(char escape, Source source, Context context) {
+    public static OahuError illegalCharacterEscape(char escape, Source source, long context) {
         return forLexer("Character escape '\\%c' is illegal".formatted(escape), source, context);
     }
 
-    public static OahuError invalidCharacter(char invalid, char expected, Source source, Context context) {
+    public static OahuError invalidCharacter(char invalid, char expected, Source source, long context) {
         return forLexer("Character '%c' is invalid; expected '%c'".formatted(invalid, expected), source, context);
     }
 
-    public static OahuError invalidCharacterSequence(String invalid, String expected, Source source, Context context) {
+    public static OahuError invalidCharacterSequence(String invalid, String expected, Source source, long context) {
         return forLexer("Character '%s' is invalid; expected '%s'".formatted(invalid, expected), source, context);
     }
 
-    public static OahuError invalidNumber(String invalid, Source source, Context context) {
+    public static OahuError invalidNumber(String invalid, Source source, long context) {
         return forLexer("Number '%s' is invalid".formatted(invalid), source, context);
     }
 
-    public static OahuError invalidUnicode(String invalid, Source source, Context context) {
+    public static OahuError invalidUnicode(String invalid, Source source, long context) {
         return forLexer("Unicode hexcode '%s' is invalid".formatted(invalid), source, context);
     }
 
-    private static OahuError forParser(String message, Source source, Context context) {
+    private static OahuError forParser(String message, Source source, long context) {
         return error(Stage.PARSER, message, source, context);
     }
 
-    public static OahuError earlyElseBranch(Source source, Context context) {
+    public static OahuError earlyElseBranch(Source source, long context) {
         return forParser("Else branch must be the last branch", source, context);
     }
 
-    public static OahuError invalidArgumentName(Source source, Context context) {
+    public static OahuError invalidArgumentName(Source source, long context) {
         return forParser("Argument name must be first variable name", source, context);
     }
 
-    public static OahuError invalidTerminal(TokenType invalid, Source source, Context context) {
+    public static OahuError invalidTerminal(TokenType invalid, Source source, long context) {
         return forParser("Terminal expression beginning with type '%s' is invalid".formatted(invalid), source, context);
     }
 
-    public static OahuError invalidTokenType(TokenType invalid, TokenType expected, Source source, Context context) {
+    public static OahuError invalidTokenType(TokenType invalid, TokenType expected, Source source, long context) {
         return forParser("Token type '%s' is invalid; expected '%s'".formatted(invalid, expected), source, context);
     }
 
-    public static OahuError reservedName(Expr.Name name, Source source, Context context) {
+    public static OahuError invalidName(TokenType invalid, Source source, long context) {
+        return forParser("Token type '%s' is invalid; expected a name".formatted(invalid), source, context);
+    }
+
+    public static OahuError reservedName(Expr.Name name, Source source, long context) {
         return forParser("The name '%s' is reserved".formatted(name), source, context);
     }
 
-    private static OahuError forScript(String message, Source source, Context context) {
+    private static OahuError forResolver(String message, Source source, long context) {
+        return error(Stage.RESOLVER, message, source, context);
+    }
+
+    public static OahuError redeclaredName(Expr.Name name, Source source, long context) {
+        return forResolver("Name '%s' has already been declared in this scope".formatted(name), source, context);
+    }
+
+    private static OahuError forScript(String message, Source source, long context) {
         return error(Stage.RUNTIME, message, source, context);
     }
 
-    public static OahuError invalidUnaryOperand(Object operand, Expr.Unary.Operator operator, Source source, Context context) {
+    public static OahuError invalidUnaryOperand(Object operand, Expr.Unary.Operator operator, Source source, long context) {
         return forScript("Operand '%s' for unary %s operator is invalid".formatted(operand, operator), source, context);
     }
 
-    public static OahuError invalidLeftOperand(Object operand, Expr.Binary.Operator operator, Source source, Context context) {
+    public static OahuError invalidLeftOperand(Object operand, Expr.Binary.Operator operator, Source source, long context) {
         return forScript("Left operand '%s' for binary %s operator is invalid".formatted(operand, operator), source, context);
     }
 
-    public static OahuError invalidRightOperand(Object operand, Expr.Binary.Operator operator, Source source, Context context) {
+    public static OahuError invalidRightOperand(Object operand, Expr.Binary.Operator operator, Source source, long context) {
         return forScript("Right operand '%s' for binary %s operator is invalid".formatted(operand, operator), source, context);
     }
 
-    public static OahuError notCallableValueError(Object target, Source source, Context context) {
+    public static OahuError notCallableValueError(Object target, Source source, long context) {
         return forScript(String.format("Value '%s' is not callable!", target), source, context);
     }
 
-    public static OahuError notSpreadableValueError(Object target, Source source, Context context) {
+    public static OahuError unresolvedArguments(Object target, Source source, long context) {
+        return forScript("Arguments for '%s' could not be resolved".formatted(target), source, context);
+    }
+
+    public static OahuError notSpreadableValueError(Object target, Source source, long context) {
         return forScript(String.format("Value '%s' is not spreadable!", target), source, context);
     }
 
-    public static OahuError reassignedConstant(Source source, Context context) {
+    public static OahuError notIterableValueError(Object target, Source source, long context) {
+        return forScript(String.format("Value '%s' is not iterable!", target), source, context);
+    }
+
+    public static OahuError invalidLoopCount(Object count, Source source, long context) {
+        return forScript("Loop count '%s' is invalid".formatted(count), source, context);
+    }
+
+    public static OahuError reassignedConstant(Source source, long context) {
         return forScript("Constant cannot be reassigned", source, context);
     }
 
-    public static OahuError redefinedName(Expr.Name name, Source source, Context context) {
+    public static OahuError redefinedName(Expr.Name name, Source source, long context) {
         return forScript("Name '%s' has already been defined".formatted(name), source, context);
     }
 
-    public static OahuError redefinedName(String name, Source source, Context context) {
+    public static OahuError redefinedName(String name, Source source, long context) {
         return forScript("Name '%s' has already been defined".formatted(name), source, context);
     }
 
-    public static OahuError undefinedName(Expr.Name name, Source source, Context context) {
+    public static OahuError undefinedName(Expr.Name name, Source source, long context) {
         return forScript("Name '%s' has not been defined".formatted(name.value()), source, context);
     }
 
-    public static OahuError unhandledRedirect(Redirect redirect, Source source, Context context) {
+    public static OahuError undefinedMember(Expr.Name name, Object target, Source source, long context) {
+        return forScript("Member '%s' has not been defined for '%s'".formatted(name.value(), target), source, context);
+    }
+
+    public static OahuError unhandledRedirect(Redirect redirect, Source source, long context) {
         return forScript("%s was not handled".formatted(redirect), source, context);
     }
 
@@ -17,12 +17,41 @@ import static kakkoiichris.oahu.util.Aesthetics.ICON;
 
 @SuppressWarnings("preview")
 public class OahuWarning {
-    private static void warn(Stage stage, String message, Source source, Context context) {
-        var row = context.row();
-        var line = source.getLine(context.row());
+    public enum Kind {
+        DISCARDED_NAME("Variable name '_' is always discarded; consider renaming"),
+        VAGUE_NAME("Variable names consisting of only underscores are vague; consider renaming");
 
-        var spacing = " ".repeat(context.column() + (String.valueOf(context.row()).length() + 1));
-        var underline = Aesthetics.UNDERLINE.repeat(context.length());
+        private final String message;
+
+        Kind(String message) {
+            this.message = message;
+        }
+    }
+
+    // Parser warnings are also kept on their source, so a parse restored from the cache can print them again
+    public record Parsed(Kind kind, long context) {
+    }
+
+    private static void warn(Stage stage, String message, Source source, long context) {
+        var owner = source.origins().sourceOf(Context.file(context)).orElse(source);
+
+        var row = 0;
+        var column = 0;
+        var line = "";
+        var underline = "";
+
+        if (!Context.isNone(context)) {
+            var offset = source.origins().baseOf(Context.file(context)) + Context.offset(context);
+
+            row = owner.rowOf(offset);
+            column = owner.columnOf(offset);
+            line = owner.getLine(row);
+
+            // A range that runs onto later lines is only underlined to the end of its first
+            underline = Aesthetics.UNDERLINE.repeat(Math.clamp(line.length() - column + 1, 1, Math.max(Context.length(context), 1)));
+        }
+
+        var spacing = " ".repeat(column + (String.valueOf(row).length() + 1));
 
         var string = STR."""
             O'ahu \{stage} Warning \{ICON} \{message}!
@@ -39,20 +68,30 @@ public class OahuWarning {
         System.err.println(Aesthetics.wrapBox(string));
     }
 
-    public static void forLexer(String message, Source source, Context context) {
+    public static void forLexer(String message, Source source, long context) {
         warn(Stage.LEXER, message, source, context);
     }
 
-    public static void forParser(String message, Source source, Context context) {
+    public static void forParser(String message, Source source, long context) {
         warn(Stage.PARSER, message, source, context);
     }
 
-    public static void discardedName(Source source, Context context) {
-        forParser("Variable name '_' is always discarded; consider renaming", source, context);
+    private static void forParser(Kind kind, Source source, long context) {
+        source.warned(new Parsed(kind, context));
+
+        forParser(kind.message, source, context);
+    }
+
+    public static void discardedName(Source source, long context) {
+        forParser(Kind.DISCARDED_NAME, source, context);
+    }
+
+    public static void vagueName(Source source, long context) {
+        forParser(Kind.VAGUE_NAME, source, context);
     }
 
-    public static void vagueName(Source source, Context context) {
-        forParser("Variable names consisting of only underscores are vague; consider renaming", source, context);
+    public static void replay(Parsed warning, Source source) {
+        forParser(warning.kind(), source, warning.context());
     }
 
     public static void duplicateLink(Expr.Name name, Source source) {
@@ -0,0 +1,78 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.util;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Optional;
+
+// The origins of one source and every edit made from it; a position names an origin, which names the source and the
+// offset it counts from, and a collected source frees its origins for reuse
+public final class Origins {
+    private static final int LIMIT = 1 << 20;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private WeakReference<Source>[] sources = new WeakReference[8];
+    private int[] bases = new int[8];
+
+    private int next = 1;
+
+    public synchronized int add(Source source, int base) {
+        // Slots whose source has been collected are reused before the table grows
+        for (var i = 1; i < sources.length; i++) {
+            var id = next;
+
+            next = next == sources.length - 1 ? 1 : next + 1;
+
+            if (sources[id] == null || sources[id].get() == null) {
+                rebase(id, source, base);
+
+                return id;
+            }
+        }
+
+        if (sources.length == LIMIT) {
+            throw OahuError.failure("Every source origin is in use!");
+        }
+
+        var id = sources.length;
+
+        sources = Arrays.copyOf(sources, Math.min(LIMIT, sources.length * 2));
+        bases = Arrays.copyOf(bases, sources.length);
+
+        next = id + 1;
+
+        rebase(id, source, base);
+
+        return id;
+    }
+
+    public synchronized void rebase(int id, Source source, int base) {
+        sources[id] = new WeakReference<>(source);
+        bases[id] = base;
+    }
+
+    public synchronized Optional<Source> sourceOf(int id) {
+        if (id <= 0 || id >= sources.length || sources[id] == null) {
+            return Optional.empty();
+        }
+
+        return Optional.ofNullable(sources[id].get());
+    }
+
+    public synchronized int baseOf(int id) {
+        if (id <= 0 || id >= bases.length) {
+            return 0;
+        }
+
+        return bases[id];
+    }
+}
@@ -10,16 +10,89 @@
  *#################################################*/
 package kakkoiichris.oahu.util;
 
+import kakkoiichris.oahu.closure.ClosureCompiler;
+import kakkoiichris.oahu.closure.Evaluator;
 import kakkoiichris.oahu.lexer.Lexer;
+import kakkoiichris.oahu.lexer.TokenBuffer;
+import kakkoiichris.oahu.lexer.TokenRing;
+import kakkoiichris.oahu.optimizer.Optimizer;
+import kakkoiichris.oahu.parser.Frontend;
+import kakkoiichris.oahu.parser.ParallelParser;
 import kakkoiichris.oahu.parser.Parser;
+import kakkoiichris.oahu.parser.Program;
+import kakkoiichris.oahu.parser.ProgramCache;
+import kakkoiichris.oahu.resolver.Resolver;
+import kakkoiichris.oahu.runtime.Engine;
 import kakkoiichris.oahu.runtime.Runtime;
+import kakkoiichris.oahu.runtime.Script;
+import kakkoiichris.oahu.vm.Compiler;
+import kakkoiichris.oahu.vm.VM;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URISyntaxException;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+
+public final class Source {
+    private static final int CHUNK = 1 << 16;
+
+    private final Origins origins;
+
+    private final int id;
+    private final String name;
+    private final char[] chars;
+
+    private int length;
+
+    private ByteBuffer bytes;
+    private CharsetDecoder decoder;
+
+    // The lexer may still be writing the index on another thread while errors are rendered, so a reader takes the
+    // count first and the array second; the array is never older than the count it was published with
+    private volatile int[] lines = new int[64];
+    private volatile int lineCount = 1;
+
+    private final List<OahuWarning.Parsed> warnings = new ArrayList<>();
+
+    private Source(String name, char[] chars, int length, Origins origins) {
+        this.name = name;
+        this.chars = chars;
+        this.length = length;
+        this.origins = origins;
+
+        id = origins.add(this, 0);
+    }
+
+    // The array is sized for the whole file up front, at two heap bytes per source byte where a Latin-1 String took
+    // one, so the lexers can index one array that decoding only ever fills in place
+    private Source(String name, ByteBuffer bytes) {
+        this(name, new char[bytes.remaining()], 0, new Origins());
+
+        this.bytes = bytes;
+
+        decoder = StandardCharsets.UTF_8
+            .newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
+    }
+
+    public Source(String name, String text) {
+        this(name, text.toCharArray(), text.length(), new Origins());
+    }
 
-public record Source(String name, String text) {
     public static Source ofResource(String resourcePath) {
         Path path;
 
@@ -30,52 +103,300 @@ public record Source(String name, String text) {
             throw new RuntimeException(e);
         }
 
-        var name = path.getFileName().toString();
+        return ofPath(path);
+    }
 
-        String text;
+    public static Source ofFile(String filePath) {
+        return ofPath(Path.of(filePath));
+    }
 
-        try {
-            text = Files.readString(path);
+    // The file is mapped rather than read, and decoded a chunk at a time as the lexer reaches it
+    private static Source ofPath(Path path) {
+        var name = path.getFileName().toString();
+
+        try (var channel = FileChannel.open(path)) {
+            return new Source(name, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
         }
         catch (IOException e) {
-            throw new RuntimeException(e);
+            throw new UncheckedIOException(e);
         }
+    }
 
-        return new Source(name, text);
+    public static Source ofREPL(String text) {
+        return new Source("<REPL>", text);
     }
 
-    public static Source ofFile(String filePath) {
-        var path = Path.of(filePath);
+    public Source edit(int start, int end, String replacement) {
+        fill(Integer.MAX_VALUE);
 
-        var name = path.getFileName().toString();
+        Objects.checkFromToIndex(start, end, length);
 
-        String text;
+        var edited = new char[length - (end - start) + replacement.length()];
 
-        try {
-            text = Files.readString(path);
+        System.arraycopy(chars, 0, edited, 0, start);
+
+        replacement.getChars(0, replacement.length(), edited, start);
+
+        System.arraycopy(chars, end, edited, start + replacement.length(), length - end);
+
+        return new Source(name, edited, edited.length, origins);
+    }
+
+    // An edit shares the origins of the source it was made from, so positions parsed before it still resolve
+    public Origins origins() {
+        return origins;
+    }
+
+    public int id() {
+        return id;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String text() {
+        fill(Integer.MAX_VALUE);
+
+        return new String(chars, 0, length);
+    }
+
+    public char[] chars() {
+        return chars;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    // While the file is still mapped its bytes are handed out as they are, so hashing them decodes nothing
+    public synchronized Optional<ByteBuffer> encoded() {
+        if (bytes == null) {
+            return Optional.empty();
         }
-        catch (IOException e) {
-            throw new RuntimeException(e);
+
+        return Optional.of(bytes.duplicate().clear().asReadOnlyBuffer());
+    }
+
+    public synchronized boolean fill(int index) {
+        while (index >= length && decoder != null) {
+            var last = bytes.capacity() - bytes.position() <= CHUNK;
+
+            bytes.limit(last ? bytes.capacity() : bytes.position() + CHUNK);
+
+            var out = CharBuffer.wrap(chars, length, chars.length - length);
+
+            try {
+                var result = decoder.decode(bytes, out, last);
+
+                if (result.isError()) {
+                    result.throwException();
+                }
+
+                if (last) {
+                    decoder.flush(out);
+
+                    bytes = null;
+                    decoder = null;
+                }
+            }
+            catch (CharacterCodingException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            length = out.position();
         }
 
-        return new Source(name, text);
+        return index < length;
     }
 
-    public static Source ofREPL(String text) {
-        return new Source("<REPL>", text);
+    // Only one thread ever adds rows: the lexer, or the splitter of the parallel parser before its lexers start
+    public void markLine(int row, int offset) {
+        var count = lineCount;
+
+        if (row != count + 1) {
+            return;
+        }
+
+        var index = lines;
+
+        if (count == index.length) {
+            index = Arrays.copyOf(index, index.length * 2);
+
+            lines = index;
+        }
+
+        index[count] = offset;
+
+        lineCount = count + 1;
+    }
+
+    public int[] lineIndex() {
+        var count = lineCount;
+
+        return Arrays.copyOf(lines, count);
+    }
+
+    public synchronized void warned(OahuWarning.Parsed warning) {
+        warnings.add(warning);
     }
 
+    public synchronized List<OahuWarning.Parsed> warnings() {
+        return List.copyOf(warnings);
+    }
+
+    // Rows and columns are only worked out when a message needs them, from the line index and a scan past its end
+    public int rowOf(int offset) {
+        var count = lineCount;
+        var index = lines;
+
+        var low = 0;
+        var high = count - 1;
+
+        while (low < high) {
+            var middle = (low + high + 1) >>> 1;
+
+            if (index[middle] <= offset) {
+                low = middle;
+            }
+            else {
+                high = middle - 1;
+            }
+        }
+
+        var row = low + 1;
+
+        if (low == count - 1) {
+            for (var i = index[low]; i < offset && fill(i); i++) {
+                if (chars[i] == '\n') {
+                    row++;
+                }
+            }
+        }
+
+        return row;
+    }
+
+    public int columnOf(int offset) {
+        fill(offset);
+
+        var start = Math.min(offset, length);
+
+        while (start > 0 && chars[start - 1] != '\n') {
+            start--;
+        }
+
+        return offset - start + 1;
+    }
+
+    // Only the lexer writes the index; rows it has not reached yet are found by a read-only scan
     public String getLine(int row) {
-        return text.lines().toList().get(row - 1);
+        if (row < 1) {
+            return "";
+        }
+
+        var known = Math.min(row, lineCount);
+
+        var start = lines[known - 1];
+
+
+        for (var i = known; i < row; i++) {
+            while (fill(start) && chars[start] != '\n') {
+                start++;
+            }
+
+            if (!fill(start)) {
+                return "";
+            }
+
+            start++;
+        }
+
+        var end = start;
+
+        while (fill(end) && chars[end] != '\n') {
+            end++;
+        }
+
+        if (end > start && chars[end - 1] == '\r') {
+            end--;
+        }
+
+        return new String(chars, start, end - start);
+    }
+
+    public Script prepare() {
+        return prepare(Engine.AST);
+    }
+
+    public Script prepare(Engine engine) {
+        return prepare(engine, Frontend.SEQUENTIAL, 1);
+    }
+
+    public Script prepare(Engine engine, Frontend frontend, int threads) {
+        return prepare(engine, frontend, threads, null);
+    }
+
+    public Script prepare(Engine engine, Frontend frontend, int threads, ProgramCache cache) {
+        return prepare(engine, frontend, threads, cache, new Optimizer(Optimizer.DEFAULT_LEVEL));
     }
 
-    public Runtime prepare() {
-        var lexer = new Lexer(this);
+    public Script prepare(Engine engine, Frontend frontend, int threads, ProgramCache cache, Optimizer optimizer) {
+        return prepare(engine, resolve(frontend, threads, cache, optimizer));
+    }
+
+    public Script prepare(Engine engine, Program resolved) {
+        return switch (engine) {
+            case AST -> new Runtime(this, resolved);
+
+            case VM -> new Compiler(this, resolved).compile().<Script>map(main -> new VM(this, main)).orElseGet(() -> new Runtime(this, resolved));
+
+            case CLOSURE -> new ClosureCompiler(this, resolved).compile().<Script>map(Evaluator::new).orElseGet(() -> new Runtime(this, resolved));
+        };
+    }
+
+    // With a cache, a source whose text hashes to a stored entry skips the lexer and parser entirely
+    public Program resolve(Frontend frontend, int threads, ProgramCache cache, Optimizer optimizer) {
+        Program program;
+
+        if (cache == null) {
+            program = parse(frontend, threads);
+        }
+        else {
+            var hash = ProgramCache.hash(this);
+
+            program = cache.load(this, hash).orElse(null);
+
+            if (program == null) {
+                program = parse(frontend, threads);
+
+                cache.store(this, hash, program);
+            }
+        }
+
+        // The cache holds the program as parsed, so it serves every optimization level
+        program = optimizer.optimize(program);
+
+        var resolver = new Resolver(this, program);
+
+        return resolver.resolve();
+    }
 
-        var parser = new Parser(this, lexer);
+    private Program parse(Frontend frontend, int threads) {
+        return switch (frontend) {
+            case SEQUENTIAL -> new Parser(this, new Lexer(this)).parse();
 
-        var program = parser.parse();
+            case PARALLEL -> {
+                try (var pool = new ForkJoinPool(threads)) {
+                    yield new ParallelParser(this, pool).parse();
+                }
+            }
 
-        return new Runtime(this, program);
+            case PIPELINED -> {
+                try (var ring = TokenRing.start(this)) {
+                    yield new Parser(this, new TokenBuffer(this, ring)).parse();
+                }
+            }
+        };
     }
 }
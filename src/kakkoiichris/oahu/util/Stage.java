@@ -3,6 +3,7 @@ package kakkoiichris.oahu.util;
 public enum Stage {
     LEXER,
     PARSER,
+    RESOLVER,
     RUNTIME,
     LINKER;
 
@@ -32,25 +32,11 @@ public class Util {
     }
 
     public static <X> Optional<X> cast(Class<X> clazz, Object object) {
-        X x;
-
-        try {
-            x = clazz.cast(object);
-        }
-        catch (ClassCastException e) {
+        if (!clazz.isInstance(object)) {
             return Optional.empty();
         }
 
-        return Optional.ofNullable(x);
-    }
-
-    public static <X extends Enum<X>> Optional<X> getEntry(Class<X> enm, String name) {
-        try {
-            return Optional.of(Enum.valueOf(enm, name));
-        }
-        catch (IllegalArgumentException e) {
-            return Optional.empty();
-        }
+        return Optional.of(clazz.cast(object));
     }
 
     public static String toTitleCase(String input) {
@@ -0,0 +1,1048 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.vm;
+
+import kakkoiichris.oahu.parser.Expr;
+import kakkoiichris.oahu.parser.Program;
+import kakkoiichris.oahu.parser.Stmt;
+import kakkoiichris.oahu.runtime.Redirect;
+import kakkoiichris.oahu.runtime.data.Unit;
+import kakkoiichris.oahu.util.OahuError;
+import kakkoiichris.oahu.util.Source;
+
+import java.util.*;
+
+public class Compiler implements Expr.Visitor<Integer>, Stmt.Visitor<Unit> {
+    private static final int ANY = -1;
+    private static final int NONE = -2;
+
+    private final Source source;
+    private final Program program;
+
+    private Chunk chunk;
+
+    private int target = ANY;
+
+    public Compiler(Source source, Program program) {
+        this.source = source;
+        this.program = program;
+    }
+
+    // Classes and members live in the runtime's scope model, so a program using them is left to the AST engine
+    public Optional<Prototype> compile() {
+        var main = new Prototype(null);
+
+        chunk = new Chunk(null, null, program.locals());
+
+        try {
+            for (var stmt : program) {
+                chunk.statement = stmt;
+
+                statement(stmt);
+            }
+
+            chunk.emit(null, Op.HALT);
+
+            finish(main);
+        }
+        catch (Unsupported e) {
+            return Optional.empty();
+        }
+
+        return Optional.of(main);
+    }
+
+    private void compileFun(Prototype prototype, Level enclosing) {
+        var fun = prototype.fun();
+
+        var outer = chunk;
+
+        chunk = new Chunk(enclosing, fun, fun.locals());
+
+        try {
+            for (var param : fun.params()) {
+                var slot = param.name().slot();
+
+                chunk.fixed.set(slot);
+
+                if (param.defaultValue() != Expr.Empty.get()) {
+                    var skip = chunk.jump(param, Op.JUMP_SET, slot);
+
+                    into(param.defaultValue(), slot);
+
+                    chunk.patch(skip);
+                }
+            }
+
+            statement(fun.body());
+
+            chunk.emit(fun, Op.RETURN, unit());
+
+            finish(prototype);
+        }
+        finally {
+            chunk = outer;
+        }
+    }
+
+    private void finish(Prototype prototype) {
+        var done = chunk;
+
+        prototype.define(
+            Arrays.copyOf(done.code, done.size),
+            done.constants.toArray(),
+            Arrays.copyOf(done.nodes, done.size),
+            done.max
+        );
+
+        // Nested bodies are compiled once their enclosing function is complete, mirroring the resolver
+        for (var pending : done.pending) {
+            compileFun(pending.prototype(), pending.enclosing());
+        }
+    }
+
+    private int compile(Expr expr, int target) {
+        this.target = target;
+
+        return visit(expr);
+    }
+
+    private int operand(Expr expr) {
+        return compile(expr, ANY);
+    }
+
+    private int register(Expr expr) {
+        var operand = operand(expr);
+
+        if (operand >= 0) {
+            return operand;
+        }
+
+        var temp = chunk.temp();
+
+        chunk.emit(expr, Op.MOVE, temp, operand);
+
+        return temp;
+    }
+
+    private void into(Expr expr, int register) {
+        var operand = compile(expr, register);
+
+        if (operand != register) {
+            chunk.emit(expr, Op.MOVE, register, operand);
+        }
+    }
+
+    private void effect(Expr expr) {
+        var mark = chunk.next;
+
+        compile(expr, NONE);
+
+        chunk.next = mark;
+    }
+
+    private void statement(Stmt stmt) {
+        var mark = chunk.next;
+
+        visit(stmt);
+
+        chunk.next = mark;
+    }
+
+    private int destination() {
+        var register = target >= 0 ? target : chunk.temp();
+
+        target = ANY;
+
+        return register;
+    }
+
+    private int protect(Expr node, int operand, boolean clobbered) {
+        if (!clobbered || operand < 0 || operand >= chunk.locals) {
+            return operand;
+        }
+
+        var temp = chunk.temp();
+
+        chunk.emit(node, Op.MOVE, temp, operand);
+
+        return temp;
+    }
+
+    private int unit() {
+        return chunk.constant(Unit.get());
+    }
+
+    private boolean isConstant(Expr.Name name) {
+        var owner = chunk.current;
+
+        for (var i = 0; i < name.depth(); i++) {
+            owner = owner.enclosing;
+        }
+
+        return owner.fixed.get(name.slot());
+    }
+
+    // The framed block a resolved name lives in, or null when it lives in a function's frame
+    private Block block(Expr.Name name) {
+        var owner = chunk.current;
+
+        for (var i = 0; i < name.depth() && owner instanceof Block; i++) {
+            owner = owner.enclosing;
+        }
+
+        return owner instanceof Block block ? block : null;
+    }
+
+    // Frames between this function's own and the one a name outside every framed block lives in
+    private int up(Expr.Name name) {
+        return name.depth() - chunk.blocks;
+    }
+
+    private boolean isRegister(Expr.Name name) {
+        return name.isResolved() && block(name) == null && up(name) == 0;
+    }
+
+    private Block enter() {
+        var block = new Block(chunk.current, chunk.temp());
+
+        chunk.current = block;
+        chunk.blocks++;
+
+        return block;
+    }
+
+    private void leave() {
+        chunk.current = chunk.current.enclosing;
+        chunk.blocks--;
+    }
+
+    // Each pass through a framed block starts a fresh frame whose parent is the frame around it
+    private void frame(Object node, Block block, int locals) {
+        if (block.enclosing instanceof Block outer) {
+            chunk.emit(node, Op.FRAME_IN, block.register, locals, outer.register);
+        }
+        else {
+            chunk.emit(node, Op.FRAME, block.register, locals);
+        }
+    }
+
+    private void closure(Object node, int dst, Prototype prototype) {
+        if (chunk.current instanceof Block block) {
+            chunk.emit(node, Op.CLOSURE_IN, dst, chunk.constant(prototype), block.register);
+        }
+        else {
+            chunk.emit(node, Op.CLOSURE, dst, chunk.constant(prototype));
+        }
+    }
+
+    private void store(Object node, Expr.Name name, int value) {
+        if (chunk.current instanceof Block block) {
+            chunk.emit(node, Op.DEFINE_LOCAL, block.register, name.slot(), value);
+        }
+        else if (value != name.slot()) {
+            chunk.emit(node, Op.MOVE, name.slot(), value);
+        }
+    }
+
+    private static boolean isSimple(Expr expr) {
+        return switch (expr) {
+            case Expr.Empty _, Expr.Value _, Expr.Name _, Expr.Lambda _ -> true;
+
+            case Expr.Unary unary -> isSimple(unary.expr());
+
+            case Expr.Binary binary -> isSimple(binary.left()) && isSimple(binary.right());
+
+            default -> false;
+        };
+    }
+
+    private void define(Expr.Name name, boolean constant) {
+        if (!name.isResolved()) {
+            throw OahuError.failure("Name '%s' has no slot in the VM!".formatted(name));
+        }
+
+        if (constant) {
+            chunk.current.fixed.set(name.slot());
+        }
+    }
+
+    private Prototype prototype(Stmt.Fun fun) {
+        var prototype = new Prototype(fun);
+
+        if (!fun.isLinked()) {
+            chunk.pending.add(new Pending(prototype, chunk.current));
+        }
+
+        return prototype;
+    }
+
+    private void unhandled(Redirect redirect) {
+        var node = chunk.fun != null ? chunk.fun : chunk.statement;
+
+        chunk.emit(node, Op.UNHANDLED, chunk.constant(redirect));
+    }
+
+    @Override
+    public Integer visitEmptyExpr(Expr.Empty expr) {
+        return unit();
+    }
+
+    @Override
+    public Integer visitValueExpr(Expr.Value expr) {
+        return chunk.constant(expr.value());
+    }
+
+    @Override
+    public Integer visitNameExpr(Expr.Name expr) {
+        if (isRegister(expr)) {
+            return expr.slot();
+        }
+
+        var dst = destination();
+
+        if (!expr.isResolved()) {
+            chunk.emit(expr, Op.UNDEFINED, dst);
+        }
+        else if (block(expr) instanceof Block block) {
+            chunk.emit(expr, Op.GET_LOCAL, dst, block.register, expr.slot());
+        }
+        else {
+            chunk.emit(expr, Op.GET_UP, dst, up(expr), expr.slot());
+        }
+
+        return dst;
+    }
+
+    @Override
+    public Integer visitUnaryExpr(Expr.Unary expr) {
+        var dst = destination();
+
+        var mark = chunk.next;
+
+        var e = operand(expr.expr());
+
+        switch (expr.operator()) {
+            case NEGATIVE -> chunk.emit(expr, Op.NEGATE, dst, e);
+
+            case NOT -> chunk.emit(expr, Op.NOT, dst, e);
+
+            default -> chunk.emit(expr, Op.MOVE, dst, unit());
+        }
+
+        chunk.next = mark;
+
+        return dst;
+    }
+
+    @Override
+    public Integer visitBinaryExpr(Expr.Binary expr) {
+        var dst = destination();
+
+        var mark = chunk.next;
+
+        var operator = expr.operator();
+
+        if (operator == Expr.Binary.Operator.OR || operator == Expr.Binary.Operator.AND) {
+            var l = operand(expr.left());
+
+            var skip = chunk.jump(expr, operator == Expr.Binary.Operator.OR ? Op.TEST_OR : Op.TEST_AND, dst, l);
+
+            var r = operand(expr.right());
+
+            chunk.emit(expr, Op.LOGIC, dst, r, l);
+
+            chunk.patch(skip);
+        }
+        else {
+            var l = protect(expr, operand(expr.left()), !isSimple(expr.right()));
+
+            var r = operand(expr.right());
+
+            var op = switch (operator) {
+                case EQUAL -> Op.EQUAL;
+
+                case NOT_EQUAL -> Op.NOT_EQUAL;
+
+                case LESS -> Op.LESS;
+
+                case LESS_EQUAL -> Op.LESS_EQUAL;
+
+                case GREATER -> Op.GREATER;
+
+                case GREATER_EQUAL -> Op.GREATER_EQUAL;
+
+                case ADD -> Op.ADD;
+
+                case SUBTRACT -> Op.SUBTRACT;
+
+                case MULTIPLY -> Op.MULTIPLY;
+
+                case DIVIDE -> Op.DIVIDE;
+
+                case MODULUS -> Op.MODULUS;
+
+                default -> throw OahuError.failure("Broken binary operator!");
+            };
+
+            chunk.emit(expr, op, dst, l, r);
+        }
+
+        chunk.next = mark;
+
+        return dst;
+    }
+
+    @Override
+    public Integer visitAssignExpr(Expr.Assign expr) {
+        var name = expr.name();
+
+        if (isRegister(name) && !isConstant(name)) {
+            into(expr.value(), name.slot());
+
+            return name.slot();
+        }
+
+        var value = operand(expr.value());
+
+        if (!name.isResolved()) {
+            chunk.emit(name, Op.UNDEFINED, chunk.temp());
+        }
+        else if (isConstant(name)) {
+            if (block(name) instanceof Block block) {
+                chunk.emit(name, Op.GET_LOCAL, chunk.temp(), block.register, name.slot());
+            }
+            else if (up(name) > 0) {
+                chunk.emit(name, Op.GET_UP, chunk.temp(), up(name), name.slot());
+            }
+
+            chunk.emit(name, Op.REASSIGN);
+        }
+        else if (block(name) instanceof Block block) {
+            chunk.emit(name, Op.SET_LOCAL, block.register, name.slot(), value);
+        }
+        else {
+            chunk.emit(name, Op.SET_UP, up(name), name.slot(), value);
+        }
+
+        return value;
+    }
+
+    @Override
+    public Integer visitIndexExpr(Expr.Index expr) {
+        return chunk.constant(null);
+    }
+
+    @Override
+    public Integer visitMemberExpr(Expr.Member expr) {
+        throw new Unsupported();
+    }
+
+    @Override
+    public Integer visitInvokeExpr(Expr.Invoke expr) {
+        var dst = destination();
+
+        var mark = chunk.next;
+
+        var args = expr.args();
+
+        var clobbered = !args.stream().allMatch(arg -> isSimple(arg.expr()));
+
+        var callee = protect(expr, register(expr.target()), clobbered);
+
+        var base = chunk.reserve(args.size());
+
+        var named = false;
+
+        var names = new String[args.size()];
+        var spreads = new boolean[args.size()];
+
+        for (var i = 0; i < args.size(); i++) {
+            var arg = args.get(i);
+
+            into(arg.expr(), base + i);
+
+            if (!arg.isPositional()) {
+                names[i] = arg.name().value();
+            }
+
+            spreads[i] = arg.spread();
+
+            named |= !arg.isPositional() || arg.spread();
+        }
+
+        var site = named ? chunk.constant(new CallSite(names, spreads)) : 0;
+
+        chunk.emit(expr, Op.CALL, dst, callee, base, args.size(), site);
+
+        chunk.next = mark;
+
+        return dst;
+    }
+
+    @Override
+    public Integer visitListLiteralExpr(Expr.ListLiteral expr) {
+        var dst = destination();
+
+        var mark = chunk.next;
+
+        var elements = expr.elements();
+
+        var base = chunk.reserve(elements.size());
+
+        for (var i = 0; i < elements.size(); i++) {
+            into(elements.get(i), base + i);
+        }
+
+        chunk.emit(expr, Op.TABLE, dst, base, elements.size());
+
+        chunk.next = mark;
+
+        return dst;
+    }
+
+    @Override
+    public Integer visitListForExpr(Expr.ListFor expr) {
+        return chunk.constant(null);
+    }
+
+    @Override
+    public Integer visitLambdaExpr(Expr.Lambda expr) {
+        var dst = destination();
+
+        closure(expr, dst, prototype(expr.fun()));
+
+        return dst;
+    }
+
+    @Override
+    public Integer visitBlockExpr(Expr.Block expr) {
+        var hint = target;
+
+        var exprs = expr.exprs();
+
+        if (exprs.isEmpty()) {
+            return unit();
+        }
+
+        for (var i = 0; i < exprs.size() - 1; i++) {
+            effect(exprs.get(i));
+        }
+
+        return compile(exprs.getLast(), hint);
+    }
+
+    @Override
+    public Integer visitIfExpr(Expr.If expr) {
+        var discard = target == NONE;
+
+        var dst = discard ? NONE : destination();
+
+        var mark = chunk.next;
+
+        var condition = operand(expr.condition());
+
+        chunk.next = mark;
+
+        var skip = chunk.jump(expr, Op.JUMP_FALSE, condition);
+
+        branch(expr.body(), dst);
+
+        if (discard && expr.elze() == Expr.Empty.get()) {
+            chunk.patch(skip);
+
+            return unit();
+        }
+
+        var end = chunk.jump(expr, Op.JUMP);
+
+        chunk.patch(skip);
+
+        branch(expr.elze(), dst);
+
+        chunk.patch(end);
+
+        return discard ? unit() : dst;
+    }
+
+    @Override
+    public Integer visitWhenExpr(Expr.When expr) {
+        var discard = target == NONE;
+
+        var dst = discard ? NONE : destination();
+
+        var ends = new ArrayList<Integer>();
+
+        for (var branch : expr.branches()) {
+            var mark = chunk.next;
+
+            var condition = operand(branch.condition());
+
+            chunk.next = mark;
+
+            var skip = chunk.jump(branch.condition(), Op.JUMP_FALSE, condition);
+
+            branch(branch.body(), dst);
+
+            ends.add(chunk.jump(branch.body(), Op.JUMP));
+
+            chunk.patch(skip);
+        }
+
+        branch(expr.elze(), dst);
+
+        for (var end : ends) {
+            chunk.patch(end);
+        }
+
+        return discard ? unit() : dst;
+    }
+
+    private void branch(Expr body, int dst) {
+        if (dst == NONE) {
+            effect(body);
+        }
+        else {
+            var mark = chunk.next;
+
+            into(body, dst);
+
+            chunk.next = mark;
+        }
+    }
+
+    @Override
+    public Integer visitTryExpr(Expr.Try expr) {
+        return chunk.constant(null);
+    }
+
+    @Override
+    public Integer visitStatementExpr(Expr.Statement expr) {
+        statement(expr.stmt());
+
+        return unit();
+    }
+
+    @Override
+    public Unit visitEmptyStmt(Stmt.Empty stmt) {
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitExpressionStmt(Stmt.Expression stmt) {
+        effect(stmt.expr());
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitDeclarationStmt(Stmt.Declaration stmt) {
+        if (stmt.destructured()) {
+            effect(stmt.expr());
+
+            return Unit.get();
+        }
+
+        var name = stmt.names().getFirst();
+
+        define(name, stmt.constant());
+
+        if (chunk.current instanceof Block) {
+            store(stmt, name, operand(stmt.expr()));
+        }
+        else {
+            into(stmt.expr(), name.slot());
+        }
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitBlockStmt(Stmt.Block stmt) {
+        if (stmt.locals() == 0) {
+            for (var subStmt : stmt.stmts()) {
+                statement(subStmt);
+            }
+
+            return Unit.get();
+        }
+
+        var block = enter();
+
+        frame(stmt, block, stmt.locals());
+
+        for (var subStmt : stmt.stmts()) {
+            statement(subStmt);
+        }
+
+        leave();
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitWhileStmt(Stmt.While stmt) {
+        var start = chunk.size;
+
+        var condition = operand(stmt.condition());
+
+        var exit = chunk.jump(stmt, Op.JUMP_FALSE, condition);
+
+        loop(stmt.label(), stmt.body(), start);
+
+        chunk.patch(exit);
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitDoStmt(Stmt.Do stmt) {
+        var start = chunk.size;
+
+        var loop = new Loop(stmt.label());
+
+        chunk.loops.push(loop);
+
+        statement(stmt.body());
+
+        chunk.loops.pop();
+
+        loop.continues.forEach(chunk::patch);
+
+        var condition = operand(stmt.condition());
+
+        chunk.emit(stmt, Op.JUMP_TRUE, condition, start);
+
+        loop.breaks.forEach(chunk::patch);
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitLoopStmt(Stmt.Loop stmt) {
+        if (stmt.count() == Expr.Empty.get()) {
+            loop(stmt.label(), stmt.body(), chunk.size);
+
+            return Unit.get();
+        }
+
+        var counter = chunk.temp();
+
+        chunk.emit(stmt.count(), Op.COUNT, counter, operand(stmt.count()));
+
+        var start = chunk.size;
+
+        var exit = chunk.jump(stmt, Op.COUNT_NEXT, counter);
+
+        loop(stmt.label(), stmt.body(), start);
+
+        chunk.patch(exit);
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitForStmt(Stmt.For stmt) {
+        var iterator = chunk.temp();
+
+        chunk.emit(stmt.iterable(), Op.ITERATE, iterator, operand(stmt.iterable()));
+
+        var block = stmt.locals() > 0 ? enter() : null;
+
+        for (var name : stmt.names()) {
+            define(name, true);
+        }
+
+        var start = chunk.size;
+
+        // Names declared in a frame, this loop's own or one it sits in, are slots of that frame rather than registers
+        var framed = chunk.current instanceof Block;
+
+        int exit;
+
+        if (framed || stmt.destructured()) {
+            var element = chunk.temp();
+
+            exit = chunk.jump(stmt, Op.NEXT, element, iterator);
+
+            if (block != null) {
+                frame(stmt, block, stmt.locals());
+            }
+
+            if (stmt.destructured()) {
+                var value = framed ? chunk.temp() : 0;
+
+                for (var i = 0; i < stmt.names().size(); i++) {
+                    var name = stmt.names().get(i);
+
+                    var target = framed ? value : name.slot();
+
+                    chunk.emit(stmt, Op.UNPACK, target, element, i);
+
+                    store(stmt, name, target);
+                }
+            }
+            else {
+                store(stmt, stmt.names().getFirst(), element);
+            }
+        }
+        else {
+            exit = chunk.jump(stmt, Op.NEXT, stmt.names().getFirst().slot(), iterator);
+        }
+
+        loop(stmt.label(), stmt.body(), start);
+
+        if (block != null) {
+            leave();
+        }
+
+        chunk.patch(exit);
+
+        return Unit.get();
+    }
+
+    private void loop(Expr.Name label, Stmt body, int start) {
+        var loop = new Loop(label);
+
+        chunk.loops.push(loop);
+
+        statement(body);
+
+        chunk.loops.pop();
+
+        chunk.emit(body, Op.JUMP, start);
+
+        for (var jump : loop.continues) {
+            chunk.code[jump] = start;
+        }
+
+        loop.breaks.forEach(chunk::patch);
+    }
+
+    private Loop find(Expr.Name label) {
+        for (var loop : chunk.loops) {
+            if (label.isEmpty() || label.equals(loop.label)) {
+                return loop;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public Unit visitBreakStmt(Stmt.Break stmt) {
+        var loop = find(stmt.label());
+
+        if (loop == null) {
+            unhandled(stmt.redirect());
+        }
+        else {
+            loop.breaks.add(chunk.jump(stmt, Op.JUMP));
+        }
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitContinueStmt(Stmt.Continue stmt) {
+        var loop = find(stmt.label());
+
+        if (loop == null) {
+            unhandled(stmt.redirect());
+        }
+        else {
+            loop.continues.add(chunk.jump(stmt, Op.JUMP));
+        }
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitReturnStmt(Stmt.Return stmt) {
+        chunk.emit(stmt, Op.RETURN, operand(stmt.expr()));
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitThrowStmt(Stmt.Throw stmt) {
+        chunk.emit(stmt, Op.THROW, operand(stmt.expr()));
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitExitStmt(Stmt.Exit stmt) {
+        chunk.emit(stmt, Op.EXIT, operand(stmt.expr()));
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitFunStmt(Stmt.Fun stmt) {
+        define(stmt.name(), true);
+
+        var prototype = prototype(stmt);
+
+        var dst = chunk.current instanceof Block ? chunk.temp() : stmt.name().slot();
+
+        if (stmt.isLinked()) {
+            chunk.emit(stmt, Op.LINK, dst, chunk.constant(prototype));
+        }
+        else {
+            closure(stmt, dst, prototype);
+        }
+
+        store(stmt, stmt.name(), dst);
+
+        return Unit.get();
+    }
+
+    @Override
+    public Unit visitClassStmt(Stmt.Class stmt) {
+        throw new Unsupported();
+    }
+
+    @Override
+    public Unit visitEnumStmt(Stmt.Enum stmt) {
+        return Unit.get();
+    }
+
+    // The compile-time image of a frame, which knows which of its slots hold constants
+    private static class Level {
+        protected final Level enclosing;
+
+        protected final BitSet fixed = new BitSet();
+
+        private Level(Level enclosing) {
+            this.enclosing = enclosing;
+        }
+    }
+
+    private static final class Block extends Level {
+        private final int register;
+
+        private Block(Level enclosing, int register) {
+            super(enclosing);
+
+            this.register = register;
+        }
+    }
+
+    private record Pending(Prototype prototype, Level enclosing) {
+    }
+
+    private static final class Chunk extends Level {
+        private final Stmt.Fun fun;
+        private final int locals;
+
+        private final List<Object> constants = new ArrayList<>();
+        private final Map<Object, Integer> indices = new HashMap<>();
+
+        private final Deque<Loop> loops = new ArrayDeque<>();
+
+        private final List<Pending> pending = new ArrayList<>();
+
+        private Level current = this;
+
+        private int blocks;
+
+        private int[] code = new int[64];
+        private Object[] nodes = new Object[64];
+        private int size;
+
+        private int next;
+        private int max;
+
+        private Stmt statement;
+
+        private Chunk(Level enclosing, Stmt.Fun fun, int locals) {
+            super(enclosing);
+
+            this.fun = fun;
+            this.locals = locals;
+
+            next = max = locals;
+        }
+
+        private int temp() {
+            return reserve(1);
+        }
+
+        private int reserve(int count) {
+            var first = next;
+
+            next += count;
+
+            max = Math.max(max, next);
+
+            return first;
+        }
+
+        private int constant(Object value) {
+            var index = indices.computeIfAbsent(value, _ -> {
+                constants.add(value);
+
+                return constants.size() - 1;
+            });
+
+            return ~index;
+        }
+
+        private int emit(Object node, int... words) {
+            if (size + words.length > code.length) {
+                code = Arrays.copyOf(code, code.length * 2 + words.length);
+                nodes = Arrays.copyOf(nodes, code.length);
+            }
+
+            var pc = size;
+
+            nodes[pc] = node;
+
+            for (var word : words) {
+                code[size++] = word;
+            }
+
+            return pc;
+        }
+
+        private int jump(Object node, int... words) {
+            var full = Arrays.copyOf(words, words.length + 1);
+
+            emit(node, full);
+
+            return size - 1;
+        }
+
+        private void patch(int jump) {
+            code[jump] = size;
+        }
+    }
+
+    private static final class Loop {
+        private final Expr.Name label;
+
+        private final List<Integer> breaks = new ArrayList<>();
+        private final List<Integer> continues = new ArrayList<>();
+
+        private Loop(Expr.Name label) {
+            this.label = label;
+        }
+    }
+
+    private static final class Unsupported extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private Unsupported() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.vm;
+
+public final class Op {
+    public static final int MOVE = 0;
+    public static final int GET_UP = 1;
+    public static final int SET_UP = 2;
+    public static final int UNDEFINED = 3;
+    public static final int REASSIGN = 4;
+    public static final int NEGATE = 5;
+    public static final int NOT = 6;
+    public static final int EQUAL = 7;
+    public static final int NOT_EQUAL = 8;
+    public static final int LESS = 9;
+    public static final int LESS_EQUAL = 10;
+    public static final int GREATER = 11;
+    public static final int GREATER_EQUAL = 12;
+    public static final int ADD = 13;
+    public static final int SUBTRACT = 14;
+    public static final int MULTIPLY = 15;
+    public static final int DIVIDE = 16;
+    public static final int MODULUS = 17;
+    public static final int TEST_OR = 18;
+    public static final int TEST_AND = 19;
+    public static final int LOGIC = 20;
+    public static final int JUMP = 21;
+    public static final int JUMP_FALSE = 22;
+    public static final int JUMP_TRUE = 23;
+    public static final int JUMP_SET = 24;
+    public static final int CALL = 25;
+    public static final int TABLE = 26;
+    public static final int CLOSURE = 27;
+    public static final int LINK = 28;
+    public static final int COUNT = 29;
+    public static final int COUNT_NEXT = 30;
+    public static final int ITERATE = 31;
+    public static final int NEXT = 32;
+    public static final int UNPACK = 33;
+    public static final int RETURN = 34;
+    public static final int THROW = 35;
+    public static final int EXIT = 36;
+    public static final int UNHANDLED = 37;
+    public static final int HALT = 38;
+    public static final int FRAME = 39;
+    public static final int FRAME_IN = 40;
+    public static final int CLOSURE_IN = 41;
+    public static final int GET_LOCAL = 42;
+    public static final int SET_LOCAL = 43;
+    public static final int DEFINE_LOCAL = 44;
+
+    private static final String[] names = {
+        "MOVE", "GET_UP", "SET_UP", "UNDEFINED", "REASSIGN", "NEGATE", "NOT", "EQUAL", "NOT_EQUAL", "LESS",
+        "LESS_EQUAL", "GREATER", "GREATER_EQUAL", "ADD", "SUBTRACT", "MULTIPLY", "DIVIDE", "MODULUS", "TEST_OR",
+        "TEST_AND", "LOGIC", "JUMP", "JUMP_FALSE", "JUMP_TRUE", "JUMP_SET", "CALL", "TABLE", "CLOSURE", "LINK",
+        "COUNT", "COUNT_NEXT", "ITERATE", "NEXT", "UNPACK", "RETURN", "THROW", "EXIT", "UNHANDLED", "HALT",
+        "FRAME", "FRAME_IN", "CLOSURE_IN", "GET_LOCAL", "SET_LOCAL", "DEFINE_LOCAL"
+    };
+
+    private static final int[] widths = {
+        3, 4, 4, 2, 1, 3, 3, 4, 4, 4,
+        4, 4, 4, 4, 4, 4, 4, 4, 4,
+        4, 4, 2, 3, 3, 3, 6, 4, 3, 3,
+        3, 3, 3, 4, 4, 2, 2, 2, 2, 1,
+        3, 4, 4, 4, 4, 4
+    };
+
+    private Op() {
+    }
+
+    public static String name(int op) {
+        return names[op];
+    }
+
+    public static int width(int op) {
+        return widths[op];
+    }
+}
@@ -0,0 +1,119 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.vm;
+
+import kakkoiichris.oahu.parser.Expr;
+import kakkoiichris.oahu.parser.Stmt;
+
+import java.util.List;
+
+public final class Prototype {
+    private final Stmt.Fun fun;
+    private final int[] slots;
+    private final String[] names;
+    private final boolean[] optional;
+    private final boolean vararg;
+
+    private int[] code;
+    private Object[] constants;
+    private Object[] nodes;
+    private int registers;
+
+    public Prototype(Stmt.Fun fun) {
+        this.fun = fun;
+
+        var params = fun == null ? List.<Stmt.Fun.Param>of() : fun.params();
+
+        slots = new int[params.size()];
+        names = new String[params.size()];
+        optional = new boolean[params.size()];
+
+        for (var i = 0; i < params.size(); i++) {
+            var param = params.get(i);
+
+            slots[i] = param.name().slot();
+            names[i] = param.name().value();
+            optional[i] = param.defaultValue() != Expr.Empty.get();
+        }
+
+        vararg = !params.isEmpty() && params.getLast().isVarargs();
+    }
+
+    public Stmt.Fun fun() {
+        return fun;
+    }
+
+    public int arity() {
+        return slots.length;
+    }
+
+    public int[] slots() {
+        return slots;
+    }
+
+    public String[] names() {
+        return names;
+    }
+
+    public boolean isOptional(int i) {
+        return optional[i];
+    }
+
+    public boolean isVararg() {
+        return vararg;
+    }
+
+    public int[] code() {
+        return code;
+    }
+
+    public Object[] constants() {
+        return constants;
+    }
+
+    public Object[] nodes() {
+        return nodes;
+    }
+
+    public int registers() {
+        return registers;
+    }
+
+    public void define(int[] code, Object[] constants, Object[] nodes, int registers) {
+        this.code = code;
+        this.constants = constants;
+        this.nodes = nodes;
+        this.registers = registers;
+    }
+
+    public String disassemble() {
+        var builder = new StringBuilder("%s (%d registers)%n".formatted(this, registers));
+
+        for (var pc = 0; pc < code.length; pc += Op.width(code[pc])) {
+            builder.append("%04d %-13s".formatted(pc, Op.name(code[pc])));
+
+            for (var i = 1; i < Op.width(code[pc]); i++) {
+                var operand = code[pc + i];
+
+                builder.append(operand < 0 ? " K(%s)".formatted(constants[~operand]) : " %d".formatted(operand));
+            }
+
+            builder.append(System.lineSeparator());
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return fun == null ? "main" : fun.toString();
+    }
+}
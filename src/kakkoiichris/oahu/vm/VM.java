@@ -0,0 +1,629 @@
+/*#################################################*
+ #    ____  _       _    _ _    _                  #
+ #   / __ \ \|/\   | |  | | |  | |      /\         #
+ #  | |  | | /  \  | |__| | |  | | ____/  \_       #
+ #  | |  | |/ /\ \ |  __  | |  | |\         |      #
+ #  | |__| / ____ \| |  | | |__| | \         \/|   #
+ #   \____/_/    \_\_|  |_|\____/   \___/\__   \   #
+ #                                          \___\  #
+ #        Copyright (C) 2019, KakkoiiChris         #
+ *#################################################*/
+package kakkoiichris.oahu.vm;
+
+import kakkoiichris.oahu.lexer.Context;
+import kakkoiichris.oahu.parser.Callable;
+import kakkoiichris.oahu.parser.Expr;
+import kakkoiichris.oahu.parser.Stmt;
+import kakkoiichris.oahu.runtime.Operators;
+import kakkoiichris.oahu.runtime.Redirect;
+import kakkoiichris.oahu.runtime.Runtime;
+import kakkoiichris.oahu.runtime.Script;
+import kakkoiichris.oahu.runtime.data.Null;
+import kakkoiichris.oahu.runtime.data.Table;
+import kakkoiichris.oahu.runtime.data.Unit;
+import kakkoiichris.oahu.runtime.linker.Link;
+import kakkoiichris.oahu.runtime.linker.Linker;
+import kakkoiichris.oahu.util.OahuError;
+import kakkoiichris.oahu.util.Source;
+
+import java.util.*;
+
+public class VM implements Script {
+    private final Source source;
+    private final Prototype main;
+    private final Linker linker;
+
+    public VM(Source source, Prototype main, Link... links) {
+        this.source = source;
+        this.main = main;
+
+        linker = new Linker(source, links);
+    }
+
+    @Override
+    public Runtime.Result run() {
+        var value = execute(main, new Frame(new Object[main.registers()], null));
+
+        if (value == null) {
+            return new Runtime.Result(Unit.get(), "");
+        }
+
+        return new Runtime.Result(value, value.toString());
+    }
+
+    private static Object load(Object[] registers, Object[] constants, int operand) {
+        return operand >= 0 ? registers[operand] : constants[~operand];
+    }
+
+    private static boolean isTrue(Object value) {
+        return value instanceof Boolean b && b;
+    }
+
+    private Object execute(Prototype prototype, Frame frame) {
+        var code = prototype.code();
+        var constants = prototype.constants();
+        var registers = frame.registers();
+
+        var pc = 0;
+
+        while (true) {
+            switch (code[pc]) {
+                case Op.MOVE -> {
+                    registers[code[pc + 1]] = load(registers, constants, code[pc + 2]);
+
+                    pc += 3;
+                }
+
+                case Op.GET_UP -> {
+                    var value = up(frame, code[pc + 2]).registers()[code[pc + 3]];
+
+                    if (value == null) {
+                        throw undefined(prototype, pc);
+                    }
+
+                    registers[code[pc + 1]] = value;
+
+                    pc += 4;
+                }
+
+                case Op.SET_UP -> {
+                    var outer = up(frame, code[pc + 1]).registers();
+
+                    if (outer[code[pc + 2]] == null) {
+                        throw undefined(prototype, pc);
+                    }
+
+                    outer[code[pc + 2]] = load(registers, constants, code[pc + 3]);
+
+                    pc += 4;
+                }
+
+                case Op.GET_LOCAL -> {
+                    var value = ((Frame) registers[code[pc + 2]]).registers()[code[pc + 3]];
+
+                    if (value == null) {
+                        throw undefined(prototype, pc);
+                    }
+
+                    registers[code[pc + 1]] = value;
+
+                    pc += 4;
+                }
+
+                case Op.SET_LOCAL -> {
+                    var locals = ((Frame) registers[code[pc + 1]]).registers();
+
+                    if (locals[code[pc + 2]] == null) {
+                        throw undefined(prototype, pc);
+                    }
+
+                    locals[code[pc + 2]] = load(registers, constants, code[pc + 3]);
+
+                    pc += 4;
+                }
+
+                case Op.DEFINE_LOCAL -> {
+                    ((Frame) registers[code[pc + 1]]).registers()[code[pc + 2]] = load(registers, constants, code[pc + 3]);
+
+                    pc += 4;
+                }
+
+                case Op.UNDEFINED -> throw undefined(prototype, pc);
+
+                case Op.REASSIGN -> throw OahuError.reassignedConstant(source, context(prototype, pc));
+
+                case Op.NEGATE -> {
+                    var e = load(registers, constants, code[pc + 2]);
+
+                    registers[code[pc + 1]] = e instanceof Double d ? (Object) (-d) : unary(prototype, pc, e, Operators.negate(e));
+
+                    pc += 3;
+                }
+
+                case Op.NOT -> {
+                    var e = load(registers, constants, code[pc + 2]);
+
+                    registers[code[pc + 1]] = unary(prototype, pc, e, Operators.not(e));
+
+                    pc += 3;
+                }
+
+                case Op.EQUAL -> {
+                    var l = load(registers, constants, code[pc + 2]);
+                    var r = load(registers, constants, code[pc + 3]);
+
+                    registers[code[pc + 1]] = l.equals(r);
+
+                    pc += 4;
+                }
+
+                case Op.NOT_EQUAL -> {
+                    var l = load(registers, constants, code[pc + 2]);
+                    var r = load(registers, constants, code[pc + 3]);
+
+                    registers[code[pc + 1]] = !l.equals(r);
+
+                    pc += 4;
+                }
+
+                case Op.LESS -> {
+                    var l = load(registers, constants, code[pc + 2]);
+                    var r = load(registers, constants, code[pc + 3]);
+
+                    registers[code[pc + 1]] = l instanceof Double a && r instanceof Double b ? (Object) (a < b) : binary(prototype, pc, l, r, Operators.less(l, r));
+
+                    pc += 4;
+                }
+
+                case Op.LESS_EQUAL -> {
+                    var l = load(registers, constants, code[pc + 2]);
+                    var r = load(registers, constants, code[pc + 3]);
+
+                    registers[code[pc + 1]] = l instanceof Double a && r instanceof Double b ? (Object) (a <= b) : binary(prototype, pc, l, r, Operators.lessEqual(l, r));
+
+                    pc += 4;
+                }
+
+                case Op.GREATER -> {
+                    var l = load(registers, constants, code[pc + 2]);
+                    var r = load(registers, constants, code[pc + 3]);
+
+                    registers[code[pc + 1]] = l instanceof Double a && r instanceof Double b ? (Object) (a > b) : binary(prototype, pc, l, r, Operators.greater(l, r));
+
+                    pc += 4;
+                }
+
+                case Op.GREATER_EQUAL -> {
+                    var l = load(registers, constants, code[pc + 2]);
+                    var r = load(registers, constants, code[pc + 3]);
+
+                    registers[code[pc + 1]] = l instanceof Double a && r instanceof Double b ? (Object) (a >= b) : binary(prototype, pc, l, r, Operators.greaterEqual(l, r));
+
+                    pc += 4;
+                }
+
+                case Op.ADD -> {
+                    var l = load(registers, constants, code[pc + 2]);
+                    var r = load(registers, constants, code[pc + 3]);
+
+                    registers[code[pc + 1]] = l instanceof Double a && r instanceof Double b ? (Object) (a + b) : binary(prototype, pc, l, r, Operators.add(l, r));
+
+                    pc += 4;
+                }
+
+                case Op.SUBTRACT -> {
+                    var l = load(registers, constants, code[pc + 2]);
+                    var r = load(registers, constants, code[pc + 3]);
+
+                    registers[code[pc + 1]] = l instanceof Double a && r instanceof Double b ? (Object) (a - b) : binary(prototype, pc, l, r, Operators.subtract(l, r));
+
+                    pc += 4;
+                }
+
+                case Op.MULTIPLY -> {
+                    var l = load(registers, constants, code[pc + 2]);
+                    var r = load(registers, constants, code[pc + 3]);
+
+                    registers[code[pc + 1]] = l instanceof Double a && r instanceof Double b ? (Object) (a * b) : binary(prototype, pc, l, r, Operators.multiply(l, r));
+
+                    pc += 4;
+                }
+
+                case Op.DIVIDE -> {
+                    var l = load(registers, constants, code[pc + 2]);
+                    var r = load(registers, constants, code[pc + 3]);
+
+                    registers[code[pc + 1]] = binary(prototype, pc, l, r, Operators.divide(l, r));
+
+                    pc += 4;
+                }
+
+                case Op.MODULUS -> {
+                    var l = load(registers, constants, code[pc + 2]);
+                    var r = load(registers, constants, code[pc + 3]);
+
+                    registers[code[pc + 1]] = binary(prototype, pc, l, r, Operators.modulus(l, r));
+
+                    pc += 4;
+                }
+
+                case Op.TEST_OR -> {
+                    if (isTrue(load(registers, constants, code[pc + 2]))) {
+                        registers[code[pc + 1]] = true;
+
+                        pc = code[pc + 3];
+                    }
+                    else {
+                        pc += 4;
+                    }
+                }
+
+                case Op.TEST_AND -> {
+                    if (load(registers, constants, code[pc + 2]) instanceof Boolean b && !b) {
+                        registers[code[pc + 1]] = false;
+
+                        pc = code[pc + 3];
+                    }
+                    else {
+                        pc += 4;
+                    }
+                }
+
+                case Op.LOGIC -> {
+                    var r = load(registers, constants, code[pc + 2]);
+
+                    if (!(r instanceof Boolean)) {
+                        binary(prototype, pc, load(registers, constants, code[pc + 3]), r, Operators.Invalid.LEFT);
+                    }
+
+                    registers[code[pc + 1]] = r;
+
+                    pc += 4;
+                }
+
+                case Op.JUMP -> pc = code[pc + 1];
+
+                case Op.JUMP_FALSE -> pc = isTrue(load(registers, constants, code[pc + 1])) ? pc + 3 : code[pc + 2];
+
+                case Op.JUMP_TRUE -> pc = isTrue(load(registers, constants, code[pc + 1])) ? code[pc + 2] : pc + 3;
+
+                case Op.JUMP_SET -> pc = registers[code[pc + 1]] != null ? code[pc + 2] : pc + 3;
+
+                case Op.CALL -> {
+                    var callee = registers[code[pc + 2]];
+
+                    if (!(callee instanceof Closure closure)) {
+                        throw OahuError.notCallableValueError(callee, source, context(prototype, pc));
+                    }
+
+                    var site = code[pc + 5] == 0 ? null : (CallSite) constants[~code[pc + 5]];
+
+                    registers[code[pc + 1]] = invoke(closure, registers, code[pc + 3], code[pc + 4], site, prototype, pc);
+
+                    pc += 6;
+                }
+
+                case Op.TABLE -> {
+                    var list = new ArrayList<>(code[pc + 3]);
+
+                    for (var i = 0; i < code[pc + 3]; i++) {
+                        list.add(registers[code[pc + 2] + i]);
+                    }
+
+                    registers[code[pc + 1]] = new Table(list, new HashMap<>());
+
+                    pc += 4;
+                }
+
+                case Op.CLOSURE -> {
+                    registers[code[pc + 1]] = new Closure((Prototype) constants[~code[pc + 2]], frame);
+
+                    pc += 3;
+                }
+
+                case Op.CLOSURE_IN -> {
+                    registers[code[pc + 1]] = new Closure((Prototype) constants[~code[pc + 2]], (Frame) registers[code[pc + 3]]);
+
+                    pc += 4;
+                }
+
+                case Op.FRAME -> {
+                    registers[code[pc + 1]] = new Frame(new Object[code[pc + 2]], frame);
+
+                    pc += 3;
+                }
+
+                case Op.FRAME_IN -> {
+                    registers[code[pc + 1]] = new Frame(new Object[code[pc + 2]], (Frame) registers[code[pc + 3]]);
+
+                    pc += 4;
+                }
+
+                case Op.LINK -> {
+                    var linked = (Prototype) constants[~code[pc + 2]];
+
+                    var path = linked.fun().path();
+
+                    var link = linker.getFunction(path).orElseThrow(() -> OahuError.missingFunctionLink(path));
+
+                    registers[code[pc + 1]] = new Closure(linked, frame, link);
+
+                    pc += 3;
+                }
+
+                case Op.COUNT -> {
+                    var value = load(registers, constants, code[pc + 2]);
+
+                    if (!(value instanceof Double d)) {
+                        throw OahuError.invalidLoopCount(value, source, context(prototype, pc));
+                    }
+
+                    registers[code[pc + 1]] = new Counter(d);
+
+                    pc += 3;
+                }
+
+                case Op.COUNT_NEXT -> pc = ((Counter) registers[code[pc + 1]]).next() ? pc + 3 : code[pc + 2];
+
+                case Op.ITERATE -> {
+                    var iterable = load(registers, constants, code[pc + 2]);
+
+                    registers[code[pc + 1]] = switch (iterable) {
+                        case Table table -> table.iterator();
+
+                        case String string -> string
+                            .chars()
+                            .mapToObj(c -> (Object) String.valueOf((char) c))
+                            .iterator();
+
+                        default -> throw OahuError.notIterableValueError(iterable, source, context(prototype, pc));
+                    };
+
+                    pc += 3;
+                }
+
+                case Op.NEXT -> {
+                    var iterator = (Iterator<?>) registers[code[pc + 2]];
+
+                    if (iterator.hasNext()) {
+                        registers[code[pc + 1]] = iterator.next();
+
+                        pc += 4;
+                    }
+                    else {
+                        pc = code[pc + 3];
+                    }
+                }
+
+                case Op.UNPACK -> {
+                    var element = registers[code[pc + 2]];
+
+                    if (!(element instanceof Table table)) {
+                        throw OahuError.notIterableValueError(element, source, context(prototype, pc));
+                    }
+
+                    registers[code[pc + 1]] = table.get(code[pc + 3]);
+
+                    pc += 4;
+                }
+
+                case Op.RETURN -> {
+                    return load(registers, constants, code[pc + 1]);
+                }
+
+                case Op.THROW -> throw new Redirect.Throw(load(registers, constants, code[pc + 1]));
+
+                case Op.EXIT -> throw new Redirect.Exit(load(registers, constants, code[pc + 1]));
+
+                case Op.UNHANDLED -> throw OahuError.unhandledRedirect((Redirect) constants[~code[pc + 1]], source, context(prototype, pc));
+
+                case Op.HALT -> {
+                    return null;
+                }
+
+                default -> throw OahuError.failure("Broken VM instruction '%d'!".formatted(code[pc]));
+            }
+        }
+    }
+
+    private static Frame up(Frame frame, int depth) {
+        for (var i = 0; i < depth; i++) {
+            frame = frame.parent();
+        }
+
+        return frame;
+    }
+
+    private Object invoke(Closure closure, Object[] registers, int base, int count, CallSite site, Prototype caller, int pc) {
+        var prototype = closure.prototype();
+
+        if (closure.isLinked()) {
+            return invokeLink(closure, bind(prototype, registers, base, count, site, caller, pc), caller, pc);
+        }
+
+        var frame = new Frame(new Object[prototype.registers()], closure.frame());
+
+        var locals = frame.registers();
+        var slots = prototype.slots();
+
+        if (site == null && count == slots.length && !prototype.isVararg()) {
+            for (var i = 0; i < count; i++) {
+                locals[slots[i]] = registers[base + i];
+            }
+        }
+        else {
+            var values = bind(prototype, registers, base, count, site, caller, pc);
+
+            for (var i = 0; i < slots.length; i++) {
+                locals[slots[i]] = values[i];
+            }
+        }
+
+        return execute(prototype, frame);
+    }
+
+    private Object invokeLink(Closure closure, Object[] values, Prototype caller, int pc) {
+        var fun = closure.prototype().fun();
+
+        var args = new ArrayList<>();
+
+        for (var value : values) {
+            args.add(value == null ? Unit.get() : value);
+        }
+
+        if (!closure.link().resolve(args)) {
+            throw OahuError.linkResolutionError(fun.path(), closure.link().arity(), args.size());
+        }
+
+        try {
+            return closure.link().invoke(null, Null.get(), args);
+        }
+        catch (Redirect.Exit | Redirect.Throw r) {
+            throw r;
+        }
+        catch (Redirect r) {
+            throw OahuError.unhandledRedirect(r, source, context(caller, pc));
+        }
+    }
+
+    private Object[] bind(Prototype prototype, Object[] registers, int base, int count, CallSite site, Prototype caller, int pc) {
+        var names = prototype.names();
+        var vararg = prototype.isVararg();
+
+        if (count > names.length && !vararg) {
+            throw unresolved(prototype, caller, pc);
+        }
+
+        var values = new Object[names.length];
+
+        var positional = new ArrayList<Integer>();
+
+        for (var i = 0; i < count; i++) {
+            if (site == null || !site.isNamed(i)) {
+                positional.add(i);
+
+                continue;
+            }
+
+            var index = Arrays.asList(names).indexOf(site.names()[i]);
+
+            if (index < 0) {
+                throw unresolved(prototype, caller, pc);
+            }
+
+            values[index] = registers[base + i];
+        }
+
+        var p = 0;
+
+        for (var i = 0; i < values.length && p < positional.size(); i++) {
+            if (values[i] == null && !(vararg && i == values.length - 1)) {
+                values[i] = registers[base + positional.get(p++)];
+            }
+        }
+
+        if (vararg && (p < positional.size() || values[values.length - 1] == null && !prototype.isOptional(values.length - 1))) {
+            var list = new ArrayList<>();
+
+            while (p < positional.size()) {
+                var i = positional.get(p++);
+
+                var value = registers[base + i];
+
+                if (site == null || !site.spreads()[i]) {
+                    list.add(value);
+
+                    continue;
+                }
+
+                switch (value) {
+                    case String string -> {
+                        for (var c : string.toCharArray()) {
+                            list.add(String.valueOf(c));
+                        }
+                    }
+
+                    case Table table -> list.addAll(table.list());
+
+                    default -> throw OahuError.notSpreadableValueError(value, source, context(caller, pc));
+                }
+            }
+
+            values[values.length - 1] = new Table(list, new HashMap<>());
+        }
+
+        for (var i = 0; i < values.length; i++) {
+            if (values[i] == null && !prototype.isOptional(i)) {
+                throw unresolved(prototype, caller, pc);
+            }
+        }
+
+        return values;
+    }
+
+    private long context(Prototype prototype, int pc) {
+        return switch (prototype.nodes()[pc]) {
+            case Expr expr -> expr.context();
+
+            case Stmt stmt -> stmt.context();
+
+            case Callable.Param param -> param.name().context();
+
+            case null, default -> Context.none();
+        };
+    }
+
+    private OahuError undefined(Prototype prototype, int pc) {
+        var name = (Expr.Name) prototype.nodes()[pc];
+
+        return OahuError.undefinedName(name, source, name.context());
+    }
+
+    private OahuError unresolved(Prototype prototype, Prototype caller, int pc) {
+        return OahuError.unresolvedArguments(prototype, source, context(caller, pc));
+    }
+
+    private Object unary(Prototype prototype, int pc, Object e, Object result) {
+        if (result instanceof Operators.Invalid) {
+            var expr = (Expr.Unary) prototype.nodes()[pc];
+
+            throw OahuError.invalidUnaryOperand(e, expr.operator(), source, expr.context());
+        }
+
+        return result;
+    }
+
+    private Object binary(Prototype prototype, int pc, Object l, Object r, Object result) {
+        if (result instanceof Operators.Invalid invalid) {
+            var expr = (Expr.Binary) prototype.nodes()[pc];
+
+            throw switch (invalid) {
+                case LEFT -> OahuError.invalidLeftOperand(l, expr.operator(), source, expr.left().context());
+
+                case RIGHT -> OahuError.invalidRightOperand(r, expr.operator(), source, expr.right().context());
+            };
+        }
+
+        return result;
+    }
+
+    private static final class Counter {
+        private final double limit;
+
+        private long i;
+
+        private Counter(double limit) {
+            this.limit = limit;
+        }
+
+        private boolean next() {
+            if (i < limit) {
+                i++;
+
+                return true;
+            }
+
+            return false;
+        }
+    }
+}